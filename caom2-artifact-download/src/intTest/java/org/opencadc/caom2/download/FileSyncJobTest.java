@@ -117,9 +117,11 @@ public class FileSyncJobTest extends AbstractFileSyncTest {
             int retryAfter = 2;
 
             log.info("FileSyncJob: START");
-            FileSyncJob job = new FileSyncJob(skip, harvestSkipURIDAO, artifactDAO, artifactStore,
+            SkipWriter skipWriter = new SkipWriter(harvestSkipURIDAO);
+            FileSyncJob job = new FileSyncJob(skip, skipWriter, artifactDAO, artifactStore,
                                             retryAfter, subject);
             job.run();
+            skipWriter.awaitIdle();
             log.info("FileSyncJob: DONE");
             
             // artifact should not be stored
@@ -157,9 +159,11 @@ public class FileSyncJobTest extends AbstractFileSyncTest {
             int retryAfter = 2;
 
             log.info("FileSyncJob: START");
-            FileSyncJob job = new FileSyncJob(skip, harvestSkipURIDAO, artifactDAO, artifactStore,
+            SkipWriter skipWriter = new SkipWriter(harvestSkipURIDAO);
+            FileSyncJob job = new FileSyncJob(skip, skipWriter, artifactDAO, artifactStore,
                                             retryAfter, subject);
             job.run();
+            skipWriter.awaitIdle();
             log.info("FileSyncJob: DONE");
 
             // artifact should be stored
@@ -197,9 +201,11 @@ public class FileSyncJobTest extends AbstractFileSyncTest {
             int retryAfter = 2;
 
             log.info("FileSyncJob: START");
-            FileSyncJob job = new FileSyncJob(skip, harvestSkipURIDAO, artifactDAO, artifactStore,
+            SkipWriter skipWriter = new SkipWriter(harvestSkipURIDAO);
+            FileSyncJob job = new FileSyncJob(skip, skipWriter, artifactDAO, artifactStore,
                                             retryAfter, subject);
             job.run();
+            skipWriter.awaitIdle();
             log.info("FileSyncJob: DONE");
 
             // artifact should be stored
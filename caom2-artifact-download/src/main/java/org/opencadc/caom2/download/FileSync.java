@@ -117,7 +117,7 @@ public class FileSync implements Runnable {
     private final int retryAfterHours;
     private final ArtifactDAO artifactDAO;
     private final HarvestSkipURIDAO harvestSkipURIDAO;
-    private final HarvestSkipURIDAO jobHarvestSkipURIDAO;
+    private final SkipWriter skipWriter;
     private final ThreadedRunnableExecutor threadPool;
     private final LinkedBlockingQueue<Runnable> jobQueue;
     private final String storageNamespace;
@@ -170,9 +170,11 @@ public class FileSync implements Runnable {
             int poolSize = 1 + threads / 3;
             DBUtil.PoolConfig pc = new DBUtil.PoolConfig(connectionConfig, poolSize, 20000L, "select 123");
             DBUtil.createJNDIDataSource(jobDS, pc);
-            this.jobHarvestSkipURIDAO = new HarvestSkipURIDAO(DBUtil.findJNDIDataSource(jobDS),
-                                                              (String) daoConfig.get("database"),
-                                                              (String) daoConfig.get("schema"));
+            HarvestSkipURIDAO jobHarvestSkipURIDAO = new HarvestSkipURIDAO(DBUtil.findJNDIDataSource(jobDS),
+                                                                           (String) daoConfig.get("database"),
+                                                                           (String) daoConfig.get("schema"));
+            // single writer for skip table updates from FileSyncJob(s)
+            this.skipWriter = new SkipWriter(jobHarvestSkipURIDAO);
 
             // Make FileSyncJob ArtifactDAO instance
             final String artifactJobDS = "jdbc/artifactFileSyncJob";
@@ -240,6 +242,8 @@ public class FileSync implements Runnable {
         // idle time from when jobs finish until next query
         long idle = 10 * poll;
 
+        skipWriter.start();
+        
         boolean ok = true;
         long loopCount = 0;
         while (ok) {
@@ -259,7 +263,7 @@ public class FileSync implements Runnable {
                     while (skipIterator.hasNext()) {
                         HarvestSkipURI harvestSkipURI = skipIterator.next();
                         FileSyncJob fileSyncJob = new FileSyncJob(harvestSkipURI, 
-                                jobHarvestSkipURIDAO, artifactDAO, artifactStore, retryAfterHours, currentUser);
+                                skipWriter, artifactDAO, artifactStore, retryAfterHours, currentUser);
                         jobQueue.put(fileSyncJob); // blocks when queue capacity is reached
                         log.info("FileSync.CREATE: HarvestSkipURI.id=" + harvestSkipURI.getSkipID());
                         num++;
@@ -289,6 +293,12 @@ public class FileSync implements Runnable {
                     }
 
                 }
+                // skip table must be up to date before the next query
+                final long startW = System.currentTimeMillis();
+                skipWriter.awaitIdle();
+                long dtW = System.currentTimeMillis() - startW;
+                log.info("FileSync.SKIP-WRITER wait=" + dtW + " " + skipWriter.getStatus());
+                
                 if (testRunLoops > 0 && loopCount >= testRunLoops) {
                     log.warn("TEST MODE: testRunLoops=" + testRunLoops + " ... terminating!");
                     ok = false;
@@ -310,6 +320,11 @@ public class FileSync implements Runnable {
             log.warn("TEST MODE: testRunLoops=" + testRunLoops + " ... threadPool.terminate");
         }
         this.threadPool.terminate();
+        try {
+            skipWriter.stop();
+        } catch (InterruptedException ex) {
+            log.warn("interrupted while stopping SkipWriter: " + skipWriter.getStatus());
+        }
     }
 
 }
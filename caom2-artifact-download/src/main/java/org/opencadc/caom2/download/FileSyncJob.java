@@ -75,7 +75,6 @@ import ca.nrc.cadc.caom2.artifact.ArtifactMetadata;
 import ca.nrc.cadc.caom2.artifact.ArtifactStore;
 import ca.nrc.cadc.caom2.artifact.resolvers.CaomArtifactResolver;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURI;
-import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURIDAO;
 import ca.nrc.cadc.caom2.persistence.ArtifactDAO;
 import ca.nrc.cadc.caom2.util.CaomValidator;
 import ca.nrc.cadc.io.ByteLimitExceededException;
@@ -96,7 +95,6 @@ import java.net.URI;
 import java.net.URL;
 import java.security.AccessControlException;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import javax.security.auth.Subject;
@@ -116,7 +114,7 @@ public class FileSyncJob implements Runnable  {
     public static final int DEFAULT_READ_TIMEOUT = 60000;
 
     private final HarvestSkipURI harvestSkipURI;
-    private final HarvestSkipURIDAO harvestSkipURIDAO;
+    private final SkipWriter skipWriter;
     private final ArtifactDAO artifactDAO;
     private final ArtifactStore artifactStore;
     private final int retryAfter;
@@ -127,23 +125,23 @@ public class FileSyncJob implements Runnable  {
      * Construct a job to sync the specified artifact.
      *
      * @param harvestSkipURI artifact to sync
-     * @param harvestSkipURIDAO harvest skip database persistence
+     * @param skipWriter writer for skip table updates
      * @param artifactDAO artifact database persistence
      * @param artifactStore back end storage
      * @param retryAfter date after which to retry failed downloads
      * @param subject caller with credentials for downloads
      */
-    public FileSyncJob(HarvestSkipURI harvestSkipURI, HarvestSkipURIDAO harvestSkipURIDAO,
+    public FileSyncJob(HarvestSkipURI harvestSkipURI, SkipWriter skipWriter,
                        ArtifactDAO artifactDAO, ArtifactStore artifactStore,
                        int retryAfter, Subject subject) {
         CaomValidator.assertNotNull(FileSyncJob.class, "harvestSkipURI", harvestSkipURI);
-        CaomValidator.assertNotNull(FileSyncJob.class, "harvestSkipURIDAO", harvestSkipURIDAO);
+        CaomValidator.assertNotNull(FileSyncJob.class, "skipWriter", skipWriter);
         CaomValidator.assertNotNull(FileSyncJob.class, "artifactDAO", artifactDAO);
         CaomValidator.assertNotNull(FileSyncJob.class, "artifactStore", artifactStore);
         CaomValidator.assertNotNull(FileSyncJob.class, "subject", subject);
 
         this.harvestSkipURI = harvestSkipURI;
-        this.harvestSkipURIDAO = harvestSkipURIDAO;
+        this.skipWriter = skipWriter;
         this.artifactDAO = artifactDAO;
         this.artifactStore = artifactStore;
         this.retryAfter = retryAfter;
@@ -321,21 +319,11 @@ public class FileSyncJob implements Runnable  {
                 msg = ex.getMessage();
             }
         } finally {
-            // Update the skip table
-            try {
-                synchronized (harvestSkipURIDAO) {
-                    if (success) {
-                        harvestSkipURIDAO.delete(harvestSkipURI);
-                    } else {
-                        harvestSkipURI.errorMessage = msg;
-                        Calendar c = Calendar.getInstance();
-                        c.add(Calendar.HOUR, retryAfter);
-                        harvestSkipURI.setTryAfter(c.getTime());
-                        harvestSkipURIDAO.put(harvestSkipURI);
-                    }
-                }
-            } catch (Throwable t) {
-                log.error("Failed to update or delete from skip table", t);
+            // queue the skip table update: written asynchronously by SkipWriter
+            if (success) {
+                skipWriter.delete(harvestSkipURI);
+            } else {
+                skipWriter.retry(harvestSkipURI, msg, retryAfter);
             }
             // log final results
             long dt = System.currentTimeMillis() - start;
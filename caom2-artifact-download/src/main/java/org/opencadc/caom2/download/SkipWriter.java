@@ -0,0 +1,346 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package org.opencadc.caom2.download;
+
+import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURI;
+import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURIDAO;
+import ca.nrc.cadc.caom2.util.CaomValidator;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.log4j.Logger;
+
+/**
+ * Asynchronous writer for skip table bookkeeping. FileSyncJob instances queue
+ * completions (delete on success, tryAfter update on failure) without blocking
+ * and a single background thread applies them in batches using
+ * HarvestSkipURIDAO.batch(). Flush latency and batch size statistics are logged
+ * and available via getStatus().
+ * 
+ * @author pdowler
+ */
+public class SkipWriter implements Runnable {
+    private static final Logger log = Logger.getLogger(SkipWriter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    
+    // max time to wait for a batch to fill before flushing
+    private static final long MAX_WAIT = 1000L;
+    
+    private final HarvestSkipURIDAO harvestSkipURIDAO;
+    private final int batchSize;
+    private final LinkedBlockingQueue<Completion> queue = new LinkedBlockingQueue<>();
+    
+    // queued + in-flight completions
+    private final AtomicLong pending = new AtomicLong();
+    
+    // statistics
+    private final AtomicLong numBatches = new AtomicLong();
+    private final AtomicLong numDeletes = new AtomicLong();
+    private final AtomicLong numUpdates = new AtomicLong();
+    private final AtomicLong numFailed = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong totalFlushTime = new AtomicLong();
+    private final AtomicLong maxFlushTime = new AtomicLong();
+    
+    private volatile Thread thread;
+    
+    // signalled when pending drops to 0
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition idle = idleLock.newCondition();
+    
+    public SkipWriter(HarvestSkipURIDAO harvestSkipURIDAO) {
+        this(harvestSkipURIDAO, DEFAULT_BATCH_SIZE);
+    }
+    
+    public SkipWriter(HarvestSkipURIDAO harvestSkipURIDAO, int batchSize) {
+        CaomValidator.assertNotNull(SkipWriter.class, "harvestSkipURIDAO", harvestSkipURIDAO);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("invalid batchSize: " + batchSize);
+        }
+        this.harvestSkipURIDAO = harvestSkipURIDAO;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Start the background writer thread.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, "SkipWriter");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+    
+    /**
+     * Stop the background writer thread after writing all pending completions.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void stop() throws InterruptedException {
+        awaitIdle();
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+        flush();
+        log.info("SkipWriter.STOP " + getStatus());
+    }
+    
+    /**
+     * Queue deletion of a completed skip record. This method never blocks.
+     * 
+     * @param skip skip record to delete
+     */
+    public void delete(HarvestSkipURI skip) {
+        enqueue(new Completion(skip, true));
+    }
+    
+    /**
+     * Queue an update of a failed skip record. The tryAfter date is set 
+     * immediately and the record written later. This method never blocks.
+     * 
+     * @param skip skip record to update
+     * @param errorMessage failure reason
+     * @param retryAfterHours hours to wait before the next attempt
+     */
+    public void retry(HarvestSkipURI skip, String errorMessage, int retryAfterHours) {
+        skip.errorMessage = errorMessage;
+        Calendar c = Calendar.getInstance();
+        c.add(Calendar.HOUR, retryAfterHours);
+        skip.setTryAfter(c.getTime());
+        enqueue(new Completion(skip, false));
+    }
+    
+    private void enqueue(Completion c) {
+        pending.incrementAndGet();
+        queue.add(c); // unbounded: never blocks
+    }
+    
+    /**
+     * @return number of completions queued or being written
+     */
+    public long getPending() {
+        return pending.get();
+    }
+    
+    /**
+     * Wait until all queued completions have been written. If the background thread
+     * is not running or has died, pending completions are written by the calling thread.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitIdle() throws InterruptedException {
+        idleLock.lock();
+        try {
+            while (pending.get() > 0 && isRunning()) {
+                // bounded wait so a writer thread that dies is noticed
+                idle.await(MAX_WAIT, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            idleLock.unlock();
+        }
+        if (pending.get() > 0) {
+            if (thread != null) {
+                log.warn("SkipWriter: writer thread died -- flushing " + pending.get() + " from caller");
+            }
+            flush();
+        }
+    }
+    
+    private boolean isRunning() {
+        Thread t = thread;
+        return t != null && t.isAlive();
+    }
+    
+    /**
+     * Write all currently queued completions from the calling thread.
+     */
+    public void flush() {
+        List<Completion> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+    
+    /**
+     * @return summary of flush statistics: batches, completions, batch sizes and flush latency
+     */
+    public String getStatus() {
+        long nb = numBatches.get();
+        long nd = numDeletes.get();
+        long nu = numUpdates.get();
+        long tt = totalFlushTime.get();
+        StringBuilder sb = new StringBuilder();
+        sb.append("batches=").append(nb);
+        sb.append(" deletes=").append(nd);
+        sb.append(" updates=").append(nu);
+        sb.append(" failed=").append(numFailed.get());
+        sb.append(" pending=").append(pending.get());
+        sb.append(" maxBatch=").append(maxBatchSize.get());
+        if (nb > 0) {
+            sb.append(" avgBatch=").append((nd + nu) / nb);
+            sb.append(" avgFlush=").append(tt / nb);
+        }
+        sb.append(" maxFlush=").append(maxFlushTime.get());
+        return sb.toString();
+    }
+    
+    @Override
+    public void run() {
+        List<Completion> batch = new ArrayList<>(batchSize);
+        boolean ok = true;
+        while (ok) {
+            try {
+                Completion first = queue.poll(MAX_WAIT, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException ex) {
+                log.debug("SkipWriter interrupted - terminating");
+                ok = false;
+            } catch (Exception ex) {
+                // write() handles DAO failures; anything else is a bug
+                log.error("SkipWriter: unexpected failure", ex);
+            }
+        }
+    }
+    
+    private void write(List<Completion> batch) {
+        List<HarvestSkipURI> deletes = new ArrayList<>();
+        List<HarvestSkipURI> updates = new ArrayList<>();
+        for (Completion c : batch) {
+            if (c.delete) {
+                deletes.add(c.skip);
+            } else {
+                updates.add(c.skip);
+            }
+        }
+        
+        long start = System.currentTimeMillis();
+        try {
+            harvestSkipURIDAO.batch(deletes, updates);
+        } catch (Exception ex) {
+            // fall back to individual writes so one bad record does not lose the rest
+            log.warn("SkipWriter.FLUSH batch failed: " + ex + " -- retrying " + batch.size() + " individually");
+            for (Completion c : batch) {
+                try {
+                    if (c.delete) {
+                        harvestSkipURIDAO.delete(c.skip);
+                    } else {
+                        harvestSkipURIDAO.put(c.skip);
+                    }
+                } catch (Exception fail) {
+                    log.error("Failed to update or delete from skip table: " + c.skip.getSkipID(), fail);
+                    numFailed.incrementAndGet();
+                }
+            }
+        } finally {
+            long dt = System.currentTimeMillis() - start;
+            numBatches.incrementAndGet();
+            numDeletes.addAndGet(deletes.size());
+            numUpdates.addAndGet(updates.size());
+            totalFlushTime.addAndGet(dt);
+            maxFlushTime.accumulateAndGet(dt, Math::max);
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+            if (pending.addAndGet(-batch.size()) <= 0) {
+                idleLock.lock();
+                try {
+                    idle.signalAll();
+                } finally {
+                    idleLock.unlock();
+                }
+            }
+            log.info("SkipWriter.FLUSH num=" + batch.size() + " deletes=" + deletes.size()
+                    + " updates=" + updates.size() + " dt=" + dt);
+        }
+    }
+    
+    private static class Completion {
+        final HarvestSkipURI skip;
+        final boolean delete;
+        
+        Completion(HarvestSkipURI skip, boolean delete) {
+            this.skip = skip;
+            this.delete = delete;
+        }
+    }
+}
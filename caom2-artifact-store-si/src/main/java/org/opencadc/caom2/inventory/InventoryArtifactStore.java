@@ -97,8 +97,11 @@ import java.security.AccessControlException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.security.auth.Subject;
 import org.apache.log4j.Logger;
 import org.opencadc.tap.TapClient;
@@ -122,6 +125,7 @@ public class InventoryArtifactStore implements ArtifactStore {
     private static final String CONFIG_PREFIX = InventoryArtifactStore.class.getPackage().getName();
     private static final String QUERY_SERVICE_CONFIG_KEY = CONFIG_PREFIX + ".queryService";
     private static final String LOCATE_SERVICE_CONFIG_KEY = CONFIG_PREFIX + ".locateService";
+    private static final String SEGMENT_THREADS_CONFIG_KEY = CONFIG_PREFIX + ".segmentThreads";
 
     public static final int DEFAULT_TIMEOUT = 600000;  // 10 minutes
 
@@ -135,7 +139,19 @@ public class InventoryArtifactStore implements ArtifactStore {
     private URI queryService;
     private URL storageInventoryTapURL;
     private URL locateServicesFilesURL;
-    private List<Protocol> storeProtocolList = new ArrayList<>();
+    private int segmentThreads = 1;
+
+    // resolved once per AuthMethod and reused for every artifact handled by this store
+    private final Map<AuthMethod, URL> filesServiceURLs = new ConcurrentHashMap<>();
+    private final Map<AuthMethod, InventoryClient> clients = new ConcurrentHashMap<>();
+    private final Map<AuthMethod, List<Protocol>> storeProtocols = new ConcurrentHashMap<>();
+
+    // cumulative per-phase counts and times (ms)
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong lookupTime = new AtomicLong();
+    private final AtomicLong storeCount = new AtomicLong();
+    private final AtomicLong negotiateTime = new AtomicLong();
+    private final AtomicLong transferTime = new AtomicLong();
 
     public InventoryArtifactStore() {
         initConfig();
@@ -170,7 +186,10 @@ public class InventoryArtifactStore implements ArtifactStore {
         } catch (IOException | InterruptedException e) {
             throw new IllegalStateException(e);
         }
-        log.debug("Finished physical get query in " + (System.currentTimeMillis() - start) + " ms");
+        long dt = System.currentTimeMillis() - start;
+        lookupCount.incrementAndGet();
+        lookupTime.addAndGet(dt);
+        log.debug("Finished physical get query in " + dt + " ms");
 
         if (head.getResponseCode() == 200) {
             URI digest = head.getDigest();
@@ -217,26 +236,73 @@ public class InventoryArtifactStore implements ArtifactStore {
     public void store(URI artifactURI, URL src, FileMetadata metadata) throws TransientException, InterruptedException,
             IOException, ResourceNotFoundException {
 
+        final AuthMethod authMethod = getAuthMethod();
         // request all protocols that can be used
-        if (storeProtocolList.isEmpty()) {
-            Subject subject = AuthenticationUtil.getCurrentSubject();
-            AuthMethod authMethod = AuthenticationUtil.getAuthMethodFromCredentials(subject);
-            storeProtocolList.add(new Protocol(VOS.PROTOCOL_HTTPS_PUT));
-            if (!AuthMethod.ANON.equals(authMethod)) {
+        List<Protocol> protocols = storeProtocols.computeIfAbsent(authMethod, am -> {
+            List<Protocol> ret = new ArrayList<>();
+            ret.add(new Protocol(VOS.PROTOCOL_HTTPS_PUT));
+            if (!AuthMethod.ANON.equals(am)) {
                 Protocol httpsAuth = new Protocol(VOS.PROTOCOL_HTTPS_PUT);
-                httpsAuth.setSecurityMethod(Standards.getSecurityMethod(authMethod));
-                storeProtocolList.add(httpsAuth);
+                httpsAuth.setSecurityMethod(Standards.getSecurityMethod(am));
+                ret.add(httpsAuth);
             }
-        }
+            return ret;
+        });
+        InventoryClient storageInventoryClient = clients.computeIfAbsent(authMethod, am -> {
+            InventoryClient ret = new InventoryClient(locatorService);
+            ret.setSegmentThreads(segmentThreads);
+            return ret;
+        });
 
+        long start = System.currentTimeMillis();
         Direction direction = Direction.pushToVoSpace;
-        InventoryClient storageInventoryClient = new InventoryClient(locatorService);
-        Transfer transfer = storageInventoryClient.createTransferSync(artifactURI, direction, storeProtocolList);
+        Transfer transfer = storageInventoryClient.createTransferSync(artifactURI, direction, protocols);
         if (transfer.getAllEndpoints().isEmpty()) {
             throw new RuntimeException("No transfer endpoint available.");
         }
+        long negotiated = System.currentTimeMillis();
+        negotiateTime.addAndGet(negotiated - start);
+        storeCount.incrementAndGet();
 
         storageInventoryClient.upload(transfer, src, metadata);
+        long dt = System.currentTimeMillis() - negotiated;
+        transferTime.addAndGet(dt);
+        log.debug("store " + artifactURI + " negotiate=" + (negotiated - start) + "ms transfer=" + dt + "ms");
+    }
+
+    /**
+     * @return number of get (existence check) calls
+     */
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    /**
+     * @return cumulative time (ms) spent in get (existence check) calls
+     */
+    public long getLookupTime() {
+        return lookupTime.get();
+    }
+
+    /**
+     * @return number of store calls that negotiated a transfer
+     */
+    public long getStoreCount() {
+        return storeCount.get();
+    }
+
+    /**
+     * @return cumulative time (ms) spent negotiating transfers in store calls
+     */
+    public long getNegotiateTime() {
+        return negotiateTime.get();
+    }
+
+    /**
+     * @return cumulative time (ms) spent moving bytes in store calls
+     */
+    public long getTransferTime() {
+        return transferTime.get();
     }
 
     /**
@@ -254,18 +320,28 @@ public class InventoryArtifactStore implements ArtifactStore {
             throws IOException, InterruptedException,
             ResourceNotFoundException, TransientException, AccessControlException {
         
-        ResourceIterator<ArtifactMetadata> iter = iterator(namespace);
         TreeSet<ArtifactMetadata> result = new TreeSet<>(ArtifactMetadata.getComparator());
-        while (iter.hasNext()) {
-            result.add(iter.next());
+        try (ResourceIterator<ArtifactMetadata> iter = query(namespace)) {
+            while (iter.hasNext()) {
+                result.add(iter.next());
+            }
         }
         return result;
     }
     
     // soon: list() will be replaced by iterator()
+    @Override
     public ResourceIterator<ArtifactMetadata> iterator(String namespace)
             throws IOException, InterruptedException,
             ResourceNotFoundException, TransientException, AccessControlException {
+        // the TAP service sorts text with the database collation and ADQL cannot request
+        // byte order, so the artifactURI order required here is imposed in memory
+        return ArtifactStore.super.iterator(namespace);
+    }
+    
+    private ResourceIterator<ArtifactMetadata> query(String namespace)
+            throws IOException, InterruptedException,
+            ResourceNotFoundException, TransientException, AccessControlException {
         String adql = ArtifactRowMapper.SELECT + " WHERE uri LIKE '" + namespace + "%'";
         log.warn("query: " + adql);
         try {
@@ -334,6 +410,18 @@ public class InventoryArtifactStore implements ArtifactStore {
         final String configuredLocateService = props.getFirstPropertyValue(LOCATE_SERVICE_CONFIG_KEY);
         this.locatorService = URI.create(configuredLocateService);
         this.queryService = URI.create(configuredQueryService);
+
+        final String configuredSegmentThreads = props.getFirstPropertyValue(SEGMENT_THREADS_CONFIG_KEY);
+        if (configuredSegmentThreads != null) {
+            try {
+                this.segmentThreads = Integer.parseInt(configuredSegmentThreads.trim());
+            } catch (NumberFormatException ex) {
+                throw new RuntimeException("invalid " + SEGMENT_THREADS_CONFIG_KEY + ": " + configuredSegmentThreads);
+            }
+            if (segmentThreads < 1) {
+                throw new RuntimeException("invalid " + SEGMENT_THREADS_CONFIG_KEY + ": " + configuredSegmentThreads);
+            }
+        }
     }
 
     private String getPrefixes(String collection) {
@@ -360,28 +448,44 @@ public class InventoryArtifactStore implements ArtifactStore {
     }
 
     private URL getLocateFilesURL(URI artifactURI) {
-        try {
-            RegistryClient rc = new RegistryClient();
-            Subject subject = AuthenticationUtil.getCurrentSubject();
-            AuthMethod authMethod = AuthenticationUtil.getAuthMethodFromCredentials(subject);
-            if (authMethod == null) {
-                authMethod = AuthMethod.ANON;
+        URL serviceURL = filesServiceURLs.computeIfAbsent(getAuthMethod(), am -> {
+            URL ret;
+            try {
+                RegistryClient rc = new RegistryClient();
+                ret = rc.getServiceURL(locatorService, Standards.SI_FILES, am);
+            } catch (Throwable t) {
+                String message = "Failed to initialize storage inventory URLs";
+                throw new RuntimeException(message, t);
             }
-
-            URL serviceURL = rc.getServiceURL(locatorService, Standards.SI_FILES, authMethod);
+            // fail here with a useful message instead of an NPE below (null is not cached)
+            if (ret == null) {
+                throw new RuntimeException("Failed to initialize storage inventory URLs: " + Standards.SI_FILES
+                        + " not found for " + locatorService + " with " + am);
+            }
+            return ret;
+        });
+        try {
             return new URL(serviceURL.toExternalForm() + "/" + artifactURI.toASCIIString());
         } catch (MalformedURLException e) {
             throw new IllegalArgumentException(e);
-        } catch (Throwable t) {
-            String message = "Failed to initialize storage inventory URLs";
-            throw new RuntimeException(message, t);
         }
     }
 
+    private static AuthMethod getAuthMethod() {
+        Subject subject = AuthenticationUtil.getCurrentSubject();
+        AuthMethod authMethod = AuthenticationUtil.getAuthMethodFromCredentials(subject);
+        if (authMethod == null) {
+            authMethod = AuthMethod.ANON;
+        }
+        return authMethod;
+    }
+
     @Override
     public void processResults(long total, long successes, long totalElapsedTime, long totalBytes, int threads) {
-        // do nothing - this method was requested by ESAC on the ArtifactStore interface,
-        //              this method does not apply to the cadc-artifact-sync service.
+        // the ESAC summary does not apply here; report where the per-artifact overhead went
+        log.info("InventoryArtifactStore.phases lookups=" + lookupCount.get() + " lookupTime=" + lookupTime.get()
+                + "ms stores=" + storeCount.get() + " negotiateTime=" + negotiateTime.get()
+                + "ms transferTime=" + transferTime.get() + "ms");
     }
 
 }
@@ -91,16 +91,26 @@ import ca.nrc.cadc.vos.TransferWriter;
 import ca.nrc.cadc.vos.VOS;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.AccessControlException;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.security.auth.Subject;
 import org.apache.log4j.Logger;
 
@@ -126,6 +136,11 @@ public class InventoryClient {
     static long MIN_SEGMENT_FILE_SIZE = 5 * 1024L * 1024L * 1024L; // 5 GiB
     // adjustable by test code
     static long SEGMENT_SIZE_PREF = 2 * 1024L * 1024L * 1024L; // 2 GiB
+    // delay before retrying a failed segment, multiplied by the attempt number; adjustable by test code
+    static long SEGMENT_RETRY_DELAY = 2000L;
+
+    private int segmentThreads = 1;
+    private int segmentRetries = 3;
 
     public InventoryClient(URI locateServiceResourceID) {
         try {
@@ -143,6 +158,37 @@ public class InventoryClient {
         }
     }
 
+    // ctor for unit tests: upload to a known endpoint without transfer negotiation
+    InventoryClient() {
+    }
+
+    /**
+     * Set the number of segments of a large file that are fetched from the source concurrently.
+     * Fetched segments are spooled to temporary files until they can be appended to the PUT
+     * transaction, so up to this many segments worth of local disk may be used. The default (1)
+     * streams each segment directly from the source to the destination.
+     *
+     * @param segmentThreads number of concurrent segment downloads
+     */
+    public void setSegmentThreads(int segmentThreads) {
+        if (segmentThreads < 1) {
+            throw new IllegalArgumentException("invalid segmentThreads: " + segmentThreads);
+        }
+        this.segmentThreads = segmentThreads;
+    }
+
+    /**
+     * Set the number of times a failed segment is retried before the PUT transaction is aborted.
+     *
+     * @param segmentRetries number of retries per segment
+     */
+    public void setSegmentRetries(int segmentRetries) {
+        if (segmentRetries < 0) {
+            throw new IllegalArgumentException("invalid segmentRetries: " + segmentRetries);
+        }
+        this.segmentRetries = segmentRetries;
+    }
+
     public Transfer createTransferSync(URI target, Direction direction, List<Protocol> protocolList) throws TransientException {
         Transfer transfer = new Transfer(target, direction);
         transfer.getProtocols().addAll(protocolList);
@@ -218,7 +264,9 @@ public class InventoryClient {
 
     /**
      * Upload file content from src to SI dest. For large files, it takes advantage of the PUT Transactions feature
-     * in SI (https://github.com/opencadc/storage-inventory/blob/master/minoc/PutTransaction)
+     * in SI (https://github.com/opencadc/storage-inventory/blob/master/minoc/PutTransaction).
+     * Segments are fetched from src by up to segmentThreads workers but always appended to the
+     * transaction in order; a failed segment is retried on its own before the transaction is aborted.
      * @param src - URL pointed to the src file. Must support HTTP Range requests
      * @param metadata - file metadata
      * @param dest - SI destination to put the file to.
@@ -227,7 +275,7 @@ public class InventoryClient {
      * @throws IOException
      * @throws ResourceNotFoundException
      */
-    private static void upload(URL src, FileMetadata metadata, URL dest) throws TransientException,
+    void upload(URL src, FileMetadata metadata, URL dest) throws TransientException,
             InterruptedException, IOException, ResourceNotFoundException {
         HttpGet srcInfo = new HttpGet(src, true);
         srcInfo.setHeadOnly(true);
@@ -276,25 +324,20 @@ public class InventoryClient {
         }
         List<PutSegment> segments = getSegmentPlan(metadata, txnMinBytes, txnMaxBytes);
         boolean success = false;
-        HttpGet srcSegment = null;
         try {
-            for (PutSegment seg : segments) {
-                log.debug("Sending segment " + seg.toString());
-                srcSegment = new HttpGet(src, true);
-                srcSegment.setRequestProperty("Range", seg.getRangeHeaderVal());
-                doPrepare(srcSegment);
-                TxnMetadata sendTnx = new TxnMetadata(null, txnID, seg.contentLength);
-                runTxnRequest(dest, sendTnx, srcSegment.getInputStream(), metadata);
-                success = true;
+            if (segmentThreads > 1 && segments.size() > 1) {
+                putSegmentsConcurrent(src, dest, txnID, segments, metadata);
+            } else {
+                for (PutSegment seg : segments) {
+                    putSegment(dest, txnID, seg, metadata, () -> openSegment(src, seg));
+                }
             }
+            success = true;
         } catch (TransientException | IOException | InterruptedException | ResourceNotFoundException | AccessControlException pass) {
             throw pass;
         } catch (Exception ex) {
             throw new RuntimeException("Unexpected error ", ex);
         } finally {
-            if ((srcSegment != null) && (srcSegment.getInputStream() != null)) {
-                srcSegment.getInputStream().close();
-            }
             if (!success) {
                 TxnMetadata abortTxn = new TxnMetadata(PUT_TXN_OP_ABORT, txnID, 0);
                 runTxnRequest(dest, abortTxn, null, metadata);
@@ -305,6 +348,173 @@ public class InventoryClient {
         runTxnRequest(dest, commitTxn, new ByteArrayInputStream(new byte[0]), metadata);
     }
 
+    // fetch up to segmentThreads segments ahead of the segment currently being appended to the txn
+    private void putSegmentsConcurrent(URL src, URL dest, String txnID, List<PutSegment> segments, FileMetadata metadata)
+            throws InterruptedException, ResourceNotFoundException, IOException {
+        final Subject subject = AuthenticationUtil.getCurrentSubject();
+        ExecutorService pool = Executors.newFixedThreadPool(segmentThreads);
+        List<Future<File>> fetches = new ArrayList<>(segments.size());
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                while (fetches.size() < segments.size() && fetches.size() < i + segmentThreads) {
+                    final PutSegment s = segments.get(fetches.size());
+                    fetches.add(pool.submit(() -> Subject.doAs(subject,
+                            (PrivilegedExceptionAction<File>) () -> fetchSegment(src, s))));
+                }
+                File spool = await(fetches.get(i));
+                try {
+                    putSegment(dest, txnID, segments.get(i), metadata, () -> new FileInputStream(spool));
+                } finally {
+                    spool.delete();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Future<File> f : fetches) {
+                if (f.isDone() && !f.isCancelled()) {
+                    try {
+                        f.get().delete();
+                    } catch (ExecutionException ignore) {
+                        log.debug("segment fetch failed: " + ignore.getCause());
+                    }
+                }
+            }
+        }
+    }
+
+    // download one segment to a temporary file, retrying on failure
+    private File fetchSegment(URL src, PutSegment seg) throws InterruptedException, ResourceNotFoundException, IOException {
+        int attempt = 1;
+        while (true) {
+            File spool = File.createTempFile("segment-", ".tmp");
+            boolean ok = false;
+            try (InputStream istream = openSegment(src, seg)) {
+                Files.copy(istream, spool.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                if (spool.length() != seg.contentLength) {
+                    throw new IOException("incomplete segment " + seg + ": received " + spool.length() + " bytes");
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("interrupted after fetching segment " + seg);
+                }
+                ok = true;
+                return spool;
+            } catch (Exception ex) {
+                if (!canRetry(ex, attempt)) {
+                    throw ex;
+                }
+                log.warn("retry: fetch segment " + seg + " attempt " + attempt + " failed: " + ex);
+            } finally {
+                if (!ok) {
+                    spool.delete();
+                }
+            }
+            Thread.sleep(SEGMENT_RETRY_DELAY * attempt);
+            attempt++;
+        }
+    }
+
+    // append one segment to the txn, retrying on failure once the txn is back at the start of the segment
+    private void putSegment(URL dest, String txnID, PutSegment seg, FileMetadata metadata, SegmentInput input)
+            throws InterruptedException, ResourceNotFoundException, IOException {
+        int attempt = 1;
+        while (true) {
+            log.debug("Sending segment " + seg.toString() + " attempt " + attempt);
+            try (InputStream istream = input.open()) {
+                TxnMetadata sendTxn = new TxnMetadata(null, txnID, seg.contentLength);
+                runTxnRequest(dest, sendTxn, istream, metadata);
+                return;
+            } catch (Exception ex) {
+                if (!canRetry(ex, attempt)) {
+                    throw ex;
+                }
+                long stored = getTxnLength(dest, txnID);
+                if (stored == seg.end + 1) {
+                    log.debug("segment " + seg + " was stored before the failure: " + ex);
+                    return;
+                }
+                if (stored > seg.start) {
+                    // partial segment: revert the txn to the end of the previous segment
+                    TxnMetadata revertTxn = new TxnMetadata(PUT_TXN_OP_REVERT, txnID, 0);
+                    runTxnRequest(dest, revertTxn, null, metadata);
+                    stored = getTxnLength(dest, txnID);
+                }
+                if (stored != seg.start) {
+                    log.debug("cannot retry segment " + seg + ": txn length is " + stored);
+                    throw ex;
+                }
+                log.warn("retry: put segment " + seg + " attempt " + attempt + " failed: " + ex);
+            }
+            Thread.sleep(SEGMENT_RETRY_DELAY * attempt);
+            attempt++;
+        }
+    }
+
+    private boolean canRetry(Exception ex, int attempt) {
+        if (ex instanceof InterruptedException || ex instanceof ResourceNotFoundException
+                || ex instanceof AccessControlException) {
+            return false;
+        }
+        return attempt <= segmentRetries;
+    }
+
+    private static InputStream openSegment(URL src, PutSegment seg)
+            throws InterruptedException, ResourceNotFoundException, IOException {
+        HttpGet srcSegment = new HttpGet(src, true);
+        srcSegment.setRequestProperty("Range", seg.getRangeHeaderVal());
+        doPrepare(srcSegment);
+        InputStream istream = srcSegment.getInputStream();
+        if (srcSegment.getContentLength() != seg.contentLength) {
+            istream.close();
+            throw new IOException("unexpected length for segment " + seg + ": " + srcSegment.getContentLength());
+        }
+        return istream;
+    }
+
+    // current length of the txn content, or -1 if it could not be determined
+    private static long getTxnLength(URL dest, String txnID) throws InterruptedException {
+        HttpGet head = new HttpGet(dest, true);
+        head.setHeadOnly(true);
+        head.setRequestProperty(PUT_TXN_ID, txnID);
+        try {
+            doPrepare(head);
+            return head.getContentLength();
+        } catch (InterruptedException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            log.debug("failed to get txn state: " + ex);
+            return -1L;
+        }
+    }
+
+    private static File await(Future<File> fetch) throws InterruptedException, ResourceNotFoundException, IOException {
+        try {
+            return fetch.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof PrivilegedActionException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof ResourceNotFoundException) {
+                throw (ResourceNotFoundException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("segment fetch failed: " + cause, cause);
+        }
+    }
+
+    // segment content source, opened once per attempt
+    private interface SegmentInput {
+        InputStream open() throws InterruptedException, ResourceNotFoundException, IOException;
+    }
+
     static class PutSegment {
         long start;
         long end;
@@ -68,7 +68,19 @@
 package org.opencadc.caom2.inventory;
 
 import ca.nrc.cadc.util.FileMetadata;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -114,4 +126,187 @@ public class InventoryClientTest {
         Assert.assertEquals(9, segments.get(1).start);
         Assert.assertEquals(9, segments.get(1).end);
     }
+
+    @Test
+    public void testSegmentedUpload() throws Exception {
+        final long minFileSize = InventoryClient.MIN_SEGMENT_FILE_SIZE;
+        final long segmentSize = InventoryClient.SEGMENT_SIZE_PREF;
+        final long retryDelay = InventoryClient.SEGMENT_RETRY_DELAY;
+        InventoryClient.MIN_SEGMENT_FILE_SIZE = 16L;
+        InventoryClient.SEGMENT_SIZE_PREF = 10L;
+        InventoryClient.SEGMENT_RETRY_DELAY = 0L;
+        try {
+            for (int threads : new int[] {1, 3}) {
+                byte[] content = new byte[45];
+                for (int i = 0; i < content.length; i++) {
+                    content[i] = (byte) i;
+                }
+                StandIn standIn = new StandIn(content);
+                try {
+                    // first GET of the second segment and first PUT of the third segment fail
+                    standIn.failRanges.add("bytes=10-19");
+                    standIn.failAppends.add(3);
+
+                    FileMetadata fm = new FileMetadata();
+                    fm.setContentLength((long) content.length);
+                    InventoryClient client = new InventoryClient();
+                    client.setSegmentThreads(threads);
+                    client.upload(standIn.getURL("/src"), fm, standIn.getURL("/dest"));
+
+                    Assert.assertTrue("committed", standIn.committed);
+                    Assert.assertFalse("aborted", standIn.aborted);
+                    Assert.assertEquals(1, standIn.reverts);
+                    Assert.assertArrayEquals(content, standIn.getStored());
+                } finally {
+                    standIn.stop();
+                }
+            }
+        } finally {
+            InventoryClient.MIN_SEGMENT_FILE_SIZE = minFileSize;
+            InventoryClient.SEGMENT_SIZE_PREF = segmentSize;
+            InventoryClient.SEGMENT_RETRY_DELAY = retryDelay;
+        }
+    }
+
+    @Test
+    public void testSegmentedUploadAbort() throws Exception {
+        final long minFileSize = InventoryClient.MIN_SEGMENT_FILE_SIZE;
+        final long segmentSize = InventoryClient.SEGMENT_SIZE_PREF;
+        final long retryDelay = InventoryClient.SEGMENT_RETRY_DELAY;
+        InventoryClient.MIN_SEGMENT_FILE_SIZE = 16L;
+        InventoryClient.SEGMENT_SIZE_PREF = 10L;
+        InventoryClient.SEGMENT_RETRY_DELAY = 0L;
+        StandIn standIn = new StandIn(new byte[32]);
+        try {
+            standIn.failRanges.add("bytes=20-29");
+            FileMetadata fm = new FileMetadata();
+            fm.setContentLength(32L);
+            InventoryClient client = new InventoryClient();
+            client.setSegmentThreads(2);
+            client.setSegmentRetries(0);
+            try {
+                client.upload(standIn.getURL("/src"), fm, standIn.getURL("/dest"));
+                Assert.fail("expected upload to fail");
+            } catch (Exception expected) {
+                // expected
+            }
+            Assert.assertTrue("aborted", standIn.aborted);
+            Assert.assertFalse("committed", standIn.committed);
+        } finally {
+            standIn.stop();
+            InventoryClient.MIN_SEGMENT_FILE_SIZE = minFileSize;
+            InventoryClient.SEGMENT_SIZE_PREF = segmentSize;
+            InventoryClient.SEGMENT_RETRY_DELAY = retryDelay;
+        }
+    }
+
+    // local stand-in for a Range-capable source (/src) and a minoc PUT txn endpoint (/dest)
+    private static class StandIn {
+        private final byte[] content;
+        private final HttpServer server;
+        private final List<byte[]> appended = new ArrayList<>();
+        final Set<String> failRanges = new HashSet<>();
+        final Set<Integer> failAppends = new HashSet<>();
+        int appends = 0;
+        int reverts = 0;
+        boolean committed = false;
+        boolean aborted = false;
+
+        StandIn(byte[] content) throws IOException {
+            this.content = content;
+            this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/src", this::handleSource);
+            server.createContext("/dest", this::handleDest);
+            server.start();
+        }
+
+        URL getURL(String path) throws IOException {
+            return new URL("http://localhost:" + server.getAddress().getPort() + path);
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        synchronized byte[] getStored() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] b : appended) {
+                out.write(b, 0, b.length);
+            }
+            return out.toByteArray();
+        }
+
+        private void handleSource(HttpExchange ex) throws IOException {
+            ex.getResponseHeaders().set("Accept-Ranges", "bytes");
+            if ("HEAD".equals(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Content-Length", Long.toString(content.length));
+                ex.sendResponseHeaders(200, -1);
+                ex.close();
+                return;
+            }
+            String range = ex.getRequestHeaders().getFirst("Range");
+            synchronized (this) {
+                if (failRanges.remove(range)) {
+                    ex.sendResponseHeaders(500, -1);
+                    ex.close();
+                    return;
+                }
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            ex.sendResponseHeaders(206, end - start + 1);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(content, start, end - start + 1);
+            }
+        }
+
+        private void handleDest(HttpExchange ex) throws IOException {
+            String op = ex.getRequestHeaders().getFirst(InventoryClient.PUT_TXN_OP);
+            byte[] body = readBody(ex.getRequestBody());
+            int code = 202;
+            synchronized (this) {
+                if ("HEAD".equals(ex.getRequestMethod())) {
+                    ex.getResponseHeaders().set("Content-Length", Integer.toString(getStored().length));
+                    ex.sendResponseHeaders(200, -1);
+                    ex.close();
+                    return;
+                }
+                if (InventoryClient.PUT_TXN_OP_START.equals(op)) {
+                    ex.getResponseHeaders().set(InventoryClient.PUT_TXN_ID, "txn-1");
+                } else if (InventoryClient.PUT_TXN_OP_COMMIT.equals(op)) {
+                    committed = true;
+                    code = 201;
+                } else if (InventoryClient.PUT_TXN_OP_ABORT.equals(op)) {
+                    aborted = true;
+                    code = 204;
+                } else if (InventoryClient.PUT_TXN_OP_REVERT.equals(op)) {
+                    appended.remove(appended.size() - 1);
+                    reverts++;
+                    code = 204;
+                } else {
+                    appends++;
+                    if (failAppends.remove(appends)) {
+                        // keep a partial segment and fail the request
+                        appended.add(Arrays.copyOf(body, body.length / 2));
+                        code = 500;
+                    } else {
+                        appended.add(body);
+                    }
+                }
+            }
+            ex.sendResponseHeaders(code, -1);
+            ex.close();
+        }
+
+        private static byte[] readBody(InputStream istream) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = istream.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
 }
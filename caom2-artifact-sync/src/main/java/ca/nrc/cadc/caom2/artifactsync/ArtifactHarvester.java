@@ -70,10 +70,9 @@
 package ca.nrc.cadc.caom2.artifactsync;
 
 import ca.nrc.cadc.caom2.Artifact;
-import ca.nrc.cadc.caom2.Observation;
 import ca.nrc.cadc.caom2.ObservationState;
-import ca.nrc.cadc.caom2.Plane;
 import ca.nrc.cadc.caom2.access.AccessUtil;
+import ca.nrc.cadc.caom2.artifact.ArtifactMetadata;
 import ca.nrc.cadc.caom2.artifact.ArtifactStore;
 import ca.nrc.cadc.caom2.artifact.StoragePolicy;
 import ca.nrc.cadc.caom2.harvester.HarvestResource;
@@ -82,15 +81,19 @@ import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURIDAO;
 import ca.nrc.cadc.caom2.harvester.state.HarvestState;
 import ca.nrc.cadc.caom2.harvester.state.HarvestStateDAO;
 import ca.nrc.cadc.caom2.harvester.state.PostgresqlHarvestStateDAO;
+import ca.nrc.cadc.caom2.persistence.ArtifactDAO;
 import ca.nrc.cadc.caom2.persistence.ObservationDAO;
 import ca.nrc.cadc.date.DateUtil;
 
 import java.net.URI;
 import java.security.PrivilegedExceptionAction;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.lang.model.type.NullType;
@@ -107,6 +110,7 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
     private static final Logger log = Logger.getLogger(ArtifactHarvester.class);
 
     private ObservationDAO observationDAO;
+    private ArtifactDAO artifactDAO;
     private ArtifactStore artifactStore;
     private HarvestStateDAO harvestStateDAO;
     private HarvestSkipURIDAO harvestSkipURIDAO;
@@ -132,6 +136,7 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
                              ArtifactStore artifactStore, int batchSize, boolean loop) {
 
         this.observationDAO = observationDAO;
+        this.artifactDAO = new ArtifactDAO(observationDAO);
         this.artifactStore = artifactStore;
         this.batchSize = batchSize;
         this.loop = loop;
@@ -205,10 +210,9 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
                                       + this.df.format(state.curLastModified));
                     }
                     if (curBatchLeader.getMaxLastModified().equals(state.curLastModified)) {
-                        Observation observation = this.observationDAO.get(curBatchLeader.getID());
-                        log.debug("current batch: " + format(observation.getID()) + ", "
+                        log.debug("current batch: " + format(curBatchLeader.getID()) + ", "
                                       + this.df.format(curBatchLeader.getMaxLastModified()));
-                        if (state.curID != null && state.curID.equals(observation.getID())) {
+                        if (state.curID != null && state.curID.equals(curBatchLeader.getID())) {
                             iter.remove();
                         }
                     }
@@ -220,90 +224,79 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
                 return true; // stop
             }
             
+            // one query for the artifacts of the whole batch
+            List<UUID> ids = new ArrayList<>(observationStates.size());
             for (ObservationState observationState : observationStates) {
-
-                try {
-                    Observation observation = this.observationDAO.get(observationState.getID());
-                    
-                    if (observation != null) {
-                        this.observationDAO.getTransactionManager().startTransaction();
-                        // will make progress even on failures
-                        state.curLastModified = observation.getMaxLastModified();
-                        state.curID = observation.getID();
-                        
-                        for (Plane plane : observation.getPlanes()) {
-                            for (Artifact artifact : plane.getArtifacts()) {
-                                Date releaseDate = AccessUtil.getReleaseDate(artifact, plane.metaRelease,
-                                                                             plane.dataRelease);
-                                if (releaseDate == null) {
-                                    // null date means private
-                                    log.debug("null release date, skipping");
-                                } else {
-                                    logStart(format(state.curID), artifact);
-                                    boolean success = true;
-                                    boolean added = false;
-                                    String message = null;
-                                    this.caomChecksum = getMD5Sum(artifact.contentChecksum);
-                                    if (this.caomChecksum == null) {
-                                        this.caomChecksum = "null";
-                                    }
-                                    
-                                    if (artifact.contentLength == null) {
-                                        this.caomContentLength = null;
-                                    } else {
-                                        this.caomContentLength = artifact.contentLength;
-                                    }
-
-                                    // release date is not null, download in the future
-                                    boolean isProprietary = releaseDate.after(start);
-                                    String dataType = isProprietary ? ArtifactHarvester.PROPRIETARY : ArtifactHarvester.PUBLIC;
-                                    this.reason = "None";
-                                    this.totalCount++;
-
-                                    try {
-                                        HarvestSkipURI skip = harvestSkipURIDAO.get(source, STATE_CLASS,
-                                                                                    artifact.getURI());
-                                        message = dataType;
-                                        if (skip == null) {
-                                            // not in skip table, add it
-                                            skip = new HarvestSkipURI(source, STATE_CLASS, artifact.getURI(),
-                                                                      releaseDate, dataType);
-                                            added = true;
-                                            this.addCount++;
-                                            message += " artifact added to skip table";
-                                        } else {
-                                            this.updateCount++;
-                                            message += " artifact already exists in skip table";
-                                            this.reason = "artifact already exists in skip table";
-                                        }
-                                        skip.setTryAfter(releaseDate);
-                                        message += ", update tryAfter date to release date.";
-                                        this.harvestSkipURIDAO.put(skip);
-                                    } catch (Exception ex) {
-                                        success = false;
-                                        message = "Failed to determine if artifact " + artifact.getURI() + " exists: "
-                                            + ex.getMessage();
-                                        this.reason = "Failed to determine if artifact exists";
-                                        log.error(message, ex);
-                                    }
-                                    logEnd(observation, artifact, success, added, message);
-                                }
-                            }
-                        }
-                        this.harvestStateDAO.put(state);
-                        log.debug("Updated artifact harvest state.  Date: " + state.curLastModified);
-                        log.debug("Updated artifact harvest state.  ID: " + format(state.curID));
-
-                        this.observationDAO.getTransactionManager().commitTransaction();
+                ids.add(observationState.getID());
+            }
+            Map<UUID, List<ArtifactMetadata>> artifacts = this.artifactDAO.getMetadata(ids);
+            
+            List<SkipCandidate> candidates = new ArrayList<>();
+            List<HarvestSkipURI> skips = new ArrayList<>();
+            for (ObservationState observationState : observationStates) {
+                List<ArtifactMetadata> oas = artifacts.get(observationState.getID());
+                if (oas == null) {
+                    log.debug("no artifacts: " + observationState.getURI());
+                    continue;
+                }
+                for (ArtifactMetadata am : oas) {
+                    Artifact artifact = new Artifact(am.getArtifactURI(), am.productType, am.releaseType);
+                    Date releaseDate = AccessUtil.getReleaseDate(artifact, am.metaRelease, am.dataRelease);
+                    if (releaseDate == null) {
+                        // null date means private
+                        log.debug("null release date, skipping");
                     } else {
-                        log.debug("Observation no longer exists: " + observationState.getURI());
+                        logStart(format(observationState.getID()), am.getArtifactURI());
+                        // release date is not null, download in the future
+                        boolean isProprietary = releaseDate.after(start);
+                        String dataType = isProprietary ? ArtifactHarvester.PROPRIETARY : ArtifactHarvester.PUBLIC;
+                        HarvestSkipURI skip = new HarvestSkipURI(source, STATE_CLASS, am.getArtifactURI(),
+                                                                 releaseDate, dataType);
+                        candidates.add(new SkipCandidate(observationState, am, dataType));
+                        skips.add(skip);
+                        this.totalCount++;
                     }
-                    
-                } catch (Throwable t) {
-                    this.observationDAO.getTransactionManager().rollbackTransaction();
-                    throw t;
                 }
             }
+            
+            try {
+                this.observationDAO.getTransactionManager().startTransaction();
+                
+                // one upsert for the batch: new skip records are added, existing ones get tryAfter = release date
+                Set<URI> inserted = this.harvestSkipURIDAO.upsert(skips);
+                for (SkipCandidate c : candidates) {
+                    boolean added = inserted.remove(c.artifact.getArtifactURI());
+                    String message = c.dataType;
+                    if (added) {
+                        this.addCount++;
+                        this.reason = "None";
+                        message += " artifact added to skip table";
+                    } else {
+                        this.updateCount++;
+                        this.reason = "artifact already exists in skip table";
+                        message += " artifact already exists in skip table";
+                    }
+                    message += ", update tryAfter date to release date.";
+                    logEnd(c, true, added, message);
+                }
+                
+                // will make progress even on failures
+                ObservationState last = observationStates.get(observationStates.size() - 1);
+                state.curLastModified = last.getMaxLastModified();
+                state.curID = last.getID();
+                this.harvestStateDAO.put(state);
+                log.debug("Updated artifact harvest state.  Date: " + state.curLastModified);
+                log.debug("Updated artifact harvest state.  ID: " + format(state.curID));
+
+                this.observationDAO.getTransactionManager().commitTransaction();
+            } catch (Throwable t) {
+                this.observationDAO.getTransactionManager().rollbackTransaction();
+                this.reason = "Failed to update skip table";
+                for (SkipCandidate c : candidates) {
+                    logEnd(c, false, false, "Failed to update skip table: " + t.getMessage());
+                }
+                throw t;
+            }
 
             // batch completed: try another
             return false;
@@ -313,18 +306,6 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
 
     }
     
-    private String getMD5Sum(URI checksum) throws UnsupportedOperationException {
-        if (checksum == null) {
-            return null;
-        }
-
-        if (checksum.getScheme().equalsIgnoreCase("MD5")) {
-            return checksum.getSchemeSpecificPart();
-        } else {
-            throw new UnsupportedOperationException("Checksum algorithm " + checksum.getScheme() + " not supported.");
-        }
-    }
-
     private String format(UUID id) {
         if (id == null) {
             return "null";
@@ -339,25 +320,30 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
         return n.toString();
     }
 
-    private void logStart(String observationID, Artifact artifact) {
+    private void logStart(String observationID, URI artifactURI) {
         StringBuilder startMessage = new StringBuilder();
         startMessage.append("START: {");
         startMessage.append("\"observationID\":\"").append(observationID).append("\"");
         startMessage.append(",");
-        startMessage.append("\"artifact\":\"").append(artifact.getURI()).append("\"");
+        startMessage.append("\"artifact\":\"").append(artifactURI).append("\"");
         startMessage.append(",");
         startMessage.append("\"date\":\"").append(this.df.format(new Date())).append("\"");
         startMessage.append("}");
         log.info(startMessage.toString());
     }
 
-    private void logEnd(Observation o, Artifact artifact, boolean success, boolean added, String message) {
+    private void logEnd(SkipCandidate c, boolean success, boolean added, String message) {
+        this.caomChecksum = c.artifact.getChecksum();
+        if (this.caomChecksum == null) {
+            this.caomChecksum = "null";
+        }
+        this.caomContentLength = c.artifact.contentLength;
         final String caomContentLengthStr = safeToString(this.caomContentLength);
         StringBuilder endMessage = new StringBuilder();
         endMessage.append("END: {");
-        endMessage.append("\"observationID\":\"").append(o.getID()).append("\"");
+        endMessage.append("\"observationID\":\"").append(c.observation.getID()).append("\"");
         endMessage.append(",");
-        endMessage.append("\"artifact\":\"").append(artifact.getURI()).append("\"");
+        endMessage.append("\"artifact\":\"").append(c.artifact.getArtifactURI()).append("\"");
         endMessage.append(",");
         endMessage.append("\"success\":\"").append(success).append("\"");
         endMessage.append(",");
@@ -379,7 +365,7 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
             endMessage.append("\"message\":\"").append(message).append("\"");
         }
         endMessage.append(",");
-        endMessage.append("\"lastModified\":\"").append(df.format(o.getMaxLastModified())).append("\"");
+        endMessage.append("\"lastModified\":\"").append(df.format(c.observation.getMaxLastModified())).append("\"");
         endMessage.append("\"date\":\"").append(df.format(new Date())).append("\"");
         endMessage.append("}");
         log.info(endMessage.toString());
@@ -410,4 +396,17 @@ public class ArtifactHarvester implements PrivilegedExceptionAction<NullType>, S
         logBatchEnd("ENDDISCOVER");
     }
     
+    // a public or proprietary artifact found in the current batch
+    private static class SkipCandidate {
+        ObservationState observation;
+        ArtifactMetadata artifact;
+        String dataType;
+        
+        SkipCandidate(ObservationState observation, ArtifactMetadata artifact, String dataType) {
+            this.observation = observation;
+            this.artifact = artifact;
+            this.dataType = dataType;
+        }
+    }
+    
 }
@@ -73,9 +73,6 @@ package ca.nrc.cadc.caom2.artifactsync;
 import ca.nrc.cadc.auth.AuthMethod;
 import ca.nrc.cadc.auth.AuthenticationUtil;
 import ca.nrc.cadc.caom2.Artifact;
-import ca.nrc.cadc.caom2.ObservationResponse;
-import ca.nrc.cadc.caom2.ObservationState;
-import ca.nrc.cadc.caom2.Plane;
 import ca.nrc.cadc.caom2.access.AccessUtil;
 import ca.nrc.cadc.caom2.artifact.ArtifactMetadata;
 import ca.nrc.cadc.caom2.artifact.ArtifactStore;
@@ -83,22 +80,26 @@ import ca.nrc.cadc.caom2.artifact.StoragePolicy;
 import ca.nrc.cadc.caom2.harvester.HarvestResource;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURI;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURIDAO;
+import ca.nrc.cadc.caom2.persistence.ArtifactDAO;
 import ca.nrc.cadc.caom2.persistence.ObservationDAO;
 import ca.nrc.cadc.date.DateUtil;
+import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.net.HttpGet;
 import ca.nrc.cadc.net.ResourceNotFoundException;
 import ca.nrc.cadc.reg.Standards;
 import ca.nrc.cadc.util.StringUtil;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.security.PrivilegedExceptionAction;
 import java.text.DateFormat;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Iterator;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -137,6 +138,7 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
     private boolean tolerateNullContentLength = false;
     private long newSkipURICount = 0;
     private long updateSkipURICount = 0;
+    private boolean streaming = false;
         
     private ExecutorService executor;
     
@@ -172,11 +174,27 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
         this.tolerateNullContentLength = tolerateNullContentLength;
     }
 
+    /**
+     * Enable streaming mode: merge artifactURI-ordered sequences from caom2 and
+     * storage instead of loading all metadata into memory. The order is byte order
+     * (ArtifactMetadata.getComparator()): a caom2 database is queried in that order, 
+     * while TAP query results are sorted in memory because ADQL cannot select a collation.
+     * 
+     * @param streaming enable streaming mode if true
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     @Override
     public Object run() throws Exception {
         
         final long start = System.currentTimeMillis();
         log.info("Starting validation for collection " + collection);
+        if (streaming) {
+            runStreaming(start);
+            return null;
+        }
         executor = Executors.newFixedThreadPool(2);
         final Future<TreeSet<ArtifactMetadata>> logicalQuery = executor.submit(new Callable<TreeSet<ArtifactMetadata>>() {
             public TreeSet<ArtifactMetadata> call() throws Exception {
@@ -208,22 +226,71 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
         return null;
     }
     
+    private void runStreaming(long start) throws Exception {
+        Iterator<ArtifactMetadata> logicalIter = null;
+        Iterator<ArtifactMetadata> physicalIter = null;
+        try {
+            logicalIter = getLogicalIterator();
+            log.info("Submitted query to caom2");
+            physicalIter = artifactStore.iterator(collection);
+            log.info("Submitted query to storage");
+            
+            MergeInput logical = new MergeInput("caom2", logicalIter);
+            MergeInput physical = new MergeInput("storage", physicalIter);
+            if (logical.cur == null || physical.cur == null) {
+                log.error("Number of artifacts in caom2 or in storage cannot be zero.");
+            } else {
+                compareMetadata(logical, physical, start);
+            }
+        } finally {
+            close(logicalIter);
+            close(physicalIter);
+        }
+    }
+    
+    private void close(Iterator<ArtifactMetadata> iter) {
+        if (iter instanceof Closeable) {
+            try {
+                ((Closeable) iter).close();
+            } catch (Exception ex) {
+                log.warn("failed to close iterator: " + ex);
+            }
+        }
+    }
+    
     void compareMetadata(TreeSet<ArtifactMetadata> logicalMetadata, TreeSet<ArtifactMetadata> physicalMetadata,
             long start) throws Exception {
+        compareMetadata(new MergeInput("caom2", logicalMetadata.iterator()), 
+            new MergeInput("storage", physicalMetadata.iterator()), start);
+    }
+    
+    // merge join of the artifactURI-ordered logical and physical sequences
+    private void compareMetadata(MergeInput logical, MergeInput physical, long start) throws Exception {
         boolean supportSkipURITable = supportSkipURITable();
-        long logicalCount = logicalMetadata.size();
-        long physicalCount = physicalMetadata.size();
+        Comparator<ArtifactMetadata> comparator = ArtifactMetadata.getComparator();
         long correct = 0;
         long diffLength = 0;
         long diffType = 0;
         long diffChecksum = 0;
         long notInLogical = 0;
+        long missingFromStorage = 0;
+        long notPublic = 0;
+        StoragePolicy storagePolicy = artifactStore.getStoragePolicy(this.collection);
+        Date now = new Date();
         
-        ArtifactMetadata nextLogical = null;
-        for (ArtifactMetadata nextPhysical : physicalMetadata) {
-            if (logicalMetadata.contains(nextPhysical)) {
-                nextLogical = logicalMetadata.ceiling(nextPhysical);
-                logicalMetadata.remove(nextLogical);
+        while (logical.cur != null || physical.cur != null) {
+            int c;
+            if (logical.cur == null) {
+                c = 1;
+            } else if (physical.cur == null) {
+                c = -1;
+            } else {
+                c = comparator.compare(logical.cur, physical.cur);
+            }
+            
+            if (c == 0) {
+                ArtifactMetadata nextLogical = logical.cur;
+                ArtifactMetadata nextPhysical = physical.cur;
                 if (matches(nextLogical.getChecksum(), nextPhysical.getChecksum())) {
                     if (matches(nextLogical.contentLength, nextPhysical.contentLength)) {
                         if (matches(nextLogical.contentType, nextPhysical.contentType)) {
@@ -275,71 +342,73 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
                          "caomCollection", collection},
                         false);
                 }
-            } else {
+                logical.advance();
+                physical.advance();
+            } else if (c > 0) {
+                ArtifactMetadata nextPhysical = physical.cur;
                 notInLogical++;
                 logJSON(new String[]
                     {"logType", "detail",
                      "anomaly", "notInCAOM",
                      "artifactURI", nextPhysical.getArtifactURI().toString()},
                     false);
-            }
-        }
-        
-        // at this point, any artifact that is in logicalArtifacts, is not in physicalArtifacts
-        long missingFromStorage = 0;
-        long notPublic = 0;
-        StoragePolicy storagePolicy = artifactStore.getStoragePolicy(this.collection);
-        Date now = new Date();
-        for (ArtifactMetadata metadata : logicalMetadata) {
-            String errorMessage = null; 
-            
-            Artifact artifact = new Artifact(metadata.getArtifactURI(), metadata.productType, metadata.releaseType);
-            Date releaseDate = AccessUtil.getReleaseDate(artifact, metadata.metaRelease, metadata.dataRelease);
-            String releaseDateString = "null";
-            boolean miss = false;
-            if (releaseDate == null) {
-                // proprietary artifact, skip
-                log.debug("null release date, skipping");
-                if (StoragePolicy.PUBLIC_ONLY == storagePolicy) {
-                    notPublic++;
-                } else {
-                    // missing proprietary artifact, but won't be added to skip table
-                    miss = true;
-                }
+                physical.advance();
             } else {
-                releaseDateString = df.format(releaseDate);
-                if (releaseDate.after(now)) {
-                    // proprietary artifact, add to skip table for future download
-                    errorMessage = ArtifactHarvester.PROPRIETARY;
+                // artifact in logical is not in physical
+                ArtifactMetadata metadata = logical.cur;
+                String errorMessage = null; 
+            
+                Artifact artifact = new Artifact(metadata.getArtifactURI(), metadata.productType, metadata.releaseType);
+                Date releaseDate = AccessUtil.getReleaseDate(artifact, metadata.metaRelease, metadata.dataRelease);
+                String releaseDateString = "null";
+                boolean miss = false;
+                if (releaseDate == null) {
+                    // proprietary artifact, skip
+                    log.debug("null release date, skipping");
                     if (StoragePolicy.PUBLIC_ONLY == storagePolicy) {
                         notPublic++;
                     } else {
-                        // missing proprietary artifact, add to skip table
+                        // missing proprietary artifact, but won't be added to skip table
                         miss = true;
                     }
                 } else {
-                    // missing public artifact, add to skip table
-                    miss = true;
-                }
+                    releaseDateString = df.format(releaseDate);
+                    if (releaseDate.after(now)) {
+                        // proprietary artifact, add to skip table for future download
+                        errorMessage = ArtifactHarvester.PROPRIETARY;
+                        if (StoragePolicy.PUBLIC_ONLY == storagePolicy) {
+                            notPublic++;
+                        } else {
+                            // missing proprietary artifact, add to skip table
+                            miss = true;
+                        }
+                    } else {
+                        // missing public artifact, add to skip table
+                        miss = true;
+                    }
                 
-                // add to HavestSkipURI table if there is not already a row in the table
-                if (supportSkipURITable) {
-                    addToOrUpdateSkipTable(metadata, errorMessage);
+                    // add to HavestSkipURI table if there is not already a row in the table
+                    if (supportSkipURITable) {
+                        addToOrUpdateSkipTable(metadata, errorMessage);
+                    }
                 }
-            }
             
-            if (miss) {
-                missingFromStorage++;
-                logJSON(new String[]
-                    {"logType", "detail",
-                     "anomaly", "missingFromStorage",
-                     "releaseDate", releaseDateString,
-                     "observationID", metadata.observationID,
-                     "artifactURI", metadata.getArtifactURI().toASCIIString(),
-                     "caomCollection", collection},
-                    false);
+                if (miss) {
+                    missingFromStorage++;
+                    logJSON(new String[]
+                        {"logType", "detail",
+                         "anomaly", "missingFromStorage",
+                         "releaseDate", releaseDateString,
+                         "observationID", metadata.observationID,
+                         "artifactURI", metadata.getArtifactURI().toASCIIString(),
+                         "caomCollection", collection},
+                        false);
+                }
+                logical.advance();
             }
         }
+        long logicalCount = logical.count;
+        long physicalCount = physical.count;
         
         if (reportOnly) {
             // diff
@@ -512,6 +581,83 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
         }
     }
     
+    // uri-ordered input to the merge: skips duplicate artifactURI and fails on out-of-order input
+    private static class MergeInput {
+        private final String name;
+        private final Iterator<ArtifactMetadata> iter;
+        private final Comparator<ArtifactMetadata> comparator = ArtifactMetadata.getComparator();
+        ArtifactMetadata cur;
+        long count = 0;
+        
+        MergeInput(String name, Iterator<ArtifactMetadata> iter) {
+            this.name = name;
+            this.iter = iter;
+            advance();
+        }
+        
+        final void advance() {
+            ArtifactMetadata prev = cur;
+            cur = null;
+            while (cur == null && iter.hasNext()) {
+                ArtifactMetadata next = iter.next();
+                int c = (prev == null ? -1 : comparator.compare(prev, next));
+                if (c < 0) {
+                    cur = next;
+                } else if (c > 0) {
+                    throw new IllegalStateException(name + " artifacts not in artifactURI order: " 
+                        + next.getArtifactURI() + " after " + prev.getArtifactURI());
+                }
+                // c == 0: duplicate artifactURI
+            }
+            if (cur != null) {
+                count++;
+            }
+        }
+    }
+    
+    private Iterator<ArtifactMetadata> getLogicalIterator() throws Exception {
+        if (StringUtil.hasText(source)) {
+            // HarvestSkipURI table is not supported in 'diff' mode, i.e. reportOnly = true
+            this.supportSkipURITable = !reportOnly;
+            ArtifactDAO artifactDAO = new ArtifactDAO(observationDAO);
+            return new CheckedIterator(artifactDAO.metadataIterator(collection));
+        }
+        
+        // the TAP service sorts text with the database collation and ADQL cannot request
+        // byte order, so the artifactURI order of the merge is imposed in memory
+        this.supportSkipURITable = false;
+        initTapURL();
+        String adql = getLogicalQuery();
+        log.debug("logical query: " + adql);
+        return query(caomTapURL, adql).iterator();
+    }
+    
+    private void initTapURL() throws Exception {
+        if (caomTapResourceID != null) {
+            // source is a TAP resource ID
+            AuthMethod authMethod = AuthenticationUtil.getAuthMethodFromCredentials(AuthenticationUtil.getCurrentSubject());
+            URI securityMethod = Standards.getSecurityMethod(authMethod);
+            TapClient tapClient = new TapClient(caomTapResourceID);
+            try {
+                this.caomTapURL = tapClient.getSyncURL(securityMethod);
+            } catch (ResourceNotFoundException ex) {
+                if (ex.getMessage().contains("with password")) {
+                    throw new ResourceNotFoundException("TAP service for "
+                        + caomTapResourceID + " does not support password authentication.", ex);
+                }
+            }
+        }
+    }
+    
+    private String getLogicalQuery() {
+        return "select distinct(a.uri), a.contentChecksum, a.contentLength, a.contentType, o.observationID, "
+                + "a.productType, a.releaseType, p.dataRelease, p.metaRelease "
+                + "from caom2.Artifact a "
+                + "join caom2.Plane p on a.planeID = p.planeID "
+                + "join caom2.Observation o on p.obsID = o.obsID "
+                + "where o.collection='" + collection + "'";
+    }
+    
     private TreeSet<ArtifactMetadata> getLogicalMetadata() throws Exception {
         TreeSet<ArtifactMetadata> result = new TreeSet<>(ArtifactMetadata.getComparator());
         if (StringUtil.hasText(source)) {
@@ -519,57 +665,20 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
             // HarvestSkipURI table is not supported in 'diff' mode, i.e. reportOnly = true
             this.supportSkipURITable = !reportOnly;
             long t1 = System.currentTimeMillis();
-            List<ObservationState> states = observationDAO.getObservationList(collection, null, null, null);
-            long t2 = System.currentTimeMillis();
-            long dt = t2 - t1;
-            log.info("get-state-list: size=" + states.size() + " in " + dt + " ms");
-            
-            int depth = 3;
-            ListIterator<ObservationState> iter = states.listIterator();
-            t1 = System.currentTimeMillis();
-            while (iter.hasNext()) {
-                ObservationState s = iter.next();
-                iter.remove(); // GC
-                ObservationResponse resp = observationDAO.getObservationResponse(s, depth);
-                if (resp == null) {
-                    log.error("Null response from Observation DAO, ObservationURI: " + s.getURI().toString() + ", depth: " + depth);
-                } else if (resp.observation == null) {
-                    log.error("Observation is null, ObservationURI: " + s.getURI().toString() + ", depth: " + depth);
-                } else {
-                    for (Plane plane : resp.observation.getPlanes()) {
-                        for (Artifact artifact : plane.getArtifacts()) {
-                            String observationID = s.getURI().getObservationID();
-                            result.add(getMetadata(observationID, artifact, plane.dataRelease, plane.metaRelease));
-                        }
-                    }
+            ArtifactDAO artifactDAO = new ArtifactDAO(observationDAO);
+            try (ResourceIterator<ArtifactMetadata> iter = artifactDAO.metadataIterator(collection)) {
+                while (iter.hasNext()) {
+                    result.add(checkMetadata(iter.next()));
                 }
             }
             
-            log.info("Finished logical metadata query in " + (System.currentTimeMillis() - t1) + " ms");
+            log.info("Finished logical metadata query: size=" + result.size() + " in " + (System.currentTimeMillis() - t1) + " ms");
         } else {
             this.supportSkipURITable = false;
-            if (caomTapResourceID != null) {
-                // source is a TAP resource ID
-                AuthMethod authMethod = AuthenticationUtil.getAuthMethodFromCredentials(AuthenticationUtil.getCurrentSubject());
-                URI securityMethod = Standards.getSecurityMethod(authMethod);
-                TapClient tapClient = new TapClient(caomTapResourceID);
-                try {
-                    this.caomTapURL = tapClient.getSyncURL(securityMethod);
-                } catch (ResourceNotFoundException ex) {
-                    if (ex.getMessage().contains("with password")) {
-                        throw new ResourceNotFoundException("TAP service for "
-                            + caomTapResourceID + " does not support password authentication.", ex);
-                    }
-                }
-            }
+            initTapURL();
             
             // source is a TAP service URL or a TAP resource ID
-            String adql = "select distinct(a.uri), a.contentChecksum, a.contentLength, a.contentType, o.observationID, "
-                    + "a.productType, a.releaseType, p.dataRelease, p.metaRelease "
-                    + "from caom2.Artifact a "
-                    + "join caom2.Plane p on a.planeID = p.planeID "
-                    + "join caom2.Observation o on p.obsID = o.obsID "
-                    + "where o.collection='" + collection + "'";
+            String adql = getLogicalQuery();
 
             log.debug("logical query: " + adql);
             long start = System.currentTimeMillis();
@@ -579,36 +688,40 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
         return result;
     }
     
-    private ArtifactMetadata getMetadata(String observationID, Artifact artifact, Date dataRelease, Date metaRelease) throws Exception {
-        String cs = null;
-        if (artifact.contentChecksum == null) {
-            if (!this.tolerateNullChecksum) {
-                throw new RuntimeException("content checksum is null for artifact URI: " + artifact.getURI());
-            }
-        } else {
-            cs = getStorageChecksum(artifact.contentChecksum.toASCIIString());
+    private ArtifactMetadata checkMetadata(ArtifactMetadata metadata) {
+        if (metadata.getChecksum() == null && !this.tolerateNullChecksum) {
+            throw new RuntimeException("content checksum is null for artifact URI: " + metadata.getArtifactURI());
         }
-        ArtifactMetadata metadata = new ArtifactMetadata(artifact.getURI(), cs); 
-        
-        
-        if (artifact.contentLength == null) {
-            if (!this.tolerateNullContentLength) {
-                throw new RuntimeException("content length is null for artifact URI: " + metadata.getArtifactURI());
-            }
-        } else {
-            metadata.contentLength = artifact.contentLength;
+        if (metadata.contentLength == null && !this.tolerateNullContentLength) {
+            throw new RuntimeException("content length is null for artifact URI: " + metadata.getArtifactURI());
         }
-        metadata.contentType = artifact.contentType;
-        
-        metadata.observationID = observationID;
-        metadata.productType = artifact.getProductType();
-        metadata.releaseType = artifact.getReleaseType();
-        metadata.metaRelease = metaRelease;
-        metadata.dataRelease = dataRelease;
-        
         return metadata;
     }
     
+    // check logical metadata from the database as it is consumed
+    private class CheckedIterator implements Iterator<ArtifactMetadata>, Closeable {
+        private final ResourceIterator<ArtifactMetadata> iter;
+        
+        CheckedIterator(ResourceIterator<ArtifactMetadata> iter) {
+            this.iter = iter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iter.hasNext();
+        }
+
+        @Override
+        public ArtifactMetadata next() {
+            return checkMetadata(iter.next());
+        }
+
+        @Override
+        public void close() throws IOException {
+            iter.close();
+        }
+    }
+    
     private TreeSet<ArtifactMetadata> query(URL baseURL, String adql) throws Exception {
         StringBuilder queryString = new StringBuilder();
         queryString.append("LANG=ADQL&RESPONSEFORMAT=tsv&QUERY=");
@@ -634,11 +747,6 @@ public class ArtifactValidator implements PrivilegedExceptionAction<Object>, Shu
         
         return resultReader.metadata;
     }
-    
-    private String getStorageChecksum(String checksum) throws Exception {
-        int colon = checksum.indexOf(":");
-        return checksum.substring(colon + 1, checksum.length());
-    }
 
     private TreeSet<ArtifactMetadata> getPhysicalMetadata() throws Exception {
         TreeSet<ArtifactMetadata> metadata = new TreeSet<ArtifactMetadata>(ArtifactMetadata.getComparator());
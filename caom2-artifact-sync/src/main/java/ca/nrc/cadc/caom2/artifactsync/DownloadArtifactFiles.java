@@ -93,12 +93,13 @@ import java.net.URI;
 import java.net.URL;
 import java.security.PrivilegedExceptionAction;
 import java.text.DateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -114,6 +115,7 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
 
     private static final int DEFAULT_RETRY_AFTER_ERROR_HOURS = 24;
     private static final int DEFAULT_ARTIFACT_DOWNLOAD_THRESHOLD = 9990;
+    private static final int SKIP_PAGE_SIZE = 1000;
 
     private ArtifactStore artifactStore;
     private HarvestSkipURIDAO harvestSkipURIDAO;
@@ -124,15 +126,13 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
     private int threads;
     private boolean tolerateNullChecksum;
     private Integer artifactDownloadThreshold;
-    private URI startArtifactURI = null;
-    private Date startDate = null;
     private Date stopDate;
     private int retryAfterHours;
     private DateFormat df;
     private CaomArtifactResolver caomArtifactResolver = new CaomArtifactResolver();
 
     ExecutorService executor = null;
-    List<Future<ArtifactDownloadResult>> results;
+    DownloadStats stats;
     long start;
 
     public DownloadArtifactFiles(ArtifactDAO artifactDAO, HarvestResource harvestResource, ArtifactStore artifactStore,
@@ -166,63 +166,53 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
     public NullType run() throws Exception {
 
         executor = Executors.newFixedThreadPool(threads);
-        results = new ArrayList<Future<ArtifactDownloadResult>>();
-        boolean moreArtifacts = true;
-        
-        // get all artifacts for this run and submit the results asynchronously
-        int artifactCount = 0;
+        stats = new DownloadStats();
+        // downloads submitted but not yet aggregated: the pool queue never holds more than this
+        final int maxPending = 2 * threads;
+        final int maxArtifacts = loop ? artifactDownloadThreshold : batchSize;
+        CompletionService<ArtifactDownloadResult> completions = new ExecutorCompletionService<>(executor);
+        int pending = 0;
+
         start = System.currentTimeMillis();
-        while (moreArtifacts) {
-            log.debug("Querying for skip records between " + startDate + " and " + stopDate);
-            List<HarvestSkipURI> artifacts = harvestSkipURIDAO.get(source, ArtifactHarvester.STATE_CLASS, startDate, stopDate, batchSize);
-            boolean found = false;
-            for (HarvestSkipURI skip : artifacts) {
-                if (!found && startArtifactURI != null && startArtifactURI.equals(skip.getSkipID())) {
-                    // duplicate artifact, skip
-                    found = true;
-                    continue;
+        try {
+            // skip records are read in short keyset pages: no cursor or transaction stays open
+            // while downloads run and at most maxPending are ahead of the completed downloads
+            log.debug("Querying for skip records up to " + stopDate);
+            int submitted = 0;
+            HarvestSkipURI last = null;
+            boolean more = true;
+            while (more && submitted < maxArtifacts) {
+                int limit = Math.min(SKIP_PAGE_SIZE, maxArtifacts - submitted);
+                List<HarvestSkipURI> page = harvestSkipURIDAO.getNext(source, ArtifactHarvester.STATE_CLASS, last, stopDate, limit);
+                more = page.size() == limit;
+                for (HarvestSkipURI skip : page) {
+                    if (pending >= maxPending) {
+                        aggregate(completions.take());
+                        pending--;
+                    }
+                    ArtifactDownloader downloader = new ArtifactDownloader(skip, artifactStore, harvestSkipURIDAO);
+                    completions.submit(downloader);
+                    pending++;
+                    submitted++;
+                    last = skip;
+
+                    Future<ArtifactDownloadResult> done = completions.poll();
+                    while (done != null) {
+                        aggregate(done);
+                        pending--;
+                        done = completions.poll();
+                    }
                 }
-                ArtifactDownloader downloader = new ArtifactDownloader(skip, artifactStore, harvestSkipURIDAO);
-                results.add(executor.submit(downloader));
-            }
-            
-            artifactCount = artifactCount + artifacts.size();
-            if ((artifacts.size() < batchSize) || (!loop) || (artifactCount >= artifactDownloadThreshold)) {
-                moreArtifacts = false;
-            } else {
-                // set the start date so that the next batch resumes after our last record
-                startDate = artifacts.get(batchSize - 1).getTryAfter();
-                startArtifactURI = artifacts.get(batchSize - 1).getSkipID();
             }
-        }
 
-        // reset each batch
-        long successes = 0;
-        long totalElapsedTime = 0;
-        long totalBytes = 0;
-
-        try {
             // let pool know no new tasks can be added
             executor.shutdown();
-
-            // wait for them to complete by calling f.get()
-            for (Future<ArtifactDownloadResult> f : results) {
-                try {
-                    ArtifactDownloadResult result = f.get();
-                    if (result.success) {
-                        successes++;
-                        totalElapsedTime += result.elapsedTimeMillis;
-                        totalBytes += result.bytesTransferred;
-                    }
-                } catch (InterruptedException | ExecutionException e) {
-                    log.info("Thread execution error", e);
-                } finally {
-                    if (!f.isDone()) {
-                        log.info("Manually stopping task");
-                        f.cancel(true);
-                    }
-                }
+            while (pending > 0) {
+                aggregate(completions.take());
+                pending--;
             }
+        } catch (InterruptedException e) {
+            log.info("Interrupted while waiting for downloads", e);
         } catch (Exception e) {
             log.info("Thread pool error", e);
         } finally {
@@ -231,12 +221,21 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
                 executor.shutdownNow();
             }
             executor = null;
-            logDownloadEnd(results.size(), successes, totalElapsedTime, totalBytes);
+            stats.logDownloadEnd();
         }
         
         return null;
     }
 
+    private void aggregate(Future<ArtifactDownloadResult> f) throws InterruptedException {
+        try {
+            stats.add(f.get());
+        } catch (ExecutionException e) {
+            log.info("Thread execution error", e);
+            stats.add(null);
+        }
+    }
+
     class ArtifactDownloader implements Callable<ArtifactDownloadResult>, InputStreamWrapper {
 
         final HarvestSkipURI skip;
@@ -500,28 +499,79 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
         threadLog.info(startMessage.toString());
     }
 
-    private void logDownloadEnd(long total, long successes, long totalElapsedTime, long totalBytes) {
-        final long end = System.currentTimeMillis() - start;
-        StringBuilder endMessage = new StringBuilder();
-        endMessage.append("ENDDOWNLOAD: {");
-        endMessage.append("\"total\":\"").append(total).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"successCount\":\"").append(successes).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"failureCount\":\"").append(total - successes).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"time\":\"").append(end).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"date\":\"").append(df.format(new Date())).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"downloadTime\":\"").append(totalElapsedTime).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"bytes\":\"").append(totalBytes).append("\"");
-        endMessage.append(",");
-        endMessage.append("\"threads\":\"").append(threads).append("\"");
-        endMessage.append("}");
-        log.info(endMessage.toString());
-        artifactStore.processResults(total, successes, totalElapsedTime, totalBytes, threads);
+    // results aggregated as downloads complete, with a rolling throughput summary
+    class DownloadStats {
+        private static final long PROGRESS_INTERVAL = 60000L; // 1 min
+
+        private long total = 0;
+        private long successes = 0;
+        private long totalElapsedTime = 0;
+        private long totalBytes = 0;
+
+        private long windowStart = System.currentTimeMillis();
+        private long windowFiles = 0;
+        private long windowBytes = 0;
+
+        synchronized void add(ArtifactDownloadResult result) {
+            total++;
+            windowFiles++;
+            if (result != null && result.success) {
+                successes++;
+                totalElapsedTime += result.elapsedTimeMillis;
+                totalBytes += result.bytesTransferred;
+                windowBytes += result.bytesTransferred;
+            }
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= PROGRESS_INTERVAL) {
+                logProgress(now);
+                windowStart = now;
+                windowFiles = 0;
+                windowBytes = 0;
+            }
+        }
+
+        private void logProgress(long now) {
+            double dt = (now - windowStart) / 1000.0;
+            StringBuilder msg = new StringBuilder();
+            msg.append("PROGRESS: {");
+            msg.append("\"total\":\"").append(total).append("\"");
+            msg.append(",");
+            msg.append("\"successCount\":\"").append(successes).append("\"");
+            msg.append(",");
+            msg.append("\"bytes\":\"").append(totalBytes).append("\"");
+            msg.append(",");
+            msg.append("\"files/s\":\"").append(String.format("%.2f", windowFiles / dt)).append("\"");
+            msg.append(",");
+            msg.append("\"MB/s\":\"").append(String.format("%.2f", windowBytes / dt / (1024 * 1024))).append("\"");
+            msg.append(",");
+            msg.append("\"date\":\"").append(df.format(new Date(now))).append("\"");
+            msg.append("}");
+            log.info(msg.toString());
+        }
+
+        synchronized void logDownloadEnd() {
+            final long end = System.currentTimeMillis() - start;
+            StringBuilder endMessage = new StringBuilder();
+            endMessage.append("ENDDOWNLOAD: {");
+            endMessage.append("\"total\":\"").append(total).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"successCount\":\"").append(successes).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"failureCount\":\"").append(total - successes).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"time\":\"").append(end).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"date\":\"").append(df.format(new Date())).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"downloadTime\":\"").append(totalElapsedTime).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"bytes\":\"").append(totalBytes).append("\"");
+            endMessage.append(",");
+            endMessage.append("\"threads\":\"").append(threads).append("\"");
+            endMessage.append("}");
+            log.info(endMessage.toString());
+            artifactStore.processResults(total, successes, totalElapsedTime, totalBytes, threads);
+        }
     }
 
     @Override
@@ -530,7 +580,7 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
             log.info("Shutting down downloader.");
             List<Runnable> incomplete = executor.shutdownNow();
 
-            if (results == null) {
+            if (stats == null) {
                 StringBuilder endMessage = new StringBuilder();
                 endMessage.append("ENDDOWNLOAD: {");
                 endMessage.append("\"total\":\"0\"");
@@ -545,30 +595,8 @@ public class DownloadArtifactFiles implements PrivilegedExceptionAction<NullType
                 endMessage.append("}");
                 log.info(endMessage.toString());
             } else {
-
-                long total = 0;
-                long successes = 0;
-                long totalElapsedTime = 0;
-                long totalBytes = 0;
-
-                // wait for them to complete by calling f.get()
-                for (Future<ArtifactDownloadResult> f : results) {
-                    if (f.isDone()) {
-                        try {
-                            ArtifactDownloadResult result = f.get();
-                            total++;
-                            if (result.success) {
-                                successes++;
-                                totalElapsedTime += result.elapsedTimeMillis;
-                                totalBytes += result.bytesTransferred;
-                            }
-                        } catch (ExecutionException | InterruptedException e) {
-                            log.info("Failed to get result of completed job", e);
-                        }
-                    }
-                }
-
-                logDownloadEnd(total, successes, totalElapsedTime, totalBytes);
+                // results are aggregated as they complete
+                stats.logDownloadEnd();
             }
 
             try {
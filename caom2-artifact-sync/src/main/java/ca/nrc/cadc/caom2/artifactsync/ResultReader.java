@@ -110,8 +110,6 @@ public class ResultReader implements InputStreamWrapper {
     public void read(InputStream inputStream) throws IOException {
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
         String line;
-        String[] parts;
-        ArtifactMetadata am = null;
         boolean firstLine = true;
         DateFormat df = DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
         while ((line = reader.readLine()) != null) {
@@ -120,51 +118,8 @@ public class ResultReader implements InputStreamWrapper {
                 firstLine = false;
             } else {
                 try {
-                    parts = line.split("\t");
-                    if (parts.length == 0) {
-                        // empty line
-                    } else {
-                        
-                        URI artifactURI = new URI(parts[0]);
-                        
-                        String acs = null;
-                        if (parts.length > 1) {
-                            String checksum = parts[1];
-                            int colon = checksum.indexOf(":");
-                            acs = checksum.substring(colon + 1, checksum.length());
-                        }
-                        am = new ArtifactMetadata(artifactURI, acs);
-                        if (parts.length > 2) {
-                            am.contentLength = Long.parseLong(parts[2]);
-                        }
-                        if (parts.length > 3) {
-                            am.contentType = parts[3];
-                        }
-                        if (parts.length > 4) {
-                            am.observationID = parts[4];
-                        }
-                        if (parts.length > 5) {
-                            am.productType = ProductType.toValue(parts[5]);
-                        }
-                        if (parts.length > 6) {
-                            am.releaseType = ReleaseType.toValue(parts[6]);
-                        }
-                        if (parts.length > 7) {
-                            String dateString = parts[7];
-                            if (dateString == null || dateString.length() == 0) {
-                                am.dataRelease = null;
-                            } else {
-                                am.dataRelease = df.parse(dateString);
-                            }
-                        }
-                        if (parts.length > 8) {
-                            String dateString = parts[8];
-                            if (dateString == null || dateString.length() == 0) {
-                                am.metaRelease = null;
-                            } else {
-                                am.metaRelease = df.parse(dateString);
-                            }
-                        }
+                    ArtifactMetadata am = parse(line, df);
+                    if (am != null) {
                         metadata.add(am);
                     }
                 } catch (Exception e) {
@@ -174,4 +129,55 @@ public class ResultReader implements InputStreamWrapper {
         }
         log.debug("Finished reading logical artifacts.");
     }
+    
+    // parse one row of the query result, null if the line is empty
+    static ArtifactMetadata parse(String line, DateFormat df) throws Exception {
+        String[] parts = line.split("\t");
+        if (parts.length == 0) {
+            // empty line
+            return null;
+        }
+        
+        URI artifactURI = new URI(parts[0]);
+        
+        String acs = null;
+        if (parts.length > 1) {
+            String checksum = parts[1];
+            int colon = checksum.indexOf(":");
+            acs = checksum.substring(colon + 1, checksum.length());
+        }
+        ArtifactMetadata am = new ArtifactMetadata(artifactURI, acs);
+        if (parts.length > 2) {
+            am.contentLength = Long.parseLong(parts[2]);
+        }
+        if (parts.length > 3) {
+            am.contentType = parts[3];
+        }
+        if (parts.length > 4) {
+            am.observationID = parts[4];
+        }
+        if (parts.length > 5) {
+            am.productType = ProductType.toValue(parts[5]);
+        }
+        if (parts.length > 6) {
+            am.releaseType = ReleaseType.toValue(parts[6]);
+        }
+        if (parts.length > 7) {
+            String dateString = parts[7];
+            if (dateString == null || dateString.length() == 0) {
+                am.dataRelease = null;
+            } else {
+                am.dataRelease = df.parse(dateString);
+            }
+        }
+        if (parts.length > 8) {
+            String dateString = parts[8];
+            if (dateString == null || dateString.length() == 0) {
+                am.metaRelease = null;
+            } else {
+                am.metaRelease = df.parse(dateString);
+            }
+        }
+        return am;
+    }
 }
@@ -126,6 +126,9 @@ public class Validate extends Caom2ArtifactSync {
                             observationDAO, false, this.artifactStore, tolerateNullChecksum, tolerateNullContentLength);
                     }
                 }
+                if (this.validator != null) {
+                    this.validator.setStreaming(am.isSet("streaming"));
+                }
             }
         }
     }
@@ -150,11 +153,13 @@ public class Validate extends Caom2ArtifactSync {
             sb.append("\n        --tolerateNullContentLength : look for difference even when content length is null");
             sb.append("\n        --source=<server.database.schema | TAP resource ID | TAP Service URL>");
             sb.append("\n        --collection=<collection> : The collection to determine the artifacts differences");
+            sb.append("\n        --streaming : merge sorted caom2 and storage queries instead of loading all metadata into memory");
         } else {
             sb.append("\n        --tolerateNullChecksum : validate even when checksum is null");
             sb.append("\n        --tolerateNullContentLength : validate even when content length is null");
             sb.append("\n        --database=<server.database.schema>");
             sb.append("\n        --collection=<collection> : The collection to validate");
+            sb.append("\n        --streaming : merge sorted caom2 and storage queries instead of loading all metadata into memory");
         }
         sb.append("\n\n    optional general args:");
         sb.append("\n        -v | --verbose");
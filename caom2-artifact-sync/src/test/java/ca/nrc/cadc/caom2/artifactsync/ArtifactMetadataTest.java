@@ -108,6 +108,23 @@ public class ArtifactMetadataTest
         testCompareMetadata(reportOnly);
     }
     
+    @Test
+    public void testComparatorByteOrder() throws Exception
+    {
+        // same order as a database sort with collation "C"
+        String[] expected = { "cadc:FOO/A_B.fits", "cadc:FOO/B.fits", "cadc:FOO/a-b.fits", "cadc:FOO/a.b.fits",
+            "cadc:FOO/a_b.fits", "cadc:FOO/ab.fits", "cadc:FOO/a~b.fits", "cadc:FOO/b.fits" };
+        TreeSet<ArtifactMetadata> sorted = new TreeSet<ArtifactMetadata>(ArtifactMetadata.getComparator());
+        for (int i = expected.length - 1; i >= 0; i--) {
+            sorted.add(new ArtifactMetadata(new URI(expected[i]), null));
+        }
+        int i = 0;
+        for (ArtifactMetadata am : sorted) {
+            Assert.assertEquals(expected[i++], am.getArtifactURI().toASCIIString());
+        }
+        Assert.assertEquals(expected.length, i);
+    }
+    
     private void testCompareMetadata(boolean reportOnly) throws Exception {
         URI caomTapResourceID = null;
         String collection = "HST";
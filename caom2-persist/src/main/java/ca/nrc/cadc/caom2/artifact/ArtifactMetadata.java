@@ -135,14 +135,16 @@ public class ArtifactMetadata {
     }
     
     /**
-     * Return a comparator that compares artifactURI values.
+     * Return a comparator that compares artifactURI values. The order is the character order
+     * of the ASCII form of the URI, which is the same as byte order (e.g. PostgreSQL 
+     * collation "C"); sources that sort with a language collation do not match it.
      * @return comparator
      */
     public static Comparator<ArtifactMetadata> getComparator() {
         return new Comparator<ArtifactMetadata>() {
             @Override
             public int compare(ArtifactMetadata o1, ArtifactMetadata o2) {
-                return o1.artifactURI.compareTo(o2.artifactURI);
+                return o1.artifactURI.toASCIIString().compareTo(o2.artifactURI.toASCIIString());
             }
         };
     }
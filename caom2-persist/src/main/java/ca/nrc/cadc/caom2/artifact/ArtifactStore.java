@@ -69,6 +69,7 @@
 
 package ca.nrc.cadc.caom2.artifact;
 
+import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.net.ResourceNotFoundException;
 import ca.nrc.cadc.net.TransientException;
 import ca.nrc.cadc.util.FileMetadata;
@@ -77,7 +78,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.security.AccessControlException;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * An interface to a CAOM2 artifact storage system.
@@ -170,6 +173,41 @@ public interface ArtifactStore {
     public Set<ArtifactMetadata> list(String namespace) throws IOException, InterruptedException,
             ResourceNotFoundException, TransientException, AccessControlException;
 
+    /**
+     * Iterate over all artifacts in a certain archive in artifactURI order (as defined by
+     * ArtifactMetadata.getComparator()). Implementations should override this method to
+     * stream results when the source can return them in that (byte) order; the default 
+     * implementation sorts the result of list(namespace) in memory.
+     *
+     * @param namespace storage namespace (Artifact.uri prefix)
+     * @return iterator over archive metadata objects in artifactURI order
+     * @throws java.io.IOException
+     * @throws java.lang.InterruptedException
+     * @throws ca.nrc.cadc.net.ResourceNotFoundException
+     */
+    public default ResourceIterator<ArtifactMetadata> iterator(String namespace) throws IOException, InterruptedException,
+            ResourceNotFoundException, TransientException, AccessControlException {
+        TreeSet<ArtifactMetadata> sorted = new TreeSet<>(ArtifactMetadata.getComparator());
+        sorted.addAll(list(namespace));
+        final Iterator<ArtifactMetadata> iter = sorted.iterator();
+        return new ResourceIterator<ArtifactMetadata>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public ArtifactMetadata next() {
+                return iter.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                // no-op
+            }
+        };
+    }
+
     /**
      * Convert an artifact URI to a storage ID.
      *
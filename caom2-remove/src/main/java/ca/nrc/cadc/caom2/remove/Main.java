@@ -95,6 +95,7 @@ public class Main {
     private static int exitValue = 0;
     private static final int DEFAULT_BATCH_SIZE = 10000;
     private static int batchSize;
+    private static int threads = 1;
 
     public static void main(String[] args) {
         try {
@@ -202,6 +203,31 @@ public class Main {
             }
 
             
+            boolean bulk = am.isSet("bulk");
+            boolean tombstones = am.isSet("tombstones");
+            if (tombstones && !bulk) {
+                log.warn("--tombstones requires --bulk");
+                usage();
+                System.exit(1);
+            }
+            String threadsParam = am.getValue("threads");
+            if (threadsParam != null && threadsParam.trim().length() > 0) {
+                if (!bulk) {
+                    log.warn("--threads requires --bulk");
+                    usage();
+                    System.exit(1);
+                }
+                try {
+                    threads = Integer.parseInt(threadsParam);
+                    if (threads < 1) {
+                        throw new NumberFormatException("threads must be > 0");
+                    }
+                } catch (NumberFormatException nfe) {
+                    log.error("invalid threads: " + threadsParam);
+                    usage();
+                    System.exit(1);
+                }
+            }
 
             // Assert: at this point the source has been validated to be either a resource ID starting with ivo:
             // or a server + database + scheme combination where the collection can be found.
@@ -226,6 +252,9 @@ public class Main {
 
                 try {
                     ObservationRemover cv = new ObservationRemover(target, src, batchSize);
+                    cv.setBulk(bulk);
+                    cv.setTombstones(tombstones);
+                    cv.setThreads(threads);
                     action = cv;
                 } catch (IOException ioex) {
 
@@ -280,6 +309,9 @@ public class Main {
         sb.append("\n         --nosource : to remove a non-harvested collection (e.g. a repository collection)");
         sb.append("\n\nOptional parameters:");
         sb.append("\n         --batchSize=<integer> :  default = 10000");
+        sb.append("\n         --bulk : remove observations in batchSize chunks with set-based deletes");
+        sb.append("\n         --threads=<integer> : number of bulk removal threads, default = 1");
+        sb.append("\n         --tombstones : record and keep a DeletedObservation for each removed observation (bulk only)");
         log.warn(sb.toString());
     }
     
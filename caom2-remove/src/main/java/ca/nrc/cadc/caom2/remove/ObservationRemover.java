@@ -85,13 +85,23 @@ import ca.nrc.cadc.caom2.persistence.PostgreSQLGenerator;
 import ca.nrc.cadc.caom2.persistence.SQLGenerator;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.log4j.Logger;
 
 /**
- * Remove observations and related harvest state records for designated collection
+ * Remove observations and related harvest state records for designated collection.
+ * In bulk mode, observations are deleted in chunks of batchSize in primary key order
+ * with one set-based statement per table per chunk instead of one delete per entity,
+ * optionally with one thread per range of primary keys.
+ * 
  * @author jeevesh
  */
 public class ObservationRemover implements Runnable {
@@ -103,6 +113,10 @@ public class ObservationRemover implements Runnable {
     protected Integer batchSize;
     protected HarvestResource src;
     protected HarvestResource target;
+    
+    private boolean bulk = false;
+    private boolean tombstones = false;
+    private int threads = 1;
 
     public ObservationRemover(HarvestResource target, HarvestResource src, Integer batchSize)
         throws IOException, URISyntaxException {
@@ -114,13 +128,52 @@ public class ObservationRemover implements Runnable {
 
     private void init() throws IOException, URISyntaxException {
         Map<String, Object> config2 = getConfigDAO(target);
-        this.obsDAO = new ObservationDAO();
-        obsDAO.setConfig(config2);
-        obsDAO.setOrigin(false); // copy as-is
+        this.obsDAO = createObservationDAO();
         
         this.deletedDAO = new DeletedEntityDAO();
         deletedDAO.setConfig(config2);
     }
+    
+    // each DAO has its own connection so bulk delete threads each need one
+    private ObservationDAO createObservationDAO() throws IOException {
+        ObservationDAO ret = new ObservationDAO();
+        ret.setConfig(getConfigDAO(target));
+        ret.setOrigin(false); // copy as-is
+        return ret;
+    }
+
+    /**
+     * Enable set-based bulk removal.
+     * 
+     * @param bulk true to delete observations, deleted observations, and skip records 
+     *     with set-based statements
+     */
+    public void setBulk(boolean bulk) {
+        this.bulk = bulk;
+    }
+
+    /**
+     * Record a DeletedObservation for each removed observation (bulk mode only). The 
+     * DeletedObservation(s) are kept so that downstream harvesters will see the removal.
+     * 
+     * @param tombstones true to record and keep DeletedObservation(s)
+     */
+    public void setTombstones(boolean tombstones) {
+        this.tombstones = tombstones;
+    }
+
+    /**
+     * Number of threads for bulk removal; each thread removes the observations in 
+     * one range of primary keys. Default: 1.
+     * 
+     * @param threads number of threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be > 0: " + threads);
+        }
+        this.threads = threads;
+    }
 
     @Override
     public void run() {
@@ -141,11 +194,17 @@ public class ObservationRemover implements Runnable {
 
         
         log.info("Using batchSize: " + batchSize);
+        if (bulk) {
+            log.info("Using bulk removal: threads=" + threads + " tombstones=" + tombstones);
+        }
         log.info("Removing Observation(s) ...");
 
-        Progress prog = null;
+        Progress prog = new Progress();
         int total = 0;
-        boolean go = true;
+        boolean go = !bulk;
+        if (bulk) {
+            prog.abort = !deleteObservationsBulk();
+        }
         while (go) {
             prog = deleteObservations();
 
@@ -161,7 +220,9 @@ public class ObservationRemover implements Runnable {
             go = (prog.found > 0 && !prog.abort);
         }
 
-        log.info("Removed " + total + " observations");
+        if (!bulk) {
+            log.info("Removed " + total + " observations");
+        }
         if (prog.abort) {
             log.warn("Problem removing observations. Quitting...");
             return;
@@ -170,8 +231,16 @@ public class ObservationRemover implements Runnable {
         log.info("Removing DeletedObservation(s)...");
         total = 0;
         go = true;
+        if (bulk && tombstones) {
+            log.info("Keeping DeletedObservation(s) recorded by bulk removal");
+            go = false;
+        }
         while (go) {
-            prog = deleteDeletedObservations();
+            if (bulk) {
+                prog = deleteDeletedObservationsBulk();
+            } else {
+                prog = deleteDeletedObservations();
+            }
 
             if (prog.found > 0) {
                 log.info("finished batch: " + prog.toString());
@@ -196,7 +265,11 @@ public class ObservationRemover implements Runnable {
             total = 0;
             go = true;
             while (go) {
-                prog = deleteHarvestSkipURI();
+                if (bulk) {
+                    prog = deleteHarvestSkipURIBulk();
+                } else {
+                    prog = deleteHarvestSkipURI();
+                }
 
                 if (prog.found > 0) {
                     log.info("finished batch: " + prog.toString());
@@ -326,6 +399,143 @@ public class ObservationRemover implements Runnable {
     }
 
 
+    // delete all observations in the collection, one thread per primary key range
+    private boolean deleteObservationsBulk() {
+        BulkStats stats = new BulkStats();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // create all DAOs up front so a failure cannot leave some ranges running
+            List<UUID[]> ranges = getKeyRanges(threads);
+            List<ObservationDAO> daos = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                daos.add(threads == 1 ? obsDAO : createObservationDAO());
+            }
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                final ObservationDAO dao = daos.get(i);
+                final UUID[] range = ranges.get(i);
+                results.add(pool.submit(() -> deleteObservationRange(dao, range[0], range[1], stats)));
+            }
+            boolean ret = true;
+            for (Future<Boolean> f : results) {
+                ret = f.get() && ret;
+            }
+            return ret;
+        } catch (IOException ex) {
+            log.error("failed to init: " + ex.getMessage());
+            return false;
+        } catch (InterruptedException ex) {
+            log.error("interrupted: " + ex);
+            return false;
+        } catch (ExecutionException ex) {
+            log.error("failed to delete observations", ex.getCause());
+            return false;
+        } finally {
+            pool.shutdownNow();
+            stats.logEnd();
+        }
+    }
+    
+    // delete observations with minID < obsID <= maxID in batchSize chunks
+    private boolean deleteObservationRange(ObservationDAO dao, UUID minID, UUID maxID, BulkStats stats) {
+        UUID cur = minID;
+        try {
+            List<UUID> ids = dao.getObservationIDs(target.getCollection(), cur, maxID, batchSize);
+            while (!ids.isEmpty()) {
+                long rows = dao.delete(ids, tombstones);
+                stats.add(ids.size(), rows);
+                log.info("finished batch: " + ids.size() + " observations " + rows + " rows after " + cur);
+                cur = ids.get(ids.size() - 1);
+                ids = dao.getObservationIDs(target.getCollection(), cur, maxID, batchSize);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("failed to list && delete observations after " + cur, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Split the primary key space into n ranges (min, max] on the leading 16 bits of the 
+     * UUID. The first range has no lower bound and the last has no upper bound.
+     * 
+     * @param n number of ranges
+     * @return list of {min, max} ranges
+     */
+    static List<UUID[]> getKeyRanges(int n) {
+        List<UUID[]> ret = new ArrayList<>(n);
+        UUID min = null;
+        for (int i = 1; i <= n; i++) {
+            UUID max = null;
+            if (i < n) {
+                long prefix = (i * 65536L) / n;
+                max = new UUID(prefix << 48, 0L);
+            }
+            ret.add(new UUID[] { min, max });
+            min = max;
+        }
+        return ret;
+    }
+    
+    private Progress deleteDeletedObservationsBulk() {
+        Progress ret = new Progress();
+        try {
+            int num = deletedDAO.delete(target.getCollection(), batchSize);
+            ret.found = num;
+            ret.removed = num;
+        } catch (Exception e) {
+            log.error("failed to delete deleted observations", e);
+            ret.abort = true;
+        }
+        return ret;
+    }
+    
+    private Progress deleteHarvestSkipURIBulk() {
+        Progress ret = new Progress();
+        try {
+            HarvestSkipURIDAO harvestSkipURIDAO = new HarvestSkipURIDAO(
+                obsDAO.getDataSource(),
+                target.getDatabase(), target.getSchema());
+            // single statement: the next call finds nothing and ends the loop
+            int num = harvestSkipURIDAO.delete(src.getIdentifier(), Observation.class.getSimpleName());
+            ret.found = num;
+            ret.removed = num;
+        } catch (Exception e) {
+            log.error("failed to delete harvest skip records", e);
+            ret.abort = true;
+        }
+        return ret;
+    }
+    
+    private static class BulkStats {
+        private static final long PROGRESS_INTERVAL = 60000L;
+        
+        private final long start = System.currentTimeMillis();
+        private long lastProgress = start;
+        private long observations = 0L;
+        private long rows = 0L;
+        
+        synchronized void add(int numObs, long numRows) {
+            observations += numObs;
+            rows += numRows;
+            long now = System.currentTimeMillis();
+            if (now - lastProgress >= PROGRESS_INTERVAL) {
+                lastProgress = now;
+                log.info("PROGRESS: " + toString(now));
+            }
+        }
+        
+        synchronized void logEnd() {
+            log.info("Removed " + toString(System.currentTimeMillis()));
+        }
+        
+        private String toString(long now) {
+            double dt = Math.max(1L, now - start) / 1000.0;
+            return observations + " observations " + rows + " rows in " + (long) dt + "s"
+                + String.format(" rows/s=%.1f", rows / dt);
+        }
+    }
+
     protected Map<String, Object> getConfigDAO(HarvestResource desc) throws IOException {
         if (desc.getDatabaseServer() == null) {
             throw new RuntimeException("BUG: getConfigDAO called with ObservationResource[service]");
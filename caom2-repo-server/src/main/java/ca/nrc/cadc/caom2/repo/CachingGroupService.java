@@ -0,0 +1,141 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.repo;
+
+import ca.nrc.cadc.ac.UserNotFoundException;
+import ca.nrc.cadc.auth.AuthenticationUtil;
+import ca.nrc.cadc.caom2.persistence.DecisionCache;
+import java.io.IOException;
+import org.apache.log4j.Logger;
+import org.opencadc.gms.GroupURI;
+
+/**
+ * GroupService that caches membership decisions per caller identity. Failures 
+ * (exceptions) from the underlying service are never cached.
+ * 
+ * @author pdowler
+ */
+public class CachingGroupService implements GroupService {
+    private static final Logger log = Logger.getLogger(CachingGroupService.class);
+
+    // process-wide membership cache: 10 min for positive, 1 min for negative decisions
+    private static final DecisionCache MEMBERSHIP_CACHE = new DecisionCache(10000, 10 * 60 * 1000L, 60 * 1000L);
+    private static final CachingGroupService GMS = new CachingGroupService(new GMSGroupService(), MEMBERSHIP_CACHE);
+    private static final CachingGroupService LOCAL = new CachingGroupService(new GroupClientService(), MEMBERSHIP_CACHE);
+
+    private final GroupService groupService;
+    private final DecisionCache cache;
+    
+    /**
+     * Get the process-wide caching GMS group service. All membership checks in the
+     * repository service should use this so there is one cache and one TTL policy.
+     * 
+     * @return shared caching group service
+     */
+    public static CachingGroupService getDefault() {
+        return GMS;
+    }
+    
+    /**
+     * Get the process-wide caching group service that calls the locally configured
+     * GroupClient. This shares the membership cache with getDefault().
+     * 
+     * @return shared caching group service backed by the configured GroupClient
+     */
+    public static CachingGroupService getLocalAuthority() {
+        return LOCAL;
+    }
+    
+    public CachingGroupService(GroupService groupService, DecisionCache cache) {
+        if (groupService == null || cache == null) {
+            throw new IllegalArgumentException("groupService and cache are required");
+        }
+        this.groupService = groupService;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean isMember(GroupURI group) throws UserNotFoundException, IOException {
+        String key = DecisionCache.getCallerKey(AuthenticationUtil.getCurrentSubject()) + group.getURI().toASCIIString();
+        Boolean ret = cache.get(key);
+        if (ret != null) {
+            log.debug("isMember: " + group + " " + ret + " (cached)");
+            return ret;
+        }
+        boolean member = groupService.isMember(group);
+        cache.put(key, member);
+        log.debug("isMember: " + group + " " + member + " " + cache.getStatus());
+        return member;
+    }
+    
+    public DecisionCache getCache() {
+        return cache;
+    }
+}
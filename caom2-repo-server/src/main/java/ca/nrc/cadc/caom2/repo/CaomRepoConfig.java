@@ -79,15 +79,19 @@ import ca.nrc.cadc.util.StringUtil;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 import org.apache.log4j.Logger;
@@ -100,10 +104,79 @@ import org.opencadc.gms.GroupURI;
 public class CaomRepoConfig {
     private static final Logger log = Logger.getLogger(CaomRepoConfig.class);
 
-    private List<CaomRepoConfig.Item> config;
+    // process-wide cache of parsed config files
+    private static final Map<String, CaomRepoConfig> INSTANCES = new ConcurrentHashMap<>();
+
+    private final List<CaomRepoConfig.Item> config;
+    private final long lastModified;
+    
+    // collections where InitDatabase has already been run successfully
+    private final Set<String> initialized = ConcurrentHashMap.newKeySet();
 
     public CaomRepoConfig(File config) throws IOException {
-        this.config = loadConfig(config);
+        this.lastModified = config.lastModified(); // before load so a concurrent edit triggers reload
+        this.config = Collections.unmodifiableList(loadConfig(config));
+    }
+    
+    /**
+     * Get the shared config for the specified file. The file is parsed once and the 
+     * result shared by all callers; a new config is loaded and atomically replaces the
+     * cached instance when the file modification time changes.
+     * 
+     * @param config config file
+     * @return shared config
+     * @throws IOException failure to read the config file
+     */
+    public static CaomRepoConfig getInstance(File config) throws IOException {
+        final String key = config.getAbsolutePath();
+        final long lm = config.lastModified();
+        CaomRepoConfig cur = INSTANCES.get(key);
+        if (cur != null && cur.lastModified == lm) {
+            return cur;
+        }
+        try {
+            return INSTANCES.compute(key, (k, v) -> {
+                if (v != null && v.lastModified == lm) {
+                    return v; // reloaded by another thread
+                }
+                try {
+                    CaomRepoConfig ret = new CaomRepoConfig(config);
+                    log.info("CaomRepoConfig: loaded " + key + " items: " + ret.config.size());
+                    return ret;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+    
+    /**
+     * Find the first config item, in config order, whose artifactPattern or altPattern 
+     * is contained in the specified artifact URI. The database for the matching collection
+     * is initialized if necessary.
+     * 
+     * @param artifactURI artifact URI
+     * @return matching config item or null if no match
+     * @throws RuntimeException failure to initialize the database
+     */
+    public Item getConfig(URI artifactURI) {
+        String uri = artifactURI.toASCIIString();
+        for (Item item : config) {
+            if (archiveMatch(uri, item.artifactPattern) || archiveMatch(uri, item.altPattern)) {
+                initDB(item);
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean archiveMatch(String uri, String pattern) {
+        if (pattern == null) {
+            return false;
+        }
+        return uri.contains(pattern);
     }
 
     public Map<String, Object> getDAOConfig(String collection) throws IOException {
@@ -183,6 +256,9 @@ public class CaomRepoConfig {
     }
 
     private void initDB(CaomRepoConfig.Item i) {
+        if (initialized.contains(i.collection)) {
+            return;
+        }
         if (PostgreSQLGenerator.class.equals(i.getSqlGenerator())) {
             try {
                 DataSource ds = DBUtil.findJNDIDataSource(i.getDataSourceName());
@@ -194,6 +270,7 @@ public class CaomRepoConfig {
                 throw new RuntimeException("CONFIG: failed to connect to database", ex);
             }
         }
+        initialized.add(i.collection);
     }
 
     public Iterator<String> collectionIterator() {
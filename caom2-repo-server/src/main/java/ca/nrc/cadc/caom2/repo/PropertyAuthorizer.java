@@ -69,28 +69,29 @@
 
 package ca.nrc.cadc.caom2.repo;
 
+import ca.nrc.cadc.ac.UserNotFoundException;
 import ca.nrc.cadc.auth.AuthenticationUtil;
 import ca.nrc.cadc.cred.client.CredUtil;
 import ca.nrc.cadc.net.ResourceNotFoundException;
-import ca.nrc.cadc.reg.Standards;
-import ca.nrc.cadc.reg.client.LocalAuthority;
 import ca.nrc.cadc.util.MultiValuedProperties;
 import ca.nrc.cadc.util.PropertiesReader;
 import ca.nrc.cadc.util.StringUtil;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.AccessControlException;
 import java.security.Principal;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.security.auth.Subject;
 import javax.security.auth.x500.X500Principal;
 import org.apache.log4j.Logger;
-import org.opencadc.gms.GroupClient;
 import org.opencadc.gms.GroupURI;
-import org.opencadc.gms.GroupUtil;
 
 /**
  * <p>
@@ -115,6 +116,9 @@ public class PropertyAuthorizer {
     static final String USER_DNS_PROPERTY = "user";
     static final String GROUP_URIS_PROPERTY = "group";
 
+    // process-wide cache of parsed grants, parsed again when the configured values change
+    private static final Map<String, Grants> GRANTS = new ConcurrentHashMap<>();
+    
     private final String propertiesFilename;
 
     public PropertyAuthorizer(final String propertiesFilename) {
@@ -137,22 +141,22 @@ public class PropertyAuthorizer {
         Subject subject = AuthenticationUtil.getCurrentSubject();
         log.debug("Subject: " + subject.toString());
 
-        // Get the properties file.
-        PropertiesReader propertiesReader = getPropertiesReader(this.propertiesFilename);
-        if (propertiesReader == null) {
+        // Get the parsed properties file.
+        Grants grants = getGrants(this.propertiesFilename);
+        if (grants == null) {
             log.debug(this.propertiesFilename + " not found");
             throw new AccessControlException("no grants configured");
         }
 
         // first check if request user matches authorized config file users
-        Set<Principal> authorizedUsers = getAuthorizedUserPrincipals(propertiesReader);
+        Set<Principal> authorizedUsers = grants.users;
         if (isAuthorizedUser(subject, authorizedUsers)) {
             log.debug("Subject is an authorized user");
             return;
         }
 
         // Check for groups configured in servlet init or properties file.
-        Set<GroupURI> authorizedGroupURIs = getAuthorizedGroupUris(propertiesReader);
+        Set<GroupURI> authorizedGroupURIs = grants.groups;
 
         // If no user or groups configured.
         if (authorizedUsers.isEmpty() && authorizedGroupURIs.isEmpty()) {
@@ -166,11 +170,10 @@ public class PropertyAuthorizer {
         // to get the list of all groups the user belongs to.
         try {
             if (CredUtil.checkCredentials()) {
-                LocalAuthority loc = new LocalAuthority();
-                URI resourceID = loc.getServiceURI(Standards.GMS_SEARCH_01.toString());
-                GroupClient client = GroupUtil.getGroupClient(resourceID);
+                // configured GroupClient behind the shared membership cache
+                GroupService groupService = CachingGroupService.getLocalAuthority();
                 for (GroupURI authorizedGroupURI : authorizedGroupURIs) {
-                    if (client.isMember(authorizedGroupURI)) {
+                    if (groupService.isMember(authorizedGroupURI)) {
                         log.debug("authorized group: " + authorizedGroupURI);
                         return;
                     }
@@ -180,6 +183,10 @@ public class PropertyAuthorizer {
             }
         } catch (CertificateException ex) {
             throw new AccessControlException("permission denied (invalid delegated client certificate)");
+        } catch (UserNotFoundException ex) {
+            throw new AccessControlException("permission denied (user not found)");
+        } catch (IOException ex) {
+            throw new RuntimeException("failed to check group membership: " + ex.getMessage(), ex);
         }
 
         // If all authorization failed, throw AccessControlException.
@@ -187,24 +194,23 @@ public class PropertyAuthorizer {
     }
 
     /**
-     * Get a Set of X500Principal's from the properties file.
+     * Get a Set of X500Principal's from the user DNs in the properties file.
      *
      * @return Set of authorized X500Principals, can be an empty Set if none configured.
      */
-    private Set<Principal> getAuthorizedUserPrincipals(PropertiesReader propertiesReader) {
+    private Set<Principal> getAuthorizedUserPrincipals(List<String> properties) {
         Set<Principal> principals = new HashSet<Principal>();
-        try {
-            MultiValuedProperties allProperties = propertiesReader.getAllProperties();
-            List<String> properties =  allProperties.getProperty(USER_DNS_PROPERTY);
-            if (properties != null) {
-                for (String property : properties) {
-                    if (!property.isEmpty()) {
-                        principals.add(new X500Principal(property));
-                        log.debug("found authorized user: " + property);
-                    }
+        for (String property : properties) {
+            if (!property.isEmpty()) {
+                try {
+                    principals.add(new X500Principal(property));
+                    log.debug("found authorized user: " + property);
+                } catch (IllegalArgumentException e) {
+                    log.error("invalid user DN: " + property, e);
                 }
             }
-        } catch (IllegalArgumentException e) {
+        }
+        if (principals.isEmpty()) {
             log.debug("No authorized users configured");
         }
         return principals;
@@ -233,33 +239,83 @@ public class PropertyAuthorizer {
     }
 
     /**
-     * Get a Set of groupURI's from the properties file.
+     * Get a Set of groupURI's from the group URIs in the properties file.
      *
      * @return Set of authorized groupURI's, can be an empty Set if none configured.
      */
-    private Set<GroupURI> getAuthorizedGroupUris(PropertiesReader propertiesReader) {
+    private Set<GroupURI> getAuthorizedGroupUris(List<String> properties) {
         Set<GroupURI> groupUris = new HashSet<GroupURI>();
-        try {
-            MultiValuedProperties allProperties = propertiesReader.getAllProperties();
-            List<String> properties = allProperties.getProperty(GROUP_URIS_PROPERTY);
-            if (properties != null) {
-                for (String property : properties) {
-                    if (StringUtil.hasLength(property)) {
-                        try {
-                            groupUris.add(new GroupURI(new URI(property)));
-                            log.debug("found authorized group: " + property);
-                        } catch (IllegalArgumentException | URISyntaxException e) {
-                            log.error("invalid GroupURI: " + property, e);
-                        }
-                    }
+        for (String property : properties) {
+            if (StringUtil.hasLength(property)) {
+                try {
+                    groupUris.add(new GroupURI(new URI(property)));
+                    log.debug("found authorized group: " + property);
+                } catch (IllegalArgumentException | URISyntaxException e) {
+                    log.error("invalid GroupURI: " + property, e);
                 }
             }
-        } catch (IllegalArgumentException e) {
+        }
+        if (groupUris.isEmpty()) {
             log.debug("Authorized groupURI's not configured");
         }
         return groupUris;
     }
 
+    /**
+     * Get the parsed grants for the properties file. The file is located and read by 
+     * PropertiesReader; the user DNs and group URIs are parsed again only when the 
+     * values read from the file change.
+     * 
+     * @return parsed grants, or null if the properties file does not exist or can not be read
+     */
+    private Grants getGrants(final String propertiesFilename) {
+        PropertiesReader propertiesReader = getPropertiesReader(propertiesFilename);
+        if (propertiesReader == null) {
+            GRANTS.remove(propertiesFilename);
+            return null;
+        }
+        MultiValuedProperties allProperties = propertiesReader.getAllProperties();
+        List<String> userDNs = getPropertyValues(allProperties, USER_DNS_PROPERTY);
+        List<String> groupURIs = getPropertyValues(allProperties, GROUP_URIS_PROPERTY);
+        
+        Grants cur = GRANTS.get(propertiesFilename);
+        if (cur != null && cur.userDNs.equals(userDNs) && cur.groupURIs.equals(groupURIs)) {
+            return cur;
+        }
+        Grants ret = new Grants(userDNs, groupURIs, getAuthorizedUserPrincipals(userDNs),
+                                getAuthorizedGroupUris(groupURIs));
+        GRANTS.put(propertiesFilename, ret);
+        log.debug("loaded grants: " + propertiesFilename);
+        return ret;
+    }
+    
+    private List<String> getPropertyValues(MultiValuedProperties allProperties, String key) {
+        List<String> ret = new ArrayList<String>();
+        try {
+            List<String> properties = allProperties.getProperty(key);
+            if (properties != null) {
+                ret.addAll(properties);
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("no " + key + " configured");
+        }
+        return ret;
+    }
+
+    private static class Grants {
+        final List<String> userDNs;
+        final List<String> groupURIs;
+        final Set<Principal> users;
+        final Set<GroupURI> groups;
+        
+        Grants(List<String> userDNs, List<String> groupURIs, Set<Principal> users, Set<GroupURI> groups) {
+            this.userDNs = userDNs;
+            this.groupURIs = groupURIs;
+            this.users = users;
+            this.groups = groups;
+        }
+    }
+
     /**
      * Read the properties file and returns a PropertiesReader.
      *
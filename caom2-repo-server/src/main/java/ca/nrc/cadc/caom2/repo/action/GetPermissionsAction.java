@@ -85,7 +85,6 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Iterator;
 import org.apache.log4j.Logger;
 import org.opencadc.gms.GroupURI;
 import org.opencadc.permissions.Grant;
@@ -117,27 +116,14 @@ public class GetPermissionsAction extends RestAction {
     public void doAction() throws Exception {
         log.debug("GET ACTION");
 
-        String op = syncInput.getParameter(PARAM_OP);
         String id = syncInput.getParameter(PARAM_ID);
-        log.debug(PARAM_OP + ": " + op);
         log.debug(PARAM_ID + ": " + id);
 
-        if (op == null) {
-            throw new IllegalArgumentException("missing required parameter, " + PARAM_OP + "=["
-                                                   + Operation.read + "|" + Operation.write + "]");
-        }
+        Operation operation = getOperation();
         if (id == null) {
             throw new IllegalArgumentException("missing required parameter, " + PARAM_ID);
         }
 
-        Operation operation;
-        try {
-            operation = Operation.valueOf(op);
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("invalid " + PARAM_OP + " parameter, must be " + PARAM_OP + "=["
-                                                   + Operation.read + "|" + Operation.write + "]");
-        }
-
         URI assetID;
         try {
             assetID = new URI(id);
@@ -145,14 +131,35 @@ public class GetPermissionsAction extends RestAction {
             throw new IllegalArgumentException("invalid " + PARAM_ID + " parameter, not a valid URI: " + id);
         }
 
+        authorize();
+
+        doGetPermissions(assetID, operation);
+    }
+
+    // get and validate the required OP parameter
+    protected Operation getOperation() {
+        String op = syncInput.getParameter(PARAM_OP);
+        log.debug(PARAM_OP + ": " + op);
+        if (op == null) {
+            throw new IllegalArgumentException("missing required parameter, " + PARAM_OP + "=["
+                                                   + Operation.read + "|" + Operation.write + "]");
+        }
+        try {
+            return Operation.valueOf(op);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid " + PARAM_OP + " parameter, must be " + PARAM_OP + "=["
+                                                   + Operation.read + "|" + Operation.write + "]");
+        }
+    }
+
+    // check that the caller is allowed to request grants
+    protected void authorize() throws ResourceNotFoundException {
         String context = syncInput.getContextPath();
         context = context.startsWith("/") ? context.substring(1) : context;
         String propertiesFilename = context + "-grants.properties";
 
         PropertyAuthorizer propertiesAuthorization = new PropertyAuthorizer(propertiesFilename);
         propertiesAuthorization.authorize();
-
-        doGetPermissions(assetID, operation);
     }
 
     protected void doGetPermissions(URI artifactURI, Operation operation) throws Exception {
@@ -169,9 +176,7 @@ public class GetPermissionsAction extends RestAction {
         if (operation == Operation.write) {
             grant = new WriteGrant(artifactURI, getExpiryDate());
         } else {
-            ArtifactAccess artifactAccess = AccessUtil.getArtifactAccess(raa.artifact, raa.metaRelease,
-                                                                         raa.metaReadAccessGroups, raa.dataRelease,
-                                                                         raa.dataReadAccessGroups);
+            ArtifactAccess artifactAccess = getArtifactAccess(raa);
             grant = new ReadGrant(artifactURI, getExpiryDate(), artifactAccess.isPublic);
             for (URI uri : artifactAccess.getReadGroups()) {
                 grant.getGroups().add(new GroupURI(uri));
@@ -190,39 +195,45 @@ public class GetPermissionsAction extends RestAction {
         log.debug("DONE: " + artifactURI);
     }
 
+    protected ArtifactAccess getArtifactAccess(ReadAccessDAO.RawArtifactAccess raa) {
+        return AccessUtil.getArtifactAccess(raa.artifact, raa.metaRelease, raa.metaReadAccessGroups,
+                                            raa.dataRelease, raa.dataReadAccessGroups);
+    }
+
     // The date the grant expires
-    private Date getExpiryDate() {
+    protected Date getExpiryDate() {
         Calendar now = Calendar.getInstance();
         now.add(Calendar.HOUR_OF_DAY, HOURS_UNTIL_EXPIRES);
         return now.getTime();
     }
 
     private ReadAccessDAO getReadAccessDAO(URI artifactURI) throws ResourceNotFoundException {
+        CaomRepoConfig caomRepoConfig = getRepoConfig();
+        CaomRepoConfig.Item item = caomRepoConfig.getConfig(artifactURI);
+        if (item == null) {
+            throw new ResourceNotFoundException("not found: " + artifactURI);
+        }
+        return getReadAccessDAO(caomRepoConfig, item);
+    }
+
+    protected ReadAccessDAO getReadAccessDAO(CaomRepoConfig caomRepoConfig, CaomRepoConfig.Item item) {
+        try {
+            ReadAccessDAO readAccessDAO = new ReadAccessDAO();
+            readAccessDAO.setConfig(caomRepoConfig.getDAOConfig(item.getCollection()));
+            return readAccessDAO;
+        } catch (IOException ex) {
+            throw new RuntimeException("CONFIG: failed to create DAO for " + item.getCollection(), ex);
+        }
+    }
+
+    protected CaomRepoConfig getRepoConfig() {
         String serviceName = syncInput.getContextPath();
         File config = new File(System.getProperty("user.home") + "/config" ,serviceName + ".properties");
         try {
-            CaomRepoConfig caomRepoConfig = new CaomRepoConfig(config);
-            Iterator<CaomRepoConfig.Item> iterator = caomRepoConfig.iterator();
-            while (iterator.hasNext()) {
-                CaomRepoConfig.Item item = iterator.next();
-                if (archiveMatch(artifactURI, item.getArtifactPattern())
-                    || archiveMatch(artifactURI, item.getAltPattern())) {
-                    ReadAccessDAO readAccessDAO = new ReadAccessDAO();
-                    readAccessDAO.setConfig(caomRepoConfig.getDAOConfig(item.getCollection()));
-                    return readAccessDAO;
-                }
-            }
-            throw new ResourceNotFoundException("not found: " + artifactURI);
+            return CaomRepoConfig.getInstance(config);
         } catch (IOException ex) {
             throw new RuntimeException("CONFIG: failed to read config from " + config.getAbsolutePath());
         }
     }
-    
-    private boolean archiveMatch(URI uri, String pattern) {
-        if (pattern == null) {
-            return false;
-        }
-        return uri.toASCIIString().contains(pattern);
-    }
 
 }
@@ -0,0 +1,203 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.repo.action;
+
+import ca.nrc.cadc.caom2.access.ArtifactAccess;
+import ca.nrc.cadc.caom2.persistence.ReadAccessDAO;
+import ca.nrc.cadc.caom2.repo.CaomRepoConfig;
+import ca.nrc.cadc.date.DateUtil;
+import ca.nrc.cadc.io.ByteCountOutputStream;
+import ca.nrc.cadc.rest.InlineContentHandler;
+import com.csvreader.CsvWriter;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Bulk form of GetPermissionsAction: the request body is a list of artifact URIs
+ * (one per line) and the response is one grant per URI in input order. Artifacts
+ * are resolved with one ReadAccessDAO query per repo config item.
+ * 
+ * <p>Output is tab-separated values with columns:
+ * uri, status (OK|NotFound), operation, anonymous access, expiry date, space-separated group URIs.
+ * Only uri and status are included for artifacts that were not found.
+ * 
+ * @author pdowler
+ */
+public class PostPermissionsAction extends GetPermissionsAction {
+    private static final Logger log = Logger.getLogger(PostPermissionsAction.class);
+
+    public PostPermissionsAction() {
+    }
+
+    @Override
+    protected InlineContentHandler getInlineContentHandler() {
+        return new URIListInlineContentHandler();
+    }
+
+    @Override
+    public void doAction() throws Exception {
+        log.debug("POST ACTION");
+        
+        final Operation operation = getOperation();
+        final List<URI> artifactURIs = getInputURIs();
+        
+        authorize();
+        
+        long start = System.currentTimeMillis();
+        
+        // group input by repo config item
+        CaomRepoConfig caomRepoConfig = getRepoConfig();
+        Map<CaomRepoConfig.Item, List<URI>> groups = new LinkedHashMap<>();
+        for (URI u : artifactURIs) {
+            CaomRepoConfig.Item item = caomRepoConfig.getConfig(u);
+            if (item != null) {
+                List<URI> uris = groups.get(item);
+                if (uris == null) {
+                    uris = new ArrayList<>();
+                    groups.put(item, uris);
+                }
+                uris.add(u);
+            }
+        }
+        
+        Map<URI, ReadAccessDAO.RawArtifactAccess> found = new HashMap<>();
+        for (Map.Entry<CaomRepoConfig.Item, List<URI>> me : groups.entrySet()) {
+            ReadAccessDAO readAccessDAO = getReadAccessDAO(caomRepoConfig, me.getKey());
+            found.putAll(readAccessDAO.getArtifactAccess(me.getValue()));
+        }
+        log.debug("query: " + artifactURIs.size() + " found: " + found.size() + " collections: " + groups.size()
+                + " " + (System.currentTimeMillis() - start) + "ms");
+        
+        final String expiryDate = getDateFormat().format(getExpiryDate());
+        
+        syncOutput.setHeader("Content-Type", "text/tab-separated-values");
+        syncOutput.setCode(200);
+        ByteCountOutputStream bc = new ByteCountOutputStream(syncOutput.getOutputStream());
+        OutputStreamWriter out = new OutputStreamWriter(bc, "UTF-8");
+        CsvWriter writer = new CsvWriter(out, '\t');
+        for (URI u : artifactURIs) {
+            writer.write(u.toASCIIString());
+            ReadAccessDAO.RawArtifactAccess raa = found.get(u);
+            if (raa == null) {
+                writer.write("NotFound");
+            } else {
+                writer.write("OK");
+                writer.write(operation.name());
+                if (operation == Operation.write) {
+                    writer.write(Boolean.FALSE.toString());
+                    writer.write(expiryDate);
+                    writer.write("");
+                } else {
+                    ArtifactAccess aa = getArtifactAccess(raa);
+                    writer.write(Boolean.toString(aa.isPublic));
+                    writer.write(expiryDate);
+                    StringBuilder sb = new StringBuilder();
+                    for (URI g : aa.getReadGroups()) {
+                        if (sb.length() > 0) {
+                            sb.append(" ");
+                        }
+                        sb.append(g.toASCIIString());
+                    }
+                    writer.write(sb.toString());
+                }
+            }
+            writer.endRecord();
+        }
+        writer.flush();
+        logInfo.setBytes(bc.getByteCount());
+        
+        log.debug("DONE: " + artifactURIs.size());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<URI> getInputURIs() {
+        Object o = syncInput.getContent(URIListInlineContentHandler.ERROR_KEY);
+        if (o != null) {
+            IllegalArgumentException ex = (IllegalArgumentException) o;
+            throw new IllegalArgumentException("invalid input: " + ex.getMessage(), ex);
+        }
+        List<URI> ret = (List<URI>) syncInput.getContent(URIListInlineContentHandler.CONTENT_KEY);
+        if (ret == null || ret.isEmpty()) {
+            throw new IllegalArgumentException("missing required input: list of artifact URIs");
+        }
+        return ret;
+    }
+    
+    private DateFormat getDateFormat() {
+        return DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
+    }
+}
@@ -70,7 +70,6 @@
 package ca.nrc.cadc.caom2.repo.action;
 
 import ca.nrc.cadc.ac.UserNotFoundException;
-import ca.nrc.cadc.ac.client.GMSClient;
 import ca.nrc.cadc.caom2.Artifact;
 import ca.nrc.cadc.caom2.Observation;
 import ca.nrc.cadc.caom2.ObservationURI;
@@ -80,7 +79,9 @@ import ca.nrc.cadc.caom2.compute.CaomWCSValidator;
 import ca.nrc.cadc.caom2.compute.ComputeUtil;
 import ca.nrc.cadc.caom2.persistence.DeletedEntityDAO;
 import ca.nrc.cadc.caom2.persistence.ObservationDAO;
+import ca.nrc.cadc.caom2.repo.CachingGroupService;
 import ca.nrc.cadc.caom2.repo.CaomRepoConfig;
+import ca.nrc.cadc.caom2.repo.GroupService;
 import ca.nrc.cadc.caom2.util.CaomValidator;
 import ca.nrc.cadc.caom2.xml.ObservationParsingException;
 import ca.nrc.cadc.cred.client.CredUtil;
@@ -317,25 +318,14 @@ public abstract class RepoAction extends RestAction {
 
         try {
             if (CredUtil.checkCredentials()) {
-                GroupURI grw = i.getReadWriteGroup();
-                GMSClient gms = new GMSClient(grw.getServiceID());
-                if (gms.isMember(grw.getName())) {
+                GroupService gms = getGroupService();
+                if (gms.isMember(i.getReadWriteGroup())) {
                     return;
                 }
-
-                GroupURI gro = i.getReadOnlyGroup();
-                if (!grw.getServiceID().equals(gro.getServiceID())) {
-                    gms = new GMSClient(gro.getServiceID());
-                }
-
-                if (gms.isMember(gro.getName())) {
+                if (gms.isMember(i.getReadOnlyGroup())) {
                     return;
                 }
-
-                if (!gro.getServiceID().equals(CADC_GROUP_URI.getServiceID())) {
-                    gms = new GMSClient(CADC_GROUP_URI.getServiceID());
-                }
-                if (gms.isMember(CADC_GROUP_URI.getName())) {
+                if (gms.isMember(CADC_GROUP_URI)) {
                     return;
                 }
             }
@@ -374,10 +364,7 @@ public abstract class RepoAction extends RestAction {
 
         try {
             if (CredUtil.checkCredentials()) {
-                GroupURI guri = i.getReadWriteGroup();
-                URI gmsUri = guri.getServiceID();
-                GMSClient gms = new GMSClient(gmsUri);
-                if (gms.isMember(guri.getName())) {
+                if (getGroupService().isMember(i.getReadWriteGroup())) {
                     return;
                 }
             }
@@ -447,12 +434,22 @@ public abstract class RepoAction extends RestAction {
         return null;
     }
 
+    /**
+     * Get the group service used for read and write permission checks. The default
+     * caches membership decisions (per caller) in the process-wide CachingGroupService.
+     * 
+     * @return group service
+     */
+    protected GroupService getGroupService() {
+        return CachingGroupService.getDefault();
+    }
+
     private void initConfig() throws IOException {
         if (this.repoConfig == null) {
             String serviceName = syncInput.getContextPath();
             File config = new File(System.getProperty("user.home") + "/config",
                 serviceName + ".properties");
-            this.repoConfig = new CaomRepoConfig(config);
+            this.repoConfig = CaomRepoConfig.getInstance(config);
 
             if (this.repoConfig.isEmpty()) {
                 throw new IllegalStateException("no RepoConfig.Item(s)found");
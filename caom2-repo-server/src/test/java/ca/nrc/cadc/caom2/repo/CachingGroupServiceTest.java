@@ -0,0 +1,159 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.repo;
+
+import ca.nrc.cadc.auth.AuthenticationUtil;
+import ca.nrc.cadc.caom2.persistence.DecisionCache;
+import ca.nrc.cadc.util.Log4jInit;
+import java.net.URI;
+import java.security.PrivilegedExceptionAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.security.auth.Subject;
+import javax.security.auth.x500.X500Principal;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencadc.gms.GroupURI;
+
+/**
+ *
+ * @author pdowler
+ */
+public class CachingGroupServiceTest {
+    private static final Logger log = Logger.getLogger(CachingGroupServiceTest.class);
+
+    static {
+        Log4jInit.setLevel("ca.nrc.cadc.caom2", Level.INFO);
+    }
+    
+    private static final GroupURI G1 = new GroupURI(URI.create("ivo://example.net/gms?g1"));
+    private static final GroupURI G2 = new GroupURI(URI.create("ivo://example.net/gms?g2"));
+
+    @Test
+    public void testCachingGroupService() {
+        try {
+            final StubGroupService stub = new StubGroupService();
+            stub.members.put("CN=alice", new TreeSet<>());
+            stub.members.get("CN=alice").add(G1.getURI().toASCIIString());
+            stub.members.put("CN=bob", new TreeSet<>());
+            
+            final CachingGroupService gs = new CachingGroupService(stub, new DecisionCache(100, 10000L, 10000L));
+            
+            Subject alice = new Subject();
+            alice.getPrincipals().add(new X500Principal("CN=alice"));
+            Subject bob = new Subject();
+            bob.getPrincipals().add(new X500Principal("CN=bob"));
+            
+            Subject.doAs(alice, (PrivilegedExceptionAction<Object>) () -> {
+                Assert.assertTrue(gs.isMember(G1));
+                Assert.assertTrue(gs.isMember(G1));
+                Assert.assertFalse(gs.isMember(G2));
+                Assert.assertFalse(gs.isMember(G2));
+                return null;
+            });
+            Assert.assertEquals("one remote call per group", 2, stub.calls);
+            
+            // different caller must not see cached decisions for alice
+            Subject.doAs(bob, (PrivilegedExceptionAction<Object>) () -> {
+                Assert.assertFalse(gs.isMember(G1));
+                return null;
+            });
+            Assert.assertEquals(3, stub.calls);
+            Assert.assertEquals(2, gs.getCache().getHits());
+            Assert.assertEquals(3, gs.getCache().getMisses());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    // local stub for a remote group service
+    private static class StubGroupService implements GroupService {
+        final Map<String, Set<String>> members = new HashMap<>();
+        int calls = 0;
+        
+        @Override
+        public boolean isMember(GroupURI group) {
+            calls++;
+            Subject s = AuthenticationUtil.getCurrentSubject();
+            for (X500Principal p : s.getPrincipals(X500Principal.class)) {
+                Set<String> groups = members.get(p.getName());
+                if (groups != null && groups.contains(group.getURI().toASCIIString())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.repo;
 import ca.nrc.cadc.util.FileUtil;
 import ca.nrc.cadc.util.Log4jInit;
 import java.io.File;
+import java.io.FileWriter;
+import java.net.URI;
 import java.util.List;
 import java.util.Properties;
 import org.apache.log4j.Level;
@@ -491,4 +493,88 @@ public class CaomRepoConfigTest {
         }
     }
 
+    @Test
+    public void testGetInstance() {
+        try {
+            File cf = File.createTempFile("CaomRepoConfigTest", ".properties");
+            cf.deleteOnExit();
+            writeConfig(cf, "c1");
+            
+            CaomRepoConfig c1 = CaomRepoConfig.getInstance(cf);
+            CaomRepoConfig c2 = CaomRepoConfig.getInstance(cf);
+            Assert.assertSame("cached", c1, c2);
+            Assert.assertNotNull(c1.getConfig("c1"));
+            
+            writeConfig(cf, "c2");
+            cf.setLastModified(cf.lastModified() + 2000L); // coarse file system timestamps
+            CaomRepoConfig c3 = CaomRepoConfig.getInstance(cf);
+            Assert.assertNotSame("reloaded", c1, c3);
+            Assert.assertNull(c3.getConfig("c1"));
+            Assert.assertNotNull(c3.getConfig("c2"));
+            
+            // previous instance unchanged
+            Assert.assertNotNull(c1.getConfig("c1"));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testGetConfigArtifactURI() {
+        try {
+            File cf = File.createTempFile("CaomRepoConfigTest", ".properties");
+            cf.deleteOnExit();
+            try (FileWriter w = new FileWriter(cf)) {
+                w.write("FOO = " + CONFIG_TOKENS + " artifactPattern=ad:FOO/ altPattern=cadc:FOO/\n");
+                w.write("FOOBAR = " + CONFIG_TOKENS + " artifactPattern=ad:FOOBAR/\n");
+                w.write("NONE = " + CONFIG_TOKENS + "\n");
+            }
+            CaomRepoConfig conf = new CaomRepoConfig(cf);
+            
+            Assert.assertEquals("FOO", conf.getConfig(URI.create("ad:FOO/bar.fits")).getCollection());
+            Assert.assertEquals("FOO", conf.getConfig(URI.create("cadc:FOO/bar.fits")).getCollection());
+            Assert.assertEquals("FOOBAR", conf.getConfig(URI.create("ad:FOOBAR/bar.fits")).getCollection());
+            Assert.assertNull(conf.getConfig(URI.create("ad:BAR/foo.fits")));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testGetConfigOverlappingPatterns() {
+        try {
+            File cf = File.createTempFile("CaomRepoConfigTest", ".properties");
+            cf.deleteOnExit();
+            try (FileWriter w = new FileWriter(cf)) {
+                w.write("AB = " + CONFIG_TOKENS + " artifactPattern=ad:AB\n");
+                w.write("ABC = " + CONFIG_TOKENS + " artifactPattern=ad:ABC/\n");
+                w.write("XYZ = " + CONFIG_TOKENS + " artifactPattern=ad:XYZ/ altPattern=/ABC/\n");
+            }
+            CaomRepoConfig conf = new CaomRepoConfig(cf);
+            
+            // every item matches this URI: the first item in config order wins
+            URI uri = URI.create("ad:ABC/XYZ/ABC/foo.fits");
+            List<CaomRepoConfig.Item> items = CaomRepoConfig.loadConfig(cf);
+            Assert.assertEquals(3, items.size());
+            Assert.assertEquals(items.get(0).getCollection(), conf.getConfig(uri).getCollection());
+            
+            Assert.assertEquals("XYZ", conf.getConfig(URI.create("ad:XYZ/foo.fits")).getCollection());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    private static final String CONFIG_TOKENS = "dsname database schema caom2obs "
+            + "ivo://cadc.nrc.ca/gms?group1 ivo://cadc.nrc.ca/gms?group2 "
+            + "ca.nrc.cadc.caom2.repo.DummySQLGeneratorImpl basePublisherID=ivo://opencadc.org";
+    
+    private void writeConfig(File cf, String collection) throws Exception {
+        try (FileWriter w = new FileWriter(cf)) {
+            w.write(collection + " = " + CONFIG_TOKENS + "\n");
+        }
+    }
+
 }
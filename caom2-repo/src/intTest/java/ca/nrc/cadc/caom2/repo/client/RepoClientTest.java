@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.repo.client;
 import java.net.URI;
 import java.security.AccessControlException;
 import java.security.PrivilegedExceptionAction;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.security.auth.Subject;
@@ -181,4 +183,37 @@ public class RepoClientTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGetIterator() {
+        try {
+            Subject s = AuthenticationUtil.getAnonSubject();
+            Subject.doAs(s, (PrivilegedExceptionAction<Object>) () -> {
+                RepoClient repoC = new RepoClient(URI.create("ivo://cadc.nrc.ca/ams"), 4);
+                repoC.setMaxInFlight(3);
+
+                List<ObservationState> expected = repoC.getObservationList("IRIS", null, null, 12);
+                Iterator<ObservationResponse> iter = repoC.getIterator("IRIS", null, null, 12);
+                int num = 0;
+                Date prev = null;
+                while (iter.hasNext()) {
+                    ObservationResponse wr = iter.next();
+                    Assert.assertNull(wr.error);
+                    Assert.assertNotNull(wr.observation);
+                    Assert.assertEquals(expected.get(num).getURI(), wr.observationState.getURI());
+                    if (prev != null) {
+                        Assert.assertTrue("maxLastModified order", prev.compareTo(wr.observationState.maxLastModified) <= 0);
+                    }
+                    prev = wr.observationState.maxLastModified;
+                    num++;
+                }
+                Assert.assertEquals(12, num);
+
+                return null;
+            });
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+}
@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.repo.client;
 import ca.nrc.cadc.auth.AuthMethod;
 import ca.nrc.cadc.auth.AuthenticationUtil;
 import ca.nrc.cadc.auth.NotAuthenticatedException;
+import ca.nrc.cadc.auth.SSLUtil;
+import ca.nrc.cadc.auth.X509CertificateChain;
 import ca.nrc.cadc.caom2.DeletedObservation;
 import ca.nrc.cadc.caom2.ObservationResponse;
 import ca.nrc.cadc.caom2.ObservationState;
@@ -102,18 +104,31 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.AccessControlException;
+import java.security.cert.X509Certificate;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLSocketFactory;
 import javax.security.auth.Subject;
 import org.apache.log4j.Logger;
 
@@ -122,12 +137,24 @@ import org.apache.log4j.Logger;
  * This class looks for a CAOM-2.4 obs endpoint and falls back to a CAOM 2.3 endpoint 
  * if the former is not found.
  * 
+ * <p>The client owns a pool of worker threads (idle threads exit after a minute) and 
+ * one SSLSocketFactory per client certificate so HTTP(S) connections to the
+ * service are kept alive and reused across requests and batches; close() releases
+ * the worker threads.
+ * 
+ * <p>Deployment note: the JDK keeps at most <code>http.maxConnections</code> (default: 5)
+ * idle connections per host. Applications that use more than 5 threads should set the
+ * system property at startup (e.g. <code>-Dhttp.maxConnections=16</code>); it is read once,
+ * before the first HTTP request, so it cannot be changed by this client.
+ * 
  * @author jduran
  *
  */
-public class RepoClient {
+public class RepoClient implements AutoCloseable {
     private static final Logger log = Logger.getLogger(RepoClient.class);
     private static final Integer DEFAULT_BATCH_SIZE = 50000;
+    private static final long IDLE_THREAD_SECONDS = 60L;
+    private static final int MAX_SSL_SOCKET_FACTORIES = 4;
 
     private final DateFormat df = DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
     private RegistryClient rc;
@@ -158,6 +185,24 @@ public class RepoClient {
     }
 
     private int nthreads = 1;
+    private int maxInFlight = 0;
+    
+    // long-lived worker pool: created on demand, shutdown in close()
+    private ThreadPoolExecutor executor;
+    
+    // one per client certificate chain (empty key: no certificate), shared by requests made with 
+    // that certificate so the JDK keep-alive cache can reuse connections: created on demand; 
+    // a renewed certificate gets a new factory and least recently used factories are dropped
+    private final Map<List<X509Certificate>, SSLSocketFactory> sslSocketFactories = 
+        new LinkedHashMap<List<X509Certificate>, SSLSocketFactory>(MAX_SSL_SOCKET_FACTORIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<X509Certificate>, SSLSocketFactory> eldest) {
+                return size() > MAX_SSL_SOCKET_FACTORIES;
+            }
+        };
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    
     private Comparator<ObservationState> maxLasModifiedComparatorForState = new Comparator<ObservationState>() {
         @Override
         public int compare(ObservationState o1, ObservationState o2) {
@@ -294,6 +339,16 @@ public class RepoClient {
         this.readTimeout = readTimeout;
     }
 
+    /**
+     * Override the default maximum number of observation documents that an iterator 
+     * from getIterator will download ahead of the caller (2 x nthreads).
+     * 
+     * @param maxInFlight max number of observations being downloaded or waiting to be consumed
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
     
     public List<DeletedObservation> getDeleted(String collection, Date start, Date end, Integer maxrec) {
         return readDeletedEntityList(new DeletionListReader(), collection, start, end, maxrec);
@@ -312,7 +367,27 @@ public class RepoClient {
     }
 
     public List<ObservationState> getObservationList(String collection, Date start, Date end, Integer maxrec) throws AccessControlException {
-        return readObservationStateList(new ObservationStateListReader(), collection, start, end, maxrec);
+        return readObservationStateList(new ObservationStateListReader(), collection, start, end, maxrec, true);
+    }
+    
+    /**
+     * Get the observation state with the largest maxLastModified in the collection.
+     * 
+     * @param collection collection name
+     * @return the newest observation state, or null if the collection is empty or the
+     *     service does not support listing in descending order
+     * @throws AccessControlException permission denied
+     */
+    public ObservationState getLatestState(String collection) throws AccessControlException {
+        List<ObservationState> states = readObservationStateList(new ObservationStateListReader(), collection, null, null, 1, false);
+        if (states.isEmpty()) {
+            return null;
+        }
+        if (states.size() > 1 && states.get(0).maxLastModified.before(states.get(1).maxLastModified)) {
+            log.debug("getLatestState: order=desc not supported by " + baseServiceURL);
+            return null;
+        }
+        return states.get(0);
     }
 
     public List<ObservationResponse> getList(String collection, Date startDate, Date end, Integer numberOfObservations) throws InterruptedException,
@@ -335,16 +410,13 @@ public class RepoClient {
         // thread pool management is changed
         Subject subjectForWorkerThread = AuthenticationUtil.getCurrentSubject();
         for (ObservationState os : stateList) {
-            tasks.add(new Worker(os, subjectForWorkerThread, baseServiceURL.toExternalForm()));
+            tasks.add(createWorker(os, subjectForWorkerThread));
         }
 
-        ExecutorService taskExecutor = null;
+        final long req = getRequestCount();
+        final long con = getConnectionCount();
         try {
-            // Run tasks in a fixed thread pool
-            taskExecutor = Executors.newFixedThreadPool(nthreads);
-            List<Future<ObservationResponse>> futures;
-
-            futures = taskExecutor.invokeAll(tasks);
+            List<Future<ObservationResponse>> futures = getExecutor().invokeAll(tasks);
 
             for (Future<ObservationResponse> f : futures) {
                 ObservationResponse res = null;
@@ -358,14 +430,248 @@ public class RepoClient {
             log.error("Error when executing thread in ThreadPool: " + e.getMessage() + " caused by: " + e.getCause().toString());
             throw e;
         } finally {
-            if (taskExecutor != null) {
-                taskExecutor.shutdown();
-            }
+            logConnections("getList", req, con);
         }
 
         return list;
     }
 
+    /**
+     * Get an iterator over observations in maxLastModified order. The list of observation 
+     * states is fetched one page at a time and observation documents are downloaded 
+     * (in parallel with nthreads) ahead of the caller, so memory use is bounded by the
+     * page size and the max in-flight observations rather than by maxrec. Errors for 
+     * individual observations are reported in the ObservationResponse.
+     * 
+     * @param collection collection name
+     * @param start minimum maxLastModified, may be null
+     * @param end maximum maxLastModified, may be null
+     * @param maxrec maximum number of observations, may be null for all
+     * @return iterator over observations in maxLastModified order
+     */
+    public Iterator<ObservationResponse> getIterator(String collection, Date start, Date end, Integer maxrec) {
+        return new ObservationResponseIterator(collection, start, end, maxrec);
+    }
+    
+    /**
+     * Get the number of HTTP requests made by this client.
+     * 
+     * @return number of requests
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+    
+    /**
+     * Get the number of new HTTPS connections (TLS handshakes) made by this client; requests 
+     * in excess of this number reused a kept-alive connection. Always 0 for plain HTTP.
+     * 
+     * @return number of new connections
+     */
+    public long getConnectionCount() {
+        return connections.get();
+    }
+    
+    /**
+     * Release the worker threads. The client can still be used after close; 
+     * a new worker pool is created as needed.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+    
+    private void logConnections(String op, long prevRequests, long prevConnections) {
+        if ("https".equals(baseServiceURL.getProtocol())) {
+            long req = getRequestCount() - prevRequests;
+            long con = getConnectionCount() - prevConnections;
+            log.debug(op + ": " + req + " requests " + con + " new connections " + Math.max(0L, req - con) + " reused");
+        }
+    }
+    
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(nthreads, nthreads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS, 
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = delegate.newThread(r);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            // idle pool of a client that is not closed does not hold threads
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+    
+    // lazy init per client certificate of the caller so requests always authenticate with the 
+    // current credentials; null for plain HTTP
+    private synchronized SSLSocketFactory getSSLSocketFactory() {
+        if (!"https".equals(baseServiceURL.getProtocol())) {
+            return null;
+        }
+        Subject s = AuthenticationUtil.getCurrentSubject();
+        List<X509Certificate> key = new ArrayList<>();
+        if (s != null) {
+            for (X509CertificateChain chain : s.getPublicCredentials(X509CertificateChain.class)) {
+                key.addAll(Arrays.asList(chain.getChain()));
+            }
+        }
+        SSLSocketFactory ret = sslSocketFactories.get(key);
+        if (ret == null) {
+            SSLSocketFactory sf;
+            if (!key.isEmpty()) {
+                sf = SSLUtil.getSocketFactory(s);
+            } else {
+                sf = (SSLSocketFactory) SSLSocketFactory.getDefault();
+            }
+            ret = new CountingSSLSocketFactory(sf, connections);
+            sslSocketFactories.put(key, ret);
+        }
+        return ret;
+    }
+    
+    private Worker createWorker(ObservationState os, Subject subject) {
+        Worker ret = new Worker(os, subject, baseServiceURL.toExternalForm());
+        ret.setSSLSocketFactory(getSSLSocketFactory());
+        requests.incrementAndGet();
+        return ret;
+    }
+    
+    private void configure(HttpGet get) {
+        get.setConnectionTimeout(connectionTimeout);
+        get.setReadTimeout(readTimeout);
+        SSLSocketFactory sf = getSSLSocketFactory();
+        if (sf != null) {
+            get.setSSLSocketFactory(sf);
+        }
+        requests.incrementAndGet();
+    }
+    
+    private class ObservationResponseIterator implements Iterator<ObservationResponse> {
+        
+        private final String collection;
+        private final Date end;
+        private final Integer maxrec;
+        private final int pageSize;
+        private final int maxQueued;
+        private final Subject subjectForWorkerThread;
+        
+        private Date curStart;
+        private ObservationState lastState;
+        private Iterator<ObservationState> page;
+        private boolean morePages = true;
+        private int numStates = 0;
+        
+        // submitted in list order so results come out in maxLastModified order
+        private final LinkedList<Future<ObservationResponse>> inFlight = new LinkedList<>();
+        
+        ObservationResponseIterator(String collection, Date start, Date end, Integer maxrec) {
+            this.collection = collection;
+            this.curStart = start;
+            this.end = end;
+            this.maxrec = maxrec;
+            this.pageSize = (maxrec == null ? DEFAULT_BATCH_SIZE : Math.min(maxrec, DEFAULT_BATCH_SIZE));
+            this.maxQueued = (maxInFlight > 0 ? maxInFlight : 2 * nthreads);
+            // see comment in getList
+            this.subjectForWorkerThread = AuthenticationUtil.getCurrentSubject();
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public ObservationResponse next() {
+            fill();
+            if (inFlight.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Future<ObservationResponse> f = inFlight.removeFirst();
+            try {
+                ObservationResponse ret = f.get();
+                fill();
+                return ret;
+            } catch (InterruptedException ex) {
+                cancel();
+                throw new RuntimeException("interrupted while waiting for observation", ex);
+            } catch (ExecutionException ex) {
+                cancel();
+                throw new RuntimeException("failed to get observation: " + ex.getCause(), ex.getCause());
+            }
+        }
+        
+        private void cancel() {
+            for (Future<ObservationResponse> f : inFlight) {
+                f.cancel(true);
+            }
+            inFlight.clear();
+            morePages = false;
+            page = null;
+        }
+        
+        private void fill() {
+            while (inFlight.size() < maxQueued) {
+                ObservationState os = nextState();
+                if (os == null) {
+                    return;
+                }
+                inFlight.add(getExecutor().submit(createWorker(os, subjectForWorkerThread)));
+            }
+        }
+        
+        private ObservationState nextState() {
+            while (page == null || !page.hasNext()) {
+                if (!morePages) {
+                    return null;
+                }
+                int rec = pageSize;
+                if (maxrec != null) {
+                    rec = Math.min(rec, maxrec - numStates);
+                    if (rec <= 0) {
+                        morePages = false;
+                        return null;
+                    }
+                }
+                // request returns up to rec + 1 and starts with the last state of the previous page
+                List<ObservationState> states = readObservationStateList(new ObservationStateListReader(), collection, curStart, end, rec, true);
+                if (states.size() <= rec) {
+                    morePages = false;
+                }
+                if (!states.isEmpty() && lastState != null && lastState.equals(states.get(0))) {
+                    states.remove(0);
+                }
+                if (!states.isEmpty()) {
+                    curStart = states.get(states.size() - 1).maxLastModified;
+                } else {
+                    morePages = false;
+                }
+                log.debug("getIterator: page of " + states.size() + " observation states, more: " + morePages);
+                page = states.iterator();
+            }
+            if (maxrec != null && numStates >= maxrec) {
+                return null;
+            }
+            lastState = page.next();
+            numStates++;
+            return lastState;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public ObservationResponse get(ObservationURI uri) {
         if (uri == null) {
             throw new IllegalArgumentException("uri cannot be null");
@@ -375,7 +681,7 @@ public class RepoClient {
 
         // see comment above in getList
         Subject subjectForWorkerThread = AuthenticationUtil.getCurrentSubject();
-        Worker wt = new Worker(os, subjectForWorkerThread, baseServiceURL.toExternalForm());
+        Worker wt = createWorker(os, subjectForWorkerThread);
         return wt.getObservation();
     }
 
@@ -397,15 +703,12 @@ public class RepoClient {
         for (ObservationURI uri : listURI) {
             ObservationState os = new ObservationState(uri);
             os.maxLastModified = new Date(now.getTime() + i++);
-            tasks.add(new Worker(os, subjectForWorkerThread, baseServiceURL.toExternalForm()));
+            tasks.add(createWorker(os, subjectForWorkerThread));
         }
-        ExecutorService taskExecutor = null;
+        final long req = getRequestCount();
+        final long con = getConnectionCount();
         try {
-            // Run tasks in a fixed thread pool
-            taskExecutor = Executors.newFixedThreadPool(nthreads);
-            List<Future<ObservationResponse>> futures;
-
-            futures = taskExecutor.invokeAll(tasks);
+            List<Future<ObservationResponse>> futures = getExecutor().invokeAll(tasks);
 
             for (Future<ObservationResponse> f : futures) {
                 ObservationResponse res = null;
@@ -419,9 +722,7 @@ public class RepoClient {
             log.error("Error when executing thread in ThreadPool: " + e.getMessage() + " caused by: " + e.getCause().toString());
             throw e;
         } finally {
-            if (taskExecutor != null) {
-                taskExecutor.shutdown();
-            }
+            logConnections("get", req, con);
         }
         Collections.sort(list, maxLasModifiedComparatorForResponse);
 
@@ -451,14 +752,15 @@ public class RepoClient {
         if (obsState != null) {
             // see comment above in getList
             Subject subjectForWorkerThread = AuthenticationUtil.getCurrentSubject();
-            Worker wt = new Worker(obsState, subjectForWorkerThread, baseServiceURL.toExternalForm());
+            Worker wt = createWorker(obsState, subjectForWorkerThread);
             return wt.getObservation();
         } else {
             return null;
         }
     }
 
-    private List<ObservationState> readObservationStateList(ObservationStateListReader transformer, String collection, Date start, Date end, Integer maxrec) {
+    private List<ObservationState> readObservationStateList(ObservationStateListReader transformer, String collection, Date start, Date end, Integer maxrec,
+            boolean ascending) {
 
         List<ObservationState> accList = new ArrayList<>();
         boolean tooBigRequest = maxrec == null || maxrec > DEFAULT_BATCH_SIZE;
@@ -487,6 +789,9 @@ public class RepoClient {
             if (end != null) {
                 surl = surl + "&end=" + df.format(end);
             }
+            if (!ascending) {
+                surl = surl + "&order=desc";
+            }
             log.debug("URL: " + surl);
 
             URL url;
@@ -497,8 +802,7 @@ public class RepoClient {
             }
 
             HttpGet get = new HttpGet(url, true);
-            get.setConnectionTimeout(connectionTimeout);
-            get.setReadTimeout(readTimeout);
+            configure(get);
             try {
                 get.prepare();
             } catch (AccessControlException | NotAuthenticatedException e) {
@@ -621,8 +925,7 @@ public class RepoClient {
             }
 
             HttpGet get = new HttpGet(url, true);
-            get.setConnectionTimeout(connectionTimeout);
-            get.setReadTimeout(readTimeout);
+            configure(get);
             try {
                 get.prepare();
             } catch (AccessControlException | NotAuthenticatedException e) {
@@ -74,13 +74,15 @@ import ca.nrc.cadc.caom2.ObservationResponse;
 import ca.nrc.cadc.caom2.ObservationState;
 import ca.nrc.cadc.caom2.xml.ObservationReader;
 import ca.nrc.cadc.net.HttpGet;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import ca.nrc.cadc.net.InputStreamWrapper;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.concurrent.Callable;
+import javax.net.ssl.SSLSocketFactory;
 import javax.security.auth.Subject;
 import org.apache.log4j.Logger;
 
@@ -97,6 +99,7 @@ public class Worker implements Callable<ObservationResponse> {
     private ObservationState state = null;
     private Subject subject = null;
     private String baseHTTPURL = null;
+    private SSLSocketFactory sslSocketFactory = null;
 
     public Worker(ObservationState state, Subject subject, String url) {
         this.state = state;
@@ -104,6 +107,11 @@ public class Worker implements Callable<ObservationResponse> {
         this.baseHTTPURL = url;
     }
 
+    // shared factory so kept-alive connections can be reused across workers
+    void setSSLSocketFactory(SSLSocketFactory sslSocketFactory) {
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
     @Override
     public ObservationResponse call() throws Exception {
         return getObservation();
@@ -114,7 +122,6 @@ public class Worker implements Callable<ObservationResponse> {
     }
 
     public ObservationResponse getObservation(URI uri) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
         String surl = baseHTTPURL + File.separator + state.getURI().getURI().getSchemeSpecificPart();
         log.debug("URL: " + surl);
         URL url = null;
@@ -123,7 +130,26 @@ public class Worker implements Callable<ObservationResponse> {
         } catch (MalformedURLException e) {
             throw new RuntimeException("Unable to create URL object for " + surl);
         }
-        HttpGet get = new HttpGet(url, bos);
+        final ObservationResponse wr = new ObservationResponse(state);
+        
+        // parse directly from the response stream instead of buffering the document
+        HttpGet get = new HttpGet(url, new InputStreamWrapper() {
+            @Override
+            public void read(InputStream in) throws IOException {
+                try {
+                    ObservationReader obsReader = new ObservationReader();
+                    wr.observation = obsReader.read(in);
+                    drain(in);
+                } catch (IOException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    wr.error = new IllegalArgumentException("failed to read observation document: " + ex.getMessage(), ex);
+                }
+            }
+        });
+        if (sslSocketFactory != null) {
+            get.setSSLSocketFactory(sslSocketFactory);
+        }
 
         if (subject != null) {
             Subject.doAs(subject, new RunnableAction(get));
@@ -131,23 +157,22 @@ public class Worker implements Callable<ObservationResponse> {
             get.run();
         }
 
-        ObservationResponse wr = new ObservationResponse(state);
         if (get.getThrowable() != null) {
+            wr.observation = null;
             if (get.getThrowable() instanceof Exception) {
                 wr.error = (Exception) get.getThrowable();
             } else {
                 wr.error = new RuntimeException("failed to get observation", get.getThrowable());
             }
-        } else {
-            try {
-                ObservationReader obsReader = new ObservationReader();
-                ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
-                wr.observation = obsReader.read(bis);
-            } catch (Exception e) {
-                wr.error = new IllegalArgumentException("failed to read observation document: " + e.getMessage(), e);
-            }
         }
         return wr;
     }
 
-}
\ No newline at end of file
+    // read to end of stream so the connection can be kept alive and reused
+    static void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        while (in.read(buf) != -1) {
+            // discard
+        }
+    }
+}
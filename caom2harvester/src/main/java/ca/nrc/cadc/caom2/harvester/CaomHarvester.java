@@ -71,6 +71,7 @@ package ca.nrc.cadc.caom2.harvester;
 
 import ca.nrc.cadc.caom2.DeletedObservation;
 import ca.nrc.cadc.caom2.harvester.state.HarvestState;
+import ca.nrc.cadc.caom2.harvester.state.PartitionHarvester;
 import ca.nrc.cadc.caom2.version.InitDatabase;
 import ca.nrc.cadc.db.ConnectionConfig;
 import ca.nrc.cadc.db.DBConfig;
@@ -95,6 +96,21 @@ public class CaomHarvester implements Runnable {
 
     private final ObservationHarvester obsHarvester;
     private DeletionHarvester obsDeleter;
+    
+    // config used to create additional harvesters for partitioned harvest
+    private final HarvestResource src;
+    private final HarvestResource dest;
+    private final URI basePublisherID;
+    private final int batchSize;
+    private final boolean dryrun;
+    private final boolean nochecksum;
+    private final boolean full;
+    private final boolean skip;
+    private final int nthreads;
+    private Date minDate;
+    private Date maxDate;
+    private File readAccessConfig;
+    private int partitions = 1;
 
     /**
      * Harvest everything.
@@ -126,6 +142,15 @@ public class CaomHarvester implements Runnable {
         ConnectionConfig cc = dbrc.getConnectionConfig(dest.getDatabaseServer(), dest.getDatabase());
         DataSource ds = DBUtil.getDataSource(cc);
         this.initdb = new InitDatabase(ds, dest.getDatabase(), dest.getSchema());
+        this.src = src;
+        this.dest = dest;
+        this.basePublisherID = basePublisherID;
+        this.batchSize = batchSize;
+        this.dryrun = dryrun;
+        this.nochecksum = nochecksum;
+        this.full = full;
+        this.skip = skip;
+        this.nthreads = nthreads;
 
         this.obsHarvester = new ObservationHarvester(src, dest, basePublisherID, batchSize, full, dryrun, nochecksum, nthreads);
         obsHarvester.setSkipped(skip);
@@ -141,6 +166,7 @@ public class CaomHarvester implements Runnable {
     }
 
     public void setMinDate(Date d) {
+        this.minDate = d;
         obsHarvester.setMinDate(d);
         if (obsDeleter != null) {
             obsDeleter.setMinDate(d);
@@ -148,6 +174,7 @@ public class CaomHarvester implements Runnable {
     }
 
     public void setMaxDate(Date d) {
+        this.maxDate = d;
         obsHarvester.setMaxDate(d);
         if (obsDeleter != null) {
             obsDeleter.setMaxDate(d);
@@ -169,7 +196,36 @@ public class CaomHarvester implements Runnable {
      * @param config enable read access generation from the specified config file
      */
     public void setGenerateReadAccess(String config) {
-        obsHarvester.setGenerateReadAccessTuples(new File(config));
+        this.readAccessConfig = new File(config);
+        obsHarvester.setGenerateReadAccessTuples(readAccessConfig);
+    }
+    
+    /**
+     * Split the incremental harvest window into partitions that are harvested
+     * concurrently. Partitioning is only used for incremental harvest: full, skip,
+     * dryrun, and minDate harvests are not partitioned.
+     * 
+     * @param partitions number of concurrent partitions (default: 1)
+     */
+    public void setPartitions(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("invalid partitions: " + partitions + " must be > 0");
+        }
+        this.partitions = partitions;
+    }
+    
+    private ObservationHarvester createPartitionHarvester() {
+        try {
+            ObservationHarvester ret = new ObservationHarvester(src, dest, basePublisherID, batchSize, false, dryrun, nochecksum, nthreads);
+            ret.setMaxDate(maxDate);
+            ret.setComputePlaneMetadata(obsHarvester.getComputePlaneMetadata());
+            if (readAccessConfig != null) {
+                ret.setGenerateReadAccessTuples(readAccessConfig);
+            }
+            return ret;
+        } catch (IOException ex) {
+            throw new RuntimeException("failed to init partition harvester", ex);
+        }
     }
 
     @Override
@@ -210,8 +266,14 @@ public class CaomHarvester implements Runnable {
 
         // harvest observations
         if (obsHarvester != null) {
-            log.debug("************** obsHarvester.run() ***************");
-            obsHarvester.run();
+            if (partitions > 1 && !full && !skip && !dryrun && minDate == null) {
+                log.debug("************** PartitionHarvester.run() ***************");
+                PartitionHarvester ph = new PartitionHarvester(obsHarvester, () -> createPartitionHarvester(), partitions);
+                ph.run();
+            } else {
+                log.debug("************** obsHarvester.run() ***************");
+                obsHarvester.run();
+            }
         }
     }
 }
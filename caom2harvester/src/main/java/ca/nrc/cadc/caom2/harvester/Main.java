@@ -258,6 +258,21 @@ public class Main {
                 log.info("batchSize: " + batchSize);
             }
 
+            int partitions = 1;
+            String spart = am.getValue("partitions");
+            if (spart != null && spart.trim().length() > 0) {
+                try {
+                    partitions = Integer.parseInt(spart);
+                } catch (NumberFormatException nex) {
+                    partitions = 0;
+                }
+                if (partitions < 1) {
+                    usage();
+                    log.error("value for --partitions must be a positive integer, found: " + spart);
+                    System.exit(1);
+                }
+            }
+
             Date minDate = null;
             String minDateStr = am.getValue("minDate");
             if (minDateStr != null && minDateStr.trim().length() > 0) {
@@ -291,6 +306,7 @@ public class Main {
                     ch.setMinDate(minDate);
                     ch.setMaxDate(maxDate);
                     ch.setCompute(compute);
+                    ch.setPartitions(partitions);
                     if (generateAC != null) {
                         ch.setGenerateReadAccess(generateAC);
                     }
@@ -440,6 +456,7 @@ public class Main {
         sb.append("\n         --minDate=<minimum Observation.maxLastModfied to consider (UTC timestamp)");
         sb.append("\n         --maxDate=<maximum Observation.maxLastModfied to consider (UTC timestamp)");
         sb.append("\n         --nochecksum : do not compare computed and harvested Observation.accMetaChecksum (default: require match or fail)");
+        sb.append("\n         --partitions=<num> : split an incremental harvest window into partitions harvested concurrently (default: 1)");
         
         if (ENABLE_COMPUTE_FEATURES) {
             sb.append("\n\nOptional plugin invocation:");
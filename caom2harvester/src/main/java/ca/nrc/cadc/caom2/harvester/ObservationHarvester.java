@@ -81,9 +81,12 @@ import ca.nrc.cadc.caom2.compute.ComputeUtil;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURI;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURIDAO;
 import ca.nrc.cadc.caom2.harvester.state.HarvestState;
+import ca.nrc.cadc.caom2.harvester.state.HarvestStateDAO;
+import ca.nrc.cadc.caom2.harvester.state.PartitionHarvester;
 import ca.nrc.cadc.caom2.persistence.ObservationDAO;
 import ca.nrc.cadc.caom2.repo.client.RepoClient;
 import ca.nrc.cadc.caom2.util.CaomValidator;
+import ca.nrc.cadc.db.TransactionManager;
 import ca.nrc.cadc.net.ResourceNotFoundException;
 import ca.nrc.cadc.net.TransientException;
 import java.io.File;
@@ -100,8 +103,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
@@ -110,12 +113,14 @@ import javax.sql.DataSource;
 import org.apache.log4j.Logger;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 
 /**
  *
  * @author pdowler
  */
-public class ObservationHarvester extends Harvester {
+public class ObservationHarvester extends Harvester implements PartitionHarvester.Worker {
 
     private static Logger log = Logger.getLogger(ObservationHarvester.class);
 
@@ -132,6 +137,12 @@ public class ObservationHarvester extends Harvester {
     private ReadAccessGenerator acGenerator;
     
     private boolean ready = false;
+    
+    // HarvestState name: normally cname but a partition of the range has its own state
+    private String stateName;
+    private boolean complete = false;
+    private boolean aborted = false;
+    private int ingested = 0;
 
     HarvestSkipURIDAO harvestSkipDAO = null;
 
@@ -228,6 +239,7 @@ public class ObservationHarvester extends Harvester {
             destObservationDAO.setOrigin(false); // copy as-is
         }
         initHarvestState(destObservationDAO.getDataSource(), Observation.class);
+        this.stateName = cname;
         
         if (srcObservationService != null) {
             if (srcObservationService.isObsAvailable()) {
@@ -238,6 +250,89 @@ public class ObservationHarvester extends Harvester {
         }
     }
 
+    @Override
+    public void setHarvestStateName(String stateName) {
+        this.stateName = stateName;
+    }
+    
+    @Override
+    public String getHarvestStateName() {
+        return stateName;
+    }
+    
+    @Override
+    public Date getMaxDate() {
+        return maxDate;
+    }
+    
+    @Override
+    public String getSource() {
+        return source;
+    }
+    
+    @Override
+    public HarvestStateDAO getHarvestStateDAO() {
+        return harvestStateDAO;
+    }
+    
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    @Override
+    public boolean isAborted() {
+        return aborted;
+    }
+    
+    @Override
+    public int getIngested() {
+        return ingested;
+    }
+    
+    @Override
+    public TransactionManager getTransactionManager() {
+        return destObservationDAO.getTransactionManager();
+    }
+    
+    @Override
+    public Date getSourceStart(Date end) {
+        List<ObservationState> first;
+        if (srcObservationDAO != null) {
+            first = srcObservationDAO.getObservationList(src.getCollection(), null, end, 1);
+        } else {
+            first = srcObservationService.getObservationList(src.getCollection(), null, end, 1);
+        }
+        if (first == null || first.isEmpty()) {
+            return null;
+        }
+        return first.get(0).maxLastModified;
+    }
+    
+    // release the source client threads and the single database connection of each DAO; 
+    // connections are re-opened on next use
+    @Override
+    public void close() {
+        if (srcObservationService != null) {
+            srcObservationService.close();
+        }
+        closeConnection(srcObservationDAO);
+        closeConnection(destObservationDAO);
+    }
+    
+    private void closeConnection(ObservationDAO dao) {
+        if (dao == null) {
+            return;
+        }
+        DataSource ds = dao.getDataSource();
+        if (ds instanceof DelegatingDataSource) {
+            ds = ((DelegatingDataSource) ds).getTargetDataSource();
+        }
+        if (ds instanceof SingleConnectionDataSource) {
+            ((SingleConnectionDataSource) ds).resetConnection();
+        }
+    }
+
     private String format(UUID id) {
         if (id == null) {
             return "null";
@@ -249,9 +344,14 @@ public class ObservationHarvester extends Harvester {
     public void run() {
         log.info("START: " + Observation.class.getSimpleName());
 
+        this.complete = false;
+        this.aborted = false;
         boolean go = true;
+        boolean abort = false;
         while (go) {
             Progress num = doit();
+            abort = num.abort;
+            ingested += num.ingested;
 
             if (num.found > 0) {
                 log.debug("***************** finished batch: " + num + " *******************");
@@ -269,6 +369,8 @@ public class ObservationHarvester extends Harvester {
                 go = false; // no state update -> infinite loop
             }
         }
+        this.complete = !abort && !dryrun;
+        this.aborted = abort;
 
         log.info("DONE: " + entityClass.getSimpleName() + "\n");
     }
@@ -316,7 +418,7 @@ public class ObservationHarvester extends Harvester {
 
             HarvestState state = null;
             if (!skipped) {
-                state = harvestStateDAO.get(source, Observation.class.getSimpleName());
+                state = harvestStateDAO.get(source, stateName);
                 startDate = state.curLastModified;
                 log.debug("state " + state);
             }
@@ -344,51 +446,53 @@ public class ObservationHarvester extends Harvester {
             }
             firstIteration = false;
 
-            List<SkippedWrapperURI<ObservationResponse>> entityList;
+            Iterator<SkippedWrapperURI<ObservationResponse>> entities;
             if (skipped) {
-                entityList = getSkipped(startDate);
+                entities = getSkipped(startDate).iterator();
             } else {
                 log.info("harvest window: " + format(startDate) + " :: " + format(endDate) + " [" + batchSize + "]");
-                List<ObservationResponse> obsList;
                 if (srcObservationDAO != null) {
-                    obsList = srcObservationDAO.getList(src.getCollection(), startDate, endDate, batchSize + 1);
+                    List<ObservationResponse> obsList = srcObservationDAO.getList(src.getCollection(), startDate, endDate, batchSize + 1);
+                    entities = wrap(obsList).iterator();
                 } else {
-                    obsList = srcObservationService.getList(src.getCollection(), startDate, endDate, batchSize + 1);
+                    // stream: observations are downloaded ahead of the writer (this thread)
+                    entities = wrap(srcObservationService.getIterator(src.getCollection(), startDate, endDate, batchSize + 1));
                 }
-                entityList = wrap(obsList);
             }
 
             // avoid re-processing the last successful one stored in
             // HarvestState (normal case because query: >= startDate)
-            if (!entityList.isEmpty() && !skipped) {
-                ListIterator<SkippedWrapperURI<ObservationResponse>> iter = entityList.listIterator();
-                Observation curBatchLeader = iter.next().entity.observation;
+            SkippedWrapperURI<ObservationResponse> leader = null;
+            if (!skipped && entities.hasNext()) {
+                leader = entities.next();
+                Observation curBatchLeader = leader.entity.observation;
                 if (curBatchLeader != null) {
                     log.debug("currentBatch: " + curBatchLeader.getURI() + " " + format(curBatchLeader.getMaxLastModified()));
                     log.debug("harvestState: " + format(state.curID) + " " + format(state.curLastModified));
                     if (curBatchLeader.getID().equals(state.curID) && curBatchLeader.getMaxLastModified().equals(state.curLastModified)) {
-                        iter.remove();
+                        leader = null;
                         expectedNum--;
                     }
                 }
             }
 
-            ret.found = entityList.size();
-            log.debug("found: " + entityList.size());
-
             timeQuery = System.currentTimeMillis() - t;
             t = System.currentTimeMillis();
 
-            ListIterator<SkippedWrapperURI<ObservationResponse>> iter1 = entityList.listIterator();
-            // int i = 0;
-            while (iter1.hasNext()) {
-                SkippedWrapperURI<ObservationResponse> ow = iter1.next();
+            while (leader != null || entities.hasNext()) {
+                SkippedWrapperURI<ObservationResponse> ow;
+                if (leader != null) {
+                    ow = leader;
+                    leader = null;
+                } else {
+                    ow = entities.next();
+                }
+                ret.found++;
                 Observation o = null;
                 if (ow.entity != null) {
                     o = ow.entity.observation;
                 }
                 HarvestSkipURI hs = ow.skip;
-                iter1.remove(); // allow garbage collection during loop
 
                 String skipMsg = null;
 
@@ -646,6 +750,7 @@ public class ObservationHarvester extends Harvester {
                     return ret;
                 }
             }
+            log.debug("found: " + ret.found);
             if (ret.found < expectedNum) {
                 ret.done = true;
             }
@@ -744,6 +849,25 @@ public class ObservationHarvester extends Harvester {
         return ret;
     }
 
+    private Iterator<SkippedWrapperURI<ObservationResponse>> wrap(final Iterator<ObservationResponse> obsIter) {
+        return new Iterator<SkippedWrapperURI<ObservationResponse>>() {
+            @Override
+            public boolean hasNext() {
+                return obsIter.hasNext();
+            }
+
+            @Override
+            public SkippedWrapperURI<ObservationResponse> next() {
+                return new SkippedWrapperURI<ObservationResponse>(obsIter.next(), null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
     private List<SkippedWrapperURI<ObservationResponse>> getSkipped(Date start) throws ExecutionException, InterruptedException {
         log.info("harvest window (skip): " + format(start) + " [" + batchSize + "]" + " source = " + source + " cname = " + cname);
         List<HarvestSkipURI> skip = harvestSkipDAO.get(source, cname, start, null, batchSize);
@@ -80,10 +80,13 @@ import ca.nrc.cadc.util.BucketSelector;
 import ca.nrc.cadc.util.Log4jInit;
 import java.net.URI;
 import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -238,6 +241,158 @@ public class PostgresqlHarvestSkipDAOTest {
         }
     }
 
+    @Test
+    public void testBatch() {
+        try {
+            HarvestSkipURIDAO dao = new HarvestSkipURIDAO(dataSource, database, schema);
+            final String source = "testBatch";
+            final String cname = Integer.class.getName();
+            
+            List<HarvestSkipURI> initial = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                URI skipID = URI.create("foo:" + UUID.randomUUID());
+                initial.add(new HarvestSkipURI(source, cname, skipID, new Date(), "initial"));
+            }
+            dao.batch(new ArrayList<>(), initial);
+            for (HarvestSkipURI s : initial) {
+                Assert.assertNotNull("id assigned", s.getID());
+                Assert.assertNotNull("inserted", dao.get(source, cname, s.getSkipID()));
+            }
+            
+            List<HarvestSkipURI> deletes = initial.subList(0, 3);
+            List<HarvestSkipURI> updates = initial.subList(3, 6);
+            Date t2 = new Date(System.currentTimeMillis() + 3600 * 1000L);
+            for (HarvestSkipURI s : updates) {
+                s.errorMessage = "modified";
+                s.setTryAfter(t2);
+            }
+            dao.batch(deletes, updates);
+            
+            for (HarvestSkipURI s : deletes) {
+                Assert.assertNull("deleted", dao.get(source, cname, s.getSkipID()));
+            }
+            for (HarvestSkipURI s : updates) {
+                HarvestSkipURI actual = dao.get(source, cname, s.getSkipID());
+                Assert.assertNotNull(actual);
+                Assert.assertEquals(s.getID(), actual.getID());
+                Assert.assertEquals(t2, actual.getTryAfter());
+                Assert.assertEquals("modified", actual.errorMessage);
+            }
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testBatchRollback() {
+        try {
+            HarvestSkipURIDAO dao = new HarvestSkipURIDAO(dataSource, database, schema);
+            final String source = "testBatchRollback";
+            final String cname = Integer.class.getName();
+            
+            URI dupID = URI.create("foo:" + UUID.randomUUID());
+            dao.put(new HarvestSkipURI(source, cname, dupID, new Date(), "initial"));
+            
+            // second insert of the same skipID violates the unique index and fails the batch
+            HarvestSkipURI ok = new HarvestSkipURI(source, cname, URI.create("foo:" + UUID.randomUUID()), new Date(), "ok");
+            HarvestSkipURI dup = new HarvestSkipURI(source, cname, dupID, new Date(), "dup");
+            List<HarvestSkipURI> puts = new ArrayList<>();
+            puts.add(ok);
+            puts.add(dup);
+            try {
+                dao.batch(new ArrayList<>(), puts);
+                Assert.fail("expected batch to fail");
+            } catch (RuntimeException expected) {
+                log.info("caught expected: " + expected);
+            }
+            Assert.assertNull("id reset", ok.getID());
+            Assert.assertNull("not inserted", dao.get(source, cname, ok.getSkipID()));
+            
+            // fallback put inserts
+            dao.put(ok);
+            Assert.assertNotNull("id assigned", ok.getID());
+            HarvestSkipURI actual = dao.get(source, cname, ok.getSkipID());
+            Assert.assertNotNull("inserted", actual);
+            Assert.assertEquals(ok.getID(), actual.getID());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testDeleteSkipIDs() {
+        try {
+            HarvestSkipURIDAO dao = new HarvestSkipURIDAO(dataSource, database, schema);
+            final String source = "testDeleteSkipIDs";
+            final String cname = Integer.class.getName();
+            
+            List<URI> skipIDs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                URI skipID = URI.create("foo:" + UUID.randomUUID());
+                dao.put(new HarvestSkipURI(source, cname, skipID, new Date(), "initial"));
+                skipIDs.add(skipID);
+            }
+            List<URI> deletes = new ArrayList<>(skipIDs.subList(0, 2));
+            deletes.add(URI.create("foo:" + UUID.randomUUID())); // not found
+            
+            int num = dao.delete(source, cname, deletes);
+            Assert.assertEquals(2, num);
+            Assert.assertNull(dao.get(source, cname, skipIDs.get(0)));
+            Assert.assertNull(dao.get(source, cname, skipIDs.get(1)));
+            Assert.assertNotNull(dao.get(source, cname, skipIDs.get(2)));
+            Assert.assertNotNull(dao.get(source, cname, skipIDs.get(3)));
+            
+            Assert.assertEquals(0, dao.delete("other", cname, skipIDs));
+            Assert.assertNotNull(dao.get(source, cname, skipIDs.get(2)));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testUpsert() {
+        try {
+            HarvestSkipURIDAO dao = new HarvestSkipURIDAO(dataSource, database, schema);
+            final String source = "testUpsert";
+            final String cname = Integer.class.getName();
+            
+            URI id1 = URI.create("foo:" + UUID.randomUUID());
+            URI id2 = URI.create("foo:" + UUID.randomUUID());
+            HarvestSkipURI existing = new HarvestSkipURI(source, cname, id1, new Date(), "initial");
+            dao.put(existing);
+            
+            Date t2 = new Date(System.currentTimeMillis() + 3600 * 1000L);
+            List<HarvestSkipURI> skips = new ArrayList<>();
+            skips.add(new HarvestSkipURI(source, cname, id1, t2));
+            skips.add(new HarvestSkipURI(source, cname, id2, new Date()));
+            skips.add(new HarvestSkipURI(source, cname, id2, t2)); // last one wins
+            Set<URI> inserted = dao.upsert(skips);
+            Assert.assertEquals(1, inserted.size());
+            Assert.assertTrue(inserted.contains(id2));
+            Assert.assertEquals("existing id", existing.getID(), skips.get(0).getID());
+            
+            HarvestSkipURI actual1 = dao.get(source, cname, id1);
+            Assert.assertNotNull(actual1);
+            Assert.assertEquals(existing.getID(), actual1.getID());
+            Assert.assertEquals(existing.bucket, actual1.bucket);
+            Assert.assertEquals(t2, actual1.getTryAfter());
+            Assert.assertEquals("errorMessage kept", "initial", actual1.errorMessage);
+            
+            HarvestSkipURI actual2 = dao.get(source, cname, id2);
+            Assert.assertNotNull(actual2);
+            Assert.assertEquals(skips.get(2).getID(), actual2.getID());
+            Assert.assertEquals(t2, actual2.getTryAfter());
+            
+            Assert.assertTrue(dao.upsert(skips).isEmpty());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
     @Test
     public void testIterator() {
         final DateFormat df = DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
@@ -307,6 +462,55 @@ public class PostgresqlHarvestSkipDAOTest {
         }
     }
     
+    @Test
+    public void testGetNext() {
+        final String cname = "Foo";
+        try {
+            HarvestSkipURIDAO dao = new HarvestSkipURIDAO(dataSource, database, schema);
+            long t = System.currentTimeMillis();
+            List<HarvestSkipURI> expected = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                String source = (i % 2 == 0 ? "testGetNext" : "otherSource");
+                // pairs of records with the same tryAfter: order within a pair is by skipID
+                URI skipID = URI.create("foo:" + (char) ('z' - i));
+                HarvestSkipURI skip = new HarvestSkipURI(source, cname, skipID, new Date(t + (i / 4) * 10L));
+                dao.put(skip);
+                if (i % 2 == 0) {
+                    expected.add(skip);
+                }
+            }
+            Collections.sort(expected, new Comparator<HarvestSkipURI>() {
+                @Override
+                public int compare(HarvestSkipURI o1, HarvestSkipURI o2) {
+                    int ret = o1.getTryAfter().compareTo(o2.getTryAfter());
+                    if (ret == 0) {
+                        ret = o1.getSkipID().compareTo(o2.getSkipID());
+                    }
+                    return ret;
+                }
+            });
+            
+            Date end = new Date(t + 100L);
+            List<HarvestSkipURI> actual = new ArrayList<>();
+            HarvestSkipURI last = null;
+            List<HarvestSkipURI> page = dao.getNext("testGetNext", cname, last, end, 4);
+            while (!page.isEmpty()) {
+                Assert.assertTrue(page.size() <= 4);
+                actual.addAll(page);
+                last = page.get(page.size() - 1);
+                page = dao.getNext("testGetNext", cname, last, end, 4);
+            }
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals("testGetNext", actual.get(i).getSource());
+                Assert.assertEquals(expected.get(i).getID(), actual.get(i).getID());
+            }
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
     @Test
     public void testIteratorBucket() {
         final DateFormat df = DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
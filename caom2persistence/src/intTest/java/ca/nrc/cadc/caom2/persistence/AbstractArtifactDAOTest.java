@@ -76,11 +76,18 @@ import ca.nrc.cadc.caom2.Plane;
 import ca.nrc.cadc.caom2.ProductType;
 import ca.nrc.cadc.caom2.ReleaseType;
 import ca.nrc.cadc.caom2.SimpleObservation;
+import ca.nrc.cadc.caom2.artifact.ArtifactMetadata;
 import ca.nrc.cadc.db.TransactionManager;
+import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.util.Log4jInit;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.UUID;
 import javax.sql.DataSource;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -283,4 +290,177 @@ public abstract class AbstractArtifactDAOTest
             Assert.fail("unexpected exception: " + unexpected);
         }
     }
+    
+    @Test
+    public void testMetadataIterator()
+    {
+        try
+        {
+            Date release = new Date(System.currentTimeMillis() - 86400000L);
+            Observation o1 = new SimpleObservation("FOO", "bar1");
+            Plane p1 = new Plane("baz");
+            p1.dataRelease = release;
+            o1.getPlanes().add(p1);
+            Artifact a3 = new Artifact(URI.create("cadc:FOO/thing3"), ProductType.SCIENCE, ReleaseType.DATA);
+            a3.contentChecksum = URI.create("md5:e682d4d5a0c7e7b1d0a31d5a4a2e5b6c");
+            a3.contentLength = 1024L;
+            a3.contentType = "application/fits";
+            p1.getArtifacts().add(a3);
+            Artifact a1 = new Artifact(URI.create("cadc:FOO/thing1"), ProductType.PREVIEW, ReleaseType.META);
+            p1.getArtifacts().add(a1);
+            obsDAO.put(o1);
+            
+            Observation o2 = new SimpleObservation("FOO", "bar2");
+            Plane p2 = new Plane("baz");
+            o2.getPlanes().add(p2);
+            Artifact a2 = new Artifact(URI.create("cadc:FOO/thing2"), ProductType.SCIENCE, ReleaseType.DATA);
+            p2.getArtifacts().add(a2);
+            obsDAO.put(o2);
+            
+            // other collection
+            Observation o3 = new SimpleObservation("OTHER", "bar3");
+            Plane p3 = new Plane("baz");
+            o3.getPlanes().add(p3);
+            p3.getArtifacts().add(new Artifact(URI.create("cadc:OTHER/thing"), ProductType.SCIENCE, ReleaseType.DATA));
+            obsDAO.put(o3);
+            
+            List<ArtifactMetadata> found = new ArrayList<ArtifactMetadata>();
+            try (ResourceIterator<ArtifactMetadata> iter = dao.metadataIterator("FOO"))
+            {
+                while (iter.hasNext())
+                {
+                    found.add(iter.next());
+                }
+            }
+            Assert.assertEquals(3, found.size());
+            Assert.assertEquals(a1.getURI(), found.get(0).getArtifactURI());
+            Assert.assertEquals(a2.getURI(), found.get(1).getArtifactURI());
+            Assert.assertEquals(a3.getURI(), found.get(2).getArtifactURI());
+            
+            ArtifactMetadata m1 = found.get(0);
+            Assert.assertNull(m1.getChecksum());
+            Assert.assertNull(m1.contentLength);
+            Assert.assertEquals("bar1", m1.observationID);
+            Assert.assertEquals(ProductType.PREVIEW, m1.productType);
+            Assert.assertEquals(ReleaseType.META, m1.releaseType);
+            
+            ArtifactMetadata m3 = found.get(2);
+            Assert.assertEquals(a3.contentChecksum.getSchemeSpecificPart(), m3.getChecksum());
+            Assert.assertEquals(a3.contentLength, m3.contentLength);
+            Assert.assertEquals(a3.contentType, m3.contentType);
+            Assert.assertEquals("bar1", m3.observationID);
+            Assert.assertNotNull(m3.dataRelease);
+            Assert.assertEquals(release.getTime(), m3.dataRelease.getTime(), 1000L);
+            
+            Assert.assertEquals("bar2", found.get(1).observationID);
+            
+            try (ResourceIterator<ArtifactMetadata> iter = dao.metadataIterator("NONE"))
+            {
+                Assert.assertFalse(iter.hasNext());
+            }
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testMetadataIteratorByteOrder()
+    {
+        try
+        {
+            // mixed case and punctuation sort differently with a language collation
+            String[] names = { "b.fits", "B.fits", "a_b.fits", "a-b.fits", "a.b.fits", "ab.fits", "A_B.fits", "a~b.fits" };
+            Observation o = new SimpleObservation("FOO", "order1");
+            Plane p = new Plane("baz");
+            o.getPlanes().add(p);
+            List<String> expected = new ArrayList<String>();
+            for (String n : names)
+            {
+                URI uri = URI.create("cadc:FOO/" + n);
+                p.getArtifacts().add(new Artifact(uri, ProductType.SCIENCE, ReleaseType.DATA));
+                expected.add(uri.toASCIIString());
+            }
+            obsDAO.put(o);
+            Collections.sort(expected); // byte order for ASCII
+            
+            List<String> found = new ArrayList<String>();
+            try (ResourceIterator<ArtifactMetadata> iter = dao.metadataIterator("FOO"))
+            {
+                while (iter.hasNext())
+                {
+                    found.add(iter.next().getArtifactURI().toASCIIString());
+                }
+            }
+            Assert.assertEquals(expected, found);
+            
+            List<String> multi = new ArrayList<String>();
+            for (ArtifactMetadata am : dao.getMetadata(Collections.singletonList(o.getID())).get(o.getID()))
+            {
+                multi.add(am.getArtifactURI().toASCIIString());
+            }
+            Assert.assertEquals(expected, multi);
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testGetMetadata()
+    {
+        try
+        {
+            Observation o1 = new SimpleObservation("FOO", "multi1");
+            Plane p1 = new Plane("baz");
+            o1.getPlanes().add(p1);
+            Artifact a2 = new Artifact(URI.create("cadc:FOO/multi1b"), ProductType.SCIENCE, ReleaseType.DATA);
+            p1.getArtifacts().add(a2);
+            Artifact a1 = new Artifact(URI.create("cadc:FOO/multi1a"), ProductType.PREVIEW, ReleaseType.META);
+            p1.getArtifacts().add(a1);
+            obsDAO.put(o1);
+            
+            Observation o2 = new SimpleObservation("FOO", "multi2");
+            Plane p2 = new Plane("baz");
+            o2.getPlanes().add(p2);
+            Artifact a3 = new Artifact(URI.create("cadc:FOO/multi2"), ProductType.SCIENCE, ReleaseType.DATA);
+            p2.getArtifacts().add(a3);
+            obsDAO.put(o2);
+            
+            Observation o3 = new SimpleObservation("FOO", "multi3");
+            obsDAO.put(o3);
+            
+            List<UUID> ids = new ArrayList<UUID>();
+            ids.add(o1.getID());
+            ids.add(o2.getID());
+            ids.add(o3.getID());
+            ids.add(UUID.randomUUID());
+            Map<UUID, List<ArtifactMetadata>> found = dao.getMetadata(ids);
+            Assert.assertEquals(2, found.size());
+            
+            List<ArtifactMetadata> m1 = found.get(o1.getID());
+            Assert.assertNotNull(m1);
+            Assert.assertEquals(2, m1.size());
+            Assert.assertEquals(a1.getURI(), m1.get(0).getArtifactURI());
+            Assert.assertEquals(ReleaseType.META, m1.get(0).releaseType);
+            Assert.assertEquals(a2.getURI(), m1.get(1).getArtifactURI());
+            Assert.assertEquals("multi1", m1.get(1).observationID);
+            
+            List<ArtifactMetadata> m2 = found.get(o2.getID());
+            Assert.assertNotNull(m2);
+            Assert.assertEquals(1, m2.size());
+            Assert.assertEquals(a3.getURI(), m2.get(0).getArtifactURI());
+            
+            Assert.assertTrue(dao.getMetadata(new ArrayList<UUID>()).isEmpty());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
 }
@@ -119,6 +119,11 @@ import ca.nrc.cadc.caom2.types.Polygon;
 import ca.nrc.cadc.caom2.types.SampledInterval;
 import ca.nrc.cadc.caom2.types.SegmentType;
 import ca.nrc.cadc.caom2.types.Vertex;
+import ca.nrc.cadc.caom2.persistence.skel.ArtifactSkeleton;
+import ca.nrc.cadc.caom2.persistence.skel.ObservationSkeleton;
+import ca.nrc.cadc.caom2.persistence.skel.PartSkeleton;
+import ca.nrc.cadc.caom2.persistence.skel.PlaneSkeleton;
+import ca.nrc.cadc.caom2.persistence.skel.Skeleton;
 import ca.nrc.cadc.caom2.wcs.Axis;
 import ca.nrc.cadc.caom2.wcs.Coord2D;
 import ca.nrc.cadc.caom2.wcs.CoordAxis1D;
@@ -139,12 +144,14 @@ import ca.nrc.cadc.caom2.wcs.SpatialWCS;
 import ca.nrc.cadc.caom2.wcs.SpectralWCS;
 import ca.nrc.cadc.caom2.wcs.TemporalWCS;
 import ca.nrc.cadc.date.DateUtil;
+import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.db.IntRowMapper;
 import ca.nrc.cadc.db.TransactionManager;
 import ca.nrc.cadc.net.PreconditionFailedException;
 import ca.nrc.cadc.util.Log4jInit;
 import java.net.URI;
 import java.security.MessageDigest;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DateFormat;
@@ -163,6 +170,7 @@ import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 
@@ -203,6 +211,7 @@ public abstract class AbstractObservationDAOTest
     }
 
     ObservationDAO dao;
+    ObservationDAO batchDAO;
     DeletedEntityDAO ded;
     TransactionManager txnManager;
 
@@ -227,6 +236,11 @@ public abstract class AbstractObservationDAOTest
             dao.setConfig(config);
             this.txnManager = dao.getTransactionManager();
             
+            Map<String,Object> batchConfig = new TreeMap<String,Object>(config);
+            batchConfig.put("batchPut", Boolean.TRUE);
+            this.batchDAO = new ObservationDAO();
+            batchDAO.setConfig(batchConfig);
+            
             ded = new DeletedEntityDAO();
             ded.setConfig(config);
         }
@@ -353,6 +367,17 @@ public abstract class AbstractObservationDAOTest
             }
             Assert.assertEquals("start-end", 4, result.size());
             
+            // streaming variant returns the same states in the same order
+            try (ResourceIterator<ObservationState> iter = dao.getObservationListIterator(collection, start, end, batchSize, true))
+            {
+                int n = 0;
+                while (iter.hasNext())
+                {
+                    Assert.assertEquals(result.get(n++).getURI(), iter.next().getURI());
+                }
+                Assert.assertEquals("iterator start-end", 4, n);
+            }
+            
             result = dao.getObservationList(collection, start, end, batchSize, false); // descending order
             for (int i=0; i<result.size(); i++)
             {
@@ -607,6 +632,213 @@ public abstract class AbstractObservationDAOTest
         }
     }
 
+    @Test
+    public void testBulkDelete()
+    {
+        try
+        {
+            List<UUID> ids = new ArrayList<UUID>();
+            for (int i = 0; i < 3; i++)
+            {
+                Observation o = new SimpleObservation("TEST", "BulkDelete" + i);
+                Plane pl = new Plane("plane1");
+                Artifact ar = new Artifact(URI.create("ad:TEST/BulkDelete" + i), ProductType.SCIENCE, ReleaseType.DATA);
+                Part pt = new Part(0);
+                pt.getChunks().add(new Chunk());
+                ar.getParts().add(pt);
+                pl.getArtifacts().add(ar);
+                o.getPlanes().add(pl);
+                dao.put(o);
+                ids.add(o.getID());
+            }
+            UUID notFound = UUID.randomUUID();
+            List<UUID> query = new ArrayList<UUID>(ids);
+            query.add(notFound);
+            
+            Map<UUID, ObservationState> states = dao.getStates(query);
+            Assert.assertEquals(3, states.size());
+            Assert.assertFalse(states.containsKey(notFound));
+            for (UUID id : ids)
+            {
+                ObservationState s = states.get(id);
+                Assert.assertNotNull(s);
+                Assert.assertEquals(id, s.id);
+                Assert.assertNotNull(s.getMaxLastModified());
+            }
+            
+            List<ObservationURI> uris = new ArrayList<ObservationURI>();
+            for (ObservationState s : states.values())
+            {
+                uris.add(s.getURI());
+            }
+            uris.add(new ObservationURI("TEST", "BulkDeleteNotFound"));
+            Map<ObservationURI, ObservationState> byURI = dao.getStatesByURI(uris);
+            Assert.assertEquals(3, byURI.size());
+            for (ObservationState s : states.values())
+            {
+                Assert.assertEquals(s.id, byURI.get(s.getURI()).id);
+            }
+            
+            List<ObservationState> delete = new ArrayList<ObservationState>();
+            delete.add(states.get(ids.get(0)));
+            delete.add(states.get(ids.get(2)));
+            dao.delete(delete);
+            
+            Assert.assertNull(dao.getState(ids.get(0)));
+            Assert.assertNotNull(dao.getState(ids.get(1)));
+            Assert.assertNull(dao.getState(ids.get(2)));
+            JdbcTemplate jdbc = new JdbcTemplate(dao.dataSource);
+            String planes = dao.gen.getSelectSQL(PlaneSkeleton.class, ids.get(0), false);
+            Assert.assertTrue("no orphan planes", jdbc.queryForList(planes).isEmpty());
+            
+            DeletedEntity de = ded.get(DeletedObservation.class, ids.get(2));
+            Assert.assertNotNull("deletion tracker", de);
+            Assert.assertEquals("deleted.uri", states.get(ids.get(2)).getURI(), ((DeletedObservation) de).getURI());
+            Assert.assertNotNull("deletion tracker", ded.get(DeletedObservation.class, ids.get(0)));
+            List<UUID> deleted = new ArrayList<UUID>();
+            deleted.add(ids.get(0));
+            deleted.add(ids.get(2));
+            Assert.assertEquals("distinct tombstone lastModified", 2, countTombstoneTimestamps(deleted));
+            
+            dao.delete(ids.get(1));
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testBulkDeleteCollection()
+    {
+        try
+        {
+            String collection = "TESTBULK";
+            for (int i = 0; i < 5; i++)
+            {
+                Observation o = new SimpleObservation(collection, "BulkDeleteCollection" + i);
+                Plane pl = new Plane("plane1");
+                Artifact ar = new Artifact(URI.create("ad:TEST/BulkDeleteCollection" + i), ProductType.SCIENCE, ReleaseType.DATA);
+                Part pt = new Part(0);
+                pt.getChunks().add(new Chunk());
+                ar.getParts().add(pt);
+                pl.getArtifacts().add(ar);
+                o.getPlanes().add(pl);
+                dao.put(o);
+            }
+
+            // walk the collection in chunks of 2, with tombstones for the first chunk
+            List<UUID> first = dao.getObservationIDs(collection, null, null, 2);
+            Assert.assertEquals(2, first.size());
+            long rows = dao.delete(first, true);
+            Assert.assertEquals("rows", 2 * 5, rows); // chunk, part, artifact, plane, observation
+            for (UUID id : first)
+            {
+                Assert.assertNull(dao.getState(id));
+                DeletedEntity de = ded.get(DeletedObservation.class, id);
+                Assert.assertNotNull("deletion tracker", de);
+                Assert.assertNotNull("deletion tracker lastModified", de.lastModified);
+            }
+            Assert.assertEquals("distinct tombstone lastModified", first.size(), countTombstoneTimestamps(first));
+
+            UUID cur = first.get(1);
+            List<UUID> ids = dao.getObservationIDs(collection, cur, null, 2);
+            int num = 0;
+            while (!ids.isEmpty())
+            {
+                Assert.assertFalse("min bound", ids.contains(cur));
+                dao.delete(ids, false);
+                for (UUID id : ids)
+                {
+                    Assert.assertNull(ded.get(DeletedObservation.class, id));
+                }
+                num += ids.size();
+                cur = ids.get(ids.size() - 1);
+                ids = dao.getObservationIDs(collection, cur, null, 2);
+            }
+            Assert.assertEquals(3, num);
+            Assert.assertTrue(dao.getObservationIDs(collection, null, null, 2).isEmpty());
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+
+            Assert.assertEquals(2, ded.delete(collection, 10));
+            Assert.assertEquals(0, ded.delete(collection, 10));
+            Assert.assertNull(ded.get(DeletedObservation.class, first.get(0)));
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    // number of distinct stored lastModified values (full database precision) of tombstones
+    private int countTombstoneTimestamps(List<UUID> ids)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT count(DISTINCT lastModified) FROM ").append(dao.gen.getTable(DeletedObservation.class));
+        sb.append(" WHERE ").append(dao.gen.getPrimaryKeyColumn(DeletedObservation.class)).append(" IN (");
+        for (int i = 0; i < ids.size(); i++)
+        {
+            if (i > 0)
+            {
+                sb.append(",");
+            }
+            sb.append("'").append(ids.get(i)).append("'");
+        }
+        sb.append(")");
+        JdbcTemplate jdbc = new JdbcTemplate(dao.dataSource);
+        return jdbc.queryForObject(sb.toString(), Integer.class);
+    }
+
+    @Test
+    public void testCopy()
+    {
+        try
+        {
+            Observation orig = getTestObservation(true, 5, true, true);
+            Observation simple = new SimpleObservation("TEST", "CopySimple");
+            simple.getPlanes().add(new Plane("plane1"));
+            List<Observation> batch = new ArrayList<Observation>();
+            batch.add(orig);
+            batch.add(simple);
+            
+            dao.copy(batch);
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+            
+            Observation retrieved = dao.get(orig.getURI());
+            Assert.assertNotNull("found", retrieved);
+            testEqual(orig, retrieved);
+            retrieved = dao.get(simple.getURI());
+            Assert.assertNotNull("found", retrieved);
+            testEqual(simple, retrieved);
+            
+            // existing observation: whole batch rolled back
+            Observation another = new SimpleObservation("TEST", "CopyAnother");
+            batch.add(another);
+            try
+            {
+                dao.copy(batch);
+                Assert.fail("expected exception for duplicate observation");
+            }
+            catch(DataAccessException expected)
+            {
+                log.info("caught expected: " + expected);
+            }
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+            Assert.assertNull(dao.getState(another.getURI()));
+            
+            dao.delete(orig.getURI());
+            dao.delete(simple.getURI());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
     @Test
     public void testNonOriginPut()
     {
@@ -945,6 +1177,418 @@ public abstract class AbstractObservationDAOTest
         }
     }
 
+    @Test
+    public void testBatchPutUpdate()
+    {
+        try
+        {
+            Observation orig = getTestObservation(true, 5, true, true);
+            batchDAO.put(orig);
+            
+            // this is so we can detect incorrect timestamp round trips
+            // caused by assigning something other than what was stored
+            Thread.sleep(2*TIME_TOLERANCE);
+            
+            Observation ret1 = dao.get(orig.getURI());
+            Assert.assertNotNull("found", ret1);
+            testEqual(orig, ret1);
+            checkOptimizations(ret1, ret1.getPlanes().iterator().next().metaRelease);
+            
+            // modify one entity at each level, remove and add a plane
+            Plane p = ret1.getPlanes().iterator().next();
+            p.calibrationLevel = CalibrationLevel.PRODUCT;
+            Artifact a = p.getArtifacts().iterator().next();
+            a.contentType = "application/foo";
+            Part part = a.getParts().iterator().next();
+            part.productType = ProductType.PREVIEW;
+            Chunk c = part.getChunks().iterator().next();
+            c.observable = new ObservableAxis(new Slice(new Axis("flux", "J"), new Long(2)));
+            
+            Iterator<Plane> iter = ret1.getPlanes().iterator();
+            iter.next();
+            iter.next();
+            iter.remove();
+            ret1.getPlanes().add(getTestPlane(true, "thing3", 5, true));
+            
+            batchDAO.put(ret1);
+            Thread.sleep(2*TIME_TOLERANCE);
+            
+            Observation ret2 = dao.get(orig.getURI());
+            Assert.assertNotNull("found", ret2);
+            testEqual(ret1, ret2);
+            
+            // unchanged: all entities skipped
+            batchDAO.put(ret2);
+            Observation ret3 = dao.get(orig.getURI());
+            Assert.assertEquals(ret2.getMaxLastModified(), ret3.getMaxLastModified());
+            testEqual(ret2, ret3);
+            
+            dao.delete(orig.getID());
+            Assert.assertNull("deleted", dao.get(orig.getURI()));
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testSkeletonQueryBenchmark()
+    {
+        Level prev = Logger.getLogger("ca.nrc.cadc.caom2.persistence").getLevel();
+        try
+        {
+            // planes x artifacts x parts x chunks
+            int[][] shapes = 
+            {
+                { 1, 1, 1, 1 },     // tiny
+                { 50, 1, 1, 0 },    // wide
+                { 1, 20, 5, 5 },    // deep
+                { 5, 5, 5, 5 }      // bushy
+            };
+            int num = 10;
+            ObservationDAO.SkeletonQuery[] modes = ObservationDAO.SkeletonQuery.values();
+            
+            for (int[] shape : shapes)
+            {
+                Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", Level.INFO);
+                Observation obs = getShapedObservation(shape);
+                dao.put(obs);
+                
+                ObservationSkeleton expected = dao.getSkeleton(obs.getID(), ObservationDAO.SkeletonQuery.NAV);
+                Assert.assertNotNull(expected);
+                for (ObservationDAO.SkeletonQuery sq : modes)
+                {
+                    ObservationSkeleton actual = dao.getSkeleton(obs.getID(), sq); // also warm up
+                    testEqual(expected, actual);
+                }
+                
+                StringBuilder sb = new StringBuilder();
+                sb.append("shape=").append(shape[0]).append("x").append(shape[1])
+                        .append("x").append(shape[2]).append("x").append(shape[3]);
+                for (ObservationDAO.SkeletonQuery sq : modes)
+                {
+                    long t = System.currentTimeMillis();
+                    for (int i = 0; i < num; i++)
+                    {
+                        dao.getSkeleton(obs.getID(), sq);
+                    }
+                    long dt = System.currentTimeMillis() - t;
+                    sb.append(" ").append(sq.name()).append("=").append(dt / num).append("ms");
+                }
+                log.info("testSkeletonQueryBenchmark: " + sb.toString());
+                
+                Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", prev);
+                dao.delete(obs.getID());
+            }
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+        finally
+        {
+            Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", prev);
+        }
+    }
+    
+    @Test
+    public void testParameterizedQueryBenchmark()
+    {
+        Level prev = Logger.getLogger("ca.nrc.cadc.caom2.persistence").getLevel();
+        try
+        {
+            Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", Level.INFO);
+            Observation obs = getShapedObservation(new int[] { 5, 5, 1, 1 });
+            dao.put(obs);
+            
+            int num = 200;
+            Date end = new Date();
+            Date start = new Date(end.getTime() - 3600 * 1000L);
+            String collection = obs.getCollection();
+            
+            // single connection so the driver statement cache applies to the parameterized queries
+            Connection con = dao.getDataSource().getConnection();
+            try
+            {
+                long[] skel = new long[2];
+                long[] state = new long[2];
+                for (int r = 0; r < 2; r++) // first round is warm up
+                {
+                    long t = System.currentTimeMillis();
+                    for (int i = 0; i < num; i++)
+                    {
+                        // distinct literal for each query
+                        UUID id = (i % 2 == 0 ? obs.getID() : UUID.randomUUID());
+                        String sql = dao.gen.getSelectSQL(PlaneSkeleton.class, id, false);
+                        drain(con.createStatement().executeQuery(sql));
+                    }
+                    skel[0] = System.currentTimeMillis() - t;
+                    
+                    t = System.currentTimeMillis();
+                    for (int i = 0; i < num; i++)
+                    {
+                        UUID id = (i % 2 == 0 ? obs.getID() : UUID.randomUUID());
+                        SQLGenerator.SelectStatement ss = dao.gen.getSelectStatement(PlaneSkeleton.class, id, false);
+                        drain(ss.createPreparedStatement(con).executeQuery());
+                    }
+                    skel[1] = System.currentTimeMillis() - t;
+                    
+                    t = System.currentTimeMillis();
+                    for (int i = 0; i < num; i++)
+                    {
+                        Date min = new Date(start.getTime() + i);
+                        String sql = dao.gen.getSelectSQL(ObservationState.class, min, end, 100, true, collection);
+                        drain(con.createStatement().executeQuery(sql));
+                    }
+                    state[0] = System.currentTimeMillis() - t;
+                    
+                    t = System.currentTimeMillis();
+                    for (int i = 0; i < num; i++)
+                    {
+                        Date min = new Date(start.getTime() + i);
+                        SQLGenerator.SelectStatement ss = dao.gen.getSelectStatement(ObservationState.class, min, end, 100, true, collection);
+                        drain(ss.createPreparedStatement(con).executeQuery());
+                    }
+                    state[1] = System.currentTimeMillis() - t;
+                }
+                log.info("testParameterizedQueryBenchmark: num=" + num
+                    + " skeleton literal=" + skel[0] + "ms parameterized=" + skel[1] + "ms"
+                    + " state literal=" + state[0] + "ms parameterized=" + state[1] + "ms");
+            }
+            finally
+            {
+                con.close();
+            }
+            
+            dao.delete(obs.getID());
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+        finally
+        {
+            Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", prev);
+        }
+    }
+    
+    private void drain(ResultSet rs) throws SQLException
+    {
+        try
+        {
+            while (rs.next())
+            {
+                rs.getObject(1);
+            }
+        }
+        finally
+        {
+            rs.getStatement().close();
+        }
+    }
+    
+    @Test
+    public void testGetDepthBenchmark()
+    {
+        Level prev = Logger.getLogger("ca.nrc.cadc.caom2.persistence").getLevel();
+        try
+        {
+            // planes x artifacts x parts x chunks: chunk-heavy
+            int[] shape = { 2, 20, 4, 8 };
+            int num = 10;
+            
+            Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", Level.INFO);
+            Observation obs = getShapedObservation(shape);
+            dao.put(obs);
+            ObservationState state = new ObservationState(obs.getURI());
+            
+            try
+            {
+                dao.getObservationResponse(state, 0);
+                Assert.fail("expected IllegalArgumentException for depth 0");
+            }
+            catch (IllegalArgumentException expected)
+            {
+                log.debug("caught expected: " + expected);
+            }
+            
+            StringBuilder sb = new StringBuilder();
+            sb.append("shape=").append(shape[0]).append("x").append(shape[1])
+                    .append("x").append(shape[2]).append("x").append(shape[3]);
+            for (int depth = 1; depth <= SQLGenerator.MAX_DEPTH; depth++)
+            {
+                ObservationResponse resp = dao.getObservationResponse(state, depth); // also warm up
+                Assert.assertNull(resp.error);
+                Assert.assertNotNull(resp.observation);
+                Assert.assertEquals(obs.getID(), resp.observation.getID());
+                assertDepth(resp.observation, depth, shape);
+                
+                long t = System.currentTimeMillis();
+                for (int i = 0; i < num; i++)
+                {
+                    dao.getObservationResponse(state, depth);
+                }
+                long dt = System.currentTimeMillis() - t;
+                sb.append(" depth").append(depth).append("=").append(getRowCount(shape, depth))
+                        .append("rows/").append(dt / num).append("ms");
+            }
+            
+            List<Plane> planes = dao.getPlanes(obs.getID());
+            Assert.assertEquals(shape[0], planes.size());
+            for (Plane p : planes)
+            {
+                Assert.assertTrue(p.getArtifacts().isEmpty());
+            }
+            List<Artifact> artifacts = dao.getArtifacts(obs.getID());
+            Assert.assertEquals(shape[0] * shape[1], artifacts.size());
+            for (Artifact a : artifacts)
+            {
+                Assert.assertTrue(a.getParts().isEmpty());
+            }
+            Assert.assertTrue(dao.getPlanes(UUID.randomUUID()).isEmpty());
+            
+            long t = System.currentTimeMillis();
+            for (int i = 0; i < num; i++)
+            {
+                dao.getPlanes(obs.getID());
+            }
+            long dt = System.currentTimeMillis() - t;
+            sb.append(" planes=").append(shape[0]).append("rows/").append(dt / num).append("ms");
+            t = System.currentTimeMillis();
+            for (int i = 0; i < num; i++)
+            {
+                dao.getArtifacts(obs.getID());
+            }
+            dt = System.currentTimeMillis() - t;
+            sb.append(" artifacts=").append(shape[0] * shape[1]).append("rows/").append(dt / num).append("ms");
+            log.info("testGetDepthBenchmark: " + sb.toString());
+            
+            Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", prev);
+            dao.delete(obs.getID());
+            Assert.assertFalse("open transaction", txnManager.isOpen());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+        finally
+        {
+            Log4jInit.setLevel("ca.nrc.cadc.caom2.persistence", prev);
+        }
+    }
+    
+    // number of rows in the join result for a fully populated shape
+    private int getRowCount(int[] shape, int depth)
+    {
+        int ret = 1;
+        for (int i = 0; i < depth - 1; i++)
+        {
+            ret *= Math.max(1, shape[i]);
+        }
+        return ret;
+    }
+    
+    private void assertDepth(Observation o, int depth, int[] shape)
+    {
+        if (depth == 1)
+        {
+            Assert.assertTrue(o.getPlanes().isEmpty());
+            return;
+        }
+        Assert.assertEquals(shape[0], o.getPlanes().size());
+        for (Plane p : o.getPlanes())
+        {
+            if (depth == 2)
+            {
+                Assert.assertTrue(p.getArtifacts().isEmpty());
+                continue;
+            }
+            Assert.assertEquals(shape[1], p.getArtifacts().size());
+            for (Artifact a : p.getArtifacts())
+            {
+                if (depth == 3)
+                {
+                    Assert.assertTrue(a.getParts().isEmpty());
+                    continue;
+                }
+                Assert.assertEquals(shape[2], a.getParts().size());
+                for (Part pt : a.getParts())
+                {
+                    int expected = (depth == 4 ? 0 : shape[3]);
+                    Assert.assertEquals(expected, pt.getChunks().size());
+                }
+            }
+        }
+    }
+    
+    private Observation getShapedObservation(int[] shape)
+    {
+        Observation o = new SimpleObservation("TEST", "ShapedBar");
+        for (int p = 0; p < shape[0]; p++)
+        {
+            Plane pl = new Plane("plane" + p);
+            for (int a = 0; a < shape[1]; a++)
+            {
+                Artifact ar = new Artifact(URI.create("ad:TEST/plane" + p + "-file" + a), ProductType.SCIENCE, ReleaseType.DATA);
+                for (int pa = 0; pa < shape[2]; pa++)
+                {
+                    Part pt = new Part(pa);
+                    for (int c = 0; c < shape[3]; c++)
+                    {
+                        pt.getChunks().add(new Chunk());
+                    }
+                    ar.getParts().add(pt);
+                }
+                pl.getArtifacts().add(ar);
+            }
+            o.getPlanes().add(pl);
+        }
+        return o;
+    }
+    
+    private void testEqual(Skeleton expected, Skeleton actual)
+    {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.id, actual.id);
+        Assert.assertEquals(expected.lastModified, actual.lastModified);
+        Assert.assertEquals(expected.maxLastModified, actual.maxLastModified);
+        Assert.assertEquals(expected.metaChecksum, actual.metaChecksum);
+        Assert.assertEquals(expected.accMetaChecksum, actual.accMetaChecksum);
+        List<? extends Skeleton> ec = getChildren(expected);
+        List<? extends Skeleton> ac = getChildren(actual);
+        Assert.assertEquals("num children of " + expected, ec.size(), ac.size());
+        Map<UUID,Skeleton> am = new TreeMap<UUID,Skeleton>();
+        for (Skeleton s : ac)
+        {
+            am.put(s.id, s);
+        }
+        for (Skeleton s : ec)
+        {
+            testEqual(s, am.get(s.id));
+        }
+    }
+    
+    private List<? extends Skeleton> getChildren(Skeleton s)
+    {
+        if (s instanceof ObservationSkeleton)
+            return ((ObservationSkeleton) s).planes;
+        if (s instanceof PlaneSkeleton)
+            return ((PlaneSkeleton) s).artifacts;
+        if (s instanceof ArtifactSkeleton)
+            return ((ArtifactSkeleton) s).parts;
+        if (s instanceof PartSkeleton)
+            return ((PartSkeleton) s).chunks;
+        return new ArrayList<Skeleton>();
+    }
+
     @Test
     public void testUpdateSimpleObservationAddRemovePlane()
     {
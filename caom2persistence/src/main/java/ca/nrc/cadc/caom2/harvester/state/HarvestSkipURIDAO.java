@@ -82,14 +82,23 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 import javax.sql.DataSource;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 
 /**
@@ -111,10 +120,14 @@ public class HarvestSkipURIDAO {
     private final JdbcTemplate jdbc;
     private final RowMapper extractor;
 
-    private final Calendar utcCalendar = Calendar.getInstance(DateUtil.UTC);
-    
     public static final int BUCKET_LENGTH = 3;
     
+    // rows per multi-row upsert statement: 8 parameters each
+    private static final int UPSERT_MAX_ROWS = 1000;
+    
+    // skipIDs per set-based delete statement
+    private static final int DELETE_MAX_KEYS = 1000;
+    
     public String errorMessagePattern = null;
 
     public HarvestSkipURIDAO(DataSource dataSource, String database, String schema) {
@@ -167,6 +180,30 @@ public class HarvestSkipURIDAO {
         return iter.query(dataSource);
     }
     
+    /**
+     * Get the next page of skip records in (tryAfter, skipID) order, for use by caom2-artifact-sync.
+     * Each call is a separate short query, so no cursor or transaction stays open while the 
+     * caller processes the records.
+     * 
+     * @param source source of the skip records
+     * @param cname class name of target skip record(s)
+     * @param after last record of the previous page, null to start at the beginning
+     * @param end maximum tryAfter date to consider
+     * @param batchSize maximum number of records to return
+     * @return next page of skip records
+     */
+    public List<HarvestSkipURI> getNext(String source, String cname, HarvestSkipURI after, Date end, Integer batchSize) {
+        SelectStatementCreator sel = new SelectStatementCreator();
+        sel.setValues(source, cname, null, null, end, batchSize);
+        sel.setAfter(after);
+        List result = jdbc.query(sel, extractor);
+        List<HarvestSkipURI> ret = new ArrayList<>(result.size());
+        for (Object o : result) {
+            ret.add((HarvestSkipURI) o);
+        }
+        return ret;
+    }
+    
     public ResourceIterator<HarvestSkipURI> iterator(String name, String namespace, 
             String minBucket, String maxBucket, Date maxTryAfter) {
         IteratorQuery iter = new IteratorQuery(name);
@@ -189,6 +226,175 @@ public class HarvestSkipURIDAO {
         jdbc.update(put);
     }
 
+    /**
+     * Apply a group of deletes and updates in a single transaction using JDBC
+     * batch statements. This method holds no shared state and is safe for 
+     * concurrent use by multiple threads; each call uses its own connection.
+     * New records are assigned an id; if the transaction fails the id is reset to 
+     * null so the records can still be inserted with put.
+     * 
+     * @param deletes skip records to delete (must have an id)
+     * @param puts skip records to insert or update
+     */
+    public void batch(List<HarvestSkipURI> deletes, List<HarvestSkipURI> puts) {
+        List<HarvestSkipURI> inserts = new ArrayList<>();
+        List<HarvestSkipURI> updates = new ArrayList<>();
+        for (HarvestSkipURI skip : puts) {
+            if (skip.getID() == null) {
+                skip.id = UUID.randomUUID();
+                skip.bucket = skip.getID().toString().substring(0, BUCKET_LENGTH);
+                inserts.add(skip);
+            } else {
+                updates.add(skip);
+            }
+            skip.lastModified = new Date();
+        }
+        for (HarvestSkipURI skip : deletes) {
+            if (skip == null || skip.id == null) {
+                throw new IllegalArgumentException("cannot delete: " + skip);
+            }
+        }
+        
+        Connection con = null;
+        boolean committed = false;
+        try {
+            con = dataSource.getConnection();
+            con.setAutoCommit(false);
+            
+            if (!deletes.isEmpty()) {
+                String sql = "DELETE FROM " + tableName + " WHERE id = ?";
+                log.debug(sql);
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (HarvestSkipURI skip : deletes) {
+                        ps.setObject(1, skip.getID());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            addBatch(con, inserts, false);
+            addBatch(con, updates, true);
+            
+            con.commit();
+            committed = true;
+        } catch (SQLException ex) {
+            if (con != null) {
+                try {
+                    con.rollback();
+                } catch (SQLException rex) {
+                    log.error("rollback failed", rex);
+                }
+            }
+            throw new RuntimeException("batch update failed: " + ex.getMessage(), ex);
+        } finally {
+            if (!committed) {
+                // not inserted: a later put must insert rather than update
+                for (HarvestSkipURI skip : inserts) {
+                    skip.id = null;
+                    skip.bucket = null;
+                }
+            }
+            if (con != null) {
+                try {
+                    con.setAutoCommit(true);
+                    con.close();
+                } catch (SQLException ex) {
+                    log.error("failed to close connection", ex);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Insert or update a group of skip records with one multi-row INSERT ... ON CONFLICT
+     * statement per 1000 records, keyed on the unique (source, cname, skipID) index. An 
+     * existing record keeps its id, bucket, and errorMessage; only tryAfter and lastModified 
+     * are updated. The id and bucket of each skip are set from the stored record. This method
+     * uses the JdbcTemplate so it participates in a transaction started on the same DataSource.
+     * 
+     * <p>Note: this relies on postgresql-specific ON CONFLICT and xmax support.
+     * 
+     * @param skips skip records to insert or update; the last one wins for a repeated skipID
+     * @return skipIDs of the records that were inserted
+     */
+    public Set<URI> upsert(List<HarvestSkipURI> skips) {
+        final Set<URI> inserted = new HashSet<>();
+        // a single statement cannot insert and then update the same row
+        Map<String, HarvestSkipURI> unique = new LinkedHashMap<>();
+        for (HarvestSkipURI skip : skips) {
+            unique.put(getUpsertKey(skip.getSource(), skip.getName(), skip.getSkipID().toASCIIString()), skip);
+        }
+        final Calendar utc = Calendar.getInstance(DateUtil.UTC);
+        final Date now = new Date();
+        Iterator<HarvestSkipURI> iter = unique.values().iterator();
+        while (iter.hasNext()) {
+            final Map<String, HarvestSkipURI> batch = new HashMap<>();
+            final List<HarvestSkipURI> rows = new ArrayList<>();
+            while (iter.hasNext() && rows.size() < UPSERT_MAX_ROWS) {
+                HarvestSkipURI skip = iter.next();
+                if (skip.getID() == null) {
+                    skip.id = UUID.randomUUID();
+                    skip.bucket = skip.getID().toString().substring(0, BUCKET_LENGTH);
+                }
+                skip.lastModified = now;
+                batch.put(getUpsertKey(skip.getSource(), skip.getName(), skip.getSkipID().toASCIIString()), skip);
+                rows.add(skip);
+            }
+            String sql = getUpsertSQL(rows.size());
+            log.debug(sql);
+            PreparedStatementSetter values = ps -> {
+                int col = 1;
+                for (HarvestSkipURI skip : rows) {
+                    col = loadValues(ps, col, skip, now, utc);
+                }
+            };
+            RowCallbackHandler stored = rs -> {
+                HarvestSkipURI skip = batch.get(getUpsertKey(rs.getString(1), rs.getString(2), rs.getString(3)));
+                skip.id = Util.getUUID(rs, 4);
+                skip.bucket = rs.getString(5);
+                if (rs.getBoolean(6)) {
+                    inserted.add(skip.getSkipID());
+                }
+            };
+            jdbc.query(sql, values, stored);
+        }
+        return inserted;
+    }
+    
+    private static String getUpsertKey(String source, String cname, String skipID) {
+        return source + " " + cname + " " + skipID;
+    }
+    
+    private String getUpsertSQL(int numRows) {
+        StringBuilder sb = new StringBuilder(SqlUtil.getInsertSQL(COLUMNS, tableName));
+        String row = sb.substring(sb.lastIndexOf("("));
+        for (int i = 1; i < numRows; i++) {
+            sb.append(",").append(row);
+        }
+        sb.append(" ON CONFLICT (source,cname,skipID) DO UPDATE");
+        sb.append(" SET tryAfter = EXCLUDED.tryAfter, lastModified = EXCLUDED.lastModified");
+        // xmax is 0 for a newly inserted row version
+        sb.append(" RETURNING source,cname,skipID,id,bucket,(xmax = 0)");
+        return sb.toString();
+    }
+    
+    private void addBatch(Connection con, List<HarvestSkipURI> skips, boolean update) throws SQLException {
+        if (skips.isEmpty()) {
+            return;
+        }
+        PutStatementCreator put = new PutStatementCreator(update);
+        String sql = update ? SqlUtil.getUpdateSQL(COLUMNS, tableName) : SqlUtil.getInsertSQL(COLUMNS, tableName);
+        log.debug(sql);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (HarvestSkipURI skip : skips) {
+                put.setValue(skip);
+                put.loadValues(ps);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     public void delete(HarvestSkipURI skip) {
         if (skip == null || skip.id == null) {
             throw new IllegalArgumentException("cannot delete: " + skip);
@@ -199,14 +405,61 @@ public class HarvestSkipURIDAO {
         jdbc.update(sql);
     }
 
-    public void delete(String source, String cname) {
+    /**
+     * Delete the skip records for a set of URIs with one statement per 1000 URIs. This
+     * uses the DataSource so it participates in the current transaction (if any).
+     * 
+     * @param source harvest source
+     * @param cname entity class name
+     * @param skipIDs URIs to delete the skip records for
+     * @return number of skip records deleted
+     */
+    public int delete(final String source, final String cname, Collection<URI> skipIDs) {
+        if (source == null || cname == null || skipIDs == null) {
+            throw new IllegalArgumentException("source, cname, and skipIDs are required");
+        }
+        int ret = 0;
+        List<URI> ids = new ArrayList<>(skipIDs);
+        for (int i = 0; i < ids.size(); i += DELETE_MAX_KEYS) {
+            final List<URI> chunk = ids.subList(i, Math.min(ids.size(), i + DELETE_MAX_KEYS));
+            StringBuilder sb = new StringBuilder();
+            sb.append("DELETE FROM ").append(tableName).append(" WHERE source = ? AND cname = ? AND skipID IN (");
+            for (int n = 0; n < chunk.size(); n++) {
+                if (n > 0) {
+                    sb.append(",");
+                }
+                sb.append("?");
+            }
+            sb.append(")");
+            String sql = sb.toString();
+            log.debug(sql);
+            ret += jdbc.update(sql, ps -> {
+                int col = 1;
+                ps.setString(col++, source);
+                ps.setString(col++, cname);
+                for (URI u : chunk) {
+                    ps.setString(col++, u.toASCIIString());
+                }
+            });
+        }
+        return ret;
+    }
+
+    /**
+     * Delete all skip records for a source and entity class with one statement.
+     * 
+     * @param source harvest source
+     * @param cname entity class name
+     * @return number of skip records deleted
+     */
+    public int delete(String source, String cname) {
         if (source == null || cname == null) {
             throw new IllegalArgumentException("source and cname are required");
         }
 
         // TODO: re-implement with PreparedStatement
         String sql = "DELETE FROM " + tableName + " WHERE source = '" + source + "' and cname = '" + cname + "'";
-        jdbc.update(sql);
+        return jdbc.update(sql);
     }
     
     private class SelectStatementCreator implements PreparedStatementCreator {
@@ -217,9 +470,18 @@ public class HarvestSkipURIDAO {
         private URI skipID;
         private Date start;
         private Date end;
+        
+        // keyset paging in (tryAfter, skipID) order
+        private boolean keyset = false;
+        private HarvestSkipURI after;
 
         public SelectStatementCreator() {
         }
+        
+        public void setAfter(HarvestSkipURI after) {
+            this.keyset = true;
+            this.after = after;
+        }
 
         public void setValues(String source, String cname, URI skipID, Date start, Date end, Integer batchSize) {
             this.source = source;
@@ -246,7 +508,13 @@ public class HarvestSkipURIDAO {
                 if (end != null) {
                     sb.append(" AND tryAfter <= ?");
                 }
+                if (after != null) {
+                    sb.append(" AND (tryAfter > ? OR (tryAfter = ? AND skipID > ?))");
+                }
                 sb.append(" ORDER BY tryAfter ASC");
+                if (keyset) {
+                    sb.append(", skipID ASC");
+                }
             }
 
             if (batchSize != null && batchSize > 0) {
@@ -262,6 +530,7 @@ public class HarvestSkipURIDAO {
 
         private void loadValues(PreparedStatement ps)
                 throws SQLException {
+            final Calendar utcCalendar = Calendar.getInstance(DateUtil.UTC);
             int col = 1;
             ps.setString(col++, source);
             ps.setString(col++, cname);
@@ -277,6 +546,12 @@ public class HarvestSkipURIDAO {
             if (end != null) {
                 ps.setTimestamp(col++, new Timestamp(end.getTime()), utcCalendar);
             }
+            if (after != null) {
+                Timestamp ts = new Timestamp(after.getTryAfter().getTime());
+                ps.setTimestamp(col++, ts, utcCalendar);
+                ps.setTimestamp(col++, ts, utcCalendar);
+                ps.setString(col++, after.getSkipID().toASCIIString());
+            }
         }
     }
 
@@ -309,22 +584,27 @@ public class HarvestSkipURIDAO {
 
         private void loadValues(PreparedStatement ps)
                 throws SQLException {
-            int col = 1;
-            ps.setString(col++, skip.getSource());
-            ps.setString(col++, skip.getName());
-            ps.setString(col++, skip.bucket);
-            ps.setString(col++, skip.getSkipID().toASCIIString());
-            ps.setTimestamp(col++, new Timestamp(skip.getTryAfter().getTime()), utcCalendar);
-            String es = skip.errorMessage;
-            if (es != null && es.length() > 1024) {
-                es = es.substring(0, 1024);
-            }
-            ps.setString(col++, es);
-            Date now = new Date();
-            ps.setTimestamp(col++, new Timestamp(now.getTime()), utcCalendar);
-            ps.setObject(col++, skip.id);
+            HarvestSkipURIDAO.loadValues(ps, 1, skip, new Date(), Calendar.getInstance(DateUtil.UTC));
         }
     }
+    
+    // set the COLUMNS values starting at col; returns the next column
+    private static int loadValues(PreparedStatement ps, int col, HarvestSkipURI skip, Date now, Calendar utcCalendar)
+            throws SQLException {
+        ps.setString(col++, skip.getSource());
+        ps.setString(col++, skip.getName());
+        ps.setString(col++, skip.bucket);
+        ps.setString(col++, skip.getSkipID().toASCIIString());
+        ps.setTimestamp(col++, new Timestamp(skip.getTryAfter().getTime()), utcCalendar);
+        String es = skip.errorMessage;
+        if (es != null && es.length() > 1024) {
+            es = es.substring(0, 1024);
+        }
+        ps.setString(col++, es);
+        ps.setTimestamp(col++, new Timestamp(now.getTime()), utcCalendar);
+        ps.setObject(col++, skip.id);
+        return col;
+    }
 
     private class HarvestSkipMapper implements RowMapper {
 
@@ -470,7 +750,7 @@ public class HarvestSkipURIDAO {
                 rowNum++;
             } else {
                 log.debug("ResultSetIterator:  " + super.toString() + " ctor - setAutoCommit(true)");
-                con.setAutoCommit(true);
+                release();
             }
         }
 
@@ -479,8 +759,8 @@ public class HarvestSkipURIDAO {
             if (hasRow) {
                 log.debug("ResultSetIterator:  " + super.toString() + " CLOSE - setAutoCommit(true)");
                 try {
-                    con.setAutoCommit(true);
                     hasRow = false;
+                    release();
                 } catch (SQLException ex) {
                     throw new RuntimeException("BUG: list query failed during close()", ex);
                 }
@@ -502,7 +782,7 @@ public class HarvestSkipURIDAO {
                 hasRow = rs.next();
                 if (!hasRow) {
                     log.debug("ResultSetIterator:  " + super.toString() + " DONE - setAutoCommit(true)");
-                    con.setAutoCommit(true);
+                    release();
                 }
                 return ret;
             } catch (Exception ex) {
@@ -518,5 +798,15 @@ public class HarvestSkipURIDAO {
                 throw new RuntimeException("BUG: list query failed while iterating", ex);
             }
         }
+        
+        // end the cursor transaction and return the connection to the pool
+        private void release() throws SQLException {
+            try {
+                rs.close();
+                con.setAutoCommit(true);
+            } finally {
+                con.close();
+            }
+        }
     }
 }
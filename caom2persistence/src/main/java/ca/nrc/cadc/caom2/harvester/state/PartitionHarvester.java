@@ -0,0 +1,404 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.harvester.state;
+
+import ca.nrc.cadc.date.DateUtil;
+import ca.nrc.cadc.db.TransactionManager;
+import ca.nrc.cadc.net.TransientException;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.apache.log4j.Logger;
+
+/**
+ * Harvest observations from one collection with concurrent harvesters that each
+ * work through one partition (sub-window) of the maxLastModified range. Each partition
+ * has its own HarvestState (cname with a partition suffix) and the partition plan 
+ * (end of the range) is stored in another HarvestState so harvesting can resume after
+ * a restart. Once all partitions reach the end of their window the states are merged 
+ * back into the normal HarvestState and normal incremental harvesting continues. 
+ * 
+ * <p>The main harvester and all partition harvesters are closed at the end of run().
+ *
+ * @author pdowler
+ */
+public class PartitionHarvester implements Runnable {
+    private static final Logger log = Logger.getLogger(PartitionHarvester.class);
+    
+    /**
+     * An observation harvester that can be restricted to one partition of the
+     * maxLastModified range.
+     */
+    public interface Worker extends Runnable {
+        
+        /**
+         * @return name of the HarvestState used to track progress
+         */
+        String getHarvestStateName();
+        
+        /**
+         * Use a separate HarvestState to harvest one partition of the range.
+         * 
+         * @param name name of the HarvestState used to track progress
+         */
+        void setHarvestStateName(String name);
+        
+        Date getMaxDate();
+        
+        void setMaxDate(Date d);
+        
+        /**
+         * @param end end of the range
+         * @return the maxLastModified of the first observation in the source, null if there are none
+         */
+        Date getSourceStart(Date end);
+        
+        String getSource();
+        
+        HarvestStateDAO getHarvestStateDAO();
+        
+        TransactionManager getTransactionManager();
+        
+        int getIngested();
+        
+        /**
+         * @return true if the last run reached the end of the harvest window
+         */
+        boolean isComplete();
+        
+        /**
+         * @return true if the last run stopped because a batch failed
+         */
+        boolean isAborted();
+        
+        /**
+         * Release resources (source client, database connections) held by the harvester.
+         */
+        void close();
+    }
+    
+    // do not partition a range into windows smaller than this
+    static final long MIN_PARTITION_MILLIS = 3600 * 1000L;
+
+    private final Worker main;
+    private final Supplier<? extends Worker> factory;
+    private final int numPartitions;
+    private int ingested = 0;
+    private boolean complete = false;
+    private boolean aborted = false;
+    
+    /**
+     * Constructor.
+     * 
+     * @param main harvester configured for normal incremental harvest of the collection
+     * @param factory create additional harvesters with the same configuration as main
+     * @param numPartitions number of partitions to harvest concurrently
+     */
+    public PartitionHarvester(Worker main, Supplier<? extends Worker> factory, int numPartitions) {
+        if (numPartitions < 2) {
+            throw new IllegalArgumentException("invalid numPartitions: " + numPartitions + " must be > 1");
+        }
+        this.main = main;
+        this.factory = factory;
+        this.numPartitions = numPartitions;
+    }
+
+    public int getIngested() {
+        return ingested;
+    }
+    
+    /**
+     * @return true if the last run reached the end of the harvest window
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * @return true if the main harvester or any partition failed in the last run
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+    
+    @Override
+    public void run() {
+        this.complete = false;
+        this.aborted = false;
+        try {
+            doit();
+        } finally {
+            main.close();
+        }
+    }
+    
+    private void doit() {
+        final HarvestStateDAO stateDAO = main.getHarvestStateDAO();
+        final String source = main.getSource();
+        
+        HarvestState mainState = stateDAO.get(source, main.getHarvestStateName());
+        HarvestState plan = stateDAO.get(source, getPlanName());
+        if (plan.getLastModified() != null && mainState.getLastModified() != null
+                && mainState.getLastModified().after(plan.getLastModified())) {
+            // normal harvest has progressed since the plan was created
+            log.info("discarding stale partition plan: " + plan);
+            deletePlan(stateDAO, source, plan);
+            plan = stateDAO.get(source, getPlanName());
+        }
+        
+        if (plan.getLastModified() == null) {
+            // harvest up to a little in the past because the head of the sequence may be volatile
+            Date end = new Date(System.currentTimeMillis() - 5 * 60000L);
+            if (main.getMaxDate() != null && main.getMaxDate().before(end)) {
+                end = main.getMaxDate();
+            }
+            Date start = mainState.curLastModified;
+            if (start == null) {
+                start = main.getSourceStart(end);
+            }
+            if (start == null || end.getTime() - start.getTime() < numPartitions * MIN_PARTITION_MILLIS) {
+                log.info("partition: range " + format(start) + " :: " + format(end) + " too small: normal harvest");
+                main.run();
+                ingested += main.getIngested();
+                complete = main.isComplete();
+                aborted = main.isAborted();
+                return;
+            }
+            createPlan(stateDAO, source, mainState, plan, start, end);
+        }
+        
+        Date start = mainState.curLastModified;
+        Date end = plan.curLastModified;
+        List<Worker> harvesters = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(numPartitions);
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                Date pend = getBoundary(start, end, i + 1);
+                if (i < numPartitions - 1) {
+                    // partitions are disjoint: next partition starts at the boundary
+                    pend = new Date(pend.getTime() - 1L);
+                }
+                Worker h = factory.get();
+                harvesters.add(h);
+                h.setHarvestStateName(getPartitionName(i));
+                h.setMaxDate(pend);
+                log.info("partition: " + h.getHarvestStateName() + " -> " + format(pend));
+                futures.add(pool.submit(h));
+            }
+            
+            boolean done = true;
+            boolean failed = false;
+            TransientException transientFail = null;
+            for (int i = 0; i < numPartitions; i++) {
+                Worker h = harvesters.get(i);
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    log.error("partition: " + h.getHarvestStateName() + " failed", ex.getCause());
+                    if (ex.getCause() instanceof TransientException) {
+                        transientFail = (TransientException) ex.getCause();
+                    }
+                    failed = true;
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException("interrupted while waiting for " + h.getHarvestStateName(), ex);
+                }
+                ingested += h.getIngested();
+                log.info("partition: " + h.getHarvestStateName() + " ingested=" + h.getIngested() + " complete=" + h.isComplete());
+                done = done && h.isComplete();
+                failed = failed || h.isAborted();
+            }
+            if (transientFail != null) {
+                throw transientFail;
+            }
+            if (done) {
+                mergePlan(stateDAO, source, plan);
+            }
+            complete = done;
+            aborted = failed;
+        } finally {
+            pool.shutdownNow();
+            for (Worker h : harvesters) {
+                h.close();
+            }
+        }
+    }
+    
+    private String format(Date d) {
+        if (d == null) {
+            return "null";
+        }
+        DateFormat df = DateUtil.getDateFormat(DateUtil.ISO_DATE_FORMAT, DateUtil.UTC);
+        return df.format(d);
+    }
+    
+    private String getPlanName() {
+        return main.getHarvestStateName() + "-partitions-" + numPartitions;
+    }
+    
+    private String getPartitionName(int i) {
+        return main.getHarvestStateName() + "-partition-" + i + "-of-" + numPartitions;
+    }
+    
+    private Date getBoundary(Date start, Date end, int i) {
+        if (i == numPartitions) {
+            return end;
+        }
+        long dt = (end.getTime() - start.getTime()) / numPartitions;
+        return new Date(start.getTime() + i * dt);
+    }
+    
+    private void createPlan(HarvestStateDAO stateDAO, String source, HarvestState mainState, HarvestState plan, Date start, Date end) {
+        TransactionManager txn = main.getTransactionManager();
+        boolean ok = false;
+        try {
+            txn.startTransaction();
+            if (mainState.curLastModified == null) {
+                // first harvest: start of the range is stable even if the first observation is deleted
+                mainState.curLastModified = start;
+                stateDAO.put(mainState);
+            }
+            for (int i = 0; i < numPartitions; i++) {
+                HarvestState ps = stateDAO.get(source, getPartitionName(i));
+                if (i == 0) {
+                    ps.curLastModified = mainState.curLastModified;
+                    ps.curID = mainState.curID;
+                } else {
+                    ps.curLastModified = getBoundary(start, end, i);
+                    ps.curID = null;
+                }
+                stateDAO.put(ps);
+            }
+            // plan last: its lastModified is used to detect a stale plan
+            plan.curLastModified = end;
+            stateDAO.put(plan);
+            txn.commitTransaction();
+            ok = true;
+            log.info("partition: created " + plan + " start=" + format(start) + " end=" + format(end));
+        } finally {
+            if (!ok) {
+                txn.rollbackTransaction();
+            }
+        }
+    }
+    
+    private void mergePlan(HarvestStateDAO stateDAO, String source, HarvestState plan) {
+        TransactionManager txn = main.getTransactionManager();
+        boolean ok = false;
+        try {
+            txn.startTransaction();
+            HarvestState last = stateDAO.get(source, getPartitionName(numPartitions - 1));
+            HarvestState mainState = stateDAO.get(source, main.getHarvestStateName());
+            mainState.curLastModified = last.curLastModified;
+            mainState.curID = last.curID;
+            stateDAO.put(mainState);
+            deletePartitions(stateDAO, source);
+            stateDAO.delete(plan);
+            txn.commitTransaction();
+            ok = true;
+            log.info("partition: merged into " + mainState);
+        } finally {
+            if (!ok) {
+                txn.rollbackTransaction();
+            }
+        }
+    }
+    
+    private void deletePlan(HarvestStateDAO stateDAO, String source, HarvestState plan) {
+        TransactionManager txn = main.getTransactionManager();
+        boolean ok = false;
+        try {
+            txn.startTransaction();
+            deletePartitions(stateDAO, source);
+            stateDAO.delete(plan);
+            txn.commitTransaction();
+            ok = true;
+        } finally {
+            if (!ok) {
+                txn.rollbackTransaction();
+            }
+        }
+    }
+    
+    private void deletePartitions(HarvestStateDAO stateDAO, String source) {
+        for (int i = 0; i < numPartitions; i++) {
+            HarvestState ps = stateDAO.get(source, getPartitionName(i));
+            if (ps.getLastModified() != null) {
+                stateDAO.delete(ps);
+            }
+        }
+    }
+}
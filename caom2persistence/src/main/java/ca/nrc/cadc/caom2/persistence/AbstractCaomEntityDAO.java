@@ -127,6 +127,11 @@ abstract class AbstractCaomEntityDAO<T extends CaomEntity> extends AbstractDAO {
     }
 
     protected void put(Skeleton cur, T val, LinkedList<CaomEntity> parents, JdbcTemplate jdbc, boolean force) {
+        put(cur, val, parents, jdbc, force, null);
+    }
+
+    // batch mode: add insert/update to the batch instead of executing it here
+    protected void put(Skeleton cur, T val, LinkedList<CaomEntity> parents, JdbcTemplate jdbc, boolean force, PutBatch batch) {
         if (readOnly) {
             throw new UnsupportedOperationException("put in readOnly mode");
         }
@@ -165,9 +170,13 @@ abstract class AbstractCaomEntityDAO<T extends CaomEntity> extends AbstractDAO {
             } else {
                 log.debug("PUT insert: " + val.getClass().getSimpleName() + " " + val.getID());
             }
-            EntityPut<T> op = gen.getEntityPut(val.getClass(), isUpdate);
-            op.setValue(val, parents);
-            op.execute(jdbc);
+            if (batch != null) {
+                batch.add(val, parents, isUpdate);
+            } else {
+                EntityPut<T> op = gen.getEntityPut(val.getClass(), isUpdate);
+                op.setValue(val, parents);
+                op.execute(jdbc);
+            }
         } else {
             log.debug("PUT skip: " + val.getClass().getSimpleName() + " " + val.getID());
         }
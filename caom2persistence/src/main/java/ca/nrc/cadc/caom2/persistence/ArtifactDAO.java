@@ -72,20 +72,38 @@ package ca.nrc.cadc.caom2.persistence;
 import ca.nrc.cadc.caom2.Artifact;
 import ca.nrc.cadc.caom2.CaomEntity;
 import ca.nrc.cadc.caom2.Part;
+import ca.nrc.cadc.caom2.ProductType;
+import ca.nrc.cadc.caom2.ReleaseType;
 import ca.nrc.cadc.caom2.access.ArtifactAccess;
+import ca.nrc.cadc.caom2.artifact.ArtifactMetadata;
 import ca.nrc.cadc.caom2.persistence.skel.ArtifactSkeleton;
 import ca.nrc.cadc.caom2.persistence.skel.PartSkeleton;
 import ca.nrc.cadc.caom2.persistence.skel.Skeleton;
+import ca.nrc.cadc.date.DateUtil;
 import ca.nrc.cadc.io.ResourceIterator;
 import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 
 /**
  *
@@ -131,6 +149,10 @@ public class ArtifactDAO extends AbstractCaomEntityDAO<Artifact> {
 
     @Override
     public void put(Skeleton cur, Artifact a, LinkedList<CaomEntity> parents, JdbcTemplate jdbc) {
+        put(cur, a, parents, jdbc, (PutBatch) null);
+    }
+
+    void put(Skeleton cur, Artifact a, LinkedList<CaomEntity> parents, JdbcTemplate jdbc, PutBatch batch) {
         if (a == null) {
             throw new IllegalArgumentException("arg cannot be null");
         }
@@ -143,16 +165,16 @@ public class ArtifactDAO extends AbstractCaomEntityDAO<Artifact> {
             if (cur != null) {
                 ArtifactSkeleton cs = (ArtifactSkeleton) cur;
                 // delete the skeletons that are not in a.getParts()
+                Set<UUID> ids = Util.getIDs(a.getParts());
                 for (PartSkeleton s : cs.parts) {
-                    Part p = Util.findPart(a.getParts(), s.id);
-                    if (p == null) {
-                        log.debug("put caused delete part: " + p);
+                    if (!ids.contains(s.id)) {
+                        log.debug("put caused delete part: " + s.id);
                         partDAO.delete(s, jdbc);
                     }
                 }
                 // pair up parts and skeletons for insert/update
                 for (Part p : a.getParts()) {
-                    PartSkeleton ps = Util.findPartSkel(cs.parts, p.getID());
+                    PartSkeleton ps = cs.getPart(p.getID());
                     pairs.add(new Pair<Part>(ps, p)); // null ok
                 }
             } else {
@@ -161,11 +183,11 @@ public class ArtifactDAO extends AbstractCaomEntityDAO<Artifact> {
                 }
             }
 
-            super.put(cur, a, parents, jdbc);
+            super.put(cur, a, parents, jdbc, false, batch);
 
             parents.push(a);
             for (Pair<Part> p : pairs) {
-                partDAO.put(p.cur, p.val, parents, jdbc);
+                partDAO.put(p.cur, p.val, parents, jdbc, batch);
             }
             parents.pop();
         } finally {
@@ -202,6 +224,113 @@ public class ArtifactDAO extends AbstractCaomEntityDAO<Artifact> {
         throw new UnsupportedOperationException();
     }
     
+    /**
+     * Iterate over the metadata of all artifacts in a collection in artifactURI order. 
+     * This is a single streaming query that returns only the values needed to compare
+     * artifacts with storage: the checksum value (without the algorithm), contentLength, 
+     * contentType, and the transient observationID, productType, releaseType, dataRelease, 
+     * and metaRelease values. The underlying database connection is held open until the 
+     * ResourceIterator is closed or the iteration reaches the end.
+     * 
+     * @param collection the collection to query
+     * @return iterator over artifact metadata in artifactURI order
+     */
+    public ResourceIterator<ArtifactMetadata> metadataIterator(String collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+        final String sql = gen.getSelectArtifactMetadataSQL();
+        log.debug("metadataIterator: " + sql);
+        PreparedStatementCreator psc = con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setString(1, collection);
+            return ps;
+        };
+        final Calendar utc = Calendar.getInstance(DateUtil.UTC);
+        RowMapper<ArtifactMetadata> mapper = (rs, row) -> mapMetadata(rs, utc);
+        return RowMapperIterator.query(dataSource, psc, mapper);
+    }
+    
+    /**
+     * Get the metadata of all artifacts of the specified observations. This uses the same 
+     * columns as metadataIterator with one query per 1000 observation IDs, so callers that
+     * only need artifact metadata do not have to load each observation.
+     * 
+     * @param observationIDs observation IDs
+     * @return map of observation ID to artifact metadata in artifactURI order; observations
+     *      without artifacts (or that do not exist) are not included
+     */
+    public Map<UUID, List<ArtifactMetadata>> getMetadata(Collection<UUID> observationIDs) {
+        if (observationIDs == null) {
+            throw new IllegalArgumentException("observationIDs cannot be null");
+        }
+        final Map<UUID, List<ArtifactMetadata>> ret = new HashMap<>();
+        if (observationIDs.isEmpty()) {
+            return ret;
+        }
+        long t = System.currentTimeMillis();
+        try {
+            final Calendar utc = Calendar.getInstance(DateUtil.UTC);
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            Iterator<UUID> iter = observationIDs.iterator();
+            while (iter.hasNext()) {
+                final List<UUID> keys = new ArrayList<>();
+                while (iter.hasNext() && keys.size() < ObservationDAO.SKEL_SET_MAX_KEYS) {
+                    keys.add(iter.next());
+                }
+                String sql = gen.getSelectArtifactMetadataSQL(keys.size());
+                log.debug("getMetadata: " + sql);
+                PreparedStatementSetter ids = ps -> {
+                    int col = 1;
+                    for (UUID id : keys) {
+                        gen.setParameter(ps, col++, id);
+                    }
+                };
+                RowCallbackHandler rows = rs -> {
+                    ArtifactMetadata am = mapMetadata(rs, utc);
+                    UUID obsID = Util.getUUID(rs, 10); // after the metadataIterator columns
+                    List<ArtifactMetadata> artifacts = ret.get(obsID);
+                    if (artifacts == null) {
+                        artifacts = new ArrayList<>();
+                        ret.put(obsID, artifacts);
+                    }
+                    artifacts.add(am);
+                };
+                jdbc.query(sql, ids, rows);
+            }
+            return ret;
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("getMetadata: " + observationIDs.size() + " observations " + dt + "ms");
+        }
+    }
+    
+    // map the columns of the artifact metadata queries
+    private static ArtifactMetadata mapMetadata(ResultSet rs, Calendar utc) throws SQLException {
+        int col = 1;
+        URI uri = Util.getURI(rs, col++);
+        URI checksum = Util.getURI(rs, col++);
+        String cs = null;
+        if (checksum != null) {
+            cs = checksum.getSchemeSpecificPart();
+        }
+        ArtifactMetadata ret = new ArtifactMetadata(uri, cs);
+        ret.contentLength = Util.getLong(rs, col++);
+        ret.contentType = rs.getString(col++);
+        ret.observationID = rs.getString(col++);
+        String pt = rs.getString(col++);
+        if (pt != null) {
+            ret.productType = ProductType.toValue(pt);
+        }
+        String rt = rs.getString(col++);
+        if (rt != null) {
+            ret.releaseType = ReleaseType.toValue(rt);
+        }
+        ret.dataRelease = Util.getDate(rs, col++, utc);
+        ret.metaRelease = Util.getDate(rs, col++, utc);
+        return ret;
+    }
+    
     @Override
     protected void deleteChildren(Skeleton s, JdbcTemplate jdbc) {
         ArtifactSkeleton a = (ArtifactSkeleton) s;
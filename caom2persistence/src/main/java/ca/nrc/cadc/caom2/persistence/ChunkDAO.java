@@ -91,6 +91,10 @@ class ChunkDAO extends AbstractCaomEntityDAO<Chunk> {
 
     @Override
     public void put(Skeleton cur, Chunk c, LinkedList<CaomEntity> parents, JdbcTemplate jdbc) {
+        put(cur, c, parents, jdbc, (PutBatch) null);
+    }
+
+    void put(Skeleton cur, Chunk c, LinkedList<CaomEntity> parents, JdbcTemplate jdbc, PutBatch batch) {
         if (c == null) {
             throw new IllegalArgumentException("arg cannot be null");
         }
@@ -98,7 +102,7 @@ class ChunkDAO extends AbstractCaomEntityDAO<Chunk> {
         long t = System.currentTimeMillis();
 
         try {
-            super.put(cur, c, parents, jdbc);
+            super.put(cur, c, parents, jdbc, false, batch);
         } finally {
             long dt = System.currentTimeMillis() - t;
             log.debug("PUT: " + c.getID() + " " + dt + "ms");
@@ -0,0 +1,190 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.persistence;
+
+import ca.nrc.cadc.date.DateUtil;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Capture the values bound to an insert statement and render them as a CSV row
+ * for PostgreSQL COPY ... FROM STDIN. The statement returned by getStatement() 
+ * only supports the setX methods used by SQLGenerator and getConnection() (for
+ * createArrayOf); timestamps are always rendered in UTC.
+ * 
+ * @author pdowler
+ */
+class CopyRow implements InvocationHandler {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final Connection conn;
+    private final PreparedStatement statement;
+    private final Map<Integer, Object> values = new TreeMap<Integer, Object>();
+    private final DateFormat df = DateUtil.getDateFormat(DateUtil.ISO_DATE_FORMAT, DateUtil.UTC);
+    
+    CopyRow(Connection conn) {
+        this.conn = conn;
+        this.statement = (PreparedStatement) Proxy.newProxyInstance(CopyRow.class.getClassLoader(), 
+                new Class[] { PreparedStatement.class }, this);
+    }
+
+    PreparedStatement getStatement() {
+        return statement;
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("getConnection".equals(name)) {
+            return conn;
+        }
+        if ("setNull".equals(name)) {
+            values.put((Integer) args[0], null);
+            return null;
+        }
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            values.put((Integer) args[0], args[1]);
+            return null;
+        }
+        if ("clearParameters".equals(name) || "close".equals(name)) {
+            values.clear();
+            return null;
+        }
+        throw new UnsupportedOperationException("BUG: " + name + " not supported for COPY");
+    }
+    
+    /**
+     * Append the captured values as one CSV row and clear them for the next row.
+     * 
+     * @param sb destination
+     * @throws SQLException if an array value cannot be read
+     */
+    void write(StringBuilder sb) throws SQLException {
+        boolean first = true;
+        for (Object val : values.values()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            if (val != null) {
+                // always quoted so an empty string is not read as NULL
+                sb.append('"');
+                sb.append(format(val).replace("\"", "\"\""));
+                sb.append('"');
+            }
+        }
+        sb.append('\n');
+        values.clear();
+    }
+    
+    private String format(Object val) throws SQLException {
+        if (val instanceof Date) {
+            return df.format((Date) val);
+        }
+        if (val instanceof byte[]) {
+            byte[] b = (byte[]) val;
+            StringBuilder sb = new StringBuilder(2 + 2 * b.length);
+            sb.append("\\x");
+            for (byte v : b) {
+                sb.append(HEX[(v >> 4) & 0xf]).append(HEX[v & 0xf]);
+            }
+            return sb.toString();
+        }
+        if (val instanceof Array) {
+            Object[] elements = (Object[]) ((Array) val).getArray();
+            StringBuilder sb = new StringBuilder();
+            sb.append('{');
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                if (elements[i] == null) {
+                    sb.append("NULL");
+                } else {
+                    sb.append(elements[i]);
+                }
+            }
+            sb.append('}');
+            return sb.toString();
+        }
+        // String, Number, UUID, and PGobject (value)
+        return val.toString();
+    }
+}
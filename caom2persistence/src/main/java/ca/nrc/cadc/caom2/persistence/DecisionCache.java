@@ -0,0 +1,247 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.persistence;
+
+import java.security.Principal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.security.auth.Subject;
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded cache of authorization decisions (group membership, grants) keyed by caller
+ * identity and target. Positive decisions are kept for the ttl and denials for the
+ * (normally shorter) negativeTTL so that a newly granted permission becomes visible
+ * quickly. When the cache is full the least recently used entry is evicted. This is
+ * shared by the CAOM repository services for group membership and grant decisions.
+ * 
+ * @author pdowler
+ */
+public class DecisionCache {
+    private static final Logger log = Logger.getLogger(DecisionCache.class);
+
+    private final int maxSize;
+    private final long ttl;
+    private final long negativeTTL;
+    private final Map<String, Entry> entries;
+    private final LongSupplier clock;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /**
+     * @param maxSize maximum number of cached decisions
+     * @param ttl time to live for positive decisions (milliseconds)
+     * @param negativeTTL time to live for denials (milliseconds)
+     */
+    public DecisionCache(int maxSize, long ttl, long negativeTTL) {
+        this(maxSize, ttl, negativeTTL, System::currentTimeMillis);
+    }
+    
+    // package access so tests can control the time
+    DecisionCache(int maxSize, long ttl, long negativeTTL, LongSupplier clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("invalid maxSize: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTTL = negativeTTL;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > DecisionCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Get a cached decision.
+     * 
+     * @param key decision key
+     * @return cached decision or null if not cached or expired
+     */
+    public Boolean get(String key) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null && e.expires > now) {
+                hits.incrementAndGet();
+                return e.allowed;
+            }
+            if (e != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+    
+    /**
+     * Cache a decision.
+     * 
+     * @param key decision key
+     * @param allowed true if allowed, false if denied
+     */
+    public void put(String key, boolean allowed) {
+        long expires = clock.getAsLong() + (allowed ? ttl : negativeTTL);
+        synchronized (entries) {
+            entries.put(key, new Entry(allowed, expires));
+        }
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+    
+    /**
+     * Remove expired entries.
+     */
+    public void purge() {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Iterator<Entry> i = entries.values().iterator();
+            while (i.hasNext()) {
+                if (i.next().expires <= now) {
+                    i.remove();
+                }
+            }
+        }
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    public String getStatus() {
+        return "DecisionCache[size=" + size() + ",hits=" + hits.get() + ",misses=" + misses.get() 
+                + ",evictions=" + evictions.get() + "]";
+    }
+    
+    /**
+     * Get a key that identifies the caller. The key is built from the sorted principals 
+     * of the subject; an anonymous caller yields an empty string.
+     * 
+     * @param subject the caller
+     * @return caller identity key
+     */
+    public static String getCallerKey(Subject subject) {
+        if (subject == null) {
+            return "";
+        }
+        Set<String> ids = new TreeSet<>();
+        for (Principal p : subject.getPrincipals()) {
+            ids.add(p.getClass().getSimpleName() + "=" + p.getName());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String id : ids) {
+            sb.append(id).append(";");
+        }
+        String ret = sb.toString();
+        log.debug("caller key: " + ret);
+        return ret;
+    }
+    
+    private static class Entry {
+        final boolean allowed;
+        final long expires;
+        
+        Entry(boolean allowed, long expires) {
+            this.allowed = allowed;
+            this.expires = expires;
+        }
+    }
+}
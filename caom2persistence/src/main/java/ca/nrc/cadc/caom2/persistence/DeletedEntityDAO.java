@@ -173,6 +173,38 @@ public class DeletedEntityDAO extends AbstractDAO {
         }
     }
     
+    /**
+     * Delete up to limit deleted observations in a collection with a single set-based
+     * statement. Callers remove all tombstones for a collection by calling this until it
+     * returns 0.
+     * 
+     * @param collection the collection
+     * @param limit max number of rows to delete
+     * @return number of rows deleted
+     */
+    public int delete(String collection, int limit) {
+        checkInit();
+        if (readOnly) {
+            throw new UnsupportedOperationException("delete in readOnly mode");
+        }
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+        log.debug("DELETE: " + collection + " " + limit);
+        long t = System.currentTimeMillis();
+        int ret = 0;
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            String sql = gen.getBulkDeleteDeletedObservationSQL(limit);
+            log.debug("DELETE SQL: " + sql);
+            ret = jdbc.update(sql, collection);
+            return ret;
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("DELETE: " + collection + " " + ret + " rows " + dt + "ms");
+        }
+    }
+    
     DeletedEntity get(Class<? extends DeletedEntity> c, UUID id) {
         return get(c, id, new JdbcTemplate(dataSource));
     }
@@ -186,7 +218,7 @@ public class DeletedEntityDAO extends AbstractDAO {
         try {
             //JdbcTemplate jdbc = new JdbcTemplate(dataSource);
 
-            String sql = gen.getSelectSQL(c, id);
+            SQLGenerator.SelectStatement sql = gen.getSelectStatement(c, id, true);
             log.debug("GET SQL: " + sql);
 
             Object result = jdbc.query(sql, gen.getDeletedEntityMapper(c));
@@ -234,9 +266,9 @@ public class DeletedEntityDAO extends AbstractDAO {
         try {
             JdbcTemplate jdbc = new JdbcTemplate(dataSource);
 
-            String sql = gen.getSelectSQL(c, minLastModified, maxLastModified, batchSize);
+            SQLGenerator.SelectStatement sql = gen.getSelectStatement(c, minLastModified, maxLastModified, batchSize, true, null);
             if (log.isDebugEnabled()) {
-                log.debug("GET SQL: " + Util.formatSQL(sql));
+                log.debug("GET SQL: " + Util.formatSQL(sql.getSQL()) + " " + sql.getParameters());
             }
 
             Object result = jdbc.query(sql, gen.getDeletedEntityMapper(c));
@@ -274,9 +306,10 @@ public class DeletedEntityDAO extends AbstractDAO {
         try {
             JdbcTemplate jdbc = new JdbcTemplate(dataSource);
 
-            String sql = gen.getSelectSQL(DeletedObservation.class, minLastModified, maxLastModified, batchSize, true, collection);
+            SQLGenerator.SelectStatement sql = gen.getSelectStatement(DeletedObservation.class, 
+                    minLastModified, maxLastModified, batchSize, true, collection);
             if (log.isDebugEnabled()) {
-                log.debug("GET SQL: " + Util.formatSQL(sql));
+                log.debug("GET SQL: " + Util.formatSQL(sql.getSQL()) + " " + sql.getParameters());
             }
 
             Object result = jdbc.query(sql, gen.getDeletedEntityMapper(DeletedObservation.class));
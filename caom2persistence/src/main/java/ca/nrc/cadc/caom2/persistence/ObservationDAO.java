@@ -73,12 +73,14 @@ import ca.nrc.cadc.caom2.Artifact;
 import ca.nrc.cadc.caom2.CaomEntity;
 import ca.nrc.cadc.caom2.Chunk;
 import ca.nrc.cadc.caom2.DeletedObservation;
+import ca.nrc.cadc.caom2.DerivedObservation;
 import ca.nrc.cadc.caom2.Observation;
 import ca.nrc.cadc.caom2.ObservationResponse;
 import ca.nrc.cadc.caom2.ObservationState;
 import ca.nrc.cadc.caom2.ObservationURI;
 import ca.nrc.cadc.caom2.Part;
 import ca.nrc.cadc.caom2.Plane;
+import ca.nrc.cadc.caom2.PlaneURI;
 import ca.nrc.cadc.caom2.persistence.skel.ArtifactSkeleton;
 import ca.nrc.cadc.caom2.persistence.skel.ChunkSkeleton;
 import ca.nrc.cadc.caom2.persistence.skel.ObservationSkeleton;
@@ -88,20 +90,37 @@ import ca.nrc.cadc.caom2.persistence.skel.Skeleton;
 import ca.nrc.cadc.caom2.util.CaomUtil;
 import ca.nrc.cadc.caom2.util.CaomValidator;
 import ca.nrc.cadc.date.DateUtil;
+import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.net.PreconditionFailedException;
+import java.io.IOException;
+import java.io.StringReader;
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import org.apache.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 
 /**
  * Persistence layer operations.
@@ -114,6 +133,23 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
 
     private PlaneDAO planeDAO;
     private DeletedEntityDAO deletedDAO;
+    
+    // write child entities with one JDBC batch per entity class
+    private boolean batchPut = false;
+    
+    /**
+     * Strategy for loading the skeleton of the current observation in put and delete.
+     * NAV: one query per parent entity; JOIN: one query with outer joins across all
+     * tables; SET: one query per level with all parent keys.
+     */
+    public enum SkeletonQuery {
+        NAV, JOIN, SET
+    }
+    
+    // max keys in the IN clause of a single SET skeleton query
+    static final int SKEL_SET_MAX_KEYS = 1000;
+    
+    private SkeletonQuery skeletonQuery = SkeletonQuery.NAV;
 
     public ObservationDAO() {
     }
@@ -122,12 +158,22 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
     public Map<String, Class> getParams() {
         Map<String, Class> ret = super.getParams();
         ret.put("schemaPrefixHack", Boolean.class);
+        ret.put("batchPut", Boolean.class);
+        ret.put("skeletonQuery", String.class);
         return ret;
     }
 
     @Override
     public void setConfig(Map<String, Object> config) {
         super.setConfig(config);
+        Boolean batch = (Boolean) config.get("batchPut");
+        if (batch != null) {
+            this.batchPut = batch.booleanValue();
+        }
+        String sq = (String) config.get("skeletonQuery");
+        if (sq != null) {
+            this.skeletonQuery = SkeletonQuery.valueOf(sq.toUpperCase());
+        }
         this.planeDAO = new PlaneDAO(gen, forceUpdate, readOnly);
         this.deletedDAO = new DeletedEntityDAO(gen, forceUpdate, readOnly);
     }
@@ -149,11 +195,11 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         long t = System.currentTimeMillis();
 
         try {
-            String sql = null;
+            SQLGenerator.SelectStatement sql = null;
             if (uri != null) {
-                sql = gen.getSelectSQL(uri, 1, false);
+                sql = gen.getSelectStatement(uri, 1, false);
             } else { 
-                sql = gen.getSelectSQL(id, 1, false);
+                sql = gen.getSelectStatement(id, 1, false);
             }
             log.debug("GET: " + sql);
             
@@ -211,10 +257,11 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         long t = System.currentTimeMillis();
 
         try {
-            String sql = gen.getSelectSQL(ObservationState.class, minLastModified, maxLastModified, batchSize, ascendingOrder, collection);
+            SQLGenerator.SelectStatement sql = gen.getSelectStatement(ObservationState.class, 
+                    minLastModified, maxLastModified, batchSize, ascendingOrder, collection);
 
             if (log.isDebugEnabled()) {
-                log.debug("GET: " + Util.formatSQL(sql));
+                log.debug("GET: " + Util.formatSQL(sql.getSQL()) + " " + sql.getParameters());
             }
 
             JdbcTemplate jdbc = new JdbcTemplate(dataSource);
@@ -226,6 +273,34 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         }
     }
 
+    /**
+     * Get observation states in the specified timestamp order. The states are streamed from
+     * the database with a server-side cursor so memory use does not depend on batchSize;
+     * the underlying connection is held until the iterator is closed or the end is reached.
+     *
+     * @param collection
+     * @param minLastModified
+     * @param maxLastModified
+     * @param batchSize
+     * @param ascendingOrder
+     * @return iterator of observation states
+     */
+    public ResourceIterator<ObservationState> getObservationListIterator(String collection, 
+            Date minLastModified, Date maxLastModified, Integer batchSize, boolean ascendingOrder) {
+        checkInit();
+        log.debug("getObservationListIterator: " + collection + " " + batchSize);
+
+        // input check since this is a string
+        CaomValidator.assertValidPathComponent(ObservationDAO.class, "collection", collection);
+
+        SQLGenerator.SelectStatement sql = gen.getSelectStatement(ObservationState.class, 
+                minLastModified, maxLastModified, batchSize, ascendingOrder, collection);
+        if (log.isDebugEnabled()) {
+            log.debug("GET: " + Util.formatSQL(sql.getSQL()) + " " + sql.getParameters());
+        }
+        return RowMapperIterator.query(dataSource, sql, gen.getObservationStateMapper());
+    }
+
     /**
      * Get a wrapped complete observation or error.
      * 
@@ -254,18 +329,24 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
     }
     
     /**
-     * Get a wrapped Observation to the specified depth or error.
+     * Get a wrapped Observation to the specified depth or error. Depth 1 is the 
+     * observation only, 2 includes planes, 3 includes artifacts, 4 includes parts,
+     * and 5 (the default) includes chunks. 
+     * 
      * @param s
      * @param depth
      * @return 
      */
     public ObservationResponse getObservationResponse(ObservationState s, int depth) {
+        if (depth < 1 || depth > SQLGenerator.MAX_DEPTH) {
+            throw new IllegalArgumentException("invalid depth: " + depth + " must be in [1," + SQLGenerator.MAX_DEPTH + "]");
+        }
         long t = System.currentTimeMillis();
 
         try {
             ObservationResponse ret = new ObservationResponse(s);
             try {
-                ret.observation = get(s.getURI());
+                ret.observation = get(s.getURI(), null, depth);
             } catch (Exception ex) {
                 ret.error = new IllegalStateException(ex.getMessage());
             }
@@ -343,6 +424,51 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         return get(null, id, SQLGenerator.MAX_DEPTH);
     }
 
+    /**
+     * Get the planes of a stored observation without artifacts. This is a single
+     * table query and much faster than getObservationResponse with depth 2 when
+     * the caller does not need the observation.
+     * 
+     * @param obsID observation ID
+     * @return list of planes, empty if the observation does not exist or has no planes
+     */
+    public List<Plane> getPlanes(UUID obsID) {
+        return getChildren(Plane.class, obsID, gen.getPlaneMapper());
+    }
+    
+    /**
+     * Get the artifacts of all planes of a stored observation without parts. This is 
+     * a single table query that does not repeat plane and observation values in each 
+     * row.
+     * 
+     * @param obsID observation ID
+     * @return list of artifacts, in plane order, empty if there are none
+     */
+    public List<Artifact> getArtifacts(UUID obsID) {
+        return getChildren(Artifact.class, obsID, gen.getArtifactMapper());
+    }
+    
+    private <T> List<T> getChildren(Class<T> c, UUID obsID, RowMapper mapper) {
+        checkInit();
+        if (obsID == null) {
+            throw new IllegalArgumentException("obsID cannot be null");
+        }
+        long t = System.currentTimeMillis();
+        try {
+            SQLGenerator.SelectStatement sql = gen.getSelectByObservationStatement(c, obsID);
+            if (log.isDebugEnabled()) {
+                log.debug("GET: " + Util.formatSQL(sql.getSQL()) + " " + sql.getParameters());
+            }
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.setFetchSize(100);
+            List<T> ret = jdbc.query(sql, mapper);
+            return ret;
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("GET: " + c.getSimpleName() + " of " + obsID + " " + dt + "ms");
+        }
+    }
+
     private Observation get(ObservationURI uri, UUID id, int depth) {
         checkInit();
         if (uri == null && id == null) {
@@ -353,15 +479,15 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         long t = System.currentTimeMillis();
 
         try {
-            String sql;
+            SQLGenerator.SelectStatement sql;
             if (uri != null) {
-                sql = gen.getSelectSQL(uri, depth, false);
+                sql = gen.getSelectStatement(uri, depth, false);
             } else {
-                sql = gen.getSelectSQL(id, depth, false);
+                sql = gen.getSelectStatement(id, depth, false);
             }
 
             if (log.isDebugEnabled()) {
-                log.debug("GET: " + Util.formatSQL(sql));
+                log.debug("GET: " + Util.formatSQL(sql.getSQL()) + " " + sql.getParameters());
             }
 
             try {
@@ -505,16 +631,16 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
             List<Pair<Plane>> pairs = new ArrayList<Pair<Plane>>();
             if (cur != null) {
                 // delete the skeletons that are not in obs.getPlanes()
+                Set<UUID> ids = Util.getIDs(obs.getPlanes());
                 for (PlaneSkeleton ps : cur.planes) {
-                    Plane p = Util.findPlane(obs.getPlanes(), ps.id);
-                    if (p == null) {
+                    if (!ids.contains(ps.id)) {
                         log.debug("PUT: caused delete: " + ps.id);
                         planeDAO.delete(ps, jdbc);
                     }
                 }
                 // pair up planes and skeletons for insert/update
                 for (Plane p : obs.getPlanes()) {
-                    PlaneSkeleton ps = Util.findPlaneSkel(cur.planes, p.getID());
+                    PlaneSkeleton ps = cur.getPlane(p.getID());
                     pairs.add(new Pair<Plane>(ps, p)); // null ok
                 }
             } else {
@@ -530,13 +656,24 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
             
             // insert/update children
             tt = System.currentTimeMillis();
+            PutBatch batch = null;
+            if (batchPut) {
+                batch = new PutBatch(gen);
+            }
             LinkedList<CaomEntity> parents = new LinkedList<CaomEntity>();
             parents.push(obs);
             for (Pair<Plane> p : pairs) {
-                planeDAO.put(p.cur, p.val, parents, jdbc);
+                planeDAO.put(p.cur, p.val, parents, jdbc, batch);
             }
             final long putPlanesTime = System.currentTimeMillis() - tt;
             
+            long putBatchTime = 0L;
+            if (batch != null) {
+                tt = System.currentTimeMillis();
+                batch.execute(jdbc);
+                putBatchTime = System.currentTimeMillis() - tt;
+            }
+            
             log.debug("committing transaction");
             tt = System.currentTimeMillis();
             getTransactionManager().commitTransaction();
@@ -551,6 +688,7 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
                     + " del-planes=" + deletePlanesTime
                     + " put-obs=" + putObservationTime
                     + " put-planes=" + putPlanesTime
+                    + " put-batch=" + putBatchTime + (batch != null ? " [" + batch + "]" : "")
                     + " commit=" + txnCommitTime);
         } catch (DataIntegrityViolationException e) {
             log.debug("failed to insert " + obs + ": ", e);
@@ -597,20 +735,170 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         }
     }
 
+    /**
+     * Bulk load new observations using PostgreSQL COPY: one COPY per table (including the
+     * ObservationMember and ProvenanceInput join tables) in a single transaction. This is
+     * intended for the initial population of an empty collection: there is no dirty read,
+     * row lock, or skeleton comparison so if any observation already exists the whole
+     * load fails with a unique key violation and is rolled back. Metadata checksums and
+     * timestamps are assigned the same way as in put.
+     *
+     * @param observations new observations
+     */
+    public void copy(List<Observation> observations) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("copy in readOnly mode");
+        }
+        checkInit();
+        if (observations == null) {
+            throw new IllegalArgumentException("observations cannot be null");
+        }
+        if (observations.isEmpty()) {
+            return;
+        }
+        log.debug("COPY: " + observations.size() + " observations");
+        long t = System.currentTimeMillis();
+
+        boolean txnOpen = false;
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            Date now = getCurrentTime(jdbc);
+            for (Observation obs : observations) {
+                updateEntity(obs, null, now);
+            }
+
+            log.debug("starting transaction");
+            getTransactionManager().startTransaction();
+            txnOpen = true;
+
+            jdbc.execute((ConnectionCallback<Void>) conn -> {
+                copyImpl(conn, observations);
+                return null;
+            });
+
+            log.debug("committing transaction");
+            getTransactionManager().commitTransaction();
+            log.debug("commit: OK");
+            txnOpen = false;
+        } catch (DataAccessException e) {
+            log.debug("failed to copy " + observations.size() + " observations: ", e);
+            getTransactionManager().rollbackTransaction();
+            log.debug("rollback: OK");
+            txnOpen = false;
+            throw e;
+        } finally {
+            if (txnOpen) {
+                log.error("BUG - open transaction in finally");
+                getTransactionManager().rollbackTransaction();
+                log.error("rollback: OK");
+            }
+            long dt = System.currentTimeMillis() - t;
+            log.debug("COPY: " + observations.size() + " observations " + dt + "ms");
+        }
+    }
+
+    // render all rows of each table then COPY the tables top-down so foreign keys are satisfied
+    private void copyImpl(Connection conn, List<Observation> observations) throws SQLException {
+        final Map<Class, StringBuilder> tables = new LinkedHashMap<>();
+        tables.put(Observation.class, new StringBuilder());
+        tables.put(ObservationMember.class, new StringBuilder());
+        tables.put(Plane.class, new StringBuilder());
+        tables.put(ProvenanceInput.class, new StringBuilder());
+        tables.put(Artifact.class, new StringBuilder());
+        tables.put(Part.class, new StringBuilder());
+        tables.put(Chunk.class, new StringBuilder());
+
+        CopyRow row = new CopyRow(conn);
+        LinkedList<CaomEntity> parents = new LinkedList<CaomEntity>();
+        for (Observation obs : observations) {
+            addRow(tables.get(Observation.class), row, obs, parents);
+            parents.push(obs);
+            if (gen.persistOptimisations && obs instanceof DerivedObservation) {
+                for (ObservationURI uri : ((DerivedObservation) obs).getMembers()) {
+                    addRow(tables.get(ObservationMember.class), row, new ObservationMember(obs.getID(), uri), parents);
+                }
+            }
+            for (Plane p : obs.getPlanes()) {
+                addRow(tables.get(Plane.class), row, p, parents);
+                if (gen.persistOptimisations && p.provenance != null) {
+                    for (PlaneURI uri : p.provenance.getInputs()) {
+                        addRow(tables.get(ProvenanceInput.class), row, new ProvenanceInput(p.getID(), uri), parents);
+                    }
+                }
+                parents.push(p);
+                for (Artifact a : p.getArtifacts()) {
+                    addRow(tables.get(Artifact.class), row, a, parents);
+                    parents.push(a);
+                    for (Part pa : a.getParts()) {
+                        addRow(tables.get(Part.class), row, pa, parents);
+                        parents.push(pa);
+                        for (Chunk c : pa.getChunks()) {
+                            addRow(tables.get(Chunk.class), row, c, parents);
+                        }
+                        parents.pop();
+                    }
+                    parents.pop();
+                }
+                parents.pop();
+            }
+            parents.pop();
+        }
+
+        CopyManager cm = conn.unwrap(PGConnection.class).getCopyAPI();
+        for (Map.Entry<Class, StringBuilder> me : tables.entrySet()) {
+            if (me.getValue().length() > 0) {
+                String sql = gen.getCopySQL(me.getKey());
+                log.debug("COPY: " + sql);
+                long t = System.currentTimeMillis();
+                try {
+                    long n = cm.copyIn(sql, new StringReader(me.getValue().toString()));
+                    log.debug("COPY: " + me.getKey().getSimpleName() + " " + n + " rows " + (System.currentTimeMillis() - t) + "ms");
+                } catch (IOException ex) {
+                    throw new SQLException("failed to COPY " + me.getKey().getSimpleName(), ex);
+                }
+            }
+        }
+    }
+
+    private void addRow(StringBuilder table, CopyRow row, Object val, List<CaomEntity> parents) throws SQLException {
+        gen.loadInsertValues(row.getStatement(), val, parents);
+        row.write(table);
+    }
+
+    // package access for benchmarking the different strategies
+    ObservationSkeleton getSkeleton(UUID id, SkeletonQuery sq) {
+        checkInit();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        return getSkelImpl(id, jdbc, true, sq);
+    }
+    
     private ObservationSkeleton getSkelImpl(UUID id, JdbcTemplate jdbc, boolean complete) {
+        return getSkelImpl(id, jdbc, complete, skeletonQuery);
+    }
+    
+    private ObservationSkeleton getSkelImpl(UUID id, JdbcTemplate jdbc, boolean complete, SkeletonQuery sq) {
+        if (complete && SkeletonQuery.JOIN.equals(sq)) {
+            return getSkelJoin(id, jdbc);
+        }
+        if (complete && SkeletonQuery.SET.equals(sq)) {
+            return getSkelSet(id, jdbc);
+        }
         return getSkelNav(id, jdbc, complete);
     }
 
     private ObservationSkeleton getSkelJoin(UUID id, JdbcTemplate jdbc) {
-        String skelSQL = gen.getSelectSQL(id, SQLGenerator.MAX_DEPTH, true);
+        SQLGenerator.SelectStatement skelSQL = gen.getSelectStatement(id, SQLGenerator.MAX_DEPTH, true);
         log.debug("getSkel: " + skelSQL);
         ObservationSkeleton ret = (ObservationSkeleton) jdbc.query(skelSQL, new ObservationSkeletonExtractor());
+        if (ret != null) {
+            ret.buildIndex();
+        }
         return ret;
     }
     
     private ObservationSkeleton getSkelNav(UUID id, JdbcTemplate jdbc, boolean complete) {
         ObservationSkeletonExtractor ose = new ObservationSkeletonExtractor();
-        String skelSQL = gen.getSelectSQL(ObservationSkeleton.class, id, true); // by PK
+        SQLGenerator.SelectStatement skelSQL = gen.getSelectStatement(ObservationSkeleton.class, id, true); // by PK
         log.debug("getSkel: " + skelSQL);
         List<ObservationSkeleton> skels = jdbc.query(skelSQL, ose.observationMapper);
         if (skels == null || skels.isEmpty()) {
@@ -620,30 +908,93 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         if (!complete) {
             return ret;
         }
-        String planeSkelSQL = gen.getSelectSQL(PlaneSkeleton.class, id, false); // by FK
+        SQLGenerator.SelectStatement planeSkelSQL = gen.getSelectStatement(PlaneSkeleton.class, id, false); // by FK
         log.debug("getSkel: " + planeSkelSQL);
         List<PlaneSkeleton> planes = jdbc.query(planeSkelSQL, ose.planeMapper);
         for (PlaneSkeleton ps : planes) {
             ret.planes.add(ps);
-            String artifactSkelSQL = gen.getSelectSQL(ArtifactSkeleton.class, ps.id, false); // by FK
+            SQLGenerator.SelectStatement artifactSkelSQL = gen.getSelectStatement(ArtifactSkeleton.class, ps.id, false); // by FK
             log.debug("getSkel: " + artifactSkelSQL);
             List<ArtifactSkeleton> artifacts = jdbc.query(artifactSkelSQL, ose.artifactMapper);
             for (ArtifactSkeleton as : artifacts) {
                 ps.artifacts.add(as);
-                String partSkelSQL = gen.getSelectSQL(PartSkeleton.class, as.id, false); // by FK
+                SQLGenerator.SelectStatement partSkelSQL = gen.getSelectStatement(PartSkeleton.class, as.id, false); // by FK
                 log.debug("getSkel: " + partSkelSQL);
                 List<PartSkeleton> parts = jdbc.query(partSkelSQL, ose.partMapper);
                 for (PartSkeleton pas : parts) {
                     as.parts.add(pas);
-                    String chunkSkelSQL = gen.getSelectSQL(ChunkSkeleton.class, pas.id, false); // by FK
+                    SQLGenerator.SelectStatement chunkSkelSQL = gen.getSelectStatement(ChunkSkeleton.class, pas.id, false); // by FK
                     log.debug("getSkel: " + chunkSkelSQL);
                     List<ChunkSkeleton> chunks = jdbc.query(chunkSkelSQL, ose.chunkMapper);
                     pas.chunks.addAll(chunks);
                 }
             }
         }
+        ret.buildIndex();
+        return ret;
+    }
+    
+    private ObservationSkeleton getSkelSet(UUID id, JdbcTemplate jdbc) {
+        ObservationSkeletonExtractor ose = new ObservationSkeletonExtractor();
+        SQLGenerator.SelectStatement skelSQL = gen.getSelectStatement(ObservationSkeleton.class, id, true); // by PK
+        log.debug("getSkel: " + skelSQL);
+        List<ObservationSkeleton> skels = jdbc.query(skelSQL, ose.observationMapper);
+        if (skels == null || skels.isEmpty()) {
+            return null;
+        }
+        ObservationSkeleton ret = skels.get(0);
+        
+        Map<UUID, Skeleton> parents = new LinkedHashMap<UUID, Skeleton>();
+        parents.put(ret.id, ret);
+        parents = getChildSkels(jdbc, PlaneSkeleton.class, parents, ose.planeMapper);
+        parents = getChildSkels(jdbc, ArtifactSkeleton.class, parents, ose.artifactMapper);
+        parents = getChildSkels(jdbc, PartSkeleton.class, parents, ose.partMapper);
+        getChildSkels(jdbc, ChunkSkeleton.class, parents, ose.chunkMapper);
+        ret.buildIndex();
+        return ret;
+    }
+    
+    // select all children of the specified parents (by FK) and attach them to the parent
+    private Map<UUID, Skeleton> getChildSkels(JdbcTemplate jdbc, Class<? extends Skeleton> c, 
+            final Map<UUID, Skeleton> parents, final RowMapper<? extends Skeleton> mapper) {
+        final Map<UUID, Skeleton> ret = new LinkedHashMap<UUID, Skeleton>();
+        if (parents.isEmpty()) {
+            return ret;
+        }
+        Iterator<UUID> iter = parents.keySet().iterator();
+        while (iter.hasNext()) {
+            Collection<UUID> keys = new ArrayList<UUID>();
+            while (iter.hasNext() && keys.size() < SKEL_SET_MAX_KEYS) {
+                keys.add(iter.next());
+            }
+            SQLGenerator.SelectStatement sql = gen.getSelectStatement(c, keys, false); // by FK
+            log.debug("getSkel: " + sql);
+            jdbc.query(sql, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    UUID fk = Util.getUUID(rs, 1);
+                    Skeleton s = mapper.mapRow(rs, ret.size());
+                    addChild(parents.get(fk), s);
+                    ret.put(s.id, s);
+                }
+            });
+        }
         return ret;
     }
+    
+    private static void addChild(Skeleton parent, Skeleton child) {
+        if (parent instanceof ObservationSkeleton) {
+            ((ObservationSkeleton) parent).planes.add((PlaneSkeleton) child);
+        } else if (parent instanceof PlaneSkeleton) {
+            ((PlaneSkeleton) parent).artifacts.add((ArtifactSkeleton) child);
+        } else if (parent instanceof ArtifactSkeleton) {
+            ((ArtifactSkeleton) parent).parts.add((PartSkeleton) child);
+        } else if (parent instanceof PartSkeleton) {
+            ((PartSkeleton) parent).chunks.add((ChunkSkeleton) child);
+        } else {
+            throw new IllegalStateException("BUG: unexpected parent skeleton " + parent + " for " + child);
+        }
+    }
 
     /**
      * Delete a stored observation by URI.
@@ -665,6 +1016,231 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         deleteImpl(id, null);
     }
 
+    /**
+     * Get the current state of the specified observations. The states are found with one
+     * query per 1000 IDs; IDs that do not exist are not included in the result.
+     * 
+     * @param ids observation IDs
+     * @return map of observation ID to current state
+     */
+    public Map<UUID, ObservationState> getStates(Collection<UUID> ids) {
+        checkInit();
+        if (ids == null) {
+            throw new IllegalArgumentException("ids cannot be null");
+        }
+        Map<UUID, ObservationState> ret = new HashMap<>();
+        if (ids.isEmpty()) {
+            return ret;
+        }
+        log.debug("GET: " + ids.size() + " states");
+        long t = System.currentTimeMillis();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            Iterator<UUID> iter = ids.iterator();
+            while (iter.hasNext()) {
+                List<UUID> keys = new ArrayList<>();
+                while (iter.hasNext() && keys.size() < SKEL_SET_MAX_KEYS) {
+                    keys.add(iter.next());
+                }
+                SQLGenerator.SelectStatement sql = gen.getSelectStatement(ObservationState.class, keys, true); // by PK
+                log.debug("GET: " + sql.getSQL());
+                List<ObservationState> states = jdbc.query(sql, gen.getObservationStateMapper());
+                for (ObservationState s : states) {
+                    ret.put(s.id, s);
+                }
+            }
+            return ret;
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("GET: " + ids.size() + " states " + dt + "ms");
+        }
+    }
+    
+    /**
+     * Get the current state of the specified observations by URI. The states are found 
+     * with one query per 1000 URIs; URIs that do not exist are not included in the result.
+     * 
+     * @param uris observation URIs
+     * @return map of observation URI to current state
+     */
+    public Map<ObservationURI, ObservationState> getStatesByURI(Collection<ObservationURI> uris) {
+        checkInit();
+        if (uris == null) {
+            throw new IllegalArgumentException("uris cannot be null");
+        }
+        Map<ObservationURI, ObservationState> ret = new HashMap<>();
+        if (uris.isEmpty()) {
+            return ret;
+        }
+        log.debug("GET: " + uris.size() + " states by URI");
+        long t = System.currentTimeMillis();
+        try {
+            // one query per collection and chunk of observationIDs
+            Map<String, List<String>> byCollection = new HashMap<>();
+            for (ObservationURI u : uris) {
+                List<String> oids = byCollection.get(u.getCollection());
+                if (oids == null) {
+                    oids = new ArrayList<>();
+                    byCollection.put(u.getCollection(), oids);
+                }
+                oids.add(u.getObservationID());
+            }
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            for (Map.Entry<String, List<String>> me : byCollection.entrySet()) {
+                List<String> oids = me.getValue();
+                for (int i = 0; i < oids.size(); i += SKEL_SET_MAX_KEYS) {
+                    List<String> keys = oids.subList(i, Math.min(oids.size(), i + SKEL_SET_MAX_KEYS));
+                    SQLGenerator.SelectStatement sql = gen.getSelectStatement(me.getKey(), keys);
+                    log.debug("GET: " + sql.getSQL());
+                    List<ObservationState> states = jdbc.query(sql, gen.getObservationStateMapper());
+                    for (ObservationState s : states) {
+                        ret.put(s.getURI(), s);
+                    }
+                }
+            }
+            return ret;
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("GET: " + uris.size() + " states by URI " + dt + "ms");
+        }
+    }
+    
+    /**
+     * Delete a set of stored observations and all of their children in a single transaction
+     * using set-based deletes (one statement per table per 1000 observations) instead of
+     * deleting each entity in the skeleton tree. A DeletedObservation is recorded for each
+     * observation as in delete(List, boolean), so the states should come from getStates.
+     * 
+     * @param states current state of the observations to delete
+     */
+    public void delete(Collection<ObservationState> states) {
+        if (states == null) {
+            throw new IllegalArgumentException("states cannot be null");
+        }
+        List<UUID> ids = new ArrayList<>(states.size());
+        for (ObservationState s : states) {
+            ids.add(s.id);
+        }
+        delete(ids, true);
+    }
+
+    /**
+     * Get up to limit observation IDs in a collection in primary key order. The bounds
+     * select IDs in the range (minID, maxID] so a caller can walk a collection in chunks
+     * by passing the last ID of the previous chunk as minID.
+     *
+     * @param collection the collection
+     * @param minID exclusive lower bound, null for none
+     * @param maxID inclusive upper bound, null for none
+     * @param limit max number of IDs
+     * @return observation IDs in primary key order
+     */
+    public List<UUID> getObservationIDs(String collection, UUID minID, UUID maxID, int limit) {
+        checkInit();
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be > 0: " + limit);
+        }
+        long t = System.currentTimeMillis();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            SQLGenerator.SelectStatement sql = gen.getSelectObservationIDStatement(collection, minID, maxID, limit);
+            log.debug("GET: " + sql.getSQL());
+            return jdbc.query(sql, (rs, row) -> Util.getUUID(rs, 1));
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("GET: " + collection + " IDs " + dt + "ms");
+        }
+    }
+
+    /**
+     * Delete a set of stored observations and all of their children in a single transaction
+     * using set-based deletes, without loading the observation states. When tombstones is
+     * true, a DeletedObservation for each observation is inserted from the observation rows
+     * (replacing any existing one with the same ID) before the delete. Each tombstone gets
+     * the server clock time when its row is inserted (not the transaction start time), so 
+     * the tombstones are spread over the time taken to insert them and never run ahead of 
+     * the clock, even with multiple threads or processes deleting at the same time.
+     *
+     * @param ids observation IDs, usually from getObservationIDs
+     * @param tombstones record a DeletedObservation for each observation
+     * @return total number of rows deleted from all tables
+     */
+    public long delete(List<UUID> ids, boolean tombstones) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("delete in readOnly mode");
+        }
+        checkInit();
+        if (ids == null) {
+            throw new IllegalArgumentException("ids cannot be null");
+        }
+        if (ids.isEmpty()) {
+            return 0L;
+        }
+        log.debug("DELETE: " + ids.size() + " observations");
+        long t = System.currentTimeMillis();
+        long ret = 0L;
+
+        boolean txnOpen = false;
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            log.debug("starting transaction");
+            getTransactionManager().startTransaction();
+            txnOpen = true;
+            Iterator<UUID> iter = ids.iterator();
+            while (iter.hasNext()) {
+                final List<UUID> batch = new ArrayList<>();
+                while (iter.hasNext() && batch.size() < SKEL_SET_MAX_KEYS) {
+                    batch.add(iter.next());
+                }
+                PreparedStatementSetter keys = ps -> {
+                    int col = 1;
+                    for (UUID id : batch) {
+                        gen.setParameter(ps, col++, id);
+                    }
+                };
+
+                // obtain row locks
+                String lock = gen.getUpdateLockSQL(batch.size());
+                log.debug("LOCK SQL: " + lock);
+                jdbc.update(lock, keys);
+
+                if (tombstones) {
+                    for (String sql : gen.getBulkTombstoneSQL(batch.size())) {
+                        log.debug("TOMBSTONE: " + sql);
+                        jdbc.update(sql, keys);
+                    }
+                }
+                for (String sql : gen.getBulkDeleteSQL(batch.size())) {
+                    log.debug("DELETE: " + sql);
+                    ret += jdbc.update(sql, keys);
+                }
+            }
+
+            log.debug("committing transaction");
+            getTransactionManager().commitTransaction();
+            log.debug("commit: OK");
+            txnOpen = false;
+            return ret;
+        } catch (DataAccessException e) {
+            log.debug("failed to delete " + ids.size() + " observations: ", e);
+            getTransactionManager().rollbackTransaction();
+            log.debug("rollback: OK");
+            txnOpen = false;
+            throw e;
+        } finally {
+            if (txnOpen) {
+                log.error("BUG - open transaction in finally");
+                getTransactionManager().rollbackTransaction();
+                log.error("rollback: OK");
+            }
+            long dt = System.currentTimeMillis() - t;
+            log.debug("DELETE: " + ids.size() + " observations " + ret + " rows " + dt + "ms");
+        }
+    }
+
     private void deleteImpl(UUID id, ObservationURI uri) {
         if (readOnly) {
             throw new UnsupportedOperationException("delete in readOnly mode");
@@ -677,11 +1253,11 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         boolean txnOpen = false;
         try {
             JdbcTemplate jdbc = new JdbcTemplate(dataSource);
-            String sql = null;
+            SQLGenerator.SelectStatement sql = null;
             if (id != null) {
-                sql = gen.getSelectSQL(id, SQLGenerator.MAX_DEPTH, true);
+                sql = gen.getSelectStatement(id, SQLGenerator.MAX_DEPTH, true);
             } else {
-                sql = gen.getSelectSQL(uri, SQLGenerator.MAX_DEPTH, true);
+                sql = gen.getSelectStatement(uri, SQLGenerator.MAX_DEPTH, true);
             }
             log.debug("DELETE: " + sql);
             ObservationSkeleton dirtyRead;
@@ -784,11 +1360,7 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         for (Plane plane : entity.getPlanes()) {
             PlaneSkeleton skel = null;
             if (s != null) {
-                for (PlaneSkeleton ss : s.planes) {
-                    if (plane.getID().equals(ss.id)) {
-                        skel = ss;
-                    }
-                }
+                skel = s.getPlane(plane.getID());
             }
             updateEntity(plane, skel, now);
         }
@@ -832,11 +1404,7 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         for (Artifact artifact : entity.getArtifacts()) {
             ArtifactSkeleton skel = null;
             if (s != null) {
-                for (ArtifactSkeleton ss : s.artifacts) {
-                    if (artifact.getID().equals(ss.id)) {
-                        skel = ss;
-                    }
-                }
+                skel = s.getArtifact(artifact.getID());
             }
             updateEntity(artifact, skel, now);
         }
@@ -880,11 +1448,7 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         for (Part part : entity.getParts()) {
             PartSkeleton skel = null;
             if (s != null) {
-                for (PartSkeleton ss : s.parts) {
-                    if (part.getID().equals(ss.id)) {
-                        skel = ss;
-                    }
-                }
+                skel = s.getPart(part.getID());
             }
             updateEntity(part, skel, now);
         }
@@ -928,11 +1492,7 @@ public class ObservationDAO extends AbstractCaomEntityDAO<Observation> {
         for (Chunk chunk : entity.getChunks()) {
             ChunkSkeleton skel = null;
             if (s != null) {
-                for (ChunkSkeleton ss : s.chunks) {
-                    if (chunk.getID().equals(ss.id)) {
-                        skel = ss;
-                    }
-                }
+                skel = s.getChunk(chunk.getID());
             }
             updateEntity(chunk, skel, now);
         }
@@ -78,6 +78,8 @@ import ca.nrc.cadc.caom2.persistence.skel.Skeleton;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -99,6 +101,10 @@ class PartDAO extends AbstractCaomEntityDAO<Part> {
 
     @Override
     public void put(Skeleton cur, Part p, LinkedList<CaomEntity> parents, JdbcTemplate jdbc) {
+        put(cur, p, parents, jdbc, (PutBatch) null);
+    }
+
+    void put(Skeleton cur, Part p, LinkedList<CaomEntity> parents, JdbcTemplate jdbc, PutBatch batch) {
         if (p == null) {
             throw new IllegalArgumentException("arg cannot be null");
         }
@@ -111,16 +117,16 @@ class PartDAO extends AbstractCaomEntityDAO<Part> {
             if (cur != null) {
                 PartSkeleton cs = (PartSkeleton) cur;
                 // delete the skeletons that are not in p.getChunks()
+                Set<UUID> ids = Util.getIDs(p.getChunks());
                 for (ChunkSkeleton s : cs.chunks) {
-                    Chunk c = Util.findChunk(p.getChunks(), s.id);
-                    if (c == null) {
-                        log.debug("put caused delete chunk: " + c);
+                    if (!ids.contains(s.id)) {
+                        log.debug("put caused delete chunk: " + s.id);
                         chunkDAO.delete(s, jdbc);
                     }
                 }
                 // pair up chunks and skeletons for insert/update
                 for (Chunk c : p.getChunks()) {
-                    ChunkSkeleton s = Util.findChunkSkel(cs.chunks, c.getID());
+                    ChunkSkeleton s = cs.getChunk(c.getID());
                     pairs.add(new Pair<Chunk>(s, c)); // null ok
                 }
             } else {
@@ -129,11 +135,11 @@ class PartDAO extends AbstractCaomEntityDAO<Part> {
                 }
             }
 
-            super.put(cur, p, parents, jdbc);
+            super.put(cur, p, parents, jdbc, false, batch);
 
             parents.push(p);
             for (Pair<Chunk> part : pairs) {
-                chunkDAO.put(part.cur, part.val, parents, jdbc);
+                chunkDAO.put(part.cur, part.val, parents, jdbc, batch);
             }
             parents.pop();
         } finally {
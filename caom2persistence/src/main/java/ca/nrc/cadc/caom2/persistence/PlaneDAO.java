@@ -78,6 +78,8 @@ import ca.nrc.cadc.caom2.persistence.skel.Skeleton;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -99,6 +101,10 @@ class PlaneDAO extends AbstractCaomEntityDAO<Plane> {
 
     @Override
     public void put(Skeleton cur, Plane p, LinkedList<CaomEntity> parents, JdbcTemplate jdbc) {
+        put(cur, p, parents, jdbc, (PutBatch) null);
+    }
+
+    void put(Skeleton cur, Plane p, LinkedList<CaomEntity> parents, JdbcTemplate jdbc, PutBatch batch) {
         if (p == null) {
             throw new IllegalArgumentException("arg cannot be null");
         }
@@ -111,16 +117,16 @@ class PlaneDAO extends AbstractCaomEntityDAO<Plane> {
             if (cur != null) {
                 PlaneSkeleton cs = (PlaneSkeleton) cur;
                 // delete the skeletons that are not in p.getArtifacts()
+                Set<UUID> ids = Util.getIDs(p.getArtifacts());
                 for (ArtifactSkeleton as : cs.artifacts) {
-                    Artifact a = Util.findArtifact(p.getArtifacts(), as.id);
-                    if (a == null) {
-                        log.debug("put caused delete artifact: " + a);
+                    if (!ids.contains(as.id)) {
+                        log.debug("put caused delete artifact: " + as.id);
                         artifactDAO.delete(as, jdbc);
                     }
                 }
                 // pair up planes and skeletons for insert/update
                 for (Artifact a : p.getArtifacts()) {
-                    ArtifactSkeleton as = Util.findArtifactSkel(cs.artifacts, a.getID());
+                    ArtifactSkeleton as = cs.getArtifact(a.getID());
                     pairs.add(new Pair<Artifact>(as, a)); // null ok
                 }
             } else {
@@ -129,11 +135,11 @@ class PlaneDAO extends AbstractCaomEntityDAO<Plane> {
                 }
             }
 
-            super.put(cur, p, parents, jdbc);
+            super.put(cur, p, parents, jdbc, false, batch);
 
             parents.push(p);
             for (Pair<Artifact> a : pairs) {
-                artifactDAO.put(a.cur, a.val, parents, jdbc);
+                artifactDAO.put(a.cur, a.val, parents, jdbc, batch);
             }
             parents.pop();
         } finally {
@@ -0,0 +1,163 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.persistence;
+
+import ca.nrc.cadc.caom2.Artifact;
+import ca.nrc.cadc.caom2.CaomEntity;
+import ca.nrc.cadc.caom2.Chunk;
+import ca.nrc.cadc.caom2.Part;
+import ca.nrc.cadc.caom2.Plane;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Collect the inserts and updates of the child entities of a single observation so
+ * they can be written with one JDBC batch per entity class and operation. Batches
+ * are executed top-down (Plane, Artifact, Part, Chunk) so foreign keys are always
+ * satisfied.
+ * 
+ * @author pdowler
+ */
+class PutBatch {
+
+    private static final Logger log = Logger.getLogger(PutBatch.class);
+
+    private static final Class[] LEVELS = new Class[] {
+        Plane.class, Artifact.class, Part.class, Chunk.class
+    };
+    
+    private final EntityBatchPut[] updates = new EntityBatchPut[LEVELS.length];
+    private final EntityBatchPut[] inserts = new EntityBatchPut[LEVELS.length];
+    private final long[] times = new long[LEVELS.length];
+    
+    PutBatch(SQLGenerator gen) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            updates[i] = gen.getEntityBatchPut(LEVELS[i], true);
+            inserts[i] = gen.getEntityBatchPut(LEVELS[i], false);
+        }
+    }
+    
+    /**
+     * Add an entity to the batch for its class.
+     * 
+     * @param val entity to put
+     * @param parents current parent stack (copied)
+     * @param isUpdate true for update, false for insert
+     */
+    void add(CaomEntity val, List<CaomEntity> parents, boolean isUpdate) {
+        int i = getLevel(val.getClass());
+        if (isUpdate) {
+            updates[i].addValue(val, parents);
+        } else {
+            inserts[i].addValue(val, parents);
+        }
+    }
+    
+    /**
+     * Execute all batches. This must be called within the transaction used
+     * to collect the batch.
+     * 
+     * @param jdbc 
+     */
+    void execute(JdbcTemplate jdbc) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            long t = System.currentTimeMillis();
+            updates[i].execute(jdbc);
+            inserts[i].execute(jdbc);
+            times[i] = System.currentTimeMillis() - t;
+            log.debug("batch " + LEVELS[i].getSimpleName() + ": " + updates[i].size() + " update " 
+                    + inserts[i].size() + " insert " + times[i] + "ms");
+        }
+    }
+    
+    private int getLevel(Class c) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(c)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("BUG: unexpected batch entity: " + c.getName());
+    }
+
+    // per-level summary for timing log: Plane=updates/inserts/ms
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (i > 0) {
+                sb.append(" ");
+            }
+            sb.append(LEVELS[i].getSimpleName()).append("=");
+            sb.append(updates[i].size()).append("/").append(inserts[i].size()).append("/").append(times[i]);
+        }
+        return sb.toString();
+    }
+}
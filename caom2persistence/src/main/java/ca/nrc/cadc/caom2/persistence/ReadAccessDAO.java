@@ -78,9 +78,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import org.apache.log4j.Logger;
@@ -96,6 +100,9 @@ public class ReadAccessDAO extends AbstractDAO {
 
     private static final Logger log = Logger.getLogger(ReadAccessDAO.class);
 
+    // max number of values in a single IN clause
+    static final int MAX_URIS_PER_QUERY = 1000;
+    
     private final Calendar utcCalendar = Calendar.getInstance(DateUtil.UTC);
     
     public ReadAccessDAO() {
@@ -122,18 +129,8 @@ public class ReadAccessDAO extends AbstractDAO {
         long t = System.currentTimeMillis();
 
         try {
-            String pa = gen.getAlias(Plane.class);
             String aa = gen.getAlias(Artifact.class);
-            
-            StringBuilder sb = new StringBuilder();
-            sb.append("SELECT ");
-            sb.append(gen.getColumns(Artifact.class, aa)).append(",");
-            sb.append(pa).append(".metaRelease").append(",");
-            sb.append(pa).append(".dataRelease").append(",");
-            sb.append(pa).append(".metaReadGroups").append(",");
-            sb.append(pa).append(".dataReadGroups");
-            sb.append(" FROM ");
-            sb.append(gen.getFrom(Plane.class, 2, false));
+            StringBuilder sb = getSelectSQL();
             sb.append(" WHERE ").append(aa).append(".uri = ?");
             String sql = sb.toString();
             if (log.isDebugEnabled()) {
@@ -170,6 +167,82 @@ public class ReadAccessDAO extends AbstractDAO {
         }
     }
     
+    /**
+     * Get raw read access information for multiple artifacts. Artifacts are found
+     * with one query per MAX_URIS_PER_QUERY input URIs instead of one query per artifact.
+     * 
+     * @param artifactURIs artifact URIs
+     * @return map of artifact URI to access info; URIs that were not found are not included
+     */
+    public Map<URI, RawArtifactAccess> getArtifactAccess(Collection<URI> artifactURIs) {
+        checkInit();
+        if (artifactURIs == null) {
+            throw new IllegalArgumentException("arg cannot be null");
+        }
+        log.debug("getArtifactAccess: " + artifactURIs.size());
+        long t = System.currentTimeMillis();
+        
+        Map<URI, RawArtifactAccess> ret = new HashMap<>();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            List<String> chunk = new ArrayList<>();
+            for (URI u : artifactURIs) {
+                chunk.add(u.toASCIIString());
+                if (chunk.size() == MAX_URIS_PER_QUERY) {
+                    getArtifactAccess(jdbc, chunk, ret);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                getArtifactAccess(jdbc, chunk, ret);
+            }
+            return ret;
+        } finally {
+            long dt = System.currentTimeMillis() - t;
+            log.debug("getArtifactAccess: " + artifactURIs.size() + " found: " + ret.size() + " " + dt + "ms");
+        }
+    }
+    
+    private void getArtifactAccess(JdbcTemplate jdbc, List<String> uris, Map<URI, RawArtifactAccess> ret) {
+        String aa = gen.getAlias(Artifact.class);
+        StringBuilder sb = getSelectSQL();
+        sb.append(" WHERE ").append(aa).append(".uri IN (");
+        for (int i = 0; i < uris.size(); i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("?");
+        }
+        sb.append(")");
+        String sql = sb.toString();
+        if (log.isDebugEnabled()) {
+            log.debug("GET SQL: " + Util.formatSQL(sql));
+        }
+        
+        List result = jdbc.query(sql, uris.toArray(), new ArtifactAccessMapper());
+        for (Object o : result) {
+            RawArtifactAccess raa = (RawArtifactAccess) o;
+            // same as single artifact: first row wins
+            ret.putIfAbsent(raa.artifact.getURI(), raa);
+        }
+    }
+    
+    private StringBuilder getSelectSQL() {
+        String pa = gen.getAlias(Plane.class);
+        String aa = gen.getAlias(Artifact.class);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        sb.append(gen.getColumns(Artifact.class, aa)).append(",");
+        sb.append(pa).append(".metaRelease").append(",");
+        sb.append(pa).append(".dataRelease").append(",");
+        sb.append(pa).append(".metaReadGroups").append(",");
+        sb.append(pa).append(".dataReadGroups");
+        sb.append(" FROM ");
+        sb.append(gen.getFrom(Plane.class, 2, false));
+        return sb;
+    }
+    
     public static class RawArtifactAccess {
         public Artifact artifact;
         public ReleaseType releaseType;
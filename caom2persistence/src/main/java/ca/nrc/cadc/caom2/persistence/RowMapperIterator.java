@@ -0,0 +1,215 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.persistence;
+
+import ca.nrc.cadc.io.ResourceIterator;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import javax.sql.DataSource;
+import org.apache.log4j.Logger;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * ResourceIterator over the rows of a query using a server-side cursor. The connection
+ * is held until the iteration reaches the end or the iterator is closed.
+ * 
+ * @author pdowler
+ * @param <T> type of mapped row
+ */
+class RowMapperIterator<T> implements ResourceIterator<T> {
+    private static final Logger log = Logger.getLogger(RowMapperIterator.class);
+
+    static final int FETCH_SIZE = 1000;
+    
+    private final Connection con;
+    private final PreparedStatement ps;
+    private final ResultSet rs;
+    private final RowMapper mapper;
+    private boolean hasRow;
+    private int rowNum = 0;
+
+    private RowMapperIterator(Connection con, PreparedStatement ps, ResultSet rs, RowMapper mapper) throws SQLException {
+        this.con = con;
+        this.ps = ps;
+        this.rs = rs;
+        this.mapper = mapper;
+        this.hasRow = rs.next();
+        if (!hasRow) {
+            release();
+        }
+    }
+    
+    /**
+     * Execute the query and return an iterator over the mapped rows.
+     * 
+     * @param <T> type of mapped row
+     * @param ds data source
+     * @param sql query without parameters
+     * @param mapper row mapper that returns T
+     * @return iterator
+     */
+    static <T> RowMapperIterator<T> query(DataSource ds, final String sql, RowMapper mapper) {
+        return query(ds, new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                return con.prepareStatement(sql);
+            }
+        }, mapper);
+    }
+    
+    /**
+     * Execute the query and return an iterator over the mapped rows.
+     * 
+     * @param <T> type of mapped row
+     * @param ds data source
+     * @param psc creates the query with parameters bound
+     * @param mapper row mapper that returns T
+     * @return iterator
+     */
+    static <T> RowMapperIterator<T> query(DataSource ds, PreparedStatementCreator psc, RowMapper mapper) {
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            // postgresql only streams with a cursor inside a transaction
+            con.setAutoCommit(false);
+            PreparedStatement ps = psc.createPreparedStatement(con);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+            ResultSet rs = ps.executeQuery();
+            return new RowMapperIterator<>(con, ps, rs, mapper);
+        } catch (SQLException ex) {
+            if (con != null) {
+                try {
+                    con.setAutoCommit(true);
+                    con.close();
+                } catch (SQLException ignore) {
+                    log.debug("failed to close connection after query failure", ignore);
+                }
+            }
+            throw new RuntimeException("iterator query failed", ex);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasRow;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasRow) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T ret = (T) mapper.mapRow(rs, rowNum++);
+            hasRow = rs.next();
+            if (!hasRow) {
+                release();
+            }
+            return ret;
+        } catch (SQLException ex) {
+            hasRow = false;
+            try {
+                release();
+            } catch (SQLException unexpected) {
+                log.debug("failed to close connection after iteration failure", unexpected);
+            }
+            throw new RuntimeException("iterator query failed while iterating", ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (hasRow) {
+            hasRow = false;
+            try {
+                release();
+            } catch (SQLException ex) {
+                throw new IOException("failed to close iterator query", ex);
+            }
+        }
+    }
+
+    private void release() throws SQLException {
+        try {
+            rs.close();
+            ps.close();
+            con.setAutoCommit(true);
+        } finally {
+            con.close();
+        }
+    }
+}
@@ -154,6 +154,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Comparator;
@@ -166,6 +167,7 @@ import java.util.TreeSet;
 import java.util.UUID;
 import org.apache.log4j.Logger;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
@@ -631,6 +633,25 @@ public class SQLGenerator {
     }
     
     public String getSelectSQL(ObservationURI uri, int depth, boolean skeleton) {
+        return getSelectSQL(uri, depth, skeleton, null);
+    }
+    
+    /**
+     * Select an observation by URI with the collection and observationID as
+     * statement parameters.
+     * 
+     * @param uri observation URI
+     * @param depth depth of the join
+     * @param skeleton true to select skeleton columns
+     * @return parameterized select statement
+     */
+    public SelectStatement getSelectStatement(ObservationURI uri, int depth, boolean skeleton) {
+        List<Object> params = new ArrayList<>();
+        String sql = getSelectSQL(uri, depth, skeleton, params);
+        return new SelectStatement(this, sql, params);
+    }
+    
+    private String getSelectSQL(ObservationURI uri, int depth, boolean skeleton, List<Object> params) {
         StringBuilder sb = new StringBuilder();
         String alias = getAlias(Observation.class);
         if (skeleton) {
@@ -642,11 +663,11 @@ public class SQLGenerator {
         sb.append(alias);
         // TODO: use uri column directly in future
         sb.append(".").append("collection").append(" = ");
-        sb.append(literal(uri.getCollection()));
+        appendValue(sb, uri.getCollection(), params);
         sb.append(" AND ");
         sb.append(alias);
         sb.append(".").append("observationID").append(" = ");
-        sb.append(literal(uri.getObservationID()));
+        appendValue(sb, uri.getObservationID(), params);
         String orderBy = getOrderColumns(depth);
         if (skeleton) {
             orderBy = getSkeletonOrderColumns(depth);
@@ -659,6 +680,24 @@ public class SQLGenerator {
     }
 
     public String getSelectSQL(UUID id, int depth, boolean skeleton) {
+        return getSelectSQL(id, depth, skeleton, null);
+    }
+    
+    /**
+     * Select an observation by primary key with the key as a statement parameter.
+     * 
+     * @param id observation primary key value
+     * @param depth depth of the join
+     * @param skeleton true to select skeleton columns
+     * @return parameterized select statement
+     */
+    public SelectStatement getSelectStatement(UUID id, int depth, boolean skeleton) {
+        List<Object> params = new ArrayList<>();
+        String sql = getSelectSQL(id, depth, skeleton, params);
+        return new SelectStatement(this, sql, params);
+    }
+    
+    private String getSelectSQL(UUID id, int depth, boolean skeleton, List<Object> params) {
         StringBuilder sb = new StringBuilder();
         String alias = getAlias(Observation.class);
         if (skeleton) {
@@ -675,7 +714,7 @@ public class SQLGenerator {
             sb.append(getPrimaryKeyColumn(Observation.class));
         }
         sb.append(" = ");
-        sb.append(literal(id));
+        appendValue(sb, id, params);
         String orderBy = getOrderColumns(depth);
         if (skeleton) {
             orderBy = getSkeletonOrderColumns(depth);
@@ -687,6 +726,53 @@ public class SQLGenerator {
         return sb.toString();
     }
 
+    /**
+     * Select the planes or artifacts of an observation without joining to the 
+     * observation or to deeper levels of the tree. 
+     * 
+     * @param c Plane or Artifact
+     * @param obsID observation primary key value
+     * @return sql select statement
+     */
+    public String getSelectByObservationSQL(Class c, UUID obsID) {
+        return getSelectByObservationSQL(c, obsID, null);
+    }
+    
+    /**
+     * Select the planes or artifacts of an observation with the observation
+     * primary key as a statement parameter.
+     * 
+     * @param c Plane or Artifact
+     * @param obsID observation primary key value
+     * @return parameterized select statement
+     */
+    public SelectStatement getSelectByObservationStatement(Class c, UUID obsID) {
+        List<Object> params = new ArrayList<>();
+        String sql = getSelectByObservationSQL(c, obsID, params);
+        return new SelectStatement(this, sql, params);
+    }
+    
+    private String getSelectByObservationSQL(Class c, UUID obsID, List<Object> params) {
+        if (!Plane.class.equals(c) && !Artifact.class.equals(c)) {
+            throw new UnsupportedOperationException("select-by-observation requires Plane or Artifact, called with: " + c.getName());
+        }
+        String alias = getAlias(c);
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        sb.append(getColumns(c, alias));
+        sb.append(" FROM ");
+        sb.append(getFrom(c));
+        sb.append(" WHERE ");
+        sb.append(alias).append(".obsID = ");
+        appendValue(sb, obsID, params);
+        sb.append(" ORDER BY ");
+        if (Artifact.class.equals(c)) {
+            sb.append(alias).append(".planeID,");
+        }
+        sb.append(alias).append(".").append(getPrimaryKeyColumn(c));
+        return sb.toString();
+    }
+
     // select batchSize instances of c, starting at minLastModified and in lastModified order
     public String getSelectSQL(Class c, Date minLastModified, Date maxLastModified, Integer batchSize) {
         return getSelectSQL(c, minLastModified, maxLastModified, batchSize, true, null);
@@ -694,6 +780,31 @@ public class SQLGenerator {
 
     
     public String getSelectSQL(Class c, Date minLastModified, Date maxLastModified, Integer batchSize, boolean ascending, String collection) {
+        return getSelectSQL(c, minLastModified, maxLastModified, batchSize, ascending, collection, null);
+    }
+    
+    /**
+     * Select batchSize instances of ObservationState or DeletedObservation in lastModified
+     * order with the collection and timestamp bounds as statement parameters. The SQL 
+     * only varies with which of the optional constraints are present.
+     * 
+     * @param c ObservationState or DeletedObservation
+     * @param minLastModified optional lower bound (inclusive)
+     * @param maxLastModified optional upper bound (inclusive)
+     * @param batchSize optional limit
+     * @param ascending true for ascending timestamp order
+     * @param collection optional collection
+     * @return parameterized select statement
+     */
+    public SelectStatement getSelectStatement(Class c, Date minLastModified, Date maxLastModified, Integer batchSize, 
+            boolean ascending, String collection) {
+        List<Object> params = new ArrayList<>();
+        String sql = getSelectSQL(c, minLastModified, maxLastModified, batchSize, ascending, collection, params);
+        return new SelectStatement(this, sql, params);
+    }
+    
+    private String getSelectSQL(Class c, Date minLastModified, Date maxLastModified, Integer batchSize, 
+            boolean ascending, String collection, List<Object> params) {
         if (ObservationState.class.equals(c) || DeletedObservation.class.equals(c)) {
             log.debug("getSelectSQL: " + c.getName() + " " + collection);
         } else {
@@ -722,21 +833,28 @@ public class SQLGenerator {
         if (collection != null) {
             sb.append(predCombine);
             predCombine = " AND ";
-            sb.append(alias).append(".collection = '").append(collection).append("'");
+            sb.append(alias).append(".collection = ");
+            appendValue(sb, collection, params);
         }
         if (minLastModified != null) {
             sb.append(predCombine);
             predCombine = " AND ";
-            sb.append(alias).append(".").append(lastModifiedColumn).append(" >= '");
-            sb.append(df.format(minLastModified));
-            sb.append("'");
+            sb.append(alias).append(".").append(lastModifiedColumn).append(" >= ");
+            if (params == null) {
+                sb.append("'").append(df.format(minLastModified)).append("'");
+            } else {
+                appendValue(sb, minLastModified, params);
+            }
         }
         if (maxLastModified != null) {
             sb.append(predCombine);
             predCombine = " AND ";
-            sb.append(alias).append(".").append(lastModifiedColumn).append(" <= '");
-            sb.append(df.format(maxLastModified));
-            sb.append("'");
+            sb.append(alias).append(".").append(lastModifiedColumn).append(" <= ");
+            if (params == null) {
+                sb.append("'").append(df.format(maxLastModified)).append("'");
+            } else {
+                appendValue(sb, maxLastModified, params);
+            }
         }
         sb.append(" ORDER BY ");
         sb.append(alias).append(".").append(lastModifiedColumn);
@@ -756,7 +874,25 @@ public class SQLGenerator {
     }
     
     public String getSelectSQL(Class clz, UUID id, boolean primaryKey) {
+        return getSelectSQL(clz, id, primaryKey, null);
+    }
+    
+    /**
+     * Select rows of a single table by primary or foreign key with the key as a 
+     * statement parameter.
+     * 
+     * @param clz entity, skeleton, or deleted entity class
+     * @param id primary or foreign key value
+     * @param primaryKey true to match primary key, false to match foreign key
+     * @return parameterized select statement
+     */
+    public SelectStatement getSelectStatement(Class clz, UUID id, boolean primaryKey) {
+        List<Object> params = new ArrayList<>();
+        String sql = getSelectSQL(clz, id, primaryKey, params);
+        return new SelectStatement(this, sql, params);
+    }
     
+    private String getSelectSQL(Class clz, UUID id, boolean primaryKey, List<Object> params) {
         StringBuilder sb = new StringBuilder();
         sb.append("SELECT ");
         String[] cols = columnMap.get(clz);
@@ -775,10 +911,184 @@ public class SQLGenerator {
             sb.append(getForeignKeyColumn(clz));
         }
         sb.append(" = ");
-        sb.append(literal(id));
+        appendValue(sb, id, params);
+        return sb.toString();
+    }
+    
+    /**
+     * Select rows matching any of the specified keys. The caller is responsible 
+     * for limiting the number of keys to something the database will accept.
+     * 
+     * @param clz entity or skeleton class
+     * @param ids primary or foreign key values
+     * @param primaryKey true to match primary key, false to match foreign key
+     * @return sql select statement
+     */
+    public String getSelectSQL(Class clz, Collection<UUID> ids, boolean primaryKey) {
+        return getSelectSQL(clz, ids, primaryKey, null);
+    }
+    
+    /**
+     * Select rows matching any of the specified keys with the keys as statement
+     * parameters. The SQL only varies with the number of keys so callers that
+     * use a fixed chunk size get a small number of distinct statements.
+     * 
+     * @param clz entity or skeleton class
+     * @param ids primary or foreign key values
+     * @param primaryKey true to match primary key, false to match foreign key
+     * @return parameterized select statement
+     */
+    public SelectStatement getSelectStatement(Class clz, Collection<UUID> ids, boolean primaryKey) {
+        List<Object> params = new ArrayList<>();
+        String sql = getSelectSQL(clz, ids, primaryKey, params);
+        return new SelectStatement(this, sql, params);
+    }
+    
+    private String getSelectSQL(Class clz, Collection<UUID> ids, boolean primaryKey, List<Object> params) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("ids cannot be null or empty");
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        String[] cols = columnMap.get(clz);
+        for (int c = 0; c < cols.length; c++) {
+            if (c > 0) {
+                sb.append(",");
+            }
+            sb.append(cols[c]);
+        }
+        sb.append(" FROM ");
+        sb.append(getTable(clz));
+        sb.append(" WHERE ");
+        if (primaryKey) {
+            sb.append(getPrimaryKeyColumn(clz));
+        } else {
+            sb.append(getForeignKeyColumn(clz));
+        }
+        sb.append(" IN (");
+        boolean first = true;
+        for (UUID id : ids) {
+            if (!first) {
+                sb.append(",");
+            }
+            appendValue(sb, id, params);
+            first = false;
+        }
+        sb.append(")");
         return sb.toString();
     }
     
+    /**
+     * Select the ObservationState of observations in a collection by observationID with the
+     * collection and observationIDs as statement parameters.
+     * 
+     * @param collection the collection
+     * @param observationIDs observationID values
+     * @return parameterized select statement
+     */
+    SelectStatement getSelectStatement(String collection, Collection<String> observationIDs) {
+        if (observationIDs == null || observationIDs.isEmpty()) {
+            throw new IllegalArgumentException("observationIDs cannot be null or empty");
+        }
+        List<Object> params = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        String[] cols = columnMap.get(ObservationState.class);
+        for (int c = 0; c < cols.length; c++) {
+            if (c > 0) {
+                sb.append(",");
+            }
+            sb.append(cols[c]);
+        }
+        sb.append(" FROM ").append(getTable(ObservationState.class));
+        sb.append(" WHERE collection = ");
+        appendValue(sb, collection, params);
+        sb.append(" AND observationID IN (");
+        boolean first = true;
+        for (String oid : observationIDs) {
+            if (!first) {
+                sb.append(",");
+            }
+            appendValue(sb, oid, params);
+            first = false;
+        }
+        sb.append(")");
+        return new SelectStatement(this, sb.toString(), params);
+    }
+    
+    // append a bind parameter placeholder or, if params is null, the literal value
+    private void appendValue(StringBuilder sb, Object val, List<Object> params) {
+        if (params == null) {
+            sb.append(literal(val));
+        } else {
+            sb.append("?");
+            params.add(val);
+        }
+    }
+    
+    /**
+     * Bind a select statement parameter. Subclasses may override to handle
+     * database-specific types.
+     * 
+     * @param ps prepared statement
+     * @param col parameter index
+     * @param val parameter value
+     * @throws SQLException failure to bind the value
+     */
+    protected void setParameter(PreparedStatement ps, int col, Object val) throws SQLException {
+        if (val instanceof UUID) {
+            safeSetUUID(null, ps, col, (UUID) val);
+        } else if (val instanceof Date) {
+            safeSetDate(null, ps, col, (Date) val, Calendar.getInstance(DateUtil.UTC));
+        } else if (val instanceof URI) {
+            safeSetURI(null, ps, col, (URI) val);
+        } else if (val instanceof String) {
+            safeSetString(null, ps, col, (String) val);
+        } else {
+            ps.setObject(col, val);
+        }
+    }
+    
+    /**
+     * Select statement with bind parameters. The SQL text depends only on the shape of
+     * the query and not on the values, so repeated queries re-use the prepared statement
+     * (and query plan) cached by the JDBC driver for the connection.
+     */
+    public static class SelectStatement implements PreparedStatementCreator {
+        private final SQLGenerator gen;
+        private final String sql;
+        private final List<Object> params;
+        
+        SelectStatement(SQLGenerator gen, String sql, List<Object> params) {
+            this.gen = gen;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        public String getSQL() {
+            return sql;
+        }
+
+        public List<Object> getParameters() {
+            return params;
+        }
+        
+        @Override
+        public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
+            PreparedStatement prep = conn.prepareStatement(sql);
+            int col = 1;
+            for (Object p : params) {
+                gen.setParameter(prep, col++, p);
+            }
+            return prep;
+        }
+
+        @Override
+        public String toString() {
+            return sql + " " + params;
+        }
+    }
+    
     protected String getSelectArtifactSQL() {
         StringBuilder sb = new StringBuilder();
         sb.append("SELECT ");
@@ -796,6 +1106,65 @@ public class SQLGenerator {
         return sb.toString();
     }
     
+    /**
+     * Select the artifact metadata needed to compare artifacts in a collection with
+     * storage: artifact uri, contentChecksum, contentLength, contentType, observationID, 
+     * productType, releaseType, plane dataRelease, and plane metaRelease in uri order. 
+     * The uri order is byte order (collation "C") so it matches ArtifactMetadata.getComparator()
+     * independent of the database collation. The collection is a statement parameter.
+     * 
+     * @return sql select statement
+     */
+    protected String getSelectArtifactMetadataSQL() {
+        String oa = getAlias(Observation.class);
+        StringBuilder sb = getSelectArtifactMetadata();
+        sb.append(" WHERE ").append(oa).append(".collection = ?");
+        sb.append(" ORDER BY ").append(getAlias(Artifact.class)).append(".uri COLLATE \"C\"");
+        return sb.toString();
+    }
+    
+    /**
+     * Get the artifact metadata query for a set of observations. The columns are the
+     * same as getSelectArtifactMetadataSQL() followed by the observation primary key.
+     * 
+     * @param numIDs number of observation ID parameters
+     * @return select statement with numIDs parameters
+     */
+    String getSelectArtifactMetadataSQL(int numIDs) {
+        String oa = getAlias(Observation.class);
+        StringBuilder sb = getSelectArtifactMetadata();
+        sb.insert(sb.indexOf(" FROM "), "," + oa + "." + getPrimaryKeyColumn(Observation.class));
+        sb.append(" WHERE ").append(oa).append(".").append(getPrimaryKeyColumn(Observation.class));
+        sb.append(" IN (");
+        appendParams(sb, numIDs);
+        sb.append(")");
+        sb.append(" ORDER BY ").append(getAlias(Artifact.class)).append(".uri COLLATE \"C\"");
+        return sb.toString();
+    }
+    
+    private StringBuilder getSelectArtifactMetadata() {
+        String aa = getAlias(Artifact.class);
+        String pa = getAlias(Plane.class);
+        String oa = getAlias(Observation.class);
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        sb.append(aa).append(".uri,");
+        sb.append(aa).append(".contentChecksum,");
+        sb.append(aa).append(".contentLength,");
+        sb.append(aa).append(".contentType,");
+        sb.append(oa).append(".observationID,");
+        sb.append(aa).append(".productType,");
+        sb.append(aa).append(".releaseType,");
+        sb.append(pa).append(".dataRelease,");
+        sb.append(pa).append(".metaRelease");
+        sb.append(" FROM ").append(getFrom(Artifact.class));
+        sb.append(" JOIN ").append(getFrom(Plane.class));
+        sb.append(" ON ").append(aa).append(".planeID = ").append(pa).append(".planeID");
+        sb.append(" JOIN ").append(getFrom(Observation.class));
+        sb.append(" ON ").append(pa).append(".obsID = ").append(oa).append(".obsID");
+        return sb;
+    }
+    
     protected String getTopConstraint(Integer batchSize) {
         return null;
     }
@@ -823,6 +1192,205 @@ public class SQLGenerator {
         return sb.toString();
     }
 
+    // delete by primary key or foreign key with a single ? parameter for use in batches
+    String getDeleteSQL(Class c, boolean primaryKey) {
+        if (Observation.class.isAssignableFrom(c)) {
+            c = Observation.class;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ");
+        sb.append(getTable(c));
+        sb.append(" WHERE ");
+        if (primaryKey) {
+            sb.append(getPrimaryKeyColumn(c));
+        } else {
+            sb.append(getForeignKeyColumn(c));
+        }
+        sb.append(" = ?");
+        return sb.toString();
+    }
+    
+    // lock multiple observations with numIDs ? parameters
+    String getUpdateLockSQL(int numIDs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("UPDATE ").append(getTable(Observation.class));
+        sb.append(" SET obsID = obsID WHERE obsID IN (");
+        appendParams(sb, numIDs);
+        sb.append(")");
+        return sb.toString();
+    }
+    
+    /**
+     * Get the statements that delete a set of observations and all of their children
+     * with one set-based delete per table, in child-first order. Each statement has
+     * numIDs observation ID parameters.
+     * 
+     * @param numIDs number of observation IDs
+     * @return delete statements in execution order
+     */
+    List<String> getBulkDeleteSQL(int numIDs) {
+        StringBuilder ids = new StringBuilder();
+        appendParams(ids, numIDs);
+        String planes = getSubSelect(Plane.class, ids.toString());
+        String artifacts = getSubSelect(Artifact.class, planes);
+        String parts = getSubSelect(Part.class, artifacts);
+        
+        List<String> ret = new ArrayList<>();
+        ret.add(getBulkDeleteSQL(Chunk.class, parts));
+        ret.add(getBulkDeleteSQL(Part.class, artifacts));
+        ret.add(getBulkDeleteSQL(Artifact.class, planes));
+        if (persistOptimisations) {
+            ret.add(getBulkDeleteSQL(ProvenanceInput.class, planes));
+        }
+        ret.add(getBulkDeleteSQL(Plane.class, ids.toString()));
+        if (persistOptimisations) {
+            ret.add(getBulkDeleteSQL(ObservationMember.class, ids.toString()));
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ").append(getTable(Observation.class));
+        sb.append(" WHERE ").append(getPrimaryKeyColumn(Observation.class));
+        sb.append(" IN (").append(ids).append(")");
+        ret.add(sb.toString());
+        return ret;
+    }
+
+    /**
+     * Select up to limit observation IDs in a collection in primary key order. The optional
+     * bounds select IDs in the range (minID, maxID] so that callers can walk a collection
+     * (or a partition of it) in bounded chunks.
+     *
+     * @param collection the collection
+     * @param minID exclusive lower bound, null for none
+     * @param maxID inclusive upper bound, null for none
+     * @param limit max number of IDs
+     * @return parameterized select statement
+     */
+    SelectStatement getSelectObservationIDStatement(String collection, UUID minID, UUID maxID, int limit) {
+        List<Object> params = new ArrayList<>();
+        String pk = getPrimaryKeyColumn(Observation.class);
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        String top = getTopConstraint(limit);
+        if (top != null && top.length() > 0) {
+            sb.append(top).append(" ");
+        }
+        sb.append(pk).append(" FROM ").append(getTable(Observation.class));
+        sb.append(" WHERE collection = ");
+        appendValue(sb, collection, params);
+        if (minID != null) {
+            sb.append(" AND ").append(pk).append(" > ");
+            appendValue(sb, minID, params);
+        }
+        if (maxID != null) {
+            sb.append(" AND ").append(pk).append(" <= ");
+            appendValue(sb, maxID, params);
+        }
+        sb.append(" ORDER BY ").append(pk);
+        String lim = getLimitConstraint(limit);
+        if (lim != null && lim.length() > 0) {
+            sb.append(" ").append(lim);
+        }
+        return new SelectStatement(this, sb.toString(), params);
+    }
+
+    /**
+     * Get the statements that record a DeletedObservation for each of a set of observations
+     * from the observation rows themselves. The first statement removes old tombstones with
+     * the same IDs; the second inserts the tombstones. Both have numIDs observation ID 
+     * parameters. Each row gets the server clock time (UTC) when it is inserted rather than
+     * the transaction start time, so that harvesting deletions in lastModified order can 
+     * page through a large set.
+     *
+     * @param numIDs number of observation IDs
+     * @return statements in execution order
+     */
+    List<String> getBulkTombstoneSQL(int numIDs) {
+        StringBuilder ids = new StringBuilder();
+        appendParams(ids, numIDs);
+        String[] cols = columnMap.get(DeletedObservation.class);
+
+        List<String> ret = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ").append(getTable(DeletedObservation.class));
+        sb.append(" WHERE ").append(getPrimaryKeyColumn(DeletedObservation.class));
+        sb.append(" IN (").append(ids).append(")");
+        ret.add(sb.toString());
+
+        // columns: collection, observationID, lastModified, id
+        sb = new StringBuilder();
+        sb.append("INSERT INTO ").append(getTable(DeletedObservation.class)).append(" (");
+        for (int i = 0; i < cols.length; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(cols[i]);
+        }
+        sb.append(") SELECT collection, observationID, clock_timestamp() AT TIME ZONE 'UTC', ");
+        sb.append(getPrimaryKeyColumn(Observation.class));
+        sb.append(" FROM ").append(getTable(Observation.class));
+        sb.append(" WHERE ").append(getPrimaryKeyColumn(Observation.class));
+        sb.append(" IN (").append(ids).append(")");
+        ret.add(sb.toString());
+        return ret;
+    }
+
+    /**
+     * Delete up to limit DeletedObservation rows in a collection with a single
+     * collection parameter.
+     *
+     * @param limit max number of rows
+     * @return delete statement
+     */
+    String getBulkDeleteDeletedObservationSQL(int limit) {
+        String pk = getPrimaryKeyColumn(DeletedObservation.class);
+        String tab = getTable(DeletedObservation.class);
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ").append(tab);
+        sb.append(" WHERE ").append(pk).append(" IN (SELECT ");
+        String top = getTopConstraint(limit);
+        if (top != null && top.length() > 0) {
+            sb.append(top).append(" ");
+        }
+        sb.append(pk).append(" FROM ").append(tab);
+        sb.append(" WHERE collection = ? ORDER BY ").append(pk);
+        String lim = getLimitConstraint(limit);
+        if (lim != null && lim.length() > 0) {
+            sb.append(" ").append(lim);
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    // select primary keys of c with foreign key in the parents list
+    private String getSubSelect(Class c, String parents) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ").append(getPrimaryKeyColumn(c));
+        sb.append(" FROM ").append(getTable(c));
+        sb.append(" WHERE ").append(getForeignKeyColumn(c));
+        sb.append(" IN (").append(parents).append(")");
+        return sb.toString();
+    }
+    
+    // delete c with foreign key in the parents list
+    private String getBulkDeleteSQL(Class c, String parents) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ").append(getTable(c));
+        sb.append(" WHERE ").append(getForeignKeyColumn(c));
+        sb.append(" IN (").append(parents).append(")");
+        return sb.toString();
+    }
+    
+    private void appendParams(StringBuilder sb, int num) {
+        if (num < 1) {
+            throw new IllegalArgumentException("number of parameters must be > 0: " + num);
+        }
+        for (int i = 0; i < num; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("?");
+        }
+    }
     
     public String getPrimaryKeyColumn(Class c) {
         if (Observation.class.isAssignableFrom(c)) {
@@ -946,6 +1514,140 @@ public class SQLGenerator {
         throw new UnsupportedOperationException();
     }
     
+    /**
+     * Get a batch put operation for child entities (Plane, Artifact, Part, Chunk). 
+     * The returned operation writes all accumulated values with a single JDBC batch;
+     * for Plane this includes the ProvenanceInput join table and optimisation columns.
+     * 
+     * @param c entity class
+     * @param isUpdate true for update, false for insert
+     * @return batch put operation
+     */
+    public EntityBatchPut getEntityBatchPut(Class<? extends CaomEntity> c, boolean isUpdate) {
+        if (Plane.class.equals(c) || Artifact.class.equals(c) || Part.class.equals(c) || Chunk.class.equals(c)) {
+            return new BaseEntityBatchPut(c, isUpdate);
+        }
+        throw new UnsupportedOperationException("no batch put for " + c.getName());
+    }
+    
+    // entity put that can load values into a statement it did not create
+    private interface BatchableEntityPut<T extends CaomEntity> extends EntityPut<T> {
+        
+        void loadValues(PreparedStatement ps) throws SQLException;
+    }
+    
+    private class BaseEntityBatchPut implements EntityBatchPut<CaomEntity> {
+        
+        private final Class<? extends CaomEntity> clz;
+        private final boolean update;
+        private final List<BatchableEntityPut> ops = new ArrayList<BatchableEntityPut>();
+        
+        BaseEntityBatchPut(Class<? extends CaomEntity> c, boolean update) {
+            this.clz = c;
+            this.update = update;
+        }
+
+        @Override
+        public void addValue(CaomEntity value, List<CaomEntity> parents) {
+            BatchableEntityPut op = (BatchableEntityPut) getEntityPut(clz, update);
+            // parents is a stack that changes as the caller walks the tree
+            op.setValue(value, new ArrayList<CaomEntity>(parents));
+            ops.add(op);
+        }
+
+        @Override
+        public int size() {
+            return ops.size();
+        }
+        
+        @Override
+        public void execute(JdbcTemplate jdbc) {
+            if (ops.isEmpty()) {
+                return;
+            }
+            String sql = null;
+            if (update) {
+                sql = getUpdateSQL(clz);
+            } else {
+                sql = getInsertSQL(clz);
+            }
+            log.debug(sql + " [batch " + ops.size() + "]");
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ops.get(i).loadValues(ps);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return ops.size();
+                }
+            });
+            
+            if (persistOptimisations && Plane.class.equals(clz)) {
+                List<PlanePut> puts = new ArrayList<PlanePut>(ops.size());
+                for (BatchableEntityPut op : ops) {
+                    puts.add((PlanePut) op);
+                }
+                putPlaneOptimisations(jdbc, puts);
+            }
+        }
+    }
+    
+    /**
+     * Get a PostgreSQL COPY statement that reads CSV rows for the table of the specified
+     * class (entity or join table) from STDIN. The columns are in the same order as the
+     * insert statement so rows can be rendered from the values bound by loadInsertValues.
+     *
+     * @param clz entity or join table class
+     * @return COPY statement
+     */
+    public String getCopySQL(Class clz) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("COPY ");
+        sb.append(getTable(clz));
+        sb.append(" (");
+        String[] cols = columnMap.get(clz);
+        for (int c = 0; c < cols.length; c++) {
+            if (c > 0) {
+                sb.append(",");
+            }
+            sb.append(cols[c]);
+        }
+        sb.append(") FROM STDIN WITH (FORMAT csv)");
+        return sb.toString();
+    }
+
+    /**
+     * Bind the values of an insert for the specified entity or join tuple. This uses the
+     * same code as the insert path so values written some other way (e.g. COPY) are identical.
+     *
+     * @param ps statement to bind values to
+     * @param val Observation, Plane, Artifact, Part, Chunk, ObservationMember, or ProvenanceInput
+     * @param parents parent stack, immediate parent first
+     * @throws SQLException
+     */
+    void loadInsertValues(PreparedStatement ps, Object val, List<CaomEntity> parents)
+            throws SQLException {
+        if (val instanceof Observation) {
+            ObservationPut op = new ObservationPut(false);
+            op.setValue((Observation) val, null);
+            op.loadValuesObservation(ps);
+        } else if (val instanceof ObservationMember) {
+            ObservationPut op = new ObservationPut(false);
+            op.setValue((Observation) parents.get(0), null);
+            op.setValue((ObservationMember) val);
+            op.loadValuesMember(ps);
+        } else if (val instanceof ProvenanceInput) {
+            loadValuesInput(ps, (ProvenanceInput) val);
+        } else {
+            CaomEntity ce = (CaomEntity) val;
+            BatchableEntityPut op = (BatchableEntityPut) getEntityPut(ce.getClass(), false);
+            op.setValue(ce, parents);
+            op.loadValues(ps);
+        }
+    }
+
     public static class ArtifactGet implements PreparedStatementCreator {
         private SQLGenerator gen;
         private URI uri;
@@ -1090,7 +1792,6 @@ public class SQLGenerator {
         boolean update;
         Observation obs;
         
-        boolean insertMembers = false;
         boolean deleteMembers = false;
         ObservationMember member;
 
@@ -1102,7 +1803,7 @@ public class SQLGenerator {
         // 1. insert/update observation
         // 2. delete previous ObservationMember join tuples
         // composite only:
-        // 3. insert current ObservationMember join tuples
+        // 3. insert current ObservationMember join tuples in a single batch
         @Override
         public void execute(JdbcTemplate jdbc) {
             jdbc.update(this);
@@ -1116,13 +1817,28 @@ public class SQLGenerator {
             deleteMembers = false;
                 
             if (obs instanceof DerivedObservation) {
-                insertMembers = true;
                 DerivedObservation co = (DerivedObservation) obs;
+                final List<ObservationMember> members = new ArrayList<ObservationMember>();
                 for (ObservationURI uri : co.getMembers()) {
-                    setValue(new ObservationMember(co.getID(), uri));
-                    jdbc.update(this);
+                    members.add(new ObservationMember(co.getID(), uri));
+                }
+                if (!members.isEmpty()) {
+                    String sql = getInsertSQL(ObservationMember.class);
+                    log.debug(sql + " [batch " + members.size() + "]");
+                    jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            setValue(members.get(i));
+                            loadValuesMember(ps);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return members.size();
+                        }
+                    });
+                    member = null;
                 }
-                insertMembers = false;
             }
         }
 
@@ -1140,8 +1856,6 @@ public class SQLGenerator {
             String sql = null;
             if (deleteMembers) {
                 sql = getDeleteSQL(ObservationMember.class, obs.getID(), false); // delete by FK aka first column
-            } else if (insertMembers) {
-                sql = getInsertSQL(ObservationMember.class);
             } else if (update) {
                 sql = getUpdateSQL(Observation.class);
             } else {
@@ -1151,8 +1865,6 @@ public class SQLGenerator {
             log.debug(sql);
             if (deleteMembers) {
                 // no values
-            } else if (insertMembers) {
-                loadValuesMember(prep);
             } else {
                 loadValuesObservation(prep);
             }
@@ -1329,19 +2041,12 @@ public class SQLGenerator {
         }
     }
 
-    private class PlanePut implements EntityPut<Plane>, PreparedStatementCreator {
+    private class PlanePut implements BatchableEntityPut<Plane>, PreparedStatementCreator {
 
         private boolean update;
         private Plane plane;
         private List<CaomEntity> parents;
 
-        private boolean deleteInputs = false;
-        private boolean insertInputs = false;
-        private ProvenanceInput input;
-
-        private boolean doOpt = false;
-        private Class childClass = null;
-
         PlanePut(boolean update) {
             this.update = update;
         }
@@ -1353,31 +2058,10 @@ public class SQLGenerator {
             if (!persistOptimisations) {
                 return;
             }
-
-            deleteInputs = true;
-            jdbc.update(this);
-            deleteInputs = false;
-            
-            if (plane.provenance != null) {
-                insertInputs = true;
-                for (PlaneURI uri : plane.provenance.getInputs()) {
-                    input = new ProvenanceInput(plane.getID(), uri);
-                    jdbc.update(this);
-                }
-                input = null;
-                insertInputs = false;
-            }
             
-            doOpt = true;
-            
-            childClass = Artifact.class;
-            jdbc.update(this);
-
-            childClass = Part.class;
-            jdbc.update(this);
-
-            childClass = Chunk.class;
-            jdbc.update(this);
+            List<PlanePut> puts = new ArrayList<PlanePut>(1);
+            puts.add(this);
+            putPlaneOptimisations(jdbc, puts);
         }
 
         
@@ -1389,35 +2073,20 @@ public class SQLGenerator {
         
         public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
             String sql = null;
-            if (deleteInputs) {
-                sql = getDeleteSQL(ProvenanceInput.class, plane.getID(), false); // delete by FK
-            } else if (insertInputs) {
-                sql = getInsertSQL(ProvenanceInput.class);
-            } else if (doOpt) {
-                sql = getUpdateChildOptimisationSQL(childClass);
-            } else {
-                if (update) {
-                    sql = getUpdateSQL(Plane.class);
-                } else {
-                    sql = getInsertSQL(Plane.class);
-                }
-            } 
+            if (update) {
+                sql = getUpdateSQL(Plane.class);
+            } else {
+                sql = getInsertSQL(Plane.class);
+            }
 
             PreparedStatement prep = conn.prepareStatement(sql);
             log.debug(sql);
-            if (deleteInputs) {
-                // no values to set
-            } else if (insertInputs) {
-                loadValuesInput(prep);
-            } else if (doOpt) {
-                loadValuesForOpt(prep);
-            } else {
-                loadValues(prep);
-            }
+            loadValues(prep);
             return prep;
         }
 
-        private void loadValues(PreparedStatement ps)
+        @Override
+        public void loadValues(PreparedStatement ps)
                 throws SQLException {
             if (plane == null) {
                 throw new IllegalStateException("null observation");
@@ -1696,47 +2365,112 @@ public class SQLGenerator {
             }
         }
 
-        private void loadValuesInput(PreparedStatement ps)
-                throws SQLException {
-            StringBuilder sb = null;
-            if (log.isDebugEnabled()) {
-                sb = new StringBuilder();
+    }
+
+    // delete and re-insert ProvenanceInput join tuples and update optimisation
+    // columns in child tables, with one batch per statement for all planes
+    private void putPlaneOptimisations(JdbcTemplate jdbc, final List<PlanePut> puts) {
+        String sql = getDeleteSQL(ProvenanceInput.class, false); // delete by FK
+        log.debug(sql + " [batch " + puts.size() + "]");
+        jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UUID id = puts.get(i).plane.getID();
+                if (useLongForUUID) {
+                    safeSetLongUUID(null, ps, 1, id);
+                } else {
+                    safeSetUUID(null, ps, 1, id);
+                }
             }
 
-            int col = 1;
-            if (useLongForUUID) {
-                safeSetLongUUID(sb, ps, col++, input.getOutputID());
-            } else {
-                safeSetUUID(sb, ps, col++, input.getOutputID());
+            @Override
+            public int getBatchSize() {
+                return puts.size();
             }
-            safeSetURI(sb, ps, col++, input.getInputID().getURI());
-            if (sb != null) {
-                log.debug(sb.toString());
+        });
+
+        final List<ProvenanceInput> inputs = new ArrayList<ProvenanceInput>();
+        for (PlanePut pp : puts) {
+            if (pp.plane.provenance != null) {
+                for (PlaneURI uri : pp.plane.provenance.getInputs()) {
+                    inputs.add(new ProvenanceInput(pp.plane.getID(), uri));
+                }
             }
         }
-        
-        private void loadValuesForOpt(PreparedStatement ps)
-                throws SQLException {
-            StringBuilder sb = null;
-            if (log.isDebugEnabled()) {
-                sb = new StringBuilder();
-            }
+        if (!inputs.isEmpty()) {
+            sql = getInsertSQL(ProvenanceInput.class);
+            log.debug(sql + " [batch " + inputs.size() + "]");
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    loadValuesInput(ps, inputs.get(i));
+                }
 
-            int col = 1;
-            safeSetDate(sb, ps, col++, Util.truncate(plane.metaRelease), utcCalendar);
-            if (useLongForUUID) {
-                safeSetLongUUID(sb, ps, col++, plane.getID());
-            } else {
-                safeSetUUID(sb, ps, col++, plane.getID());
-            }
+                @Override
+                public int getBatchSize() {
+                    return inputs.size();
+                }
+            });
+        }
 
-            if (sb != null) {
-                log.debug(sb.toString());
-            }
+        Class[] childClasses = new Class[] { Artifact.class, Part.class, Chunk.class };
+        for (Class childClass : childClasses) {
+            sql = getUpdateChildOptimisationSQL(childClass);
+            log.debug(sql + " [batch " + puts.size() + "]");
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    loadValuesForOpt(ps, puts.get(i).plane);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return puts.size();
+                }
+            });
+        }
+    }
+
+    private void loadValuesInput(PreparedStatement ps, ProvenanceInput input)
+            throws SQLException {
+        StringBuilder sb = null;
+        if (log.isDebugEnabled()) {
+            sb = new StringBuilder();
+        }
+
+        int col = 1;
+        if (useLongForUUID) {
+            safeSetLongUUID(sb, ps, col++, input.getOutputID());
+        } else {
+            safeSetUUID(sb, ps, col++, input.getOutputID());
+        }
+        safeSetURI(sb, ps, col++, input.getInputID().getURI());
+        if (sb != null) {
+            log.debug(sb.toString());
+        }
+    }
+
+    private void loadValuesForOpt(PreparedStatement ps, Plane plane)
+            throws SQLException {
+        StringBuilder sb = null;
+        if (log.isDebugEnabled()) {
+            sb = new StringBuilder();
+        }
+
+        int col = 1;
+        safeSetDate(sb, ps, col++, Util.truncate(plane.metaRelease), utcCalendar);
+        if (useLongForUUID) {
+            safeSetLongUUID(sb, ps, col++, plane.getID());
+        } else {
+            safeSetUUID(sb, ps, col++, plane.getID());
+        }
+
+        if (sb != null) {
+            log.debug(sb.toString());
         }
     }
 
-    private class ArtifactPut implements EntityPut<Artifact>, PreparedStatementCreator {
+    private class ArtifactPut implements BatchableEntityPut<Artifact>, PreparedStatementCreator {
 
         private boolean update;
         private Artifact artifact;
@@ -1771,7 +2505,8 @@ public class SQLGenerator {
             return prep;
         }
 
-        private void loadValues(PreparedStatement ps)
+        @Override
+        public void loadValues(PreparedStatement ps)
                 throws SQLException {
             if (artifact == null) {
                 throw new IllegalStateException("null artifact");
@@ -1835,7 +2570,7 @@ public class SQLGenerator {
         }
     }
 
-    private class PartPut implements EntityPut<Part>, PreparedStatementCreator {
+    private class PartPut implements BatchableEntityPut<Part>, PreparedStatementCreator {
 
         private boolean update;
         private Part part;
@@ -1867,7 +2602,8 @@ public class SQLGenerator {
             return prep;
         }
 
-        private void loadValues(PreparedStatement ps)
+        @Override
+        public void loadValues(PreparedStatement ps)
                 throws SQLException {
             if (part == null) {
                 throw new IllegalStateException("null part");
@@ -1931,7 +2667,7 @@ public class SQLGenerator {
         }
     }
 
-    private class ChunkPut implements EntityPut<Chunk>, PreparedStatementCreator {
+    private class ChunkPut implements BatchableEntityPut<Chunk>, PreparedStatementCreator {
 
         private boolean update;
         private Chunk chunk;
@@ -1963,7 +2699,8 @@ public class SQLGenerator {
             return prep;
         }
 
-        private void loadValues(PreparedStatement ps)
+        @Override
+        public void loadValues(PreparedStatement ps)
                 throws SQLException {
             if (chunk == null) {
                 throw new IllegalStateException("null chunk");
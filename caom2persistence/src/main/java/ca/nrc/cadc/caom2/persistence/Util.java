@@ -70,6 +70,7 @@
 package ca.nrc.cadc.caom2.persistence;
 
 import ca.nrc.cadc.caom2.Artifact;
+import ca.nrc.cadc.caom2.CaomEntity;
 import ca.nrc.cadc.caom2.Chunk;
 import ca.nrc.cadc.caom2.DeletedEntity;
 import ca.nrc.cadc.caom2.Part;
@@ -92,6 +93,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -498,6 +500,20 @@ public class Util extends CaomUtil {
         }
     }
 
+    /**
+     * Get the IDs of a collection of entities for constant time membership checks.
+     * 
+     * @param entities collection of entities
+     * @return set of entity IDs
+     */
+    public static Set<UUID> getIDs(Collection<? extends CaomEntity> entities) {
+        Set<UUID> ret = new HashSet<>(entities.size() * 4 / 3 + 1);
+        for (CaomEntity e : entities) {
+            ret.add(e.getID());
+        }
+        return ret;
+    }
+
     public static Plane findPlane(Set<Plane> set, UUID id) {
         for (Plane e : set) {
             if (e.getID().equals(id)) {
@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.persistence.skel;
 import ca.nrc.cadc.caom2.Artifact;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  *
@@ -81,8 +83,25 @@ public class ArtifactSkeleton extends Skeleton {
 
     public List<PartSkeleton> parts = new ArrayList<PartSkeleton>();
 
+    private Map<UUID, PartSkeleton> partsIndex;
+
     public ArtifactSkeleton() {
         super(Artifact.class);
     }
 
+    /**
+     * Find a part by id.
+     * Lookups use the index built when the skeleton was loaded; see buildIndex().
+     * 
+     * @param id child id
+     * @return the child skeleton or null if not found
+     */
+    public PartSkeleton getPart(UUID id) {
+        return findChild(partsIndex, parts, id);
+    }
+    
+    @Override
+    public void buildIndex() {
+        partsIndex = index(parts);
+    }
 }
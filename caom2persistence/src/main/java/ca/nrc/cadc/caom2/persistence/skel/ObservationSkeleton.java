@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.persistence.skel;
 import ca.nrc.cadc.caom2.Observation;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  *
@@ -81,8 +83,25 @@ public class ObservationSkeleton extends Skeleton {
 
     public List<PlaneSkeleton> planes = new ArrayList<PlaneSkeleton>();
 
+    private Map<UUID, PlaneSkeleton> planesIndex;
+
     public ObservationSkeleton() {
         super(Observation.class);
     }
 
+    /**
+     * Find a plane by id.
+     * Lookups use the index built when the skeleton was loaded; see buildIndex().
+     * 
+     * @param id child id
+     * @return the child skeleton or null if not found
+     */
+    public PlaneSkeleton getPlane(UUID id) {
+        return findChild(planesIndex, planes, id);
+    }
+    
+    @Override
+    public void buildIndex() {
+        planesIndex = index(planes);
+    }
 }
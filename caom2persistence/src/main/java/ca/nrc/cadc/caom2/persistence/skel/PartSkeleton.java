@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.persistence.skel;
 import ca.nrc.cadc.caom2.Part;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  *
@@ -81,8 +83,25 @@ public class PartSkeleton extends Skeleton {
 
     public List<ChunkSkeleton> chunks = new ArrayList<ChunkSkeleton>();
 
+    private Map<UUID, ChunkSkeleton> chunksIndex;
+
     public PartSkeleton() {
         super(Part.class);
     }
 
+    /**
+     * Find a chunk by id.
+     * Lookups use the index built when the skeleton was loaded; see buildIndex().
+     * 
+     * @param id child id
+     * @return the child skeleton or null if not found
+     */
+    public ChunkSkeleton getChunk(UUID id) {
+        return findChild(chunksIndex, chunks, id);
+    }
+    
+    @Override
+    public void buildIndex() {
+        chunksIndex = index(chunks);
+    }
 }
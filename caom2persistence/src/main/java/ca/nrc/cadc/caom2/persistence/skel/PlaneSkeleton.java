@@ -72,6 +72,8 @@ package ca.nrc.cadc.caom2.persistence.skel;
 import ca.nrc.cadc.caom2.Plane;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  *
@@ -81,8 +83,25 @@ public class PlaneSkeleton extends Skeleton {
 
     public List<ArtifactSkeleton> artifacts = new ArrayList<ArtifactSkeleton>();
 
+    private Map<UUID, ArtifactSkeleton> artifactsIndex;
+
     public PlaneSkeleton() {
         super(Plane.class);
     }
 
+    /**
+     * Find a artifact by id.
+     * Lookups use the index built when the skeleton was loaded; see buildIndex().
+     * 
+     * @param id child id
+     * @return the child skeleton or null if not found
+     */
+    public ArtifactSkeleton getArtifact(UUID id) {
+        return findChild(artifactsIndex, artifacts, id);
+    }
+    
+    @Override
+    public void buildIndex() {
+        artifactsIndex = index(artifacts);
+    }
 }
@@ -71,6 +71,9 @@ package ca.nrc.cadc.caom2.persistence.skel;
 
 import java.net.URI;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -97,4 +100,35 @@ public class Skeleton {
     public String toString() {
         return getClass().getSimpleName() + "[" + id + "," + lastModified + "," + metaChecksum + "]";
     }
+    
+    /**
+     * Build the ID-keyed maps of the child skeletons of this skeleton and its descendants.
+     * The DAO calls this once, when the complete skeleton has been loaded; the skeleton 
+     * is not modified after that.
+     */
+    public void buildIndex() {
+        // no children
+    }
+    
+    static <T extends Skeleton> Map<UUID, T> index(List<T> children) {
+        Map<UUID, T> ret = new HashMap<>(children.size() * 4 / 3 + 1);
+        for (T c : children) {
+            ret.put(c.id, c);
+            c.buildIndex();
+        }
+        return ret;
+    }
+    
+    // use the index if it was built, otherwise scan the list (skeleton built by hand)
+    static <T extends Skeleton> T findChild(Map<UUID, T> index, List<T> children, UUID id) {
+        if (index != null) {
+            return index.get(id);
+        }
+        for (T c : children) {
+            if (id.equals(c.id)) {
+                return c;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.persistence;
+
+import ca.nrc.cadc.util.Log4jInit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.security.auth.Subject;
+import javax.security.auth.x500.X500Principal;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author pdowler
+ */
+public class DecisionCacheTest {
+    private static final Logger log = Logger.getLogger(DecisionCacheTest.class);
+
+    static {
+        Log4jInit.setLevel("ca.nrc.cadc.caom2", Level.INFO);
+    }
+    
+    @Test
+    public void testTTL() {
+        try {
+            final AtomicLong now = new AtomicLong(1000L);
+            DecisionCache cache = new DecisionCache(10, 200L, 50L, now::get);
+            cache.put("allow", true);
+            cache.put("deny", false);
+            Assert.assertEquals(Boolean.TRUE, cache.get("allow"));
+            Assert.assertEquals(Boolean.FALSE, cache.get("deny"));
+            Assert.assertNull(cache.get("other"));
+            Assert.assertEquals(2, cache.getHits());
+            Assert.assertEquals(1, cache.getMisses());
+            
+            now.addAndGet(49L);
+            Assert.assertEquals("negative still cached", Boolean.FALSE, cache.get("deny"));
+            
+            now.addAndGet(1L);
+            Assert.assertEquals("positive still cached", Boolean.TRUE, cache.get("allow"));
+            Assert.assertNull("negative expired", cache.get("deny"));
+            
+            now.addAndGet(150L);
+            Assert.assertNull("positive expired", cache.get("allow"));
+            Assert.assertEquals(0, cache.size());
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testPurge() {
+        try {
+            final AtomicLong now = new AtomicLong(1000L);
+            DecisionCache cache = new DecisionCache(10, 200L, 50L, now::get);
+            cache.put("allow", true);
+            cache.put("deny", false);
+            Assert.assertEquals(2, cache.size());
+            
+            now.addAndGet(100L);
+            cache.purge();
+            Assert.assertEquals(1, cache.size());
+            Assert.assertEquals(Boolean.TRUE, cache.get("allow"));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testMaxSize() {
+        try {
+            DecisionCache cache = new DecisionCache(3, 10000L, 10000L);
+            cache.put("a", true);
+            cache.put("b", true);
+            cache.put("c", true);
+            Assert.assertNotNull(cache.get("a")); // a is now most recently used
+            cache.put("d", true);
+            Assert.assertEquals(3, cache.size());
+            Assert.assertEquals(1, cache.getEvictions());
+            Assert.assertNull("least recently used evicted", cache.get("b"));
+            Assert.assertNotNull(cache.get("a"));
+            Assert.assertNotNull(cache.get("c"));
+            Assert.assertNotNull(cache.get("d"));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+    
+    @Test
+    public void testCallerKey() {
+        try {
+            Assert.assertEquals("", DecisionCache.getCallerKey(null));
+            
+            Subject s1 = new Subject();
+            s1.getPrincipals().add(new X500Principal("CN=alice"));
+            s1.getPrincipals().add(new X500Principal("CN=alias"));
+            Subject s2 = new Subject();
+            s2.getPrincipals().add(new X500Principal("CN=alias"));
+            s2.getPrincipals().add(new X500Principal("CN=alice"));
+            Assert.assertEquals("order independent", DecisionCache.getCallerKey(s1), DecisionCache.getCallerKey(s2));
+            
+            Subject s3 = new Subject();
+            s3.getPrincipals().add(new X500Principal("CN=bob"));
+            Assert.assertNotEquals(DecisionCache.getCallerKey(s1), DecisionCache.getCallerKey(s3));
+        } catch (Exception unexpected) {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+}
@@ -77,11 +77,13 @@ import ca.nrc.cadc.caom2.ObservationState;
 import ca.nrc.cadc.caom2.ObservationURI;
 import ca.nrc.cadc.caom2.Part;
 import ca.nrc.cadc.caom2.Plane;
+import ca.nrc.cadc.caom2.SimpleObservation;
 import ca.nrc.cadc.date.DateUtil;
 import ca.nrc.cadc.util.Log4jInit;
 import java.net.URI;
 import java.text.DateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -327,4 +329,107 @@ public class SQLGeneratorTest
             Assert.fail("unexpected exception: " + unexpected);
         }
     }
+
+    @Test
+    public void testSelectStatementStableSQL()
+    {
+        try
+        {
+            Date d2 = new Date();
+            Date d1 = new Date(d2.getTime() - 3600 * 1000L); // one hour ago
+            Date d3 = new Date(d1.getTime() - 3600 * 1000L);
+            SQLGenerator.SelectStatement s1 = gen.getSelectStatement(ObservationState.class, d1, d2, 100, true, "FOO");
+            SQLGenerator.SelectStatement s2 = gen.getSelectStatement(ObservationState.class, d3, d1, 100, true, "BAR");
+            log.info("SQL: " + s1);
+            Assert.assertEquals(s1.getSQL(), s2.getSQL());
+            Assert.assertFalse(s1.getSQL().contains("FOO"));
+            Assert.assertEquals(3, s1.getParameters().size());
+            Assert.assertEquals("FOO", s1.getParameters().get(0));
+            Assert.assertEquals(d1, s1.getParameters().get(1));
+            Assert.assertEquals(d2, s1.getParameters().get(2));
+            
+            UUID id1 = new UUID(0L, 666L);
+            UUID id2 = new UUID(0L, 777L);
+            for (int i = 1; i < clz.length; i++)
+            {
+                s1 = gen.getSelectStatement(clz[i], id1, true);
+                s2 = gen.getSelectStatement(clz[i], id2, true);
+                log.debug("SQL: " + s1);
+                Assert.assertEquals(s1.getSQL(), s2.getSQL());
+                Assert.assertFalse(s1.getSQL().contains(id1.toString()));
+                Assert.assertEquals(id1, s1.getParameters().get(0));
+            }
+            
+            ObservationURI uri = new ObservationURI("FOO", "bar");
+            s1 = gen.getSelectStatement(uri, SQLGenerator.MAX_DEPTH, false);
+            s2 = gen.getSelectStatement(new ObservationURI("FOO", "baz"), SQLGenerator.MAX_DEPTH, false);
+            Assert.assertEquals(s1.getSQL(), s2.getSQL());
+            Assert.assertEquals(2, s1.getParameters().size());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testBulkDeleteSQL()
+    {
+        try
+        {
+            List<String> sql = gen.getBulkDeleteSQL(3);
+            for (String s : sql)
+            {
+                log.debug("SQL: " + s);
+                Assert.assertTrue(s, s.startsWith("DELETE FROM "));
+                Assert.assertTrue(s, s.contains("IN (?,?,?)"));
+                Assert.assertEquals(s, 3, s.length() - s.replace("?", "").length());
+            }
+            // child first
+            Assert.assertTrue(sql.get(0).startsWith("DELETE FROM " + tables[4]));
+            Assert.assertTrue(sql.get(sql.size() - 1).startsWith("DELETE FROM " + tables[0]));
+            Assert.assertEquals(5, sql.size());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testCopyRow()
+    {
+        try
+        {
+            String sql = gen.getCopySQL(Observation.class);
+            log.debug("SQL: " + sql);
+            Assert.assertTrue(sql, sql.startsWith("COPY " + tables[0] + " ("));
+            Assert.assertTrue(sql, sql.endsWith(") FROM STDIN WITH (FORMAT csv)"));
+            
+            Observation obs = new SimpleObservation("FOO", "bar\"baz");
+            CopyRow row = new CopyRow(null);
+            gen.loadInsertValues(row.getStatement(), obs, null);
+            StringBuilder sb = new StringBuilder();
+            row.write(sb);
+            String csv = sb.toString();
+            log.debug("CSV: " + csv);
+            Assert.assertTrue(csv, csv.endsWith("\n"));
+            Assert.assertTrue(csv, csv.contains(",\"FOO\",\"bar\"\"baz\","));
+            Assert.assertTrue(csv, csv.contains("\"" + obs.getID().toString() + "\""));
+            // unquoted empty value is NULL
+            Assert.assertTrue(csv, csv.contains(",,"));
+            
+            // cleared after write
+            sb = new StringBuilder();
+            row.write(sb);
+            Assert.assertEquals("\n", sb.toString());
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ ************************************************************************
+ *******************  CANADIAN ASTRONOMY DATA CENTRE  *******************
+ **************  CENTRE CANADIEN DE DONNÉES ASTRONOMIQUES  **************
+ *
+ *  (c) 2026.                            (c) 2026.
+ *  Government of Canada                 Gouvernement du Canada
+ *  National Research Council            Conseil national de recherches
+ *  Ottawa, Canada, K1A 0R6              Ottawa, Canada, K1A 0R6
+ *  All rights reserved                  Tous droits réservés
+ *
+ *  NRC disclaims any warranties,        Le CNRC dénie toute garantie
+ *  expressed, implied, or               énoncée, implicite ou légale,
+ *  statutory, of any kind with          de quelque nature que ce
+ *  respect to the software,             soit, concernant le logiciel,
+ *  including without limitation         y compris sans restriction
+ *  any warranty of merchantability      toute garantie de valeur
+ *  or fitness for a particular          marchande ou de pertinence
+ *  purpose. NRC shall not be            pour un usage particulier.
+ *  liable in any event for any          Le CNRC ne pourra en aucun cas
+ *  damages, whether direct or           être tenu responsable de tout
+ *  indirect, special or general,        dommage, direct ou indirect,
+ *  consequential or incidental,         particulier ou général,
+ *  arising from the use of the          accessoire ou fortuit, résultant
+ *  software.  Neither the name          de l'utilisation du logiciel. Ni
+ *  of the National Research             le nom du Conseil National de
+ *  Council of Canada nor the            Recherches du Canada ni les noms
+ *  names of its contributors may        de ses  participants ne peuvent
+ *  be used to endorse or promote        être utilisés pour approuver ou
+ *  products derived from this           promouvoir les produits dérivés
+ *  software without specific prior      de ce logiciel sans autorisation
+ *  written permission.                  préalable et particulière
+ *                                       par écrit.
+ *
+ *  This file is part of the             Ce fichier fait partie du projet
+ *  OpenCADC project.                    OpenCADC.
+ *
+ *  OpenCADC is free software:           OpenCADC est un logiciel libre ;
+ *  you can redistribute it and/or       vous pouvez le redistribuer ou le
+ *  modify it under the terms of         modifier suivant les termes de
+ *  the GNU Affero General Public        la “GNU Affero General Public
+ *  License as published by the          License” telle que publiée
+ *  Free Software Foundation,            par la Free Software Foundation
+ *  either version 3 of the              : soit la version 3 de cette
+ *  License, or (at your option)         licence, soit (à votre gré)
+ *  any later version.                   toute version ultérieure.
+ *
+ *  OpenCADC is distributed in the       OpenCADC est distribué
+ *  hope that it will be useful,         dans l’espoir qu’il vous
+ *  but WITHOUT ANY WARRANTY;            sera utile, mais SANS AUCUNE
+ *  without even the implied             GARANTIE : sans même la garantie
+ *  warranty of MERCHANTABILITY          implicite de COMMERCIALISABILITÉ
+ *  or FITNESS FOR A PARTICULAR          ni d’ADÉQUATION À UN OBJECTIF
+ *  PURPOSE.  See the GNU Affero         PARTICULIER. Consultez la Licence
+ *  General Public License for           Générale Publique GNU Affero
+ *  more details.                        pour plus de détails.
+ *
+ *  You should have received             Vous devriez avoir reçu une
+ *  a copy of the GNU Affero             copie de la Licence Générale
+ *  General Public License along         Publique GNU Affero avec
+ *  with OpenCADC.  If not, see          OpenCADC ; si ce n’est
+ *  <http://www.gnu.org/licenses/>.      pas le cas, consultez :
+ *                                       <http://www.gnu.org/licenses/>.
+ *
+ *  $Revision: 4 $
+ *
+ ************************************************************************
+ */
+
+package ca.nrc.cadc.caom2.persistence.skel;
+
+import ca.nrc.cadc.caom2.persistence.Util;
+import ca.nrc.cadc.util.Log4jInit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author pdowler
+ */
+public class SkeletonTest
+{
+    private static final Logger log = Logger.getLogger(SkeletonTest.class);
+
+    static
+    {
+        Log4jInit.setLevel("ca.nrc.cadc.caom2", Level.INFO);
+    }
+
+    @Test
+    public void testFindChild()
+    {
+        try
+        {
+            ObservationSkeleton o = new ObservationSkeleton();
+            o.id = UUID.randomUUID();
+            PlaneSkeleton p = new PlaneSkeleton();
+            p.id = UUID.randomUUID();
+            o.planes.add(p);
+            ArtifactSkeleton a = new ArtifactSkeleton();
+            a.id = UUID.randomUUID();
+            p.artifacts.add(a);
+            PartSkeleton pa = new PartSkeleton();
+            pa.id = UUID.randomUUID();
+            a.parts.add(pa);
+            ChunkSkeleton c = new ChunkSkeleton();
+            c.id = UUID.randomUUID();
+            pa.chunks.add(c);
+
+            // not indexed: lookup scans the child list
+            Assert.assertSame(p, o.getPlane(p.id));
+            Assert.assertSame(a, p.getArtifact(a.id));
+            Assert.assertSame(pa, a.getPart(pa.id));
+            Assert.assertSame(c, pa.getChunk(c.id));
+            Assert.assertNull(o.getPlane(UUID.randomUUID()));
+
+            // index built by the loader covers all descendants
+            o.buildIndex();
+            Assert.assertSame(p, o.getPlane(p.id));
+            Assert.assertSame(a, p.getArtifact(a.id));
+            Assert.assertSame(pa, a.getPart(pa.id));
+            Assert.assertSame(c, pa.getChunk(c.id));
+            Assert.assertNull(o.getPlane(UUID.randomUUID()));
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+
+    @Test
+    public void testWideTreeBenchmark()
+    {
+        try
+        {
+            int[] widths = { 10, 100, 1000, 5000 };
+            for (int n : widths)
+            {
+                PartSkeleton part = new PartSkeleton();
+                part.id = UUID.randomUUID();
+                List<UUID> ids = new ArrayList<UUID>();
+                for (int i = 0; i < n; i++)
+                {
+                    ChunkSkeleton c = new ChunkSkeleton();
+                    c.id = UUID.randomUUID();
+                    part.chunks.add(c);
+                    ids.add(c.id);
+                }
+
+                // pair every child: the pattern used by put and updateEntity
+                long t = System.nanoTime();
+                for (UUID id : ids)
+                {
+                    Assert.assertNotNull(Util.findChunkSkel(part.chunks, id));
+                }
+                long scan = System.nanoTime() - t;
+
+                t = System.nanoTime();
+                part.buildIndex();
+                for (UUID id : ids)
+                {
+                    Assert.assertNotNull(part.getChunk(id));
+                }
+                long indexed = System.nanoTime() - t;
+
+                log.info("testWideTreeBenchmark: chunks=" + n
+                    + " scan=" + (scan / 1000L) + "us indexed=" + (indexed / 1000L) + "us");
+            }
+        }
+        catch(Exception unexpected)
+        {
+            log.error("unexpected exception", unexpected);
+            Assert.fail("unexpected exception: " + unexpected);
+        }
+    }
+}
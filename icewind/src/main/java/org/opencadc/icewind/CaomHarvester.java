@@ -71,6 +71,7 @@ package org.opencadc.icewind;
 
 import ca.nrc.cadc.caom2.DeletedObservation;
 import ca.nrc.cadc.caom2.harvester.state.HarvestState;
+import ca.nrc.cadc.caom2.harvester.state.PartitionHarvester;
 import ca.nrc.cadc.caom2.version.InitDatabase;
 import ca.nrc.cadc.db.ConnectionConfig;
 import ca.nrc.cadc.db.DBUtil;
@@ -79,11 +80,23 @@ import java.io.File;
 import java.net.URI;
 import java.util.Date;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
 import org.apache.log4j.Logger;
 
 /**
- * A wrapper that calls the Harvester implementations in the right order.
+ * A wrapper that calls the Harvester implementations in the right order. Collections
+ * are harvested concurrently by a fixed number of workers; each collection has its
+ * own idle backoff and a collection with a large backlog can be configured to yield to 
+ * waiting collections after maxBatches.
  *
  * @author pdowler
  */
@@ -107,6 +120,29 @@ public class CaomHarvester implements Runnable {
     // hack option
     String retryErrorMessagePattern;
     
+    // optional: number of threads validating observations ahead of the writer
+    int validateThreads = 1;
+    
+    // optional: max observations and time (ms) per transaction
+    int groupCommitSize = 1;
+    long groupCommitMillis = 5000L;
+    
+    // optional: number of concurrent partitions of the maxLastModified range
+    int partitions = 1;
+    
+    // optional: number of collections harvested concurrently
+    int collectionThreads = 1;
+    
+    // optional: max batches per collection turn before yielding to other collections (0: no limit)
+    int maxBatches = 0;
+    
+    // optional: write batches of new observations with COPY
+    boolean bulkLoad = false;
+    
+    // optional: max concurrent destination database writers across collections
+    int maxConnections = Integer.MAX_VALUE;
+    private Semaphore connections;
+    
     /**
      * Harvest everything.
      *
@@ -162,6 +198,14 @@ public class CaomHarvester implements Runnable {
             throw new RuntimeException("FATAL - failed to load ERFALib JNI binding", t);
         }
 
+        if (collectionThreads < 1) {
+            throw new IllegalArgumentException("invalid collectionThreads: " + collectionThreads + " must be > 0");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("invalid maxConnections: " + maxConnections + " must be > 0");
+        }
+        this.connections = new Semaphore(maxConnections, true);
+        
         boolean init = false;
         if (initdb != null) {
             boolean created = initdb.doInit();
@@ -171,56 +215,218 @@ public class CaomHarvester implements Runnable {
             log.info("InitDatabase: OK");
         }
 
-        long sleep = 0;
-        boolean done = false;
-        while (!done) {
-            int ingested = 0;
-            for (String collection : collections) {
-                log.info(src.getIdentifier(collection) + " -> " + dest.getIdentifier(collection));
-
-                ObservationHarvester obsHarvester = new ObservationHarvester(src, dest, collection, basePublisherID, batchSize,
-                        nthreads, full, nochecksum);
-                obsHarvester.setSkipped(skip, retryErrorMessagePattern);
-
-                DeletionHarvester obsDeleter = new DeletionHarvester(DeletedObservation.class, src, dest,
-                        collection, batchSize * 100);
-                boolean initDel = init;
-                if (!init) {
-                    // check if we have ever harvested before
-                    HarvestState hs = obsHarvester.harvestStateDAO.get(obsHarvester.source, obsHarvester.cname);
-                    initDel = (hs.curID == null && hs.curLastModified == null); // never harvested
+        final boolean initDB = init;
+        ExecutorService pool = Executors.newFixedThreadPool(collectionThreads);
+        CompletionService<CollectionState> completed = new ExecutorCompletionService<>(pool);
+        PriorityQueue<CollectionState> queue = new PriorityQueue<>();
+        long seq = 0;
+        for (String collection : collections) {
+            queue.add(new CollectionState(collection, seq++));
+        }
+        int running = 0;
+        try {
+            while (!queue.isEmpty() || running > 0) {
+                // start all due collections while there are free workers
+                long now = System.currentTimeMillis();
+                while (running < collectionThreads && !queue.isEmpty() && queue.peek().nextRun <= now) {
+                    final CollectionState cs = queue.poll();
+                    completed.submit(() -> harvestCollection(cs, initDB));
+                    running++;
+                }
+                
+                long wait = Long.MAX_VALUE;
+                if (running < collectionThreads && !queue.isEmpty()) {
+                    wait = Math.max(1L, queue.peek().nextRun - now);
+                }
+                Future<CollectionState> f;
+                if (running > 0) {
+                    f = completed.poll(wait, TimeUnit.MILLISECONDS);
+                } else {
+                    log.info("idle sleep: " + (wait / 1000L) + " sec");
+                    Thread.sleep(wait);
+                    f = null;
                 }
+                if (f == null) {
+                    continue;
+                }
+                running--;
+                CollectionState cs = getResult(f);
+                if (exitWhenComplete && cs.complete) {
+                    log.info(cs.collection + " exitWhenComplete=" + exitWhenComplete + ": DONE");
+                } else if (exitWhenComplete && cs.aborted) {
+                    log.error(cs.collection + " exitWhenComplete=" + exitWhenComplete + ": FAILED");
+                } else {
+                    cs.seq = seq++; // back of the line among collections that are due
+                    queue.add(cs);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Thread sleep interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        log.info("exitWhenComplete=" + exitWhenComplete + ": DONE");
+    }
+    
+    private CollectionState getResult(Future<CollectionState> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("collection harvest failed", cause);
+        }
+    }
+    
+    // one collection failing must not stop the others: log it and back off
+    private CollectionState harvestCollection(CollectionState cs, boolean init) throws InterruptedException {
+        try {
+            return harvest(cs, init);
+        } catch (RuntimeException ex) {
+            log.error(cs.collection + " harvest failed", ex);
+            schedule(cs, false, true, 0);
+            log.info("collection: " + cs.collection + " aborted idle=" + (cs.sleep / 1000L) + "sec");
+            return cs;
+        }
+    }
+    
+    // one turn for one collection: deletions then observations 
+    private CollectionState harvest(CollectionState cs, boolean init) throws InterruptedException {
+        final String collection = cs.collection;
+        log.info(src.getIdentifier(collection) + " -> " + dest.getIdentifier(collection));
+
+        ObservationHarvester obsHarvester;
+        DeletionHarvester obsDeleter;
+        synchronized (this) {
+            // harvesters create shared JNDI DataSource(s) on first use
+            obsHarvester = createObservationHarvester(collection);
+            obsDeleter = new DeletionHarvester(DeletedObservation.class, src, dest, collection, batchSize * 100);
+        }
+        boolean partitioned = (partitions > 1 && !skip && !full);
+        if (!partitioned && !skip && !full) {
+            // a fresh harvester resumes from the stored HarvestState next turn
+            obsHarvester.setMaxBatches(maxBatches);
+        }
 
-                try {
-                    // delete observations before harvest to avoid observationURI conflicts from delete+create
-                    obsDeleter.setInitHarvestState(initDel);
-                    obsDeleter.run();
+        boolean initDel = init;
+        if (!init) {
+            // check if we have ever harvested before
+            HarvestState hs = obsHarvester.harvestStateDAO.get(obsHarvester.source, obsHarvester.cname);
+            initDel = (hs.curID == null && hs.curLastModified == null); // never harvested
+        }
 
-                    // harvest observations
-                    obsHarvester.run();
-                    ingested += obsHarvester.getIngested();
-                } catch (TransientException e) {
-                    ingested = 0;
-                }
+        int permits = Math.min(partitioned ? partitions : 1, maxConnections);
+        connections.acquire(permits);
+        int ingested = 0;
+        boolean complete;
+        boolean aborted;
+        try {
+            // delete observations before harvest to avoid observationURI conflicts from delete+create
+            obsDeleter.setInitHarvestState(initDel);
+            obsDeleter.run();
+
+            // harvest observations
+            if (partitioned) {
+                PartitionHarvester ph = new PartitionHarvester(obsHarvester, 
+                    () -> createObservationHarvester(collection), partitions);
+                ph.run();
+                ingested = ph.getIngested();
+                complete = ph.isComplete();
+                aborted = ph.isAborted();
+            } else {
+                obsHarvester.run();
+                ingested = obsHarvester.getIngested();
+                complete = obsHarvester.isComplete();
+                aborted = obsHarvester.isAborted();
             }
+        } catch (TransientException e) {
+            log.warn(collection + " harvest failed: " + e.getMessage());
+            ingested = 0;
+            complete = false;
+            aborted = true; // back off
+        } finally {
+            connections.release(permits);
+        }
 
-            if (this.exitWhenComplete) {
-                log.info("exitWhenComplete=" + exitWhenComplete + ": DONE");
-                done = true;
+        // lag: newest source maxLastModified - harvested curLastModified
+        Long lag = null;
+        if (!skip) {
+            if (complete) {
+                lag = 0L;
             } else {
-                if (ingested > 0 || sleep == 0) {
-                    sleep = DEFAULT_IDLE_TIME;
-                } else {
-                    sleep = Math.min(sleep * 2, maxIdle * 1000L);
-                }
-                try {
-                    log.info("idle sleep: " + (sleep / 1000L) + " sec");
-                    Thread.sleep(sleep);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException("Thread sleep interrupted", e);
+                HarvestState hs = obsHarvester.harvestStateDAO.get(obsHarvester.source, obsHarvester.cname);
+                Date end = obsHarvester.getSourceEnd();
+                if (hs.curLastModified != null && end != null) {
+                    lag = Math.max(0L, end.getTime() - hs.curLastModified.getTime());
                 }
             }
         }
+        
+        schedule(cs, complete, aborted, ingested);
+        log.info("collection: " + collection + " ingested=" + ingested + " complete=" + complete + " aborted=" + aborted
+            + " lag=" + (lag == null ? "unknown" : (lag / 1000L) + "sec") + " idle=" + (cs.sleep / 1000L) + "sec");
+        return cs;
+    }
+    
+    // set the next run of a collection after a turn
+    private void schedule(CollectionState cs, boolean complete, boolean aborted, int ingested) {
+        cs.complete = complete && !aborted;
+        cs.aborted = aborted;
+        if (aborted) {
+            // failed: back off so a collection that keeps failing does not spin
+            if (cs.sleep == 0) {
+                cs.sleep = DEFAULT_IDLE_TIME;
+            } else {
+                cs.sleep = Math.min(cs.sleep * 2, maxIdle * 1000L);
+            }
+        } else if (!complete) {
+            // more to do: run again as soon as a worker is free
+            cs.sleep = 0L;
+        } else if (ingested > 0 || cs.sleep == 0) {
+            cs.sleep = DEFAULT_IDLE_TIME;
+        } else {
+            cs.sleep = Math.min(cs.sleep * 2, maxIdle * 1000L);
+        }
+        cs.nextRun = System.currentTimeMillis() + cs.sleep;
+    }
+    
+    // scheduling state of one collection: ordered by next run time, then by position in line
+    private static class CollectionState implements Comparable<CollectionState> {
+        final String collection;
+        long seq;
+        long nextRun = 0L;
+        long sleep = 0L;
+        boolean complete = false;
+        boolean aborted = false;
+        
+        CollectionState(String collection, long seq) {
+            this.collection = collection;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(CollectionState rhs) {
+            int ret = Long.compare(nextRun, rhs.nextRun);
+            if (ret == 0) {
+                ret = Long.compare(seq, rhs.seq);
+            }
+            return ret;
+        }
+    }
+    
+    private ObservationHarvester createObservationHarvester(String collection) {
+        ObservationHarvester ret = new ObservationHarvester(src, dest, collection, basePublisherID, batchSize,
+                nthreads, full, nochecksum);
+        ret.setSkipped(skip, retryErrorMessagePattern);
+        ret.setValidateThreads(validateThreads);
+        ret.setGroupCommit(groupCommitSize, groupCommitMillis);
+        ret.setBulkLoad(bulkLoad);
+        return ret;
     }
 
 }
@@ -80,10 +80,12 @@ import ca.nrc.cadc.db.ConnectionConfig;
 import ca.nrc.cadc.db.DBUtil;
 import ca.nrc.cadc.db.TransactionManager;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.UUID;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 import org.apache.log4j.Logger;
@@ -96,6 +98,8 @@ import org.apache.log4j.Logger;
 public class DeletionHarvester extends Harvester implements Runnable {
 
     private static final Logger log = Logger.getLogger(DeletionHarvester.class);
+    
+    static final int DEFAULT_DELETE_BATCH_SIZE = 1000;
 
     private DeletedEntityDAO deletedDAO;
     private RepoClient repoClient;
@@ -104,6 +108,7 @@ public class DeletionHarvester extends Harvester implements Runnable {
     private boolean initHarvestState;
     private Date initDate;
     private boolean ready = false;
+    private int deleteBatchSize = DEFAULT_DELETE_BATCH_SIZE;
 
     /**
      * Constructor.
@@ -120,6 +125,18 @@ public class DeletionHarvester extends Harvester implements Runnable {
         init();
     }
 
+    /**
+     * Set the number of deletions processed in a single transaction. With a value greater
+     * than 1, existing observations are found with one query per batch, deleted with set-based 
+     * deletes, and the harvest state is updated once per batch. If a batch fails, the deletions
+     * in that batch are retried one per transaction.
+     * 
+     * @param deleteBatchSize deletions per transaction (default: 1000)
+     */
+    public void setDeleteBatchSize(int deleteBatchSize) {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
     /**
      * Initialise harvest state with the current date.
      *
@@ -299,58 +316,24 @@ public class DeletionHarvester extends Harvester implements Runnable {
 
             ret.found = entityList.size();
             log.info("found: " + entityList.size());
-            ListIterator<DeletedObservation> iter = entityList.listIterator();
-            while (iter.hasNext()) {
-                DeletedObservation de = iter.next();
-                iter.remove(); // allow garbage collection asap
-                log.debug("Observation read from deletion end-point: " + de.getID() + " date = "
-                        + de.lastModified);
-
-                txnManager.startTransaction();
-                boolean ok = false;
-                try {
-                    state.curLastModified = de.lastModified;
-                    state.curID = de.getID();
-
-                    ObservationState cur = obsDAO.getState(de.getID());
-                    if (cur != null) {
-                        log.debug("Observation: " + de.getID() + " found in DB");
-                        Date lastUpdate = cur.getMaxLastModified();
-                        Date deleted = de.lastModified;
-                        log.debug("to be deleted: " + de.getClass().getSimpleName() + " " + de.getURI() + " "
-                                + de.getID() + "deleted date " + format(de.lastModified)
-                                + " modified date " + format(cur.getMaxLastModified()));
-                        if (deleted.after(lastUpdate)) {
-                            log.info("delete: " + de.getClass().getSimpleName() + " " + de.getURI() + " "
-                                    + de.getID() + " " + format(de.lastModified));
-                            obsDAO.delete(de.getID());
-                            ret.deleted++;
-                        } else {
-                            log.info("skip out-of-date delete: " + de.getClass().getSimpleName() + " "
-                                    + de.getURI() + " " + de.getID() + " " + format(de.lastModified));
-                            ret.skipped++;
+            if (deleteBatchSize > 1) {
+                int i = 0;
+                while (i < entityList.size()) {
+                    List<DeletedObservation> batch = entityList.subList(i, Math.min(i + deleteBatchSize, entityList.size()));
+                    if (!deleteBatch(batch, state, ret)) {
+                        log.warn("batch delete failed: retrying " + batch.size() + " deletions individually");
+                        for (DeletedObservation de : batch) {
+                            deleteOne(de, state, ret);
                         }
-                    } else {
-                        log.debug("Observation: " + de.getID() + " not found in DB");
-                    }
-
-                    // track progress
-                    harvestStateDAO.put(state);
-
-                    log.debug("committing transaction");
-                    txnManager.commitTransaction();
-                    log.debug("commit: OK");
-                    ok = true;
-
-                } catch (Throwable t) {
-                    log.error("unexpected exception", t);
-                } finally {
-                    if (!ok) {
-                        log.warn("failed to process " + de + ": trying to rollback the transaction");
-                        txnManager.rollbackTransaction();
-                        log.warn("rollback: OK");
-                        ret.abort = true;
                     }
+                    i += batch.size();
+                }
+            } else {
+                ListIterator<DeletedObservation> iter = entityList.listIterator();
+                while (iter.hasNext()) {
+                    DeletedObservation de = iter.next();
+                    iter.remove(); // allow garbage collection asap
+                    deleteOne(de, state, ret);
                 }
             }
             if (ret.found < expectedNum) {
@@ -385,6 +368,122 @@ public class DeletionHarvester extends Harvester implements Runnable {
         return ret;
     }
 
+    // delete one observation and update the harvest state in one transaction
+    private void deleteOne(DeletedObservation de, HarvestState state, Progress ret) {
+        log.debug("Observation read from deletion end-point: " + de.getID() + " date = "
+                + de.lastModified);
+
+        txnManager.startTransaction();
+        boolean ok = false;
+        try {
+            state.curLastModified = de.lastModified;
+            state.curID = de.getID();
+
+            ObservationState cur = obsDAO.getState(de.getID());
+            if (cur != null) {
+                log.debug("Observation: " + de.getID() + " found in DB");
+                Date lastUpdate = cur.getMaxLastModified();
+                Date deleted = de.lastModified;
+                log.debug("to be deleted: " + de.getClass().getSimpleName() + " " + de.getURI() + " "
+                        + de.getID() + "deleted date " + format(de.lastModified)
+                        + " modified date " + format(cur.getMaxLastModified()));
+                if (deleted.after(lastUpdate)) {
+                    log.info("delete: " + de.getClass().getSimpleName() + " " + de.getURI() + " "
+                            + de.getID() + " " + format(de.lastModified));
+                    obsDAO.delete(de.getID());
+                    ret.deleted++;
+                } else {
+                    log.info("skip out-of-date delete: " + de.getClass().getSimpleName() + " "
+                            + de.getURI() + " " + de.getID() + " " + format(de.lastModified));
+                    ret.skipped++;
+                }
+            } else {
+                log.debug("Observation: " + de.getID() + " not found in DB");
+            }
+
+            // track progress
+            harvestStateDAO.put(state);
+
+            log.debug("committing transaction");
+            txnManager.commitTransaction();
+            log.debug("commit: OK");
+            ok = true;
+
+        } catch (Throwable t) {
+            log.error("unexpected exception", t);
+        } finally {
+            if (!ok) {
+                log.warn("failed to process " + de + ": trying to rollback the transaction");
+                txnManager.rollbackTransaction();
+                log.warn("rollback: OK");
+                ret.abort = true;
+            }
+        }
+    }
+    
+    // find existing observations with one query, delete them with set-based deletes, and
+    // update the harvest state once in one transaction; false if the transaction failed
+    private boolean deleteBatch(List<DeletedObservation> batch, HarvestState state, Progress ret) {
+        final Date prevLastModified = state.curLastModified;
+        final UUID prevID = state.curID;
+        int deleted = 0;
+        int skipped = 0;
+        
+        txnManager.startTransaction();
+        boolean ok = false;
+        try {
+            List<UUID> ids = new ArrayList<>(batch.size());
+            for (DeletedObservation de : batch) {
+                ids.add(de.getID());
+            }
+            Map<UUID, ObservationState> existing = obsDAO.getStates(ids);
+            log.debug("batch: " + batch.size() + " found in DB: " + existing.size());
+            
+            List<ObservationState> toDelete = new ArrayList<>();
+            for (DeletedObservation de : batch) {
+                ObservationState cur = existing.get(de.getID());
+                if (cur == null) {
+                    continue;
+                }
+                if (de.lastModified.after(cur.getMaxLastModified())) {
+                    log.info("delete: " + de.getClass().getSimpleName() + " " + de.getURI() + " "
+                            + de.getID() + " " + format(de.lastModified));
+                    toDelete.add(cur);
+                    existing.remove(de.getID()); // a later entry for the same ID finds nothing to delete
+                    deleted++;
+                } else {
+                    log.info("skip out-of-date delete: " + de.getClass().getSimpleName() + " "
+                            + de.getURI() + " " + de.getID() + " " + format(de.lastModified));
+                    skipped++;
+                }
+            }
+            obsDAO.delete(toDelete);
+            
+            // track progress
+            DeletedObservation last = batch.get(batch.size() - 1);
+            state.curLastModified = last.lastModified;
+            state.curID = last.getID();
+            harvestStateDAO.put(state);
+
+            log.debug("committing transaction");
+            txnManager.commitTransaction();
+            log.debug("commit: OK");
+            ok = true;
+            ret.deleted += deleted;
+            ret.skipped += skipped;
+        } catch (Throwable t) {
+            log.error("unexpected exception", t);
+        } finally {
+            if (!ok) {
+                txnManager.rollbackTransaction();
+                log.warn("rollback: OK");
+                state.curLastModified = prevLastModified;
+                state.curID = prevID;
+            }
+        }
+        return ok;
+    }
+
     /**
      * detects loops
      *
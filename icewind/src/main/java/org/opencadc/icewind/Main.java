@@ -105,6 +105,14 @@ public class Main {
     private static final String MAX_IDLE_CONFIG_KEY = CONFIG_PREFIX + ".maxIdle";
     private static final String BATCH_SIZE_CONFIG_KEY = CONFIG_PREFIX + ".batchSize";
     private static final String NUM_THREADS_CONFIG_KEY = CONFIG_PREFIX + ".numThreads";
+    private static final String VALIDATE_THREADS_CONFIG_KEY = CONFIG_PREFIX + ".validateThreads";
+    private static final String GROUP_COMMIT_SIZE_CONFIG_KEY = CONFIG_PREFIX + ".groupCommitSize";
+    private static final String GROUP_COMMIT_MILLIS_CONFIG_KEY = CONFIG_PREFIX + ".groupCommitMillis";
+    private static final String PARTITIONS_CONFIG_KEY = CONFIG_PREFIX + ".partitions";
+    private static final String COLLECTION_THREADS_CONFIG_KEY = CONFIG_PREFIX + ".collectionThreads";
+    private static final String MAX_BATCHES_CONFIG_KEY = CONFIG_PREFIX + ".maxBatches";
+    private static final String MAX_CONNECTIONS_CONFIG_KEY = CONFIG_PREFIX + ".maxConnections";
+    private static final String BULK_LOAD_CONFIG_KEY = CONFIG_PREFIX + ".bulkLoad";
     private static final String DB_URL_CONFIG_KEY = CONFIG_PREFIX + ".caom.url";
     private static final String DB_SCHEMA_CONFIG_KEY = CONFIG_PREFIX + ".caom.schema";
     private static final String DB_USERNAME_CONFIG_KEY = CONFIG_PREFIX + ".caom.username";
@@ -245,6 +253,39 @@ public class Main {
                                                         full, retrySkipped, noChecksum, exitWhenComplete, maxSleep);
             harvester.retryErrorMessagePattern = errorMessagePattern;
             
+            String configValidateThreads = props.getFirstPropertyValue(VALIDATE_THREADS_CONFIG_KEY);
+            if (configValidateThreads != null) {
+                harvester.validateThreads = Integer.parseInt(configValidateThreads);
+            }
+            String configGroupCommitSize = props.getFirstPropertyValue(GROUP_COMMIT_SIZE_CONFIG_KEY);
+            if (configGroupCommitSize != null) {
+                harvester.groupCommitSize = Integer.parseInt(configGroupCommitSize);
+            }
+            String configGroupCommitMillis = props.getFirstPropertyValue(GROUP_COMMIT_MILLIS_CONFIG_KEY);
+            if (configGroupCommitMillis != null) {
+                harvester.groupCommitMillis = Long.parseLong(configGroupCommitMillis);
+            }
+            String configPartitions = props.getFirstPropertyValue(PARTITIONS_CONFIG_KEY);
+            if (configPartitions != null) {
+                harvester.partitions = Integer.parseInt(configPartitions);
+            }
+            String configCollectionThreads = props.getFirstPropertyValue(COLLECTION_THREADS_CONFIG_KEY);
+            if (configCollectionThreads != null) {
+                harvester.collectionThreads = Integer.parseInt(configCollectionThreads);
+            }
+            String configMaxBatches = props.getFirstPropertyValue(MAX_BATCHES_CONFIG_KEY);
+            if (configMaxBatches != null) {
+                harvester.maxBatches = Integer.parseInt(configMaxBatches);
+            }
+            String configMaxConnections = props.getFirstPropertyValue(MAX_CONNECTIONS_CONFIG_KEY);
+            if (configMaxConnections != null) {
+                harvester.maxConnections = Integer.parseInt(configMaxConnections);
+            }
+            String configBulkLoad = props.getFirstPropertyValue(BULK_LOAD_CONFIG_KEY);
+            if (configBulkLoad != null) {
+                harvester.bulkLoad = Boolean.parseBoolean(configBulkLoad);
+            }
+            
             Subject subject = AuthenticationUtil.getAnonSubject();
             File cert = new File(CERTIFICATE_FILE_LOCATION);
             if (cert.exists()) {
@@ -81,12 +81,15 @@ import ca.nrc.cadc.caom2.compute.CaomWCSValidator;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURI;
 import ca.nrc.cadc.caom2.harvester.state.HarvestSkipURIDAO;
 import ca.nrc.cadc.caom2.harvester.state.HarvestState;
+import ca.nrc.cadc.caom2.harvester.state.HarvestStateDAO;
+import ca.nrc.cadc.caom2.harvester.state.PartitionHarvester;
 import ca.nrc.cadc.caom2.persistence.ObservationDAO;
 import ca.nrc.cadc.caom2.repo.client.RepoClient;
 import ca.nrc.cadc.caom2.util.CaomValidator;
 import ca.nrc.cadc.caom2.xml.ObservationWriter;
 import ca.nrc.cadc.db.ConnectionConfig;
 import ca.nrc.cadc.db.DBUtil;
+import ca.nrc.cadc.db.TransactionManager;
 import ca.nrc.cadc.net.ResourceNotFoundException;
 import ca.nrc.cadc.net.TransientException;
 import java.net.URI;
@@ -98,11 +101,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 import org.apache.log4j.Logger;
@@ -113,7 +125,7 @@ import org.springframework.jdbc.BadSqlGrammarException;
  *
  * @author pdowler
  */
-public class ObservationHarvester extends Harvester {
+public class ObservationHarvester extends Harvester implements PartitionHarvester.Worker {
 
     private static final Logger log = Logger.getLogger(ObservationHarvester.class);
 
@@ -127,6 +139,21 @@ public class ObservationHarvester extends Harvester {
     private boolean ready = false;
     private int ingested = 0;
     private String errorMessagePattern;
+    private int validateThreads = 1;
+    private ExecutorService validateExecutor;
+    private int groupCommitSize = 1;
+    private long groupCommitMillis = 0L;
+    private int maxBatches = 0;
+    private boolean bulkLoad = false;
+    
+    // HarvestState name: normally cname but a partition of the range has its own state
+    private String stateName;
+    private boolean complete = false;
+    private boolean aborted = false;
+    
+    // per batch stage timing
+    private final AtomicLong timeValidate = new AtomicLong();
+    private final AtomicLong timeValidateWait = new AtomicLong();
 
     public ObservationHarvester(HarvesterResource src, HarvesterResource dest, String collection, URI basePublisherID,
                                 Integer batchSize, int nthreads, boolean full, boolean nochecksum) {
@@ -145,10 +172,59 @@ public class ObservationHarvester extends Harvester {
         this.errorMessagePattern = errorMessagePattern;
     }
     
+    @Override
     public int getIngested() {
         return this.ingested;
     }
 
+    /**
+     * Set the number of threads used to validate observations ahead of the (single)
+     * writer. With 0 observations are validated by the writer thread.
+     * 
+     * @param validateThreads number of validation threads (default: 1)
+     */
+    public void setValidateThreads(int validateThreads) {
+        this.validateThreads = validateThreads;
+    }
+
+    /**
+     * Enable group commit: up to groupCommitSize observations are put in a single transaction
+     * with one HarvestState update, until the transaction has been open for groupCommitMillis. 
+     * If any put or the commit fails, the group is rolled back and each observation is retried 
+     * in its own transaction. Group commit is not used when retrying skipped observations.
+     * 
+     * @param groupCommitSize max observations per transaction (default: 1)
+     * @param groupCommitMillis max time (ms) before committing a partial group
+     */
+    public void setGroupCommit(int groupCommitSize, long groupCommitMillis) {
+        this.groupCommitSize = groupCommitSize;
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    /**
+     * Limit the number of batches in a single run so a collection with a large backlog
+     * yields to other collections. A run that stops at the limit is not complete and 
+     * the next run resumes from the stored HarvestState.
+     * 
+     * @param maxBatches max batches per run, 0 for no limit (default: 0)
+     */
+    public void setMaxBatches(int maxBatches) {
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Enable bulk load: a batch of observations that do not exist in the destination is 
+     * written with PostgreSQL COPY in a single transaction with one HarvestState update.
+     * A batch that contains errors, invalid or existing observations, or that fails to load 
+     * is put one observation at a time as usual. This is intended for the initial population
+     * of an empty collection.
+     * 
+     * @param bulkLoad true to enable bulk load (default: false)
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
     private void init(int nthreads) {
         this.srcRepoClient = new RepoClient(src.getResourceID(), nthreads);
         // TODO: make these configurable
@@ -187,6 +263,7 @@ public class ObservationHarvester extends Harvester {
             destObservationDAO.setOrigin(false); // copy as-is
         }
         initHarvestState(destObservationDAO.getDataSource(), Observation.class);
+        this.stateName = cname;
         
         if (srcRepoClient.isObsAvailable()) {
             ready = true;
@@ -195,6 +272,86 @@ public class ObservationHarvester extends Harvester {
         }
     }
 
+    @Override
+    public void setHarvestStateName(String stateName) {
+        this.stateName = stateName;
+    }
+    
+    @Override
+    public String getHarvestStateName() {
+        return stateName;
+    }
+    
+    @Override
+    public Date getMaxDate() {
+        return maxDate;
+    }
+    
+    @Override
+    public String getSource() {
+        return source;
+    }
+    
+    @Override
+    public HarvestStateDAO getHarvestStateDAO() {
+        return harvestStateDAO;
+    }
+    
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    // not complete, but no point retrying right away
+    @Override
+    public boolean isAborted() {
+        return aborted;
+    }
+    
+    @Override
+    public TransactionManager getTransactionManager() {
+        return destObservationDAO.getTransactionManager();
+    }
+    
+    @Override
+    public Date getSourceStart(Date end) {
+        List<ObservationState> first;
+        if (srcObservationDAO != null) {
+            first = srcObservationDAO.getObservationList(collection, null, end, 1);
+        } else {
+            first = srcRepoClient.getObservationList(collection, null, end, 1);
+        }
+        if (first == null || first.isEmpty()) {
+            return null;
+        }
+        return first.get(0).maxLastModified;
+    }
+    
+    // find the maxLastModified of the newest observation in the source, null if unknown
+    Date getSourceEnd() {
+        ObservationState last;
+        if (srcObservationDAO != null) {
+            List<ObservationState> states = srcObservationDAO.getObservationList(collection, null, null, 1, false);
+            last = (states == null || states.isEmpty() ? null : states.get(0));
+        } else {
+            last = srcRepoClient.getLatestState(collection);
+        }
+        if (last == null) {
+            return null;
+        }
+        return last.maxLastModified;
+    }
+    
+    // the DAOs use the shared JNDI DataSource so only the source client and validation threads are released
+    @Override
+    public void close() {
+        if (validateExecutor != null) {
+            validateExecutor.shutdownNow();
+            validateExecutor = null;
+        }
+        srcRepoClient.close();
+    }
+
     private String format(UUID id) {
         if (id == null) {
             return "null";
@@ -204,23 +361,44 @@ public class ObservationHarvester extends Harvester {
 
     @Override
     public void run() {
-        boolean go = true;
-        while (go) {
-            Progress num = doit();
+        if (validateThreads > 0) {
+            this.validateExecutor = Executors.newFixedThreadPool(validateThreads);
+        }
+        this.complete = false;
+        this.aborted = false;
+        try {
+            boolean go = true;
+            boolean abort = false;
+            boolean limited = false;
+            int batches = 0;
+            while (go) {
+                Progress num = doit();
+                abort = num.abort;
 
-            ingested += num.ingested;
-            if (num.found > 0) {
-                log.debug("***************** finished batch: " + num + " *******************");
-            }
+                ingested += num.ingested;
+                if (num.found > 0) {
+                    log.debug("***************** finished batch: " + num + " *******************");
+                }
 
-            if (num.abort) {
-                log.error("batched aborted");
-            }
-            go = (num.found > 0 && !num.abort && !num.done);
-            if (num.found < batchSize / 2) {
-                go = false;
+                if (num.abort) {
+                    log.error("batched aborted");
+                }
+                go = (num.found > 0 && !num.abort && !num.done);
+                if (num.found < batchSize / 2) {
+                    go = false;
+                }
+                full = false; // do not start at beginning again
+                batches++;
+                if (go && maxBatches > 0 && batches >= maxBatches) {
+                    log.info("reached maxBatches=" + maxBatches + ": yield");
+                    go = false;
+                    limited = true;
+                }
             }
-            full = false; // do not start at beginning again
+            this.complete = !abort && !limited;
+            this.aborted = abort;
+        } finally {
+            close();
         }
     }
 
@@ -257,6 +435,17 @@ public class ObservationHarvester extends Harvester {
         long timeQuery = -1;
         long timeTransaction = -1;
         int expectedNum = batchSize;
+        
+        // pipeline: validation stage runs ahead of the writer (this thread)
+        final AtomicInteger validated = new AtomicInteger();
+        timeValidate.set(0L);
+        timeValidateWait.set(0L);
+        LinkedList<Future<Exception>> validations = new LinkedList<>();
+        int consumed = 0;
+        long sumQueueDepth = 0;
+        int maxQueueDepth = 0;
+        final long requests = srcRepoClient.getRequestCount();
+        final long connections = srcRepoClient.getConnectionCount();
 
         try {
             System.gc(); // hint
@@ -264,7 +453,7 @@ public class ObservationHarvester extends Harvester {
 
             HarvestState state = null;
             if (!skipped) {
-                state = harvestStateDAO.get(source, Observation.class.getSimpleName());
+                state = harvestStateDAO.get(source, stateName);
                 startDate = state.curLastModified;
                 log.debug("state " + state);
             }
@@ -292,331 +481,688 @@ public class ObservationHarvester extends Harvester {
             }
             firstIteration = false;
 
-            List<SkippedWrapperURI<ObservationResponse>> entityList;
+            Iterator<SkippedWrapperURI<ObservationResponse>> entities;
+            int readAhead = Integer.MAX_VALUE;
             if (skipped) {
-                entityList = getSkipped(startDate);
+                entities = getSkipped(startDate).iterator();
             } else {
                 log.info("harvest window: " + format(startDate) + " :: " + format(endDate) + " [" + batchSize + "]");
-                List<ObservationResponse> obsList;
                 if (srcObservationDAO != null) {
-                    obsList = srcObservationDAO.getList(collection, startDate, endDate, batchSize + 1);
+                    entities = wrap(srcObservationDAO.getList(collection, startDate, endDate, batchSize + 1)).iterator();
                 } else {
-                    obsList = srcRepoClient.getList(collection, startDate, endDate, batchSize + 1);
+                    // stream: the client downloads ahead of validation and validation runs ahead of
+                    // the writer (this thread); bulk load needs the whole batch up front
+                    entities = wrap(srcRepoClient.getIterator(collection, startDate, endDate, batchSize + 1));
+                    if (!bulkLoad) {
+                        readAhead = Math.max(1, 2 * validateThreads);
+                    }
                 }
-                entityList = wrap(obsList);
             }
 
+            LinkedList<SkippedWrapperURI<ObservationResponse>> entityList = new LinkedList<>();
+            
             // avoid re-processing the last successful one stored in
             // HarvestState (normal case because query: >= startDate)
-            if (!entityList.isEmpty() && !skipped) {
-                ListIterator<SkippedWrapperURI<ObservationResponse>> iter = entityList.listIterator();
-                Observation curBatchLeader = iter.next().entity.observation;
+            if (!skipped && entities.hasNext()) {
+                SkippedWrapperURI<ObservationResponse> leader = entities.next();
+                Observation curBatchLeader = leader.entity.observation;
+                boolean drop = false;
                 if (curBatchLeader != null) {
                     log.debug("currentBatch: " + curBatchLeader.getURI() + " " + format(curBatchLeader.getMaxLastModified()));
                     log.debug("harvestState: " + format(state.curID) + " " + format(state.curLastModified));
-                    if (curBatchLeader.getID().equals(state.curID) && curBatchLeader.getMaxLastModified().equals(state.curLastModified)) {
-                        iter.remove();
-                        expectedNum--;
-                    }
+                    drop = curBatchLeader.getID().equals(state.curID) && curBatchLeader.getMaxLastModified().equals(state.curLastModified);
+                }
+                if (drop) {
+                    expectedNum--;
+                } else {
+                    enqueue(leader, entityList, validations, validated);
+                    ret.found++;
                 }
             }
-
-            ret.found = entityList.size();
-            log.info("found: " + entityList.size());
+            ret.found += readAhead(entities, readAhead, entityList, validations, validated);
 
             timeQuery = System.currentTimeMillis() - t;
             t = System.currentTimeMillis();
 
-            ListIterator<SkippedWrapperURI<ObservationResponse>> iter1 = entityList.listIterator();
-            // int i = 0;
-            while (iter1.hasNext()) {
-                SkippedWrapperURI<ObservationResponse> ow = iter1.next();
+            if (bulkLoad && !skipped && !entityList.isEmpty()) {
+                if (copyBatch(entityList, validations, state, ret)) {
+                    entityList.clear();
+                    validations.clear();
+                }
+            }
+
+            GroupCommit group = new GroupCommit(state);
+            while (!entityList.isEmpty()) {
+                SkippedWrapperURI<ObservationResponse> ow = entityList.removeFirst(); // allow garbage collection during loop
                 Observation o = null;
                 if (ow.entity != null) {
                     o = ow.entity.observation;
                 }
-                HarvestSkipURI hs = ow.skip;
-                iter1.remove(); // allow garbage collection during loop
-
-                String skipMsg = null;
-
-                
-                if (destObservationDAO.getTransactionManager().isOpen()) {
-                    throw new RuntimeException("BUG: found open transaction at start of next observation");
+                Future<Exception> validation = validations.pollFirst();
+                if (validation != null && validateExecutor != null) {
+                    int depth = validated.get() - consumed;
+                    sumQueueDepth += depth;
+                    maxQueueDepth = Math.max(maxQueueDepth, depth);
+                    consumed++;
                 }
-                long tmp = System.currentTimeMillis();
-                log.debug("starting transaction");
-                destObservationDAO.getTransactionManager().startTransaction();
-                boolean ok = false;
-                long txnStartTime = System.currentTimeMillis() - tmp;
-                log.debug("skipped=" + skipped
-                        + " o=" + o
-                        + " ow.entity=" + ow.entity
-                        + " ow.entity.error=" + (ow.entity == null ? null : ow.entity.error));
-                try {
-                    // o could be null in skip mode cleanup
-                    if (o != null) {
-                        String treeSize = computeTreeSize(o);
-                        log.info("put: " + o.getClass().getSimpleName() + " " + o.getURI() + " " + format(o.getMaxLastModified()) + " " + treeSize);
-                    } else if (hs != null) {
-                        log.info("put (retry error): " + hs.getName() + " " + hs.getSkipID() + " " + format(hs.getLastModified()));
-                    } else {
-                        log.info("put (error): Observation " + ow.entity.observationState.getURI() + " " + format(ow.entity.observationState.maxLastModified));
+                ret.found += readAhead(entities, readAhead, entityList, validations, validated);
+                
+                if (groupCommitSize > 1 && !skipped && o != null) {
+                    // group commit: put in the current multi-observation transaction
+                    if (!group.put(ow, validation)) {
+                        // rolled back: retry each observation in the group in its own transaction
+                        retryGroup(group, ret);
+                    } else if (group.size() >= groupCommitSize || group.getElapsed() >= groupCommitMillis || entityList.isEmpty()) {
+                        commitGroup(group, ret);
                     }
-
-                    if (skipped) {
-                        startDate = hs.getTryAfter();
+                } else {
+                    // preserve order: finish the current group first
+                    commitGroup(group, ret);
+                    if (ret.abort) {
+                        return ret;
                     }
+                    putObservation(ow, validation, state, ret);
+                }
+                if (ret.abort) {
+                    return ret;
+                }
+            }
+            commitGroup(group, ret);
+            if (ret.abort) {
+                return ret;
+            }
+            log.info("found: " + ret.found);
+            if (ret.found < expectedNum) {
+                ret.done = true;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("SEVERE PROBLEM - ThreadPool harvesting Observations failed: " + e.getMessage());
+            ret.abort = true;
+        } catch (Throwable th) {
+            log.error("unexpected exception", th);
+            throw th;
+        } finally {
+            for (Future<Exception> f : validations) {
+                if (f != null) {
+                    f.cancel(true);
+                }
+            }
+            timeTransaction = System.currentTimeMillis() - t;
+            log.debug("time to get HarvestState: " + timeState + "ms");
+            log.debug("time to run ObservationListQuery: " + timeQuery + "ms");
+            log.debug("time to run transactions: " + timeTransaction + "ms");
+            if (ret.found > 0) {
+                long rate = (1000L * (ret.ingested + ret.failed)) / Math.max(1L, timeTransaction);
+                StringBuilder sb = new StringBuilder();
+                sb.append("batch: ").append(ret).append(" ").append(timeTransaction).append("ms ");
+                sb.append(rate).append(" obs/sec");
+                sb.append(" validate-threads=").append(validateThreads);
+                sb.append(" validate=").append(timeValidate.get()).append("ms");
+                sb.append(" validate-wait=").append(timeValidateWait.get()).append("ms");
+                if (groupCommitSize > 1) {
+                    sb.append(" group-commit=").append(groupCommitSize);
+                }
+                if (consumed > 0) {
+                    sb.append(" queue-depth avg=").append(sumQueueDepth / consumed).append(" max=").append(maxQueueDepth);
+                }
+                if (srcObservationDAO == null) {
+                    long req = srcRepoClient.getRequestCount() - requests;
+                    long con = srcRepoClient.getConnectionCount() - connections;
+                    sb.append(" http-requests=").append(req).append(" new-connections=").append(con);
+                }
+                log.info(sb.toString());
+            }
+        }
+        return ret;
+    }
+    
+    // put a single observation in its own transaction; failures are recorded in HarvestSkipURI
+    private void putObservation(SkippedWrapperURI<ObservationResponse> ow, Future<Exception> validation, HarvestState state, Progress ret) {
+        Observation o = null;
+        if (ow.entity != null) {
+            o = ow.entity.observation;
+        }
+        HarvestSkipURI hs = ow.skip;
 
-                    if (o != null) {
-                        if (state != null) {
-                            state.curLastModified = o.getMaxLastModified();
-                            state.curID = o.getID();
-                        }
-
-                        // try to avoid DataIntegrityViolationException due
-                        // to missed deletion followed by insert with new
-                        // UUID
-                        ObservationState cur = destObservationDAO.getState(o.getURI());
-                        if (cur != null && !cur.getID().equals(o.getID())) {
-                            // missed harvesting a deletion: trust source
-                            log.info("delete: " + o.getClass().getSimpleName() + " " + cur.getURI() + " " + cur.getID()
-                                    + " (ObservationURI conflict avoided)");
-                            destObservationDAO.delete(cur.getID());
-                        }
+        String skipMsg = null;
 
-                        // verify we retrieved the observation intact
-                        if (!nochecksum) {
-                            validateChecksum(o);
-                        }
+        
+        if (destObservationDAO.getTransactionManager().isOpen()) {
+            throw new RuntimeException("BUG: found open transaction at start of next observation");
+        }
+        long tmp = System.currentTimeMillis();
+        log.debug("starting transaction");
+        destObservationDAO.getTransactionManager().startTransaction();
+        boolean ok = false;
+        long txnStartTime = System.currentTimeMillis() - tmp;
+        log.debug("skipped=" + skipped
+                + " o=" + o
+                + " ow.entity=" + ow.entity
+                + " ow.entity.error=" + (ow.entity == null ? null : ow.entity.error));
+        try {
+            // o could be null in skip mode cleanup
+            if (o != null) {
+                String treeSize = computeTreeSize(o);
+                log.info("put: " + o.getClass().getSimpleName() + " " + o.getURI() + " " + format(o.getMaxLastModified()) + " " + treeSize);
+            } else if (hs != null) {
+                log.info("put (retry error): " + hs.getName() + " " + hs.getSkipID() + " " + format(hs.getLastModified()));
+            } else {
+                log.info("put (error): Observation " + ow.entity.observationState.getURI() + " " + format(ow.entity.observationState.maxLastModified));
+            }
 
-                        // extended content verification
-                        CaomValidator.validate(o);
+            if (skipped) {
+                startDate = hs.getTryAfter();
+            }
 
-                        for (Plane p : o.getPlanes()) {
-                            for (Artifact a : p.getArtifacts()) {
-                                CaomWCSValidator.validate(a);
-                            }
-                        }
+            if (o != null) {
+                if (state != null) {
+                    state.curLastModified = o.getMaxLastModified();
+                    state.curID = o.getID();
+                }
 
-                        // everything is OK
-                        destObservationDAO.put(o);
+                putImpl(o, hs, validation);
 
-                        if (!skipped) {
-                            harvestStateDAO.put(state);
-                        }
+                if (!skipped) {
+                    harvestStateDAO.put(state);
+                }
+            } else if (skipped) {
+                // o == null
+                if (srcObservationDAO != null || ow.entity.error instanceof ResourceNotFoundException) {
+                    // observation not obtainable from source == missed deletion
+                    ObservationURI uri = new ObservationURI(hs.getSkipID());
+                    log.info("delete: " + uri);
+                    destObservationDAO.delete(uri);
+                    log.info("delete: " + hs.getClass().getSimpleName() + "[" + hs.getSkipID() + "]");
+                    harvestSkipDAO.delete(hs);
+                } else {
+                    // defer to the main catch for error handling
+                    throw ow.entity.error;
+                }
+            } else if (ow.entity.error != null) {
+                // o == null when harvesting from service: try to make progress on failures
+                if (state != null && ow.entity.observationState.maxLastModified != null) {
+                    state.curLastModified = ow.entity.observationState.maxLastModified;
+                    state.curID = null; // unknown
+                }
+                //if (srcObservationDAO != null || ow.entity.error instanceof ResourceNotFoundException) {
+                if (ow.entity.error instanceof ResourceNotFoundException) {
+                    ObservationURI uri = ow.entity.observationState.getURI();
+                    log.info("delete: " + uri);
+                    destObservationDAO.delete(uri);
+                    if (hs != null) {
+                        log.info("delete: " + hs + " " + format(hs.getLastModified()));
+                        harvestSkipDAO.delete(hs);
+                    }
+                } else {
+                    throw ow.entity.error;
+                }
+            }
 
-                        if (hs == null) {
-                            // normal harvest mode: try to cleanup skip
-                            // records immediately
-                            hs = harvestSkipDAO.get(source, cname, o.getURI().getURI());
-                        }
+            tmp = System.currentTimeMillis();
+            log.debug("committing transaction");
+            destObservationDAO.getTransactionManager().commitTransaction();
+            log.debug("commit: OK");
+            long txnCommitTime = System.currentTimeMillis() - tmp;
+            log.debug("transaction: start=" + txnStartTime + " commit=" + txnCommitTime);
+            ok = true;
+            ret.ingested++;
+        } catch (IllegalStateException oops) {
+            if (oops.getMessage().contains("XML failed schema validation")) {
+                log.error("CONTENT PROBLEM - XML failed schema validation: " + oops.getMessage());
+                ret.handled++;
+            } else if (oops.getMessage().contains("failed to read")) {
+                log.error("CONTENT PROBLEM - " + oops.getMessage(), oops.getCause());
+                ret.handled++;
+            } else {
+                // TODO
+            }
+            skipMsg = oops.getMessage(); // message for HarvestSkipURI record
+        } catch (MismatchedChecksumException oops) {
+            log.error("CONTENT PROBLEM - mismatching checksums: " + ow.entity.observationState.getURI());
+            ret.handled++;
+            skipMsg = oops.getMessage(); // message for HarvestSkipURI record
+        } catch (IllegalArgumentException oops) {
+            log.error("CONTENT PROBLEM - invalid observation: " + ow.entity.observationState.getURI() + " - " + oops.getMessage());
+            if (oops.getCause() != null) {
+                log.error("cause: " + oops.getCause());
+            }
+            ret.handled++;
+            skipMsg = oops.getMessage(); // message for HarvestSkipURI record
+        } catch (TransientException oops) {
+            log.error("NETWORK PROBLEM - " + oops.getMessage());
+            ret.handled++;
+            skipMsg = oops.getMessage(); // message for HarvestSkipURI record
+        } catch (NullPointerException ex) {
+            log.error("BUG", ex);
+            ret.abort = true;
+            skipMsg = "BUG: " + ex.getClass().getName(); // message for HarvestSkipURI record
+        } catch (BadSqlGrammarException ex) {
+            log.error("BUG", ex);
+            BadSqlGrammarException bad = (BadSqlGrammarException) ex;
+            SQLException sex1 = bad.getSQLException();
+            if (sex1 != null) {
+                log.error("CAUSE", sex1);
+                SQLException sex2 = sex1.getNextException();
+                log.error("NEXT CAUSE", sex2);
+            }
+            ret.abort = true;
+            skipMsg = ex.getMessage(); // message for HarvestSkipURI record
+        } catch (DataAccessResourceFailureException ex) {
+            log.error("FATAL PROBLEM - probably out of space in database", ex);
+            ret.abort = true;
+            skipMsg = "FATAL: " + ex.getMessage(); // message for HarvestSkipURI record
+        } catch (Exception oops) {
+            // need to inspect the error messages
+            log.debug("exception during harvest", oops);
+            skipMsg = null;
+            String str = oops.toString();
+            
+            if (str.contains("duplicate key value violates unique constraint \"i_observationuri\"")) {
+                log.error("CONTENT PROBLEM - duplicate observation: " + ow.entity.observationState.getURI());
+                ret.handled++;
+            } else if (str.contains("spherepoly_from_array")) {
+                log.error("PGSPHERE PROBLEM - failed to persist: " + ow.entity.observationState.getURI() + " - " + oops.getMessage());
+                oops = new IllegalArgumentException("invalid polygon (spoly): " + oops.getMessage(), oops);
+                ret.handled++;
+            } else if (str.contains("value out of range: underflow")) {
+                log.error("UNDIAGNOSED PROBLEM - failed to persist: " + ow.entity.observationState.getURI() + " - " + oops.getMessage());
+                ret.handled++;
+            } else {
+                log.error("unexpected exception", oops);
+            }
+            // message for HarvestSkipURI record
+            skipMsg = oops.getMessage();
+        } catch (Error err) {
+            log.error("FATAL - probably installation or environment", err);
+            ret.abort = true;
+        } finally {
+            if (!ok) {
+                try {
+                    destObservationDAO.getTransactionManager().rollbackTransaction();
+                    log.debug("rollback: OK");
+                } catch (Exception tex) {
+                    log.error("failed to rollback obs transaction", tex);
+                }
 
-                        if (hs != null) {
-                            String emsg = hs.errorMessage;
-                            if (emsg.length() > 32) {
-                                emsg = emsg.substring(0, 32);
-                            }
-                            log.info("delete: " + hs.getClass().getSimpleName() + "[" + hs.getSkipID() + " " + emsg + "]");
-                            harvestSkipDAO.delete(hs);
-                        }
-                    } else if (skipped) {
-                        // o == null
-                        if (srcObservationDAO != null || ow.entity.error instanceof ResourceNotFoundException) {
-                            // observation not obtainable from source == missed deletion
-                            ObservationURI uri = new ObservationURI(hs.getSkipID());
-                            log.info("delete: " + uri);
-                            destObservationDAO.delete(uri);
-                            log.info("delete: " + hs.getClass().getSimpleName() + "[" + hs.getSkipID() + "]");
-                            harvestSkipDAO.delete(hs);
-                        } else {
-                            // defer to the main catch for error handling
-                            throw ow.entity.error;
-                        }
-                    } else if (ow.entity.error != null) {
-                        // o == null when harvesting from service: try to make progress on failures
-                        if (state != null && ow.entity.observationState.maxLastModified != null) {
-                            state.curLastModified = ow.entity.observationState.maxLastModified;
-                            state.curID = null; // unknown
-                        }
-                        //if (srcObservationDAO != null || ow.entity.error instanceof ResourceNotFoundException) {
-                        if (ow.entity.error instanceof ResourceNotFoundException) {
-                            ObservationURI uri = ow.entity.observationState.getURI();
-                            log.info("delete: " + uri);
-                            destObservationDAO.delete(uri);
-                            if (hs != null) {
-                                log.info("delete: " + hs + " " + format(hs.getLastModified()));
-                                harvestSkipDAO.delete(hs);
-                            }
+                try {
+                    log.debug("starting HarvestSkipURI transaction");
+                    HarvestSkipURI skip = null;
+                    if (o != null) {
+                        skip = harvestSkipDAO.get(source, cname, o.getURI().getURI());
+                    } else {
+                        skip = harvestSkipDAO.get(source, cname, ow.entity.observationState.getURI().getURI());
+                    }
+                    Date tryAfter = ow.entity.observationState.maxLastModified;
+                    if (o != null) {
+                        tryAfter = o.getMaxLastModified();
+                    }
+                    if (skip == null) {
+                        if (o != null) {
+                            skip = new HarvestSkipURI(source, cname, o.getURI().getURI(), tryAfter, skipMsg);
                         } else {
-                            throw ow.entity.error;
+                            skip = new HarvestSkipURI(source, cname, ow.entity.observationState.getURI().getURI(), tryAfter, skipMsg);
                         }
-                    }
-
-                    tmp = System.currentTimeMillis();
-                    log.debug("committing transaction");
-                    destObservationDAO.getTransactionManager().commitTransaction();
-                    log.debug("commit: OK");
-                    long txnCommitTime = System.currentTimeMillis() - tmp;
-                    log.debug("transaction: start=" + txnStartTime + " commit=" + txnCommitTime);
-                    ok = true;
-                    ret.ingested++;
-                } catch (IllegalStateException oops) {
-                    if (oops.getMessage().contains("XML failed schema validation")) {
-                        log.error("CONTENT PROBLEM - XML failed schema validation: " + oops.getMessage());
-                        ret.handled++;
-                    } else if (oops.getMessage().contains("failed to read")) {
-                        log.error("CONTENT PROBLEM - " + oops.getMessage(), oops.getCause());
-                        ret.handled++;
                     } else {
-                        // TODO
+                        skip.errorMessage = skipMsg;
+                        skip.setTryAfter(tryAfter);
                     }
-                    skipMsg = oops.getMessage(); // message for HarvestSkipURI record
-                } catch (MismatchedChecksumException oops) {
-                    log.error("CONTENT PROBLEM - mismatching checksums: " + ow.entity.observationState.getURI());
-                    ret.handled++;
-                    skipMsg = oops.getMessage(); // message for HarvestSkipURI record
-                } catch (IllegalArgumentException oops) {
-                    log.error("CONTENT PROBLEM - invalid observation: " + ow.entity.observationState.getURI() + " - " + oops.getMessage());
-                    if (oops.getCause() != null) {
-                        log.error("cause: " + oops.getCause());
+
+                    log.debug("starting HarvestSkipURI transaction");
+                    destObservationDAO.getTransactionManager().startTransaction();
+
+                    if (!skipped) {
+                        // track the harvest state progress
+                        harvestStateDAO.put(state);
                     }
-                    ret.handled++;
-                    skipMsg = oops.getMessage(); // message for HarvestSkipURI record
-                } catch (TransientException oops) {
-                    log.error("NETWORK PROBLEM - " + oops.getMessage());
-                    ret.handled++;
-                    skipMsg = oops.getMessage(); // message for HarvestSkipURI record
-                } catch (NullPointerException ex) {
-                    log.error("BUG", ex);
-                    ret.abort = true;
-                    skipMsg = "BUG: " + ex.getClass().getName(); // message for HarvestSkipURI record
-                } catch (BadSqlGrammarException ex) {
-                    log.error("BUG", ex);
-                    BadSqlGrammarException bad = (BadSqlGrammarException) ex;
-                    SQLException sex1 = bad.getSQLException();
-                    if (sex1 != null) {
-                        log.error("CAUSE", sex1);
-                        SQLException sex2 = sex1.getNextException();
-                        log.error("NEXT CAUSE", sex2);
+
+                    // track the fail
+                    log.info("put: " + skip);
+                    harvestSkipDAO.put(skip);
+
+                    if (!src.getIdentifier(collection).equals(dest.getIdentifier(collection))) {
+                        // delete previous version of observation (if any)
+                        log.info("delete: " + ow.entity.observationState.getURI());
+                        destObservationDAO.delete(ow.entity.observationState.getURI());
                     }
-                    ret.abort = true;
-                    skipMsg = ex.getMessage(); // message for HarvestSkipURI record
-                } catch (DataAccessResourceFailureException ex) {
-                    log.error("FATAL PROBLEM - probably out of space in database", ex);
-                    ret.abort = true;
-                    skipMsg = "FATAL: " + ex.getMessage(); // message for HarvestSkipURI record
-                } catch (Exception oops) {
-                    // need to inspect the error messages
-                    log.debug("exception during harvest", oops);
-                    skipMsg = null;
-                    String str = oops.toString();
-                    
-                    if (str.contains("duplicate key value violates unique constraint \"i_observationuri\"")) {
-                        log.error("CONTENT PROBLEM - duplicate observation: " + ow.entity.observationState.getURI());
-                        ret.handled++;
-                    } else if (str.contains("spherepoly_from_array")) {
-                        log.error("PGSPHERE PROBLEM - failed to persist: " + ow.entity.observationState.getURI() + " - " + oops.getMessage());
-                        oops = new IllegalArgumentException("invalid polygon (spoly): " + oops.getMessage(), oops);
-                        ret.handled++;
-                    } else if (str.contains("value out of range: underflow")) {
-                        log.error("UNDIAGNOSED PROBLEM - failed to persist: " + ow.entity.observationState.getURI() + " - " + oops.getMessage());
-                        ret.handled++;
-                    } else {
-                        log.error("unexpected exception", oops);
+
+                    log.debug("committing HarvestSkipURI transaction");
+                    destObservationDAO.getTransactionManager().commitTransaction();
+                    log.debug("commit HarvestSkipURI: OK");
+                } catch (Throwable oops) {
+                    log.warn("failed to insert HarvestSkipURI", oops);
+                    try {
+                        destObservationDAO.getTransactionManager().rollbackTransaction();
+                        log.debug("rollback HarvestSkipURI: OK");
+                    } catch (Exception tex) {
+                        log.error("failed to rollback skip transaction", tex);
                     }
-                    // message for HarvestSkipURI record
-                    skipMsg = oops.getMessage();
-                } catch (Error err) {
-                    log.error("FATAL - probably installation or environment", err);
                     ret.abort = true;
-                } finally {
-                    if (!ok) {
-                        try {
-                            destObservationDAO.getTransactionManager().rollbackTransaction();
-                            log.debug("rollback: OK");
-                            timeTransaction += System.currentTimeMillis() - t;
-                        } catch (Exception tex) {
-                            log.error("failed to rollback obs transaction", tex);
-                        }
-
-                        try {
-                            log.debug("starting HarvestSkipURI transaction");
-                            HarvestSkipURI skip = null;
-                            if (o != null) {
-                                skip = harvestSkipDAO.get(source, cname, o.getURI().getURI());
-                            } else {
-                                skip = harvestSkipDAO.get(source, cname, ow.entity.observationState.getURI().getURI());
-                            }
-                            Date tryAfter = ow.entity.observationState.maxLastModified;
-                            if (o != null) {
-                                tryAfter = o.getMaxLastModified();
-                            }
-                            if (skip == null) {
-                                if (o != null) {
-                                    skip = new HarvestSkipURI(source, cname, o.getURI().getURI(), tryAfter, skipMsg);
-                                } else {
-                                    skip = new HarvestSkipURI(source, cname, ow.entity.observationState.getURI().getURI(), tryAfter, skipMsg);
-                                }
-                            } else {
-                                skip.errorMessage = skipMsg;
-                                skip.setTryAfter(tryAfter);
-                            }
+                }
+                ret.failed++;
+            }
+        }
+    }
 
-                            log.debug("starting HarvestSkipURI transaction");
-                            destObservationDAO.getTransactionManager().startTransaction();
+    // validate, put, and cleanup skip record for one observation in the current transaction
+    private void putImpl(Observation o, HarvestSkipURI hs, Future<Exception> validation) throws Exception {
+        // try to avoid DataIntegrityViolationException due
+        // to missed deletion followed by insert with new
+        // UUID
+        ObservationState cur = destObservationDAO.getState(o.getURI());
+        if (cur != null && !cur.getID().equals(o.getID())) {
+            // missed harvesting a deletion: trust source
+            log.info("delete: " + o.getClass().getSimpleName() + " " + cur.getURI() + " " + cur.getID()
+                    + " (ObservationURI conflict avoided)");
+            destObservationDAO.delete(cur.getID());
+        }
 
-                            if (!skipped) {
-                                // track the harvest state progress
-                                harvestStateDAO.put(state);
-                            }
+        // verify we retrieved the observation intact and extended content verification
+        if (validation != null) {
+            long tw = System.currentTimeMillis();
+            Exception invalid = awaitValidation(validation);
+            timeValidateWait.addAndGet(System.currentTimeMillis() - tw);
+            if (invalid != null) {
+                throw invalid;
+            }
+        } else {
+            long tv = System.currentTimeMillis();
+            validate(o);
+            timeValidate.addAndGet(System.currentTimeMillis() - tv);
+        }
 
-                            // track the fail
-                            log.info("put: " + skip);
-                            harvestSkipDAO.put(skip);
+        // everything is OK
+        destObservationDAO.put(o);
 
-                            if (!src.getIdentifier(collection).equals(dest.getIdentifier(collection))) {
-                                // delete previous version of observation (if any)
-                                log.info("delete: " + ow.entity.observationState.getURI());
-                                destObservationDAO.delete(ow.entity.observationState.getURI());
-                            }
+        if (hs == null) {
+            // normal harvest mode: try to cleanup skip
+            // records immediately
+            hs = harvestSkipDAO.get(source, cname, o.getURI().getURI());
+        }
 
-                            log.debug("committing HarvestSkipURI transaction");
-                            destObservationDAO.getTransactionManager().commitTransaction();
-                            log.debug("commit HarvestSkipURI: OK");
-                        } catch (Throwable oops) {
-                            log.warn("failed to insert HarvestSkipURI", oops);
-                            try {
-                                destObservationDAO.getTransactionManager().rollbackTransaction();
-                                log.debug("rollback HarvestSkipURI: OK");
-                            } catch (Exception tex) {
-                                log.error("failed to rollback skip transaction", tex);
-                            }
-                            ret.abort = true;
-                        }
-                        ret.failed++;
-                    }
-                }
-                if (ret.abort) {
-                    return ret;
+        if (hs != null) {
+            String emsg = hs.errorMessage;
+            if (emsg.length() > 32) {
+                emsg = emsg.substring(0, 32);
+            }
+            log.info("delete: " + hs.getClass().getSimpleName() + "[" + hs.getSkipID() + " " + emsg + "]");
+            harvestSkipDAO.delete(hs);
+        }
+    }
+    
+    // bulk load a batch of new observations in one transaction with one HarvestState update and
+    // cleanup of their skip records; returns false without writing anything if the batch has an error, 
+    // an invalid observation, an existing observation (by ID or URI), or the load fails; validation 
+    // results replace the queued validations so the put fallback reuses them
+    private boolean copyBatch(List<SkippedWrapperURI<ObservationResponse>> entityList, List<Future<Exception>> validations,
+            HarvestState state, Progress ret) {
+        List<Observation> batch = new ArrayList<>(entityList.size());
+        List<UUID> ids = new ArrayList<>(entityList.size());
+        List<ObservationURI> uris = new ArrayList<>(entityList.size());
+        ListIterator<Future<Exception>> vi = validations.listIterator();
+        for (SkippedWrapperURI<ObservationResponse> ow : entityList) {
+            Future<Exception> validation = null;
+            boolean queued = vi.hasNext();
+            if (queued) {
+                validation = vi.next();
+            }
+            if (ow.entity == null || ow.entity.observation == null) {
+                log.debug("bulk load: batch contains an error");
+                return false;
+            }
+            Observation o = ow.entity.observation;
+            Exception invalid = null;
+            if (validation != null) {
+                long tw = System.currentTimeMillis();
+                invalid = awaitValidation(validation);
+                timeValidateWait.addAndGet(System.currentTimeMillis() - tw);
+            } else {
+                long tv = System.currentTimeMillis();
+                try {
+                    validate(o);
+                } catch (Exception ex) {
+                    invalid = ex;
                 }
+                timeValidate.addAndGet(System.currentTimeMillis() - tv);
             }
-            if (ret.found < expectedNum) {
-                ret.done = true;
+            // keep the result for the put fallback: no second validation and no second wait
+            Future<Exception> result = CompletableFuture.completedFuture(invalid);
+            if (queued) {
+                vi.set(result);
+            } else {
+                vi.add(result);
             }
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("SEVERE PROBLEM - ThreadPool harvesting Observations failed: " + e.getMessage());
-            ret.abort = true;
-        } catch (Throwable th) {
-            log.error("unexpected exception", th);
-            throw th;
+            if (invalid != null) {
+                log.debug("bulk load: batch contains an invalid observation: " + o.getURI() + " " + invalid);
+                return false;
+            }
+            batch.add(o);
+            ids.add(o.getID());
+            uris.add(o.getURI());
+        }
+        if (!destObservationDAO.getStates(ids).isEmpty()) {
+            log.debug("bulk load: batch contains existing observations");
+            return false;
+        }
+        if (!destObservationDAO.getStatesByURI(uris).isEmpty()) {
+            // includes ObservationURI conflicts: handled by put
+            log.debug("bulk load: batch contains existing observation URIs");
+            return false;
+        }
+        List<URI> skipIDs = new ArrayList<>(uris.size());
+        for (ObservationURI u : uris) {
+            skipIDs.add(u.getURI());
+        }
+        
+        if (destObservationDAO.getTransactionManager().isOpen()) {
+            throw new RuntimeException("BUG: found open transaction at start of bulk load");
+        }
+        final Date prevLastModified = state.curLastModified;
+        final UUID prevID = state.curID;
+        long t = System.currentTimeMillis();
+        boolean ok = false;
+        try {
+            log.debug("starting bulk load transaction");
+            destObservationDAO.getTransactionManager().startTransaction();
+            destObservationDAO.copy(batch);
+            int skips = harvestSkipDAO.delete(source, cname, skipIDs);
+            if (skips > 0) {
+                log.info("delete: " + skips + " HarvestSkipURI");
+            }
+            Observation last = batch.get(batch.size() - 1);
+            state.curLastModified = last.getMaxLastModified();
+            state.curID = last.getID();
+            harvestStateDAO.put(state);
+            log.debug("committing bulk load transaction");
+            destObservationDAO.getTransactionManager().commitTransaction();
+            ok = true;
+            ret.ingested += batch.size();
+            log.info("bulk load: " + batch.size() + " observations " + format(last.getMaxLastModified()) + " " 
+                    + (System.currentTimeMillis() - t) + "ms");
+        } catch (Exception ex) {
+            log.warn("bulk load failed: " + ex + " -- retrying " + batch.size() + " observations with put");
         } finally {
-            timeTransaction = System.currentTimeMillis() - t;
-            log.debug("time to get HarvestState: " + timeState + "ms");
-            log.debug("time to run ObservationListQuery: " + timeQuery + "ms");
-            log.debug("time to run transactions: " + timeTransaction + "ms");
+            if (!ok) {
+                try {
+                    destObservationDAO.getTransactionManager().rollbackTransaction();
+                    log.debug("rollback bulk load: OK");
+                } catch (Exception tex) {
+                    log.error("failed to rollback bulk load transaction", tex);
+                }
+                state.curLastModified = prevLastModified;
+                state.curID = prevID;
+            }
+        }
+        return ok;
+    }
+    
+    private void commitGroup(GroupCommit group, Progress ret) {
+        if (group.isEmpty()) {
+            return;
+        }
+        if (group.commit()) {
+            ret.ingested += group.size();
+            group.clear();
+        } else {
+            retryGroup(group, ret);
+        }
+    }
+    
+    // fall back to one transaction per observation so failures are isolated in HarvestSkipURI
+    private void retryGroup(GroupCommit group, Progress ret) {
+        log.info("group commit failed: retrying " + group.size() + " observations individually");
+        for (int i = 0; i < group.size(); i++) {
+            putObservation(group.entities.get(i), group.validations.get(i), group.state, ret);
+            if (ret.abort) {
+                break;
+            }
+        }
+        group.clear();
+    }
+    
+    // multiple observations in a single transaction with one HarvestState update at commit
+    private class GroupCommit {
+        private final HarvestState state;
+        private final List<SkippedWrapperURI<ObservationResponse>> entities = new ArrayList<>();
+        private final List<Future<Exception>> validations = new ArrayList<>();
+        private Date prevLastModified;
+        private UUID prevID;
+        private long start;
+        
+        GroupCommit(HarvestState state) {
+            this.state = state;
+        }
+        
+        boolean isEmpty() {
+            return entities.isEmpty();
+        }
+        
+        int size() {
+            return entities.size();
+        }
+        
+        long getElapsed() {
+            return System.currentTimeMillis() - start;
+        }
+        
+        void clear() {
+            entities.clear();
+            validations.clear();
+        }
+        
+        // put the observation in the group transaction; returns false if the transaction was rolled back
+        boolean put(SkippedWrapperURI<ObservationResponse> ow, Future<Exception> validation) {
+            entities.add(ow);
+            validations.add(validation);
+            Observation o = ow.entity.observation;
+            if (entities.size() == 1) {
+                if (destObservationDAO.getTransactionManager().isOpen()) {
+                    throw new RuntimeException("BUG: found open transaction at start of next group");
+                }
+                this.prevLastModified = state.curLastModified;
+                this.prevID = state.curID;
+                this.start = System.currentTimeMillis();
+                log.debug("starting group transaction");
+                destObservationDAO.getTransactionManager().startTransaction();
+            }
+            boolean ok = false;
+            try {
+                log.info("put: " + o.getClass().getSimpleName() + " " + o.getURI() + " " + format(o.getMaxLastModified()) + " " 
+                        + computeTreeSize(o) + " [group " + entities.size() + "]");
+                putImpl(o, null, validation);
+                state.curLastModified = o.getMaxLastModified();
+                state.curID = o.getID();
+                ok = true;
+            } catch (Exception ex) {
+                log.debug("group put failed: " + o.getURI(), ex);
+            } finally {
+                if (!ok) {
+                    rollback();
+                }
+            }
+            return ok;
+        }
+        
+        boolean commit() {
+            boolean ok = false;
+            try {
+                harvestStateDAO.put(state);
+                log.debug("committing group transaction");
+                destObservationDAO.getTransactionManager().commitTransaction();
+                log.debug("commit group: " + entities.size() + " observations " + getElapsed() + "ms");
+                ok = true;
+            } catch (Exception ex) {
+                log.warn("group commit failed: " + ex);
+            } finally {
+                if (!ok) {
+                    rollback();
+                }
+            }
+            return ok;
+        }
+        
+        private void rollback() {
+            try {
+                destObservationDAO.getTransactionManager().rollbackTransaction();
+                log.debug("rollback group: OK");
+            } catch (Exception tex) {
+                log.error("failed to rollback group transaction", tex);
+            }
+            state.curLastModified = prevLastModified;
+            state.curID = prevID;
+        }
+    }
+    
+    private void validate(Observation o) throws MismatchedChecksumException {
+        if (!nochecksum) {
+            validateChecksum(o);
+        }
+
+        CaomValidator.validate(o);
+
+        for (Plane p : o.getPlanes()) {
+            for (Artifact a : p.getArtifacts()) {
+                CaomWCSValidator.validate(a);
+            }
+        }
+    }
+    
+    // wait for the validation stage: returns the validation failure or null if valid
+    private Exception awaitValidation(Future<Exception> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new RuntimeException("interrupted while waiting for validation", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            return new RuntimeException("validation failed: " + ex.getCause(), ex.getCause());
+        }
+    }
+    
+    private class ValidateTask implements Callable<Exception> {
+        private final Observation obs;
+        private final AtomicInteger validated;
+        
+        ValidateTask(Observation obs, AtomicInteger validated) {
+            this.obs = obs;
+            this.validated = validated;
+        }
+
+        @Override
+        public Exception call() {
+            long t = System.currentTimeMillis();
+            try {
+                validate(obs);
+                return null;
+            } catch (Exception ex) {
+                return ex;
+            } finally {
+                timeValidate.addAndGet(System.currentTimeMillis() - t);
+                validated.incrementAndGet();
+            }
         }
-        return ret;
     }
 
     private void validateChecksum(Observation o) throws MismatchedChecksumException {
@@ -797,6 +1343,49 @@ public class ObservationHarvester extends Harvester {
         return ret;
     }
 
+    private Iterator<SkippedWrapperURI<ObservationResponse>> wrap(final Iterator<ObservationResponse> obsIter) {
+        return new Iterator<SkippedWrapperURI<ObservationResponse>>() {
+            @Override
+            public boolean hasNext() {
+                return obsIter.hasNext();
+            }
+
+            @Override
+            public SkippedWrapperURI<ObservationResponse> next() {
+                return new SkippedWrapperURI<ObservationResponse>(obsIter.next(), null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    // add to the end of the work queue and submit validation (null placeholder when there is no observation)
+    private void enqueue(SkippedWrapperURI<ObservationResponse> ow, List<SkippedWrapperURI<ObservationResponse>> entityList, 
+            List<Future<Exception>> validations, AtomicInteger validated) {
+        entityList.add(ow);
+        if (validateExecutor != null) {
+            if (ow.entity != null && ow.entity.observation != null) {
+                validations.add(validateExecutor.submit(new ValidateTask(ow.entity.observation, validated)));
+            } else {
+                validations.add(null);
+            }
+        }
+    }
+    
+    // fill the work queue from the source up to max entries; returns number added
+    private int readAhead(Iterator<SkippedWrapperURI<ObservationResponse>> entities, int max, 
+            List<SkippedWrapperURI<ObservationResponse>> entityList, List<Future<Exception>> validations, AtomicInteger validated) {
+        int num = 0;
+        while (entityList.size() < max && entities.hasNext()) {
+            enqueue(entities.next(), entityList, validations, validated);
+            num++;
+        }
+        return num;
+    }
+
     private List<SkippedWrapperURI<ObservationResponse>> getSkipped(Date start) throws ExecutionException, InterruptedException {
         log.info("harvest window (skip): " + format(start) + " [" + batchSize + "]" + " source = " + source + " cname = " + cname);
         List<HarvestSkipURI> skip = harvestSkipDAO.get(source, cname, start, null, batchSize);
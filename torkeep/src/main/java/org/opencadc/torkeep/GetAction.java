@@ -76,6 +76,7 @@ import ca.nrc.cadc.caom2.persistence.ObservationDAO;
 import ca.nrc.cadc.caom2.xml.ObservationWriter;
 import ca.nrc.cadc.date.DateUtil;
 import ca.nrc.cadc.io.ByteCountOutputStream;
+import ca.nrc.cadc.io.ResourceIterator;
 import ca.nrc.cadc.net.ResourceNotFoundException;
 import com.csvreader.CsvWriter;
 import java.io.IOException;
@@ -83,6 +84,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.text.DateFormat;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import org.apache.log4j.Logger;
 
@@ -150,16 +152,13 @@ public class GetAction extends RepoAction {
 
         ObservationDAO dao = getDAO();
 
-        List<ObservationState> states = dao.getObservationList(getCollection(), start, end, maxRec,
-                isAscending);
-
-        if (states == null) {
-            throw new ResourceNotFoundException("Collection not found: " + getCollection());
+        // stream states from the database to the output
+        try (ResourceIterator<ObservationState> states = dao.getObservationListIterator(getCollection(), 
+                start, end, maxRec, isAscending)) {
+            long byteCount = writeObservationList(states);
+            logInfo.setBytes(byteCount);
         }
 
-        long byteCount = writeObservationList(states);
-        logInfo.setBytes(byteCount);
-
         log.debug("DONE: " + getCollection());
     }
 
@@ -168,6 +167,10 @@ public class GetAction extends RepoAction {
     }
 
     protected long writeObservationList(List<ObservationState> states) throws IOException {
+        return writeObservationList(states.iterator());
+    }
+
+    protected long writeObservationList(Iterator<ObservationState> states) throws IOException {
         DateFormat df = DateUtil.getDateFormat(DateUtil.IVOA_DATE_FORMAT, DateUtil.UTC);
         syncOutput.setHeader("Content-Type", "text/tab-separated-values");
         
@@ -175,7 +178,8 @@ public class GetAction extends RepoAction {
         ByteCountOutputStream bc = new ByteCountOutputStream(os);
         OutputStreamWriter out = new OutputStreamWriter(bc, "US-ASCII");
         CsvWriter writer = new CsvWriter(out, '\t');
-        for (ObservationState state : states) {
+        while (states.hasNext()) {
+            ObservationState state = states.next();
             writer.write(state.getURI().getCollection());
             writer.write(state.getURI().getObservationID());
             if (state.maxLastModified != null) {
@@ -71,12 +71,14 @@ package org.opencadc.torkeep;
 
 import ca.nrc.cadc.ac.UserNotFoundException;
 import ca.nrc.cadc.ac.client.GMSClient;
+import ca.nrc.cadc.auth.AuthenticationUtil;
 import ca.nrc.cadc.caom2.Artifact;
 import ca.nrc.cadc.caom2.Observation;
 import ca.nrc.cadc.caom2.ObservationURI;
 import ca.nrc.cadc.caom2.Plane;
 import ca.nrc.cadc.caom2.compute.CaomWCSValidator;
 import ca.nrc.cadc.caom2.compute.ComputeUtil;
+import ca.nrc.cadc.caom2.persistence.DecisionCache;
 import ca.nrc.cadc.caom2.persistence.DeletedEntityDAO;
 import ca.nrc.cadc.caom2.persistence.ObservationDAO;
 import ca.nrc.cadc.caom2.util.CaomValidator;
@@ -316,12 +318,7 @@ public abstract class RepoAction extends RestAction {
         }
         log.debug("authorizing: " + grantURI);
 
-        try {
-            PermissionsCheck cp = new PermissionsCheck(grantURI, false, logInfo);
-            cp.checkReadPermission(tc.getGrantProviders());
-        } catch (InterruptedException ex) {
-            throw new RuntimeException("interrupted", ex);
-        }
+        checkPermission(tc, grantURI, false);
     }
 
     /**
@@ -356,11 +353,48 @@ public abstract class RepoAction extends RestAction {
         }
         log.debug("authorizing: " + grantURI);
 
+        checkPermission(tc, grantURI, true);
+    }
+
+    // check grants for the caller, using cached decisions when available
+    private void checkPermission(TorkeepConfig tc, URI grantURI, boolean write) 
+        throws AccessControlException, CertificateException, ResourceNotFoundException, IOException {
+        DecisionCache cache = tc.getGrantCache();
+        String key = null;
+        if (cache != null) {
+            key = DecisionCache.getCallerKey(AuthenticationUtil.getCurrentSubject()) 
+                    + (write ? "write:" : "read:") + grantURI.toASCIIString();
+            Boolean allowed = cache.get(key);
+            if (allowed != null) {
+                log.debug("authorized: " + grantURI + " " + allowed + " (cached)");
+                if (allowed) {
+                    return;
+                }
+                throw new AccessControlException("permission denied: " + grantURI);
+            }
+        }
+        
         try {
             PermissionsCheck cp = new PermissionsCheck(grantURI, false, logInfo);
-            cp.checkWritePermission(tc.getGrantProviders());
+            if (write) {
+                cp.checkWritePermission(tc.getGrantProviders());
+            } else {
+                cp.checkReadPermission(tc.getGrantProviders());
+            }
+            if (cache != null) {
+                cache.put(key, true);
+            }
+        } catch (AccessControlException ex) {
+            if (cache != null) {
+                cache.put(key, false);
+            }
+            throw ex;
         } catch (InterruptedException ex) {
             throw new RuntimeException("interrupted", ex);
+        } finally {
+            if (cache != null) {
+                log.debug(cache.getStatus());
+            }
         }
     }
 
@@ -69,6 +69,7 @@
 
 package org.opencadc.torkeep;
 
+import ca.nrc.cadc.caom2.persistence.DecisionCache;
 import ca.nrc.cadc.util.InvalidConfigException;
 import ca.nrc.cadc.util.MultiValuedProperties;
 import ca.nrc.cadc.util.PropertiesReader;
@@ -93,8 +94,17 @@ public class TorkeepConfig {
     private static final String BASE_PUBLISHER_ID_KEY = ".basePublisherID";
     private static final String COMPUTE_METADATA_KEY = ".computeMetadata";
     private static final String PROPOSAL_GROUP_KEY = ".proposalGroup";
+    private static final String GRANT_CACHE_TTL_KEY = "org.opencadc.torkeep.grantCacheTTL";
+    private static final String GRANT_CACHE_NEGATIVE_TTL_KEY = "org.opencadc.torkeep.grantCacheNegativeTTL";
+    
+    // defaults in seconds
+    private static final long DEFAULT_GRANT_CACHE_TTL = 300L;
+    private static final long DEFAULT_GRANT_CACHE_NEGATIVE_TTL = 30L;
+    private static final int GRANT_CACHE_MAX_SIZE = 10000;
+    
     private final List<URI> grantProviders = new ArrayList<>();
     private final List<CollectionEntry> configs = new ArrayList<>();
+    private DecisionCache grantCache;
 
     public TorkeepConfig() {
         init();
@@ -121,6 +131,15 @@ public class TorkeepConfig {
         return providers;
     }
 
+    /**
+     * Get the process-wide cache of grant decisions.
+     * 
+     * @return grant cache or null if disabled (grantCacheTTL = 0)
+     */
+    public DecisionCache getGrantCache() {
+        return this.grantCache;
+    }
+
     public List<CollectionEntry> getConfigs() {
         return this.configs;
     }
@@ -153,6 +172,14 @@ public class TorkeepConfig {
         // grant providers
         this.grantProviders.addAll(getGrantProviders(properties, errors));
 
+        // grant decision cache
+        long ttl = getSeconds(properties, GRANT_CACHE_TTL_KEY, DEFAULT_GRANT_CACHE_TTL, errors);
+        long negativeTTL = getSeconds(properties, GRANT_CACHE_NEGATIVE_TTL_KEY, DEFAULT_GRANT_CACHE_NEGATIVE_TTL, errors);
+        if (ttl > 0) {
+            this.grantCache = new DecisionCache(GRANT_CACHE_MAX_SIZE, ttl * 1000L, negativeTTL * 1000L);
+            log.debug("grant cache: ttl=" + ttl + " negativeTTL=" + negativeTTL);
+        }
+
         // get the collection keys
         List<String> collections = getCollections(properties, errors);
         for (String collection : collections) {
@@ -229,6 +256,23 @@ public class TorkeepConfig {
         return value;
     }
 
+    private long getSeconds(MultiValuedProperties properties, String key, long defaultValue, StringBuilder errors) {
+        String value = getProperty(properties, key, errors, false);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long ret = Long.parseLong(value.trim());
+            if (ret < 0) {
+                errors.append(String.format("%s: invalid value %s, must be >= 0\n", key, value));
+            }
+            return ret;
+        } catch (NumberFormatException e) {
+            errors.append(String.format("%s: invalid integer %s\n", key, value));
+            return defaultValue;
+        }
+    }
+
     private URI getBasePublisherID(MultiValuedProperties properties, String key, StringBuilder errors) {
         URI basePublisherID = null;
         String basePublisherIDValue = getProperty(properties, key, errors, true);